@@ -2,18 +2,22 @@ package org.apache.lucene.analysis.jate;
 
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.*;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.AttributeSource;
 import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.Set;
 
 /**
  * Based on org.apache.lucene.analysis.shingle.ShingleFilter that does additionally:
  * <br>-allows to remove trailing and heading stopwords in a shingle</br>
  * <br>-records sentence context of a shingle (see SentenceContext)
+ * <p>
+ * The window of input tokens is a ring buffer of recycled tokens. The sentence context and stopword/symbol checks of a
+ * token are decoded once, when the token enters the window, and shingles are stripped of symbol chars on a char
+ * buffer, so that emitting a shingle creates no string.
  */
 public final class ComplexShingleFilter extends MWEFilter implements SentenceContextAware {
     /**
@@ -35,10 +39,12 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
 
     /**
      * The sequence of input stream tokens (or filler tokens, if necessary)
-     * that will be composed to form output shingles.
+     * that will be composed to form output shingles: a ring buffer of
+     * {@link #windowSize} tokens starting at {@link #windowStart}.
      */
-    private LinkedList<InputWindowToken> inputWindow
-            = new LinkedList<>();
+    private InputWindowToken[] inputWindow;
+    private int windowStart;
+    private int windowSize;
 
     /**
      * The number of input tokens in the next output token.  This is the "n" in
@@ -51,6 +57,11 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
      */
     private StringBuilder gramBuilder = new StringBuilder();
 
+    /**
+     * Shingle text stripped of symbol chars.
+     */
+    private char[] gramChars = new char[64];
+
     /**
      * The token type attribute value to use - default is "shingle"
      */
@@ -152,6 +163,7 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
         this.tokenSeparator = tokenSeparater;
         this.fillerToken = fillerToken.toCharArray();
         gramSize = new CircularSequence();
+        inputWindow = new InputWindowToken[Math.max(1, maxTokens)];
     }
 
 
@@ -171,30 +183,27 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
         boolean tokenAvailable = false;
         int builtGramSize = 0;
 
-        if (gramSize.atMinValue() || inputWindow.size() < gramSize.getValue()) {
+        if (gramSize.atMinValue() || windowSize < gramSize.getValue()) {
             shiftInputWindow();
             gramBuilder.setLength(0);
         } else {
             builtGramSize = gramSize.getPreviousValue();
         }
-        if (inputWindow.size() >= gramSize.getValue()) {
+        if (windowSize >= gramSize.getValue()) {
             boolean isAllFiller = true;
             InputWindowToken nextToken = null;
-            Iterator<InputWindowToken> iter = inputWindow.iterator();
 
-            int idxInWindow = -1;
             boolean outputThisShingle = true;
             //this where the token n-gram is built
             for (int gramNum = 1;
-                 iter.hasNext() && builtGramSize < gramSize.getValue();
+                 gramNum <= windowSize && builtGramSize < gramSize.getValue();
                  ++gramNum) {
 
-                nextToken = iter.next();
-                idxInWindow++;
-                if (idxInWindow == 0)
-                    outputThisShingle = checkToken(nextToken);
-                if (outputThisShingle && idxInWindow == gramSize.getValue() - 1)
-                    outputThisShingle = checkToken(nextToken);
+                nextToken = getWindowToken(gramNum - 1);
+                if (gramNum == 1)
+                    outputThisShingle = nextToken.checked;
+                if (outputThisShingle && gramNum == gramSize.getValue())
+                    outputThisShingle = nextToken.checked;
 
                 if (builtGramSize < gramNum) {
                     if (builtGramSize > 0) {
@@ -213,28 +222,25 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
                 }
             }
             if (!isAllFiller && builtGramSize == gramSize.getValue()) {
-                String normalized = stripSymbolChars(gramBuilder.toString());
-                if (normalized.length() > maxCharLength || normalized.length() < minCharLength) {
-/*                    if(gramBuilder.toString().equals("t)")||gramBuilder.toString().equals("t("))
-                        System.out.println();*/
-                    outputThisShingle = false;
+                int normalizedLength = 0;
+                if (outputThisShingle) {
+                    int gramLength = gramBuilder.length();
+                    gramChars = ArrayUtil.grow(gramChars, gramLength);
+                    gramBuilder.getChars(0, gramLength, gramChars, 0);
+                    normalizedLength = stripSymbolChars(gramChars, gramLength);
+                    if (normalizedLength > maxCharLength || normalizedLength < minCharLength)
+                        outputThisShingle = false;
                 }
 
                 if (outputThisShingle) {
-                    inputWindow.getFirst().attSource.copyTo(this);
-                    BytesRef brFirstTokenSentCtx = sentenceContextAtt != null ? sentenceContextAtt.getPayload() : null;
-                    SentenceContext firstTokenSentCtx = brFirstTokenSentCtx == null ? null : new SentenceContext(
-                            brFirstTokenSentCtx.utf8ToString()
-                    );
-                    BytesRef brLastTokenSentCtx = nextToken.sentenceContext != null ?
-                            nextToken.sentenceContext.getPayload() : null;
-                    SentenceContext lastTokenSentCtx = brLastTokenSentCtx == null ? null :
-                            new SentenceContext(brLastTokenSentCtx.utf8ToString());
-
+                    InputWindowToken firstToken = getWindowToken(0);
+                    firstToken.attSource.copyTo(this);
+                    SentenceContext firstTokenSentCtx = firstToken.getSentenceContext();
+                    SentenceContext lastTokenSentCtx = nextToken.getSentenceContext();
 
                     if (!crossBoundary(firstTokenSentCtx, lastTokenSentCtx)) {
                         posIncrAtt.setPositionIncrement(isOutputHere ? 0 : 1);
-                        termAtt.setEmpty().append(normalized);
+                        termAtt.copyBuffer(gramChars, 0, normalizedLength);
                         if (gramSize.getValue() > 1) {
                             typeAtt.setType(tokenType);
                             noShingleOutput = false;
@@ -253,15 +259,12 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
                                     firstTokenSentCtx.getPosTag(),
                                     lastTokenSentCtx.getSentenceId());
                         }
-                       // System.out.println("==="+gramBuilder.toString()+","+sentenceContextAtt.getPayload().utf8ToString());
                     } else {
                         outputThisShingle = false;
                     }
                 }
                 if (!outputThisShingle) {
                     clearAttributes();
-                    //termAtt.setEmpty();
-                    //inputWindow.getFirst().attSource.copyTo(this);
                     gramSize.advance();
                     isOutputHere = true;
                     tokenAvailable = true;
@@ -278,6 +281,9 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
         return false;
     }
 
+    /**
+     * @return false if the token must not start or end a shingle
+     */
     private boolean checkToken(InputWindowToken nextToken) {
         if ((removeLeadingStopwords || removeTrailingStopwords) && stopWords != null) {
             String token = new String(nextToken.termAtt.buffer(), 0, nextToken.termAtt.length());
@@ -287,14 +293,22 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
                 return false;
         }
         if (removeLeadingSymbolicTokens || removeTrailingSymbolicTokens) {
-            String token = new String(nextToken.termAtt.buffer(), 0, nextToken.termAtt.length());
-            token = token.replaceAll("\\p{Punct}+", "");
-            if (token.length() == 0)
+            if (PunctuationRemover.isAllPunctuation(nextToken.termAtt.buffer(), 0, nextToken.termAtt.length()))
                 return false;
         }
         return true;
     }
 
+    private InputWindowToken getWindowToken(int index) {
+        return inputWindow[(windowStart + index) % inputWindow.length];
+    }
+
+    private void addToWindow(InputWindowToken token) {
+        token.decode();
+        inputWindow[(windowStart + windowSize) % inputWindow.length] = token;
+        windowSize++;
+    }
+
 
     private boolean exhausted;
 
@@ -397,13 +411,16 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
      */
     private boolean shiftInputWindow() throws IOException {
         InputWindowToken firstToken = null;
-        if (inputWindow.size() > 0) {
-            firstToken = inputWindow.removeFirst();
+        if (windowSize > 0) {
+            firstToken = inputWindow[windowStart];
+            inputWindow[windowStart] = null;
+            windowStart = (windowStart + 1) % inputWindow.length;
+            windowSize--;
         }
-        while (inputWindow.size() < maxTokens) {
+        while (windowSize < maxTokens) {
             if (null != firstToken) {  // recycle the firstToken, if available
                 if (null != getNextToken(firstToken)) {
-                    inputWindow.add(firstToken); // the firstToken becomes the last
+                    addToWindow(firstToken); // the firstToken becomes the last
                     firstToken = null;
                 } else {
                     break; // end of input stream
@@ -411,14 +428,14 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
             } else {
                 InputWindowToken nextToken = getNextToken(null);
                 if (null != nextToken) {
-                    inputWindow.add(nextToken);
+                    addToWindow(nextToken);
                 } else {
                     break; // end of input stream
                 }
             }
         }
         if (outputUnigramsIfNoShingles && noShingleOutput
-                && gramSize.minValue > 1 && inputWindow.size() < minTokens) {
+                && gramSize.minValue > 1 && windowSize < minTokens) {
             gramSize.minValue = 1;
         }
         gramSize.reset();
@@ -431,7 +448,9 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
     public void reset() throws IOException {
         super.reset();
         gramSize.reset();
-        inputWindow.clear();
+        Arrays.fill(inputWindow, null);
+        windowStart = 0;
+        windowSize = 0;
         nextInputStreamToken = null;
         isNextInputStreamToken = false;
         numFillerTokensToInsert = 0;
@@ -529,11 +548,30 @@ public final class ComplexShingleFilter extends MWEFilter implements SentenceCon
         final PayloadAttribute sentenceContext;
         boolean isFiller = false;
 
+        /**
+         * Decoded on entering the window, see {@link #decode()}
+         */
+        final SentenceContext decodedSentenceContext = new SentenceContext();
+        boolean hasSentenceContext;
+        boolean checked;
+
         public InputWindowToken(AttributeSource attSource) {
             this.attSource = attSource;
             this.termAtt = attSource.getAttribute(CharTermAttribute.class);
             this.offsetAtt = attSource.getAttribute(OffsetAttribute.class);
             this.sentenceContext = attSource.getAttribute(PayloadAttribute.class);
         }
+
+        void decode() {
+            BytesRef payload = sentenceContext != null ? sentenceContext.getPayload() : null;
+            hasSentenceContext = payload != null;
+            if (hasSentenceContext)
+                decodedSentenceContext.decode(payload);
+            checked = checkToken(this);
+        }
+
+        SentenceContext getSentenceContext() {
+            return hasSentenceContext ? decodedSentenceContext : null;
+        }
     }
 }
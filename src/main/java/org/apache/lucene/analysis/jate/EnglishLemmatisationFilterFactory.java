@@ -7,6 +7,10 @@ import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.lucene.analysis.util.ResourceLoaderAware;
 import org.apache.lucene.analysis.util.TokenFilterFactory;
 import org.apache.solr.core.SolrResourceLoader;
+import uk.ac.shef.dcs.jate.nlp.LemmaCache;
+import uk.ac.shef.dcs.jate.nlp.Lemmatiser;
+import uk.ac.shef.dcs.jate.nlp.ModelRegistry;
+import uk.ac.shef.dcs.jate.solr.ModelReleaseComponent;
 
 import java.io.File;
 import java.io.IOException;
@@ -17,8 +21,9 @@ import java.util.Map;
  */
 public class EnglishLemmatisationFilterFactory extends TokenFilterFactory implements ResourceLoaderAware {
 
-    private EngLemmatiser lemmatiser;
+    private Lemmatiser lemmatiser;
     private String lemmatiserResourceDir;
+    private int lemmaCacheSize;
     /**
      * Initialize this factory via a set of key-value pairs.
      *
@@ -29,17 +34,24 @@ public class EnglishLemmatisationFilterFactory extends TokenFilterFactory implem
         lemmatiserResourceDir = args.get("lemmaResourceDir");
         if (lemmatiserResourceDir == null)
             throw new IllegalArgumentException("Parameter 'lemmaResourceDir' for lemmatiser is missing.");
+        //lemmas are cached across all filters created by this factory; 0 disables the cache
+        lemmaCacheSize = getInt(args, "lemmaCacheSize", LemmaCache.DEFAULT_SIZE);
     }
 
     @Override
     public void inform(ResourceLoader loader) throws IOException {
+        ModelReleaseComponent.register(loader, this);
         if (lemmatiserResourceDir != null ) {
             try {
                 String path=((SolrResourceLoader) loader).getConfigDir();
                 if(!path.endsWith(File.separator))
                         path=path+File.separator;
-                lemmatiser = new EngLemmatiser(path+lemmatiserResourceDir,
-                        false, false);
+                String lemmatiserPath = path + lemmatiserResourceDir;
+                //the dictionary is shared by all fields and cores using the same resources
+                EngLemmatiser engLemmatiser = ModelRegistry.getInstance().acquire(this,
+                        EngLemmatiser.class.getName(), new File(lemmatiserPath),
+                        dir -> new EngLemmatiser(lemmatiserPath, false, false));
+                lemmatiser = new Lemmatiser(engLemmatiser, lemmaCacheSize);
             } catch (Exception e) {
                 StringBuilder sb = new StringBuilder("Initiating ");
                 sb.append(this.getClass().getName()).append(" failed due to:\n");
@@ -53,4 +65,12 @@ public class EnglishLemmatisationFilterFactory extends TokenFilterFactory implem
     public TokenStream create(TokenStream input) {
         return new EnglishLemmatisationFilter(lemmatiser, input);
     }
+
+    /**
+     * @return the lemmatiser shared by all filters of this factory; its cache provides hit rate statistics
+     * @see Lemmatiser#getCache()
+     */
+    public Lemmatiser getLemmatiser() {
+        return lemmatiser;
+    }
 }
@@ -154,4 +154,12 @@ public abstract class MWEFilter extends TokenFilter implements SentenceContextAw
                 stripPunctuations(in,stripAllSymbolChars, stripLeadingSymbolChars, stripTrailingSymbolChars);
     }
 
+    /**
+     * @see PunctuationRemover#stripPunctuations(char[], int, boolean, boolean, boolean)
+     */
+    protected int stripSymbolChars(char[] buffer, int length){
+        return PunctuationRemover.
+                stripPunctuations(buffer, length, stripAllSymbolChars, stripLeadingSymbolChars, stripTrailingSymbolChars);
+    }
+
 }
@@ -12,6 +12,10 @@ import java.io.IOException;
 import java.util.*;
 
 /**
+ * Base class of the filters generating candidate terms by chunking the PoS tagged tokens of a sentence. Tokens are
+ * read and chunked one sentence (tokens with the same sentence id in their sentence context payload) at a time,
+ * since candidates never cross sentences. A subclass may instead chunk all tokens of a document as one sequence (see
+ * {@link #chunkPerSentence}), in which case working memory grows with the document.
  */
 public abstract class OpenNLPMWEFilter extends MWEFilter {
     private static Logger LOG = Logger.getLogger(OpenNLPMWEFilter.class.getSimpleName());
@@ -20,15 +24,35 @@ public abstract class OpenNLPMWEFilter extends MWEFilter {
     protected final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
     protected final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
 
-    protected boolean first = true;
     protected static String SENTENCE_BREAK = "[.?!]";
-    // cloned attrs of all tokens
+    // cloned attrs of the tokens of the current sentence, reused by the following sentences
     protected List<AttributeSource> tokenAttrs = new ArrayList<>();
-    protected Map<Integer, List<Integer>> chunkSpans = new HashMap<>(); //start, end; end is exclusive
-    protected Map<Integer, String> chunkTypes = new HashMap<>();
+    protected int sentenceLength = 0;
+    // PoS tag of the first token of the next sentence, null at the last sentence of a document
+    protected String nextPosTag;
+    // chunks of the current sentence: the ends (exclusive) of the chunks starting at token i are
+    // chunkEnds[chunkOffsets[i]] to chunkEnds[chunkOffsets[i + 1] - 1]
+    protected int[] chunkOffsets = new int[1];
+    protected int[] chunkEnds = new int[0];
+    protected String[] chunkTypes = new String[0];
     protected int chunkStart = -1;
-    protected List<Integer> chunkEnds = new ArrayList<>(); //multiple chunks with the same start index but different end index are possible
+    protected int chunkEndIdx = 0; //index in chunkEnds of the next end of the chunks starting at chunkStart
     protected int tokenIdx = 0;
+    //false to read and chunk all tokens of a document as one sequence, e.g., for a chunker whose model uses the
+    //tags of the previous sentence as context
+    protected boolean chunkPerSentence = true;
+
+    //first token of the next sentence, read before the current sentence is chunked
+    private AttributeSource lookahead;
+    private boolean hasLookahead;
+    private String lookaheadWord;
+    private String lookaheadPos;
+    private int lookaheadSentenceId;
+    //set once input returned false, after which it must not be read again until reset
+    private boolean inputExhausted;
+    private final SentenceContext payloadSentCtx = new SentenceContext();
+    private final List<String> sentenceWords = new ArrayList<>();
+    private final List<String> sentencePos = new ArrayList<>();
 
 
     public OpenNLPMWEFilter(TokenStream input, int minTokens, int maxTokens,
@@ -65,8 +89,10 @@ public abstract class OpenNLPMWEFilter extends MWEFilter {
         boolean added = false;
         if (!crossBoundary(firstTokenSentCtx, lastTokenSentCtx)) {
             StringBuilder phrase = new StringBuilder();
-            for (int i = chunkStart; i <= chunkEnd - 1; i++)
-                phrase.append(tokenAttrs.get(i).getAttribute(CharTermAttribute.class).buffer()).append(" ");
+            for (int i = chunkStart; i <= chunkEnd - 1; i++) {
+                CharTermAttribute tokenTermAtt = tokenAttrs.get(i).getAttribute(CharTermAttribute.class);
+                phrase.append(tokenTermAtt.buffer(), 0, tokenTermAtt.length()).append(" ");
+            }
 
             //check char length
             String normalized = null;
@@ -85,19 +111,19 @@ public abstract class OpenNLPMWEFilter extends MWEFilter {
                 termAtt.setEmpty().append(normalized);
                 offsetAtt.setOffset(start.getAttribute(OffsetAttribute.class).startOffset(),
                         end.getAttribute(OffsetAttribute.class).endOffset());
-                typeAtt.setType(chunkTypes.get(chunkStart));
+                typeAtt.setType(chunkTypes[chunkStart]);
                 addSentenceContextPayload(firstTokenSentCtx, lastTokenSentCtx);
                 added = true;
             }
             //System.out.println(phrase.toString().trim()+","+sentenceContextAtt.getPayload().utf8ToString());
         }
 
-        chunkEnds.remove(Integer.valueOf(chunkEnd));
-        if (chunkEnds.size() == 0) {
+        chunkEndIdx++;
+        if (chunkEndIdx == chunkOffsets[chunkStart + 1]) {
             tokenIdx = chunkStart + 1;
             chunkStart = -1;
         } else {
-            tokenIdx = chunkEnds.get(0); //set the next token index to be the next phrase's end token index
+            tokenIdx = chunkEnds[chunkEndIdx]; //set the next token index to be the next phrase's end token index
         }
 
         return added;
@@ -223,18 +249,14 @@ public abstract class OpenNLPMWEFilter extends MWEFilter {
         }
 
         if (removeLeadingSymbolicTokens) {
-            String tok = tokens[newStart];
-            String normalized = tok.replaceAll("[\\p{Punct}]", "");
-            if (normalized.length() == 0) {
+            if (PunctuationRemover.isAllPunctuation(tokens[newStart])) {
                 newStart++;
                 if (newStart >= newEnd)
                     return null;
             }
         }
         if (removeLeadingSymbolicTokens) {
-            String tok = tokens[newEnd - 1];
-            String normalized = tok.replaceAll("[\\p{Punct}]", "");
-            if (normalized.length() == 0) {
+            if (PunctuationRemover.isAllPunctuation(tokens[newEnd - 1])) {
                 newEnd--;
                 if (newStart >= newEnd)
                     return null;
@@ -250,20 +272,73 @@ public abstract class OpenNLPMWEFilter extends MWEFilter {
     }
 
     protected void resetParams() {
-        first = true;
         tokenIdx = 0;
+        sentenceLength = 0;
         chunkStart = -1;
-        chunkEnds.clear();
-        ;
-        chunkSpans.clear();
-        chunkTypes.clear();
+        chunkEndIdx = 0;
+        hasLookahead = false;
+        nextPosTag = null;
     }
 
-    //gather tokens and PoS's
-    protected String[][] walkTokens() throws IOException {
-        List<String> wordList = new ArrayList<>();
-        List<String> posList = new ArrayList<>();
-        while (input.incrementToken()) {
+    /**
+     * Chunk a sentence.
+     *
+     * @param words tokens of the sentence
+     * @param pos   PoS tags of the tokens
+     * @return Span[] candidate spans in the sentence, which are then pruned
+     */
+    protected abstract Span[] chunk(String[] words, String[] pos);
+
+    @Override
+    public final boolean incrementToken() throws IOException {
+        clearAttributes();
+        while (chunkStart == -1 && tokenIdx == sentenceLength) {
+            if (!nextSentence())
+                return false;
+        }
+
+        if (chunkStart != -1) {  //already found a new chunk and tokenIdx is its next end
+            addMWE(tokenIdx);
+            //do not increment token index here because end span is exclusive
+            return true;
+        }
+        if (chunkOffsets[tokenIdx] < chunkOffsets[tokenIdx + 1]) { //found a new chunk, the current token is its beginning
+            chunkStart = tokenIdx;
+            chunkEndIdx = chunkOffsets[tokenIdx];
+            tokenIdx = chunkEnds[chunkEndIdx]; //set tokenIdx to be the next end index for the beginning index
+        } else { //a token that is not part of a chunk
+            tokenIdx++;
+        }
+        return true;
+    }
+
+    //gather the tokens and PoS's of the next sentence (or of the whole document, unless chunkPerSentence), and chunk
+    //them
+    private boolean nextSentence() throws IOException {
+        sentenceLength = 0;
+        sentenceWords.clear();
+        sentencePos.clear();
+        nextPosTag = null;
+        int sentenceId = 0;
+        if (hasLookahead) {
+            AttributeSource reused = tokenAttrs.isEmpty() ? null : tokenAttrs.get(0);
+            if (reused == null)
+                tokenAttrs.add(lookahead);
+            else
+                tokenAttrs.set(0, lookahead);
+            lookahead = reused;
+            sentenceWords.add(lookaheadWord);
+            sentencePos.add(lookaheadPos);
+            sentenceId = lookaheadSentenceId;
+            sentenceLength = 1;
+            hasLookahead = false;
+        }
+
+        while (!inputExhausted) {
+            if (!input.incrementToken()) {
+                inputExhausted = true;
+                break;
+            }
             CharTermAttribute textAtt = input.getAttribute(CharTermAttribute.class);
             OffsetAttribute offsetAtt = input.getAttribute(OffsetAttribute.class);
             char[] buffer = textAtt.buffer();
@@ -277,30 +352,73 @@ public abstract class OpenNLPMWEFilter extends MWEFilter {
                 word = offsetAtt.toString();
             }
 
-            wordList.add(word);
             PayloadAttribute posAtt = input.getAttribute(PayloadAttribute.class);
-            if (posAtt != null) {
-                posList.add(new SentenceContext(posAtt.getPayload().utf8ToString()).getPosTag());
+            if (posAtt == null || posAtt.getPayload() == null) {
+                StringBuilder sb = new StringBuilder(this.getClass().getName());
+                sb.append(" requires both token and token POS. Token [").append(word)
+                        .append("] has no POS.")
+                        .append(" Have you enabled POS tagging in your Solr analyzer chain?");
+                throw new IOException(sb.toString());
             }
-            AttributeSource attrs = input.cloneAttributes();
-            tokenAttrs.add(attrs);
+            payloadSentCtx.decode(posAtt.getPayload());
+
+            if (chunkPerSentence && sentenceLength > 0 && payloadSentCtx.getSentenceId() != sentenceId) {
+                //first token of the next sentence
+                if (lookahead == null)
+                    lookahead = input.cloneAttributes();
+                else
+                    input.copyTo(lookahead);
+                lookaheadWord = word;
+                lookaheadPos = payloadSentCtx.getPosTag();
+                lookaheadSentenceId = payloadSentCtx.getSentenceId();
+                nextPosTag = lookaheadPos;
+                hasLookahead = true;
+                break;
+            }
+
+            if (sentenceLength < tokenAttrs.size())
+                input.copyTo(tokenAttrs.get(sentenceLength));
+            else
+                tokenAttrs.add(input.cloneAttributes());
+            sentenceWords.add(word);
+            sentencePos.add(payloadSentCtx.getPosTag());
+            sentenceId = payloadSentCtx.getSentenceId();
+            sentenceLength++;
         }
-        if (wordList.size() != posList.size()) {
-            StringBuilder sb = new StringBuilder(this.getClass().getName());
-            sb.append(" requires both token and token POS. Tokens=").append(wordList.size())
-                    .append(", POS=").append(posList.size()).append(", and they are inconsistent.")
-                    .append(" Have you enabled POS tagging in your Solr analyzer chain?");
-            throw new IOException(sb.toString());
+        clearAttributes();
+        if (sentenceLength == 0)
+            return false;
+
+        String[] words = sentenceWords.toArray(new String[sentenceLength]);
+        String[] pos = sentencePos.toArray(new String[sentenceLength]);
+        indexChunks(prune(chunk(words, pos), words));
+        tokenIdx = 0;
+        chunkStart = -1;
+        return true;
+    }
+
+    //index the chunks of the current sentence by start token, keeping the order of the ends of each start
+    private void indexChunks(Span[] chunks) {
+        if (chunkOffsets.length < sentenceLength + 1) {
+            chunkOffsets = new int[sentenceLength + 1];
+            chunkTypes = new String[sentenceLength];
+        } else {
+            Arrays.fill(chunkOffsets, 0, sentenceLength + 1, 0);
         }
-        String[] words = new String[wordList.size()];
-        String[] pos = new String[posList.size()];
-        for (int i = 0; i < words.length; i++) {
-            words[i] = wordList.get(i);
-            pos[i] = posList.get(i);
+        if (chunkEnds.length < chunks.length)
+            chunkEnds = new int[chunks.length];
+
+        for (Span sp : chunks)
+            chunkOffsets[sp.getStart() + 1]++;
+        for (int i = 0; i < sentenceLength; i++)
+            chunkOffsets[i + 1] += chunkOffsets[i];
+        //chunkOffsets[i] is used as the next free slot of start i, after which it is the offset of start i + 1
+        for (Span sp : chunks) {
+            chunkEnds[chunkOffsets[sp.getStart()]++] = sp.getEnd();
+            chunkTypes[sp.getStart()] = sp.getType(); //the type of the last chunk of a start is kept
         }
-
-        clearAttributes();
-        return new String[][]{words, pos};
+        System.arraycopy(chunkOffsets, 0, chunkOffsets, 1, sentenceLength);
+        chunkOffsets[0] = 0;
     }
 
 
@@ -308,7 +426,7 @@ public abstract class OpenNLPMWEFilter extends MWEFilter {
     public final void end() throws IOException {
         super.end();
         clearAttributes();
-        tokenAttrs.clear();
+        resetParams();
     }
 
     @Override
@@ -316,5 +434,6 @@ public abstract class OpenNLPMWEFilter extends MWEFilter {
         super.reset();
         clearAttributes();
         resetParams();
+        inputExhausted = false;
     }
 }
@@ -5,10 +5,10 @@ import org.apache.lucene.analysis.TokenStream;
 
 import uk.ac.shef.dcs.jate.nlp.Chunker;
 
-import java.io.IOException;
 import java.util.*;
 /**
- * Generate candidate terms using the OpenNLP noun phrase chunker
+ * Generate candidate terms using the OpenNLP noun phrase chunker. With chunkPerSentence, each sentence is chunked as a
+ * separate sequence; otherwise all tokens of a document are chunked as one sequence, as the chunker has always done.
  */
 public final class OpenNLPNounPhraseFilter extends OpenNLPMWEFilter {
 
@@ -42,56 +42,34 @@ public final class OpenNLPNounPhraseFilter extends OpenNLPMWEFilter {
         this.npChunker=npChunker;
     }
 
-    @Override
-    public boolean incrementToken() throws IOException {
-        clearAttributes();
-        if (first) {
-            //gather all tokens from doc
-            String[][] wordsAndPos = walkTokens();
-            String[] words = wordsAndPos[0];
-            if (words.length == 0) {
-                return false;
-            }
-            //tagging
-            String[] pos = wordsAndPos[1];
-            //chunking
-            String[] tags = npChunker.chunk(words, pos);
-            Span[] chunks=createSpan(tags);
-            chunks = prune(chunks, words);
-            for (Span sp : chunks) {
-                List<Integer> ends = chunkSpans.get(sp.getStart());
-                if(ends==null)
-                    ends=new ArrayList<>();
-                ends.add(sp.getEnd());
-
-                chunkSpans.put(sp.getStart(), ends);
-                chunkTypes.put(sp.getStart(), sp.getType());
-            }
-            first = false;
-            tokenIdx = 0;
-        }
-
-        if (tokenIdx == tokenAttrs.size()) {
-            resetParams();
-            return false;
-        }
+    protected OpenNLPNounPhraseFilter(TokenStream input,
+                                      Chunker npChunker,
+                                      boolean chunkPerSentence,
+                                      int minTokens, int maxTokens,
+                                      int minCharLength, int maxCharLength,
+                                      boolean removeLeadingStopWords,
+                                      boolean removeTrailingStopwords,
+                                      boolean removeLeadingSymbolicTokens,
+                                      boolean removeTrailingSymbolicTokens,
+                                      boolean stripLeadingSymbolChars,
+                                      boolean stripTrailingSymbolChars,
+                                      boolean stripAllSymbolChars,
+                                      Set<String> stopWords,
+                                      boolean stopWordsIgnoreCase) {
+        this(input, npChunker, minTokens, maxTokens,
+                minCharLength, maxCharLength,
+                removeLeadingStopWords, removeTrailingStopwords,
+                removeLeadingSymbolicTokens, removeTrailingSymbolicTokens,
+                stripLeadingSymbolChars,
+                stripTrailingSymbolChars,
+                stripAllSymbolChars,
+                stopWords, stopWordsIgnoreCase);
+        this.chunkPerSentence=chunkPerSentence;
+    }
 
-        if (chunkStart != -1 && chunkEnds.contains(tokenIdx)) {  //already found a new chunk and now we found its end
-            addMWE(tokenIdx);
-            
-            //do not increment token index here because end span is exclusive
-            //tokenIdx++;
-            return true;
-        }
-        if (chunkSpans.containsKey(tokenIdx)) { //at the beginning of a new chunk
-            chunkStart = tokenIdx;
-            chunkEnds = chunkSpans.get(tokenIdx);
-            tokenIdx = chunkEnds.get(0); //set tokenIdx to be the next end index for the beginning index
-            return true;
-        } else { //a token that is not part of a chunk
-            tokenIdx++;
-            return true;
-        }
+    @Override
+    protected Span[] chunk(String[] words, String[] pos) {
+        return createSpan(npChunker.chunk(words, pos));
     }
 
     private Span[] createSpan(String[] tags) {
@@ -4,7 +4,9 @@ import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.util.ResourceLoader;
 import uk.ac.shef.dcs.jate.nlp.Chunker;
 import uk.ac.shef.dcs.jate.nlp.InstanceCreator;
+import uk.ac.shef.dcs.jate.nlp.ModelRegistry;
 import uk.ac.shef.dcs.jate.nlp.opennlp.ChunkerOpenNLP;
+import uk.ac.shef.dcs.jate.solr.ModelReleaseComponent;
 
 import java.io.IOException;
 import java.util.Map;
@@ -15,6 +17,7 @@ import java.util.Map;
 public class OpenNLPNounPhraseFilterFactory extends MWEFilterFactory {
     private Chunker chunker;
     private String chunkerModelFile;
+    private boolean chunkPerSentence;
     /**
      * Initialize this factory via a set of key-value pairs.
      *
@@ -25,13 +28,16 @@ public class OpenNLPNounPhraseFilterFactory extends MWEFilterFactory {
         chunkerModelFile = args.get("chunkerModel");
         if (chunkerModelFile == null)
             throw new IllegalArgumentException("Parameter 'chunkerModel' for chunker is missing.");
+        //chunk each sentence separately, with working memory bounded by the longest sentence, rather than the whole
+        //document as one sequence
+        chunkPerSentence = getBoolean(args, "chunkPerSentence", false);
 
     }
 
     @Override
     public TokenStream create(TokenStream input) {
 
-        return new OpenNLPNounPhraseFilter(input, chunker,
+        return new OpenNLPNounPhraseFilter(input, chunker, chunkPerSentence,
                 minTokens, maxTokens, minCharLength, maxCharLength,
                 removeLeadingStopwords, removeTrailingStopwords,
                 removeLeadingSymbolicTokens, removeTrailingSymbolicTokens,
@@ -44,9 +50,12 @@ public class OpenNLPNounPhraseFilterFactory extends MWEFilterFactory {
     @Override
     public void inform(ResourceLoader loader) throws IOException {
         super.inform(loader);
+        ModelReleaseComponent.register(loader, this);
 
         try {
-            chunker = InstanceCreator.createChunker(ChunkerOpenNLP.class.getName(), loader.openResource(chunkerModelFile));
+            chunker = ModelRegistry.getInstance().acquire(this, ChunkerOpenNLP.class.getName(), chunkerModelFile,
+                    loader.openResource(chunkerModelFile),
+                    model -> InstanceCreator.createChunker(ChunkerOpenNLP.class.getName(), model));
         } catch (Exception e) {
             StringBuilder sb = new StringBuilder("Initiating ");
             sb.append(this.getClass().getName()).append(" failed due to:\n");
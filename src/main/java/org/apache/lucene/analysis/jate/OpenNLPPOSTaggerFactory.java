@@ -6,7 +6,9 @@ import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.lucene.analysis.util.ResourceLoaderAware;
 import org.apache.lucene.analysis.util.TokenFilterFactory;
 import uk.ac.shef.dcs.jate.nlp.InstanceCreator;
+import uk.ac.shef.dcs.jate.nlp.ModelRegistry;
 import uk.ac.shef.dcs.jate.nlp.POSTagger;
+import uk.ac.shef.dcs.jate.solr.ModelReleaseComponent;
 
 import java.io.IOException;
 import java.util.Map;
@@ -16,6 +18,7 @@ public class OpenNLPPOSTaggerFactory extends TokenFilterFactory implements Resou
     private POSTagger tagger=null;
     private String posTaggerModelFile=null;
     private String posTaggerClass=null;
+    private boolean tagPerSentence;
     /**
      * Initialize this factory via a set of key-value pairs.
      *
@@ -31,13 +34,17 @@ public class OpenNLPPOSTaggerFactory extends TokenFilterFactory implements Resou
         if (posTaggerModelFile == null) {
             throw new IllegalArgumentException("Parameter 'posTaggerModel' for POS tagger is missing.");
         }
+        tagPerSentence = getBoolean(args, "tagPerSentence", false);
     }
 
     @Override
     public void inform(ResourceLoader loader) throws IOException {
+        ModelReleaseComponent.register(loader, this);
         if (posTaggerModelFile != null && posTaggerClass != null) {
             try {
-                tagger = InstanceCreator.createPOSTagger(posTaggerClass, loader.openResource(posTaggerModelFile));
+                tagger = ModelRegistry.getInstance().acquire(this, posTaggerClass, posTaggerModelFile,
+                        loader.openResource(posTaggerModelFile),
+                        model -> InstanceCreator.createPOSTagger(posTaggerClass, model));
             } catch (Exception e) {
                 StringBuilder sb = new StringBuilder("Initiating ");
                 sb.append(this.getClass().getName()).append(" failed due to:\n");
@@ -49,6 +56,6 @@ public class OpenNLPPOSTaggerFactory extends TokenFilterFactory implements Resou
 
     @Override
     public TokenStream create(TokenStream input) {
-        return new OpenNLPPOSTaggerFilter(input, tagger);
+        return new OpenNLPPOSTaggerFilter(input, tagger, tagPerSentence);
     }
 }
@@ -14,11 +14,15 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
-
+/**
+ * Tags all tokens of a document with their PoS, appended to their sentence context payload. With tagPerSentence,
+ * each sentence is tagged as a separate sequence.
+ */
 public final class OpenNLPPOSTaggerFilter extends TokenFilter {
     protected static Logger LOG = Logger.getLogger(OpenNLPPOSTaggerFilter.class.getSimpleName());
 
     private POSTagger tagger;
+    private boolean tagPerSentence;
     private int tokenIdx = 0;
     protected boolean first = true;
     // cloned attrs of all tokens
@@ -27,6 +31,8 @@ public final class OpenNLPPOSTaggerFilter extends TokenFilter {
     private final PayloadAttribute exitingPayload = addAttribute(PayloadAttribute.class);
 
     private String[] posTags;
+    private int[] sentenceIds;
+    private final SentenceContext sentenceContext = new SentenceContext();
 
     /**
      * Construct a token stream filtering the given input.
@@ -34,8 +40,16 @@ public final class OpenNLPPOSTaggerFilter extends TokenFilter {
      * @param input
      */
     protected OpenNLPPOSTaggerFilter(TokenStream input, POSTagger tagger) {
+        this(input, tagger, false);
+    }
+
+    /**
+     * @param tagPerSentence if true, tag each sentence separately rather than the whole document at once
+     */
+    protected OpenNLPPOSTaggerFilter(TokenStream input, POSTagger tagger, boolean tagPerSentence) {
         super(input);
         this.tagger = tagger;
+        this.tagPerSentence = tagPerSentence;
     }
 
     @Override
@@ -75,12 +89,15 @@ public final class OpenNLPPOSTaggerFilter extends TokenFilter {
 
     protected String[] walkTokens() throws IOException {
         List<String> wordList = new ArrayList<>();
+        List<Integer> sentenceIdList = new ArrayList<>();
         while (input.incrementToken()) {
             CharTermAttribute textAtt = input.getAttribute(CharTermAttribute.class);
             OffsetAttribute offsetAtt = input.getAttribute(OffsetAttribute.class);
             char[] buffer = textAtt.buffer();
             String word =  new String(buffer, 0, offsetAtt.endOffset() - offsetAtt.startOffset());
             wordList.add(word);
+            if (tagPerSentence)
+                sentenceIdList.add(getSentenceId(input.getAttribute(PayloadAttribute.class)));
 
             AttributeSource attrs = input.cloneAttributes();
             tokenAttrs.add(attrs);
@@ -89,9 +106,23 @@ public final class OpenNLPPOSTaggerFilter extends TokenFilter {
         for (int i = 0; i < words.length; i++) {
             words[i] = wordList.get(i);
         }
+        if (tagPerSentence) {
+            sentenceIds = new int[sentenceIdList.size()];
+            for (int i = 0; i < sentenceIds.length; i++)
+                sentenceIds[i] = sentenceIdList.get(i);
+        }
         return words;
     }
 
+    //tokens without a sentence context are taken as part of the previous sentence
+    private int getSentenceId(PayloadAttribute payloadAtt) {
+        BytesRef payload = payloadAtt == null ? null : payloadAtt.getPayload();
+        if (payload == null)
+            return sentenceContext.getSentenceId();
+        sentenceContext.decode(payload);
+        return sentenceContext.getSentenceId();
+    }
+
     protected String[] createTags(String[] words) {
         //String[] appended = appendDot(words);
         return assignPOS(words);
@@ -99,7 +130,8 @@ public final class OpenNLPPOSTaggerFilter extends TokenFilter {
 
 
     protected String[] assignPOS(String[] words) {
-
+        if (tagPerSentence)
+            return SentenceBatches.tag(words, null, sentenceIds, (tokens, tags) -> tagger.tag(tokens));
         return tagger.tag(words);
     }
 
@@ -121,5 +153,6 @@ public final class OpenNLPPOSTaggerFilter extends TokenFilter {
         first = true;
         tokenIdx = 0;
         posTags = null;
+        sentenceIds = null;
     }
 }
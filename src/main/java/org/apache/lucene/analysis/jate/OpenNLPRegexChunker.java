@@ -1,19 +1,17 @@
 package org.apache.lucene.analysis.jate;
 
-import opennlp.tools.namefind.RegexNameFinder;
 import opennlp.tools.util.Span;
 import org.apache.lucene.analysis.TokenStream;
 
-import java.io.IOException;
 import java.util.*;
 import java.util.regex.Pattern;
 
 /**
- * Generates candidate terms based on PoS regex
+ * Generates candidate terms based on PoS regex, matched in each sentence by a {@link POSPatternAutomaton}
  */
 public final class OpenNLPRegexChunker extends OpenNLPMWEFilter {
 
-    private RegexNameFinder regexChunker;
+    private POSPatternAutomaton automaton;
 
     public OpenNLPRegexChunker(
             TokenStream input,
@@ -31,6 +29,32 @@ public final class OpenNLPRegexChunker extends OpenNLPMWEFilter {
             boolean stripAllSymbolChars,
             Set<String> stopWords,
             boolean stopWordsIgnoreCase) {
+        this(input, POSPatternAutomaton.compile(patterns), maxTokens, minTokens, maxCharLength, minCharLength,
+                removeLeadingStopWords, removeTrailingStopwords,
+                removeLeadingSymbolicTokens, removeTrailingSymbolicTokens,
+                stripLeadingSymbolChars, stripTrailingSymbolChars, stripAllSymbolChars,
+                stopWords, stopWordsIgnoreCase);
+    }
+
+    /**
+     * @param automaton compiled patterns, which may be shared by all chunkers using the same patterns
+     */
+    public OpenNLPRegexChunker(
+            TokenStream input,
+            POSPatternAutomaton automaton,
+            int maxTokens,
+            int minTokens,
+            int maxCharLength,
+            int minCharLength,
+            boolean removeLeadingStopWords,
+            boolean removeTrailingStopwords,
+            boolean removeLeadingSymbolicTokens,
+            boolean removeTrailingSymbolicTokens,
+            boolean stripLeadingSymbolChars,
+            boolean stripTrailingSymbolChars,
+            boolean stripAllSymbolChars,
+            Set<String> stopWords,
+            boolean stopWordsIgnoreCase) {
         super(input, minTokens, maxTokens, minCharLength, maxCharLength,
                 removeLeadingStopWords, removeTrailingStopwords,
                 removeLeadingSymbolicTokens, removeTrailingSymbolicTokens,
@@ -38,57 +62,16 @@ public final class OpenNLPRegexChunker extends OpenNLPMWEFilter {
                 stripTrailingSymbolChars,
                 stripAllSymbolChars,
                 stopWords, stopWordsIgnoreCase);
-        regexChunker = new RegexNameFinder(patterns);
+        this.automaton = automaton;
     }
 
     @Override
-    public boolean incrementToken() throws IOException {
-        clearAttributes();
-        if (first) {
-            String[][] wordsAndPOS = walkTokens();
-            //gather all tokens from doc
-            String[] words = wordsAndPOS[0];
-            if (words.length == 0) {
-                return false;
-            }
-            //tagging
-            String[] pos = wordsAndPOS[1];
-            //chunking
-            Span[] chunks = regexChunker.find(pos);
-            chunks = prune(chunks, words);
-            for (Span sp : chunks) {
-                List<Integer> ends = chunkSpans.get(sp.getStart());
-                if(ends==null)
-                    ends=new ArrayList<>();
-                ends.add(sp.getEnd());
-
-                chunkSpans.put(sp.getStart(), ends);
-                chunkTypes.put(sp.getStart(), sp.getType());
-            }
-            first = false;
-            tokenIdx = 0;
-        }
-
-        if (tokenIdx == tokenAttrs.size()) {
-            resetParams();
-            return false;
-        }
-
-        if (chunkStart != -1 && chunkEnds.contains(tokenIdx)) {  //already found a new chunk and now we found its end
-            addMWE(tokenIdx);
-            //do not increment token index here because end span is exclusive
-            //tokenIdx++;
-            return true;
-        }
-        if (chunkSpans.containsKey(tokenIdx)) { //found a new chunk, the current tokindex is the beginning of the chunk
-            chunkStart = tokenIdx;
-            chunkEnds = chunkSpans.get(tokenIdx);
-            tokenIdx = chunkEnds.get(0); //set tokenIdx to be the next end index for the beginning index
-            return true;
-        } else { //a token that is not part of a chunk
-            tokenIdx++;
-            return true;
-        }
+    protected Span[] chunk(String[] words, String[] pos) {
+        if (nextPosTag == null)
+            return automaton.find(pos, 0, pos.length);
+        //patterns ending with a space match the last token only if followed by another
+        String[] tags = Arrays.copyOf(pos, pos.length + 1);
+        tags[pos.length] = nextPosTag;
+        return automaton.find(tags, 0, pos.length);
     }
-
 }
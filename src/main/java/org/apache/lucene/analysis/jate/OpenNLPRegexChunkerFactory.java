@@ -3,8 +3,12 @@ package org.apache.lucene.analysis.jate;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.analysis.util.WordlistLoader;
+import uk.ac.shef.dcs.jate.nlp.ModelRegistry;
+import uk.ac.shef.dcs.jate.solr.ModelReleaseComponent;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -17,7 +21,7 @@ import java.util.regex.Pattern;
  */
 public class OpenNLPRegexChunkerFactory extends MWEFilterFactory {
 
-    private Map<String, Pattern[]> patterns = new HashMap<>();
+    private POSPatternAutomaton automaton;
     private String patternFile;
 
     /**
@@ -57,7 +61,7 @@ public class OpenNLPRegexChunkerFactory extends MWEFilterFactory {
 
     @Override
     public TokenStream create(TokenStream input) {
-        return new OpenNLPRegexChunker(input, patterns, maxTokens,
+        return new OpenNLPRegexChunker(input, automaton, maxTokens,
                 minTokens,
                 maxCharLength, minCharLength,
                 removeLeadingStopwords, removeTrailingStopwords,
@@ -71,10 +75,16 @@ public class OpenNLPRegexChunkerFactory extends MWEFilterFactory {
     @Override
     public void inform(ResourceLoader loader) throws IOException {
         super.inform(loader);
+        ModelReleaseComponent.register(loader, this);
         if (patternFile != null) {
             try {
-                List<String> lines = getLines(loader, patternFile.trim());
-                initPatterns(lines, patterns);
+                //compiled patterns are shared by all fields and cores using the same pattern file
+                automaton = ModelRegistry.getInstance().acquire(this, OpenNLPRegexChunkerFactory.class.getName(),
+                        patternFile.trim(), loader.openResource(patternFile.trim()), in -> {
+                            Map<String, Pattern[]> compiled = new HashMap<>();
+                            initPatterns(WordlistLoader.getLines(in, StandardCharsets.UTF_8), compiled);
+                            return POSPatternAutomaton.compile(compiled);
+                        });
             } catch (IOException ioe) {
                 StringBuilder sb = new StringBuilder("Initiating ");
                 sb.append(this.getClass().getName()).append(" failed due to patterns. Details:\n");
@@ -5,15 +5,26 @@ import opennlp.tools.sentdetect.SentenceDetectorME;
 import opennlp.tools.sentdetect.SentenceModel;
 import opennlp.tools.tokenize.TokenizerME;
 import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.lucene.analysis.util.ResourceLoaderAware;
 import org.apache.lucene.analysis.util.TokenizerFactory;
 import org.apache.lucene.util.AttributeFactory;
+import org.apache.lucene.util.CloseableThreadLocal;
+import uk.ac.shef.dcs.jate.nlp.InstanceCreator;
+import uk.ac.shef.dcs.jate.nlp.ModelRegistry;
+import uk.ac.shef.dcs.jate.solr.ModelReleaseComponent;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.Map;
 
+/**
+ * The sentence detector and tokenizer are shared by all tokenizers created, so they detect and tokenize with their
+ * own SentenceDetectorME and TokenizerME in each thread, see {@link InstanceCreator#perThread}. They are registered
+ * with their model in {@link ModelRegistry}, which closes them once no factory holds them.
+ */
 public class OpenNLPTokenizerFactory extends TokenizerFactory implements ResourceLoaderAware {
     private SentenceDetector sentenceOp = null;
     private String sentenceModelFile = null;
@@ -37,16 +48,64 @@ public class OpenNLPTokenizerFactory extends TokenizerFactory implements Resourc
 
     @Override
     public void inform(ResourceLoader loader) throws IOException {
+        ModelReleaseComponent.register(loader, this);
         if(sentenceModelFile!=null) {
-            sentenceOp = new SentenceDetectorME(new SentenceModel(
-                    loader.openResource(sentenceModelFile)));
+            sentenceOp = ModelRegistry.getInstance().acquire(this, PerThreadSentenceDetector.class.getName(),
+                    sentenceModelFile, loader.openResource(sentenceModelFile),
+                    model -> new PerThreadSentenceDetector(new SentenceModel(model)));
         }
 
         if(tokenizerModelFile==null)
             throw new IOException("Parameter 'tokenizerModle' is required, but is invalid:"+tokenizerModelFile);
-        tokenizerOp = new TokenizerME(new TokenizerModel(
-                loader.openResource(tokenizerModelFile)
-        ));
+        tokenizerOp = ModelRegistry.getInstance().acquire(this, PerThreadTokenizer.class.getName(),
+                tokenizerModelFile, loader.openResource(tokenizerModelFile),
+                model -> new PerThreadTokenizer(new TokenizerModel(model)));
 
     }
+
+    private static class PerThreadSentenceDetector implements SentenceDetector, Closeable {
+        private final CloseableThreadLocal<SentenceDetectorME> detector;
+
+        PerThreadSentenceDetector(SentenceModel model) {
+            detector = InstanceCreator.perThread(() -> new SentenceDetectorME(model));
+        }
+
+        @Override
+        public String[] sentDetect(String s) {
+            return detector.get().sentDetect(s);
+        }
+
+        @Override
+        public Span[] sentPosDetect(String s) {
+            return detector.get().sentPosDetect(s);
+        }
+
+        @Override
+        public void close() {
+            detector.close();
+        }
+    }
+
+    private static class PerThreadTokenizer implements opennlp.tools.tokenize.Tokenizer, Closeable {
+        private final CloseableThreadLocal<TokenizerME> tokenizer;
+
+        PerThreadTokenizer(TokenizerModel model) {
+            tokenizer = InstanceCreator.perThread(() -> new TokenizerME(model));
+        }
+
+        @Override
+        public String[] tokenize(String s) {
+            return tokenizer.get().tokenize(s);
+        }
+
+        @Override
+        public Span[] tokenizePos(String s) {
+            return tokenizer.get().tokenizePos(s);
+        }
+
+        @Override
+        public void close() {
+            tokenizer.close();
+        }
+    }
 }
@@ -0,0 +1,757 @@
+package org.apache.lucene.analysis.jate;
+
+import opennlp.tools.util.Span;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles the PoS sequence patterns of {@link OpenNLPRegexChunker} into a single deterministic automaton over tag
+ * ids, which finds the matches of all patterns in one pass over a sentence, without joining its tags into a string.
+ * <p>
+ * Patterns are written as for OpenNLP's RegexNameFinder, i.e., as Java regular expressions over the tags of a
+ * sentence joined by single spaces (e.g., {@code (\bJJ\b )*\bNN\b}), and a pattern matches the tag sequences whose
+ * joined string it matches. The supported syntax is: literal and escaped characters, {@code .}, character classes
+ * ({@code [...]}, {@code \d \s \w} and their negations), {@code \b} and {@code \B}, groups ({@code (...)} and
+ * {@code (?:...)}), alternation and greedy quantifiers ({@code * + ? {n,m}}). Anchors, lazy and possessive
+ * quantifiers, look-arounds, back references and flags are rejected.
+ * <p>
+ * As with RegexNameFinder, the matches of each pattern do not overlap, and only matches that start at the start of a
+ * tag and end at the end of a tag (or, including the separating space, at the start of the next tag) are returned.
+ * Of the matches starting at the same tag, the longest one is returned, which is the one Java returns unless an
+ * earlier alternative of the pattern matches a shorter sequence. Unlike RegexNameFinder, a match starting inside a tag
+ * (e.g., {@code N+} in {@code VBN}) is not considered, so it does not hide the matches it overlaps.
+ * <p>
+ * The automaton is determinized lazily, as tags are seen, and is shared by concurrent threads: new states and
+ * transitions are published copy-on-write, so matching takes no lock once the tags of a corpus have been seen.
+ */
+public final class POSPatternAutomaton {
+
+    //NFA state types
+    private static final int CHARS = 0;
+    private static final int SPLIT = 1;
+    private static final int BOUNDARY = 2;
+    private static final int NON_BOUNDARY = 3;
+    private static final int MATCH = 4;
+
+    private static final int MAX_NFA_STATES = 100000;
+
+    //DFA states, transitions store the target state + 1 so that 0 marks a transition not determinized yet
+    private static final int DEAD = 0;
+    private static final int INITIAL = 1;
+
+    private final String[] types;
+    private final int patternCount;
+
+    //the NFA, immutable after compilation
+    private final int[] nfaTypes;
+    private final CharClass[] nfaClasses;
+    private final int[] nfaOut1;
+    private final int[] nfaOut2;
+
+    //guarded by this; the published DFA is the snapshot in table
+    private final List<String> tags = new ArrayList<>();
+    private final Map<StateSet, Integer> stateIds = new HashMap<>();
+    private final List<int[]> kernels = new ArrayList<>();
+    private final Map<StateSet, Integer> acceptIds = new HashMap<>();
+    private final List<int[]> acceptSets = new ArrayList<>();
+    private volatile Table table;
+
+    /**
+     * Published snapshot of the DFA. Neither the snapshot nor its arrays are modified once published.
+     */
+    private static final class Table {
+        final Map<String, Integer> tagIds;
+        //per state, 3 ints per tag id: target state + 1, accept set id at the start of the tag and at its end
+        final int[][] rows;
+        //pattern ids of each accept set
+        final int[][] acceptSets;
+
+        Table(Map<String, Integer> tagIds, int[][] rows, int[][] acceptSets) {
+            this.tagIds = tagIds;
+            this.rows = rows;
+            this.acceptSets = acceptSets;
+        }
+    }
+
+    private POSPatternAutomaton(String[] types, Nfa nfa, int[] starts) {
+        this.types = types;
+        this.patternCount = types.length;
+        this.nfaTypes = nfa.types();
+        this.nfaClasses = nfa.classes.toArray(new CharClass[0]);
+        this.nfaOut1 = nfa.out1();
+        this.nfaOut2 = nfa.out2();
+
+        internAcceptSet(new int[0]);
+        internState(new int[0]);
+        internState(starts);
+        table = new Table(Collections.<String, Integer>emptyMap(), new int[][]{new int[0], new int[0]},
+                acceptSets.toArray(new int[0][]));
+    }
+
+    /**
+     * @param patterns patterns by type, see {@link OpenNLPRegexChunkerFactory}
+     * @return POSPatternAutomaton matching all patterns
+     * @throws IllegalArgumentException if a pattern uses syntax not supported by the automaton
+     */
+    public static POSPatternAutomaton compile(Map<String, Pattern[]> patterns) {
+        List<String> types = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        Nfa nfa = new Nfa();
+        for (Map.Entry<String, Pattern[]> en : patterns.entrySet()) {
+            for (Pattern pattern : en.getValue()) {
+                if (pattern.flags() != 0)
+                    throw unsupported(pattern.pattern(), "flags");
+                Node ast = new Parser(pattern.pattern()).parse();
+                int match = nfa.add(MATCH, null, types.size(), -1);
+                starts.add(nfa.compile(ast, match, pattern.pattern()));
+                types.add(en.getKey());
+            }
+        }
+        int[] startStates = new int[starts.size()];
+        for (int i = 0; i < startStates.length; i++)
+            startStates[i] = starts.get(i);
+        Arrays.sort(startStates);
+        return new POSPatternAutomaton(types.toArray(new String[0]), nfa, startStates);
+    }
+
+    /**
+     * Find the matches of all patterns in a sentence.
+     *
+     * @param tags  PoS tags of a document
+     * @param start index of the first tag of the sentence
+     * @param end   index after the last tag of the sentence. The tag at end, if any, is only used by patterns
+     *              ending with a space
+     * @return Span[] matches, ordered by start, whose type is that of the pattern matched
+     */
+    public Span[] find(String[] tags, int start, int end) {
+        int[] ids = new int[end - start + 1];
+        for (int i = start; i < end; i++)
+            ids[i - start] = tagId(tags[i]);
+        ids[end - start] = end < tags.length ? tagId(tags[end]) : -1;
+
+        int[] blockedUntil = new int[patternCount];
+        int[] bestEnd = new int[patternCount];
+        int[] touched = new int[patternCount];
+        List<Span> spans = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            int touchedCount = 0;
+            int state = INITIAL;
+            int j = i;
+            while (true) {
+                int tag = ids[j - start];
+                int[] row = transition(state, tag);
+                if (j > i)
+                    touchedCount = accept(row[3 * tag + 1], i, j, blockedUntil, bestEnd, touched, touchedCount);
+                touchedCount = accept(row[3 * tag + 2], i, j + 1, blockedUntil, bestEnd, touched, touchedCount);
+                state = row[3 * tag] - 1;
+                j++;
+                if (state == DEAD)
+                    break;
+                if (j == end) {
+                    //a match ending with the space before the next tag
+                    tag = ids[j - start];
+                    if (tag != -1)
+                        touchedCount = accept(transition(state, tag)[3 * tag + 1], i, j,
+                                blockedUntil, bestEnd, touched, touchedCount);
+                    break;
+                }
+            }
+
+            if (touchedCount > 1)
+                Arrays.sort(touched, 0, touchedCount);
+            for (int k = 0; k < touchedCount; k++) {
+                int p = touched[k];
+                spans.add(new Span(i, bestEnd[p], types[p]));
+                blockedUntil[p] = bestEnd[p];
+                bestEnd[p] = 0;
+            }
+        }
+        return spans.toArray(new Span[0]);
+    }
+
+    private int accept(int acceptId, int matchStart, int matchEnd, int[] blockedUntil, int[] bestEnd,
+                       int[] touched, int touchedCount) {
+        if (acceptId == 0)
+            return touchedCount;
+        for (int p : table.acceptSets[acceptId]) {
+            if (blockedUntil[p] > matchStart)
+                continue;
+            if (bestEnd[p] == 0)
+                touched[touchedCount++] = p;
+            if (bestEnd[p] < matchEnd)
+                bestEnd[p] = matchEnd;
+        }
+        return touchedCount;
+    }
+
+    private int tagId(String tag) {
+        Integer id = table.tagIds.get(tag);
+        if (id != null)
+            return id;
+        synchronized (this) {
+            Table t = table;
+            id = t.tagIds.get(tag);
+            if (id == null) {
+                Map<String, Integer> tagIds = new HashMap<>(t.tagIds);
+                id = tags.size();
+                tags.add(tag);
+                tagIds.put(tag, id);
+                table = new Table(tagIds, t.rows, t.acceptSets);
+            }
+            return id;
+        }
+    }
+
+    private int[] transition(int state, int tag) {
+        int[] row = table.rows[state];
+        if (3 * tag < row.length && row[3 * tag] != 0)
+            return row;
+        return determinize(state, tag);
+    }
+
+    private synchronized int[] determinize(int state, int tag) {
+        Table t = table;
+        int[] row = t.rows[state];
+        if (3 * tag < row.length && row[3 * tag] != 0)
+            return row;
+
+        String tagString = tags.get(tag);
+        //the tag follows a space (or starts the match), and is followed by a space (or ends the text)
+        int[] set = kernels.get(state);
+        boolean prevWord = false;
+        int[] closure = closure(set, false, tagString.length() > 0 && isWord(tagString.charAt(0)));
+        int acceptAtStart = internAcceptSet(matches(closure));
+        for (int i = 0; i < tagString.length(); i++) {
+            char c = tagString.charAt(i);
+            if (i > 0)
+                closure = closure(set, prevWord, isWord(c));
+            set = step(closure, c);
+            prevWord = isWord(c);
+        }
+        closure = closure(set, prevWord, false);
+        int acceptAtEnd = internAcceptSet(matches(closure));
+        int target = internState(step(closure, ' '));
+
+        int[] newRow = Arrays.copyOf(row, Math.max(row.length, 3 * t.tagIds.size()));
+        newRow[3 * tag] = target + 1;
+        newRow[3 * tag + 1] = acceptAtStart;
+        newRow[3 * tag + 2] = acceptAtEnd;
+        int[][] rows = Arrays.copyOf(t.rows, kernels.size());
+        for (int s = t.rows.length; s < rows.length; s++)
+            rows[s] = new int[0];
+        rows[state] = newRow;
+        table = new Table(t.tagIds, rows, acceptSets.toArray(new int[0][]));
+        return newRow;
+    }
+
+    private int internState(int[] kernel) {
+        StateSet key = new StateSet(kernel);
+        Integer id = stateIds.get(key);
+        if (id == null) {
+            id = kernels.size();
+            kernels.add(kernel);
+            stateIds.put(key, id);
+        }
+        return id;
+    }
+
+    private int internAcceptSet(int[] patterns) {
+        StateSet key = new StateSet(patterns);
+        Integer id = acceptIds.get(key);
+        if (id == null) {
+            id = acceptSets.size();
+            acceptSets.add(patterns);
+            acceptIds.put(key, id);
+        }
+        return id;
+    }
+
+    //states reachable without consuming a character, between a previous and a next character
+    private int[] closure(int[] set, boolean prevWord, boolean nextWord) {
+        boolean boundary = prevWord != nextWord;
+        BitSet visited = new BitSet(nfaTypes.length);
+        Deque<Integer> stack = new ArrayDeque<>();
+        List<Integer> result = new ArrayList<>();
+        for (int s : set)
+            stack.push(s);
+        while (!stack.isEmpty()) {
+            int s = stack.pop();
+            if (visited.get(s))
+                continue;
+            visited.set(s);
+            switch (nfaTypes[s]) {
+                case CHARS:
+                case MATCH:
+                    result.add(s);
+                    break;
+                case SPLIT:
+                    stack.push(nfaOut2[s]);
+                    stack.push(nfaOut1[s]);
+                    break;
+                case BOUNDARY:
+                    if (boundary)
+                        stack.push(nfaOut1[s]);
+                    break;
+                case NON_BOUNDARY:
+                    if (!boundary)
+                        stack.push(nfaOut1[s]);
+                    break;
+            }
+        }
+        return toSortedArray(result);
+    }
+
+    private int[] step(int[] closure, char c) {
+        List<Integer> result = new ArrayList<>();
+        for (int s : closure) {
+            if (nfaTypes[s] == CHARS && nfaClasses[s].matches(c))
+                result.add(nfaOut1[s]);
+        }
+        return toSortedArray(result);
+    }
+
+    private int[] matches(int[] closure) {
+        List<Integer> result = new ArrayList<>();
+        for (int s : closure) {
+            if (nfaTypes[s] == MATCH)
+                result.add(nfaOut1[s]);
+        }
+        return toSortedArray(result);
+    }
+
+    private static int[] toSortedArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++)
+            array[i] = list.get(i);
+        Arrays.sort(array);
+        int n = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (n == 0 || array[n - 1] != array[i])
+                array[n++] = array[i];
+        }
+        return n == array.length ? array : Arrays.copyOf(array, n);
+    }
+
+    //word characters of Java's \b
+    private static boolean isWord(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    private static IllegalArgumentException unsupported(String pattern, String construct) {
+        StringBuilder sb = new StringBuilder("PoS pattern [");
+        sb.append(pattern).append("] uses ").append(construct)
+                .append(", which is not supported by ").append(POSPatternAutomaton.class.getSimpleName());
+        return new IllegalArgumentException(sb.toString());
+    }
+
+    private static final class StateSet {
+        final int[] states;
+        final int hash;
+
+        StateSet(int[] states) {
+            this.states = states;
+            this.hash = Arrays.hashCode(states);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateSet && Arrays.equals(states, ((StateSet) o).states);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A set of characters, as sorted inclusive ranges.
+     */
+    private static final class CharClass {
+        final int[] ranges;
+
+        CharClass(int[] ranges) {
+            this.ranges = ranges;
+        }
+
+        static CharClass of(char from, char to) {
+            return new CharClass(new int[]{from, to});
+        }
+
+        boolean matches(char c) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (c < ranges[i])
+                    return false;
+                if (c <= ranges[i + 1])
+                    return true;
+            }
+            return false;
+        }
+
+        CharClass union(CharClass other) {
+            int[] all = Arrays.copyOf(ranges, ranges.length + other.ranges.length);
+            System.arraycopy(other.ranges, 0, all, ranges.length, other.ranges.length);
+            Integer[] order = new Integer[all.length / 2];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+            Arrays.sort(order, (a, b) -> Integer.compare(all[2 * a], all[2 * b]));
+            int[] merged = new int[all.length];
+            int n = 0;
+            for (int i : order) {
+                int from = all[2 * i], to = all[2 * i + 1];
+                if (n > 0 && from <= merged[n - 1] + 1)
+                    merged[n - 1] = Math.max(merged[n - 1], to);
+                else {
+                    merged[n++] = from;
+                    merged[n++] = to;
+                }
+            }
+            return new CharClass(Arrays.copyOf(merged, n));
+        }
+
+        CharClass negate() {
+            int[] negated = new int[ranges.length + 2];
+            int n = 0, from = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > from) {
+                    negated[n++] = from;
+                    negated[n++] = ranges[i] - 1;
+                }
+                from = ranges[i + 1] + 1;
+            }
+            if (from <= Character.MAX_VALUE) {
+                negated[n++] = from;
+                negated[n++] = Character.MAX_VALUE;
+            }
+            return new CharClass(Arrays.copyOf(negated, n));
+        }
+    }
+
+    private static final CharClass DIGIT = CharClass.of('0', '9');
+    private static final CharClass SPACE = CharClass.of('\t', '\r').union(CharClass.of(' ', ' '));
+    private static final CharClass WORD = CharClass.of('a', 'z').union(CharClass.of('A', 'Z'))
+            .union(CharClass.of('_', '_')).union(DIGIT);
+    //any character but a line terminator
+    private static final CharClass DOT = CharClass.of('\n', '\n').union(CharClass.of('\r', '\r'))
+            .union(CharClass.of('\u0085', '\u0085')).union(CharClass.of('\u2028', '\u2029')).negate();
+
+    /**
+     * Parsed pattern
+     */
+    private static final class Node {
+        static final int CLASS = 0, CONCAT = 1, ALTERNATION = 2, REPEAT = 3, ASSERTION = 4;
+
+        final int kind;
+        final List<Node> children = new ArrayList<>();
+        CharClass chars;
+        int assertion;
+        int min, max; //max is -1 if unbounded
+
+        Node(int kind) {
+            this.kind = kind;
+        }
+    }
+
+    private static final class Parser {
+        private final String pattern;
+        private int pos;
+
+        Parser(String pattern) {
+            this.pattern = pattern;
+        }
+
+        Node parse() {
+            Node node = parseAlternation();
+            if (pos < pattern.length())
+                throw unsupported(pattern, "an unbalanced ')'");
+            return node;
+        }
+
+        private Node parseAlternation() {
+            Node first = parseConcat();
+            if (pos >= pattern.length() || pattern.charAt(pos) != '|')
+                return first;
+            Node alternation = new Node(Node.ALTERNATION);
+            alternation.children.add(first);
+            while (pos < pattern.length() && pattern.charAt(pos) == '|') {
+                pos++;
+                alternation.children.add(parseConcat());
+            }
+            return alternation;
+        }
+
+        private Node parseConcat() {
+            Node concat = new Node(Node.CONCAT);
+            while (pos < pattern.length() && pattern.charAt(pos) != '|' && pattern.charAt(pos) != ')') {
+                Node atom = parseAtom();
+                concat.children.add(parseQuantifier(atom));
+            }
+            return concat;
+        }
+
+        private Node parseQuantifier(Node atom) {
+            if (pos >= pattern.length())
+                return atom;
+            int min, max;
+            char c = pattern.charAt(pos);
+            if (c == '*') {
+                min = 0;
+                max = -1;
+                pos++;
+            } else if (c == '+') {
+                min = 1;
+                max = -1;
+                pos++;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+                pos++;
+            } else if (c == '{') {
+                int close = pattern.indexOf('}', pos);
+                if (close == -1)
+                    throw unsupported(pattern, "an unclosed '{'");
+                String[] bounds = pattern.substring(pos + 1, close).split(",", -1);
+                try {
+                    min = Integer.parseInt(bounds[0].trim());
+                    max = bounds.length == 1 ? min
+                            : bounds[1].trim().isEmpty() ? -1 : Integer.parseInt(bounds[1].trim());
+                } catch (NumberFormatException e) {
+                    throw unsupported(pattern, "an invalid repetition");
+                }
+                pos = close + 1;
+            } else {
+                return atom;
+            }
+            if (pos < pattern.length() && (pattern.charAt(pos) == '?' || pattern.charAt(pos) == '+'))
+                throw unsupported(pattern, "a lazy or possessive quantifier");
+            Node repeat = new Node(Node.REPEAT);
+            repeat.children.add(atom);
+            repeat.min = min;
+            repeat.max = max;
+            return repeat;
+        }
+
+        private Node parseAtom() {
+            char c = pattern.charAt(pos++);
+            switch (c) {
+                case '(':
+                    if (pattern.startsWith("?:", pos))
+                        pos += 2;
+                    else if (pos < pattern.length() && pattern.charAt(pos) == '?')
+                        throw unsupported(pattern, "a look-around, flag or named group");
+                    Node group = parseAlternation();
+                    if (pos >= pattern.length() || pattern.charAt(pos) != ')')
+                        throw unsupported(pattern, "an unclosed group");
+                    pos++;
+                    return group;
+                case '[':
+                    return charClass(parseCharClass());
+                case '.':
+                    return charClass(DOT);
+                case '^':
+                case '$':
+                    throw unsupported(pattern, "an anchor");
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw unsupported(pattern, "a dangling quantifier");
+                case '\\':
+                    if (pos >= pattern.length())
+                        throw unsupported(pattern, "a trailing '\\'");
+                    char e = pattern.charAt(pos);
+                    if (e == 'b' || e == 'B') {
+                        pos++;
+                        Node assertion = new Node(Node.ASSERTION);
+                        assertion.assertion = e == 'b' ? BOUNDARY : NON_BOUNDARY;
+                        return assertion;
+                    }
+                    return charClass(parseEscape());
+                default:
+                    return charClass(CharClass.of(c, c));
+            }
+        }
+
+        private CharClass parseCharClass() {
+            boolean negated = false;
+            if (pos < pattern.length() && pattern.charAt(pos) == '^') {
+                negated = true;
+                pos++;
+            }
+            CharClass chars = new CharClass(new int[0]);
+            while (true) {
+                if (pos >= pattern.length())
+                    throw unsupported(pattern, "an unclosed character class");
+                char c = pattern.charAt(pos);
+                if (c == ']') {
+                    pos++;
+                    break;
+                }
+                if (c == '[' || pattern.startsWith("&&", pos))
+                    throw unsupported(pattern, "a nested character class");
+                CharClass item;
+                if (c == '\\') {
+                    pos++;
+                    item = parseEscape();
+                } else {
+                    pos++;
+                    item = CharClass.of(c, c);
+                }
+                if (item.ranges.length == 2 && item.ranges[0] == item.ranges[1]
+                        && pos + 1 < pattern.length() && pattern.charAt(pos) == '-'
+                        && pattern.charAt(pos + 1) != ']') {
+                    pos++;
+                    char to = pattern.charAt(pos);
+                    CharClass toItem;
+                    if (to == '\\') {
+                        pos++;
+                        toItem = parseEscape();
+                    } else {
+                        pos++;
+                        toItem = CharClass.of(to, to);
+                    }
+                    if (toItem.ranges.length != 2 || toItem.ranges[0] != toItem.ranges[1])
+                        throw unsupported(pattern, "an invalid range");
+                    item = CharClass.of((char) item.ranges[0], (char) toItem.ranges[0]);
+                }
+                chars = chars.union(item);
+            }
+            return negated ? chars.negate() : chars;
+        }
+
+        //parses the escaped character after a '\'
+        private CharClass parseEscape() {
+            if (pos >= pattern.length())
+                throw unsupported(pattern, "a trailing '\\'");
+            char c = pattern.charAt(pos++);
+            switch (c) {
+                case 'd':
+                    return DIGIT;
+                case 'D':
+                    return DIGIT.negate();
+                case 's':
+                    return SPACE;
+                case 'S':
+                    return SPACE.negate();
+                case 'w':
+                    return WORD;
+                case 'W':
+                    return WORD.negate();
+                case 't':
+                    return CharClass.of('\t', '\t');
+                case 'n':
+                    return CharClass.of('\n', '\n');
+                case 'r':
+                    return CharClass.of('\r', '\r');
+                case 'f':
+                    return CharClass.of('\f', '\f');
+                case 'a':
+                    return CharClass.of('\u0007', '\u0007');
+                case 'e':
+                    return CharClass.of('\u001B', '\u001B');
+                case 'x':
+                    return hex(2);
+                case 'u':
+                    return hex(4);
+                default:
+                    if (Character.isLetterOrDigit(c))
+                        throw unsupported(pattern, "the escape \\" + c);
+                    return CharClass.of(c, c);
+            }
+        }
+
+        private CharClass hex(int digits) {
+            if (pos + digits > pattern.length())
+                throw unsupported(pattern, "an invalid hexadecimal escape");
+            try {
+                char c = (char) Integer.parseInt(pattern.substring(pos, pos + digits), 16);
+                pos += digits;
+                return CharClass.of(c, c);
+            } catch (NumberFormatException e) {
+                throw unsupported(pattern, "an invalid hexadecimal escape");
+            }
+        }
+
+        private static Node charClass(CharClass chars) {
+            Node node = new Node(Node.CLASS);
+            node.chars = chars;
+            return node;
+        }
+    }
+
+    /**
+     * Thompson NFA under construction. Nodes are compiled backwards, each to the state that matches the node and
+     * continues to a given next state.
+     */
+    private static final class Nfa {
+        final List<Integer> types = new ArrayList<>();
+        final List<CharClass> classes = new ArrayList<>();
+        final List<Integer> out1 = new ArrayList<>();
+        final List<Integer> out2 = new ArrayList<>();
+
+        int add(int type, CharClass chars, int next1, int next2) {
+            types.add(type);
+            classes.add(chars);
+            out1.add(next1);
+            out2.add(next2);
+            return types.size() - 1;
+        }
+
+        int compile(Node node, int next, String pattern) {
+            if (types.size() > MAX_NFA_STATES)
+                throw unsupported(pattern, "too many repetitions");
+            switch (node.kind) {
+                case Node.CLASS:
+                    return add(CHARS, node.chars, next, -1);
+                case Node.ASSERTION:
+                    return add(node.assertion, null, next, -1);
+                case Node.CONCAT:
+                    for (int i = node.children.size() - 1; i >= 0; i--)
+                        next = compile(node.children.get(i), next, pattern);
+                    return next;
+                case Node.ALTERNATION: {
+                    int last = node.children.size() - 1;
+                    int start = compile(node.children.get(last), next, pattern);
+                    for (int i = last - 1; i >= 0; i--)
+                        start = add(SPLIT, null, compile(node.children.get(i), next, pattern), start);
+                    return start;
+                }
+                default: { //REPEAT
+                    Node child = node.children.get(0);
+                    int start = next;
+                    if (node.max == -1) {
+                        int loop = add(SPLIT, null, -1, next);
+                        out1.set(loop, compile(child, loop, pattern));
+                        start = loop;
+                    } else {
+                        for (int i = node.min; i < node.max; i++)
+                            start = add(SPLIT, null, compile(child, start, pattern), next);
+                    }
+                    for (int i = 0; i < node.min; i++)
+                        start = compile(child, start, pattern);
+                    return start;
+                }
+            }
+        }
+
+        int[] types() {
+            return toArray(types);
+        }
+
+        int[] out1() {
+            return toArray(out1);
+        }
+
+        int[] out2() {
+            return toArray(out2);
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++)
+                array[i] = list.get(i);
+            return array;
+        }
+    }
+}
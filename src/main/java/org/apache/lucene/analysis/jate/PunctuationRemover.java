@@ -5,7 +5,6 @@ import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 
 import java.io.IOException;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -14,8 +13,9 @@ import java.util.regex.Pattern;
  * stripAnySymbols will return "delete all the symbols"
  * stripLeadingSymbols will return "delete + all ) the symbols.+"
  * stripTrailingSymbols will return "(' delete + all ) the symbols"
- *
- *
+ * <p>
+ * Symbols are the chars matched by \p{Punct} and white spaces those matched by \s, i.e., ASCII chars only. Chars are
+ * classified by a table precomputed from these regex classes, and tokens are stripped in their term buffer.
  */
 public final class PunctuationRemover extends TokenFilter {
 
@@ -23,10 +23,26 @@ public final class PunctuationRemover extends TokenFilter {
     public static boolean DEFAULT_STRIP_TRAILING_SYMBOLS=false;
     public static boolean DEFAULT_STRIP_ANY_SYMBOLS=false;
 
-    protected static Pattern leadingSymbolPattern = Pattern.compile("^[\\p{Punct}]+[\\s]*[\\p{Punct}]*");
-    protected static Pattern trailingSymbolPattern = Pattern.compile("[\\p{Punct}]*[\\s]*[\\p{Punct}]+$");
-    //private Pattern leadingSymbolPattern = Pattern.compile("^[\\p{Punct}]+[\\s]*");
-    //private Pattern trailingSymbolPattern = Pattern.compile("[\\s]*[\\p{Punct}]+$");
+    private static final byte PUNCTUATION = 1;
+    private static final byte WHITESPACE = 2;
+    private static final byte LINE_TERMINATOR = 4;
+    //classes of ASCII chars; no other char is matched by \p{Punct} or \s
+    private static final byte[] CHAR_CLASSES = new byte[128];
+
+    static {
+        Pattern punctuation = Pattern.compile("\\p{Punct}");
+        Pattern whitespace = Pattern.compile("\\s");
+        for (char c = 0; c < CHAR_CLASSES.length; c++) {
+            String string = String.valueOf(c);
+            if (punctuation.matcher(string).matches())
+                CHAR_CLASSES[c] |= PUNCTUATION;
+            if (whitespace.matcher(string).matches())
+                CHAR_CLASSES[c] |= WHITESPACE;
+        }
+        CHAR_CLASSES['\n'] |= LINE_TERMINATOR;
+        CHAR_CLASSES['\r'] |= LINE_TERMINATOR;
+    }
+
     private boolean stripLeadingSymbols;
     private boolean stripTrailingSymbols;
     private boolean stripAnySymbols;
@@ -50,14 +66,22 @@ public final class PunctuationRemover extends TokenFilter {
     @Override
     public boolean incrementToken() throws IOException {
         if (input.incrementToken()) {
-            String tok = new String(termAtt.buffer(),0, termAtt.length());
-            tok=tok.trim();
-            if(tok.length()>0) {
-                String normalised=stripPunctuations(tok, stripAnySymbols, stripLeadingSymbols, stripTrailingSymbols);
-                if(normalised.length()==0)
+            char[] buffer = termAtt.buffer();
+            int start = 0, end = termAtt.length();
+            //as String.trim()
+            while (start < end && buffer[start] <= ' ')
+                start++;
+            while (end > start && buffer[end - 1] <= ' ')
+                end--;
+            if (end > start) {
+                if (start > 0)
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                int length = stripPunctuations(buffer, end - start,
+                        stripAnySymbols, stripLeadingSymbols, stripTrailingSymbols);
+                if (length == 0)
                     clearAttributes();
                 else
-                    termAtt.setEmpty().append(normalised);
+                    termAtt.setLength(length);
             }
 
             return true;
@@ -70,22 +94,115 @@ public final class PunctuationRemover extends TokenFilter {
                                            boolean stripAnySymbols,
                                            boolean stripLeadingSymbols,
                                            boolean stripTrailingSymbols){
+        char[] buffer = tok.toCharArray();
+        int length = stripPunctuations(buffer, buffer.length, stripAnySymbols, stripLeadingSymbols, stripTrailingSymbols);
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * Strip punctuations from the chars in {@code buffer[0, length)} in place, without creating any object. The
+     * result is the same as with the regular expressions: with stripAnySymbols, replacing every \p{Punct}
+     * by a space and every run of \s+ by a single space; otherwise removing the leading match of
+     * {@code ^[\p{Punct}]+[\s]*[\p{Punct}]*} and the trailing match of {@code [\p{Punct}]*[\s]*[\p{Punct}]+$}.
+     * The chars are trimmed as by String.trim() finally.
+     *
+     * @return int length of the stripped chars, which start at offset 0 of buffer
+     */
+    public static int stripPunctuations(char[] buffer, int length,
+                                        boolean stripAnySymbols,
+                                        boolean stripLeadingSymbols,
+                                        boolean stripTrailingSymbols) {
+        int start = 0, end = length;
         if (stripAnySymbols) {
-            tok = tok.replaceAll("\\p{Punct}", " ").replaceAll("\\s+", " ").trim();
-            return tok;
+            //every run of punctuations and white spaces becomes a single space
+            int out = 0;
+            boolean inRun = false;
+            for (int i = 0; i < length; i++) {
+                char c = buffer[i];
+                if (isPunctuation(c) || isWhitespace(c)) {
+                    if (!inRun)
+                        buffer[out++] = ' ';
+                    inRun = true;
+                } else {
+                    buffer[out++] = c;
+                    inRun = false;
+                }
+            }
+            end = out;
         } else {
-            if (stripLeadingSymbols) {
-                Matcher m = leadingSymbolPattern.matcher(tok);
-                if (m.find())
-                    tok = tok.substring(m.end());
+            //as leadingSymbolPattern
+            if (stripLeadingSymbols && start < end && isPunctuation(buffer[start])) {
+                while (start < end && isPunctuation(buffer[start]))
+                    start++;
+                while (start < end && isWhitespace(buffer[start]))
+                    start++;
+                while (start < end && isPunctuation(buffer[start]))
+                    start++;
             }
-            if (stripTrailingSymbols) {
-                Matcher m = trailingSymbolPattern.matcher(tok);
-                if (m.find())
-                    tok = tok.substring(0, m.start());
+            //as trailingSymbolPattern, whose leftmost match starts after the last non-symbol char. As $, the match
+            //may also end before a line terminator ending the chars
+            int last = end;
+            if (stripTrailingSymbols && last > start && isLineTerminator(buffer[last - 1]))
+                last -= buffer[last - 1] == '\n' && last - 2 >= start && buffer[last - 2] == '\r' ? 2 : 1;
+            if (stripTrailingSymbols && last > start && isPunctuation(buffer[last - 1])) {
+                end = last;
+                while (end > start && isPunctuation(buffer[end - 1]))
+                    end--;
+                while (end > start && isWhitespace(buffer[end - 1]))
+                    end--;
+                while (end > start && isPunctuation(buffer[end - 1]))
+                    end--;
             }
-            tok = tok.trim();
-            return tok;
         }
+        //as String.trim()
+        while (start < end && buffer[start] <= ' ')
+            start++;
+        while (end > start && buffer[end - 1] <= ' ')
+            end--;
+        if (start > 0)
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+        return end - start;
+    }
+
+    /**
+     * @return true if c is matched by \p{Punct}, i.e., is an ASCII punctuation
+     */
+    public static boolean isPunctuation(char c) {
+        return c < CHAR_CLASSES.length && (CHAR_CLASSES[c] & PUNCTUATION) != 0;
+    }
+
+    /**
+     * @return true if all chars in {@code buffer[offset, offset+length)} are punctuations, or there is none; i.e., if
+     * nothing is left once \p{Punct} is removed
+     */
+    public static boolean isAllPunctuation(char[] buffer, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (!isPunctuation(buffer[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @see #isAllPunctuation(char[], int, int)
+     */
+    public static boolean isAllPunctuation(CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            if (!isPunctuation(chars.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c < CHAR_CLASSES.length ? (CHAR_CLASSES[c] & LINE_TERMINATOR) != 0
+                : c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * @return true if c is matched by \s
+     */
+    public static boolean isWhitespace(char c) {
+        return c < CHAR_CLASSES.length && (CHAR_CLASSES[c] & WHITESPACE) != 0;
     }
 }
@@ -0,0 +1,47 @@
+package org.apache.lucene.analysis.jate;
+
+import java.util.Arrays;
+
+/**
+ * Runs a sequence tagger (PoS tagger, chunker) on each sentence of a document as a separate sequence, rather than on
+ * all tokens of the document at once. Sentences are the runs of tokens with the same sentence id, see
+ * {@link SentenceContext#getSentenceId()}.
+ */
+final class SentenceBatches {
+
+    interface SequenceTagger {
+        /**
+         * @param tokens tokens of a sentence
+         * @param tags   tags of the tokens (e.g., PoS tags for chunking), or null
+         * @return String[] one tag per token
+         */
+        String[] tag(String[] tokens, String[] tags);
+    }
+
+    private SentenceBatches() {
+    }
+
+    /**
+     * @param tokens      tokens of a document
+     * @param tags        tags of the tokens passed to the tagger, or null
+     * @param sentenceIds sentence id of each token
+     * @return String[] one tag per token
+     */
+    static String[] tag(String[] tokens, String[] tags, int[] sentenceIds, SequenceTagger tagger) {
+        String[] result = new String[tokens.length];
+        int start = 0;
+        while (start < tokens.length) {
+            int end = start + 1;
+            while (end < tokens.length && sentenceIds[end] == sentenceIds[start])
+                end++;
+            if (start == 0 && end == tokens.length)
+                return tagger.tag(tokens, tags);
+
+            String[] sentenceTags = tagger.tag(Arrays.copyOfRange(tokens, start, end),
+                    tags == null ? null : Arrays.copyOfRange(tags, start, end));
+            System.arraycopy(sentenceTags, 0, result, start, end - start);
+            start = end;
+        }
+        return result;
+    }
+}
@@ -1,5 +1,8 @@
 package org.apache.lucene.analysis.jate;
 
+import org.apache.lucene.util.BytesRef;
+
+import java.nio.charset.StandardCharsets;
 
 /**
  * Represents the context where a candidate term appears in a sentence. The following information is
@@ -20,6 +23,12 @@ public class SentenceContext {
         init(string);
     }
 
+    /**
+     * An empty context, to be filled by {@link #decode(BytesRef)}
+     */
+    SentenceContext(){
+    }
+
     public int getSentenceId() {
         return sentenceId;
     }
@@ -53,6 +62,62 @@ public class SentenceContext {
     }
 
 
+    /**
+     * Decode a sentence context payload in place, as {@link #SentenceContext(String)} does with the payload as string
+     * but without splitting it into strings. Only the pos tag, if any, is allocated.
+     */
+    void decode(BytesRef payload){
+        sentenceId=0;
+        firstTokenIdx=0;
+        lastTokenIdx=0;
+        posTag=null;
+
+        byte[] bytes=payload.bytes;
+        int end=payload.offset+payload.length;
+        int start=payload.offset;
+        while(start<end){
+            int comma=start;
+            while(comma<end && bytes[comma]!=',')
+                comma++;
+            if(comma-start>=2 && bytes[start+1]=='='){
+                switch (bytes[start]){
+                    case 'f':
+                        firstTokenIdx=parseInt(bytes, start+2, comma);
+                        break;
+                    case 'l':
+                        lastTokenIdx=parseInt(bytes, start+2, comma);
+                        break;
+                    case 'p':
+                        posTag=new String(bytes, start+2, comma-start-2, StandardCharsets.UTF_8);
+                        break;
+                    case 's':
+                        sentenceId=parseInt(bytes, start+2, comma);
+                        break;
+                }
+            }
+            start=comma+1;
+        }
+    }
+
+    private static int parseInt(byte[] bytes, int start, int end){
+        int i=start;
+        boolean negative=false;
+        if(i<end && (bytes[i]=='-' || bytes[i]=='+')){
+            negative=bytes[i]=='-';
+            i++;
+        }
+        if(i==end)
+            throw new NumberFormatException(new String(bytes, start, end-start, StandardCharsets.UTF_8));
+        int value=0;
+        for(;i<end;i++){
+            int digit=bytes[i]-'0';
+            if(digit<0 || digit>9)
+                throw new NumberFormatException(new String(bytes, start, end-start, StandardCharsets.UTF_8));
+            value=value*10+digit;
+        }
+        return negative?-value:value;
+    }
+
     public String getPosTag() {
         return posTag;
     }
@@ -4,6 +4,7 @@ import uk.ac.shef.dcs.jate.JATEException;
 import uk.ac.shef.dcs.jate.feature.AbstractFeature;
 import uk.ac.shef.dcs.jate.feature.Containment;
 import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
+import uk.ac.shef.dcs.jate.feature.TermComponentIndex;
 import uk.ac.shef.dcs.jate.model.JATETerm;
 
 import java.util.*;
@@ -31,19 +32,40 @@ public class CValue extends Algorithm {
         validateFeature(feature2, Containment.class);
         Containment cFeature = (Containment) feature2;
 
+        //TTF and log2 length resolved once into arrays by candidate id, so scoring reads no maps
+        TermComponentIndex index = cFeature.getTermComponentIndex();
+        double[] ttf = new double[index == null ? 0 : index.numCandidates()];
+        int maxLength = 1;
+        for (int c = 0; c < ttf.length; c++) {
+            ttf[c] = fFeature.getTTF(index.getCandidate(c));
+            maxLength = Math.max(maxLength, index.getCandidateLength(c));
+        }
+        double[] log2Length = new double[maxLength + 1];
+        for (int a = 0; a <= maxLength; a++)
+            log2Length[a] = log2Length(a);
+
         int cores = Runtime.getRuntime().availableProcessors();
         int maxPerWorker=candidates.size()/cores;
+        if (maxPerWorker == 0)
+            maxPerWorker = 50;
         StringBuilder msg = new StringBuilder("Beginning computing CValue, cores=");
         msg.append(cores).append(", total terms=" + candidates.size()).append(",").
                 append(" max terms per worker thread=").append(maxPerWorker);
         LOG.info(msg.toString());
         ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
         CValueWorker worker = new CValueWorker(new ArrayList<>(candidates), maxPerWorker, fFeature,
-                cFeature
+                cFeature, ttf, log2Length
                 );
         List<JATETerm> result = forkJoinPool.invoke(worker);
         Collections.sort(result);
         LOG.info("Complete");
         return result;
     }
+
+    /**
+     * @return double log2(a + 0.1) for a term of a tokens (Anurag mods for log (a))
+     */
+    static double log2Length(int a) {
+        return Math.log((double) a + 0.1) / Math.log(2.0);
+    }
 }
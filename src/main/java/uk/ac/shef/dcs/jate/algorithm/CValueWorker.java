@@ -3,6 +3,7 @@ package uk.ac.shef.dcs.jate.algorithm;
 import uk.ac.shef.dcs.jate.JATERecursiveTaskWorker;
 import uk.ac.shef.dcs.jate.feature.Containment;
 import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
+import uk.ac.shef.dcs.jate.feature.TermComponentIndex;
 import uk.ac.shef.dcs.jate.model.JATETerm;
 
 import java.util.ArrayList;
@@ -11,24 +12,37 @@ import java.util.Set;
 
 /**
  * Created by zqz on 24/09/2015.
+ * <p>
+ * Candidates found in the TermComponentIndex of the Containment feature are scored over int ids: their length, TTF
+ * and parent ids are read from primitive arrays prepared by {@link CValue}. Other candidates fall back to string
+ * lookups.
  */
 class CValueWorker extends JATERecursiveTaskWorker<String, List<JATETerm>>{
 	
 	private static final long serialVersionUID = 6429950650560197335L;
 	protected FrequencyTermBased fFeature;
     protected Containment cFeature;
+    //by candidate id of the TermComponentIndex, null if the Containment feature has none
+    protected TermComponentIndex index;
+    protected double[] ttf;
+    //log2(a + 0.1) by term length a
+    protected double[] log2Length;
 
     public CValueWorker(List<String> tasks, int maxTasksPerWorker,
-                        FrequencyTermBased fFeature, Containment cFeature
+                        FrequencyTermBased fFeature, Containment cFeature,
+                        double[] ttf, double[] log2Length
                         ) {
         super(tasks, maxTasksPerWorker);
         this.fFeature=fFeature;
         this.cFeature=cFeature;
+        this.index=cFeature.getTermComponentIndex();
+        this.ttf=ttf;
+        this.log2Length=log2Length;
     }
 
     @Override
     protected JATERecursiveTaskWorker<String, List<JATETerm>> createInstance(List<String> candidates) {
-        return new CValueWorker(candidates, maxTasksPerThread, fFeature, cFeature
+        return new CValueWorker(candidates, maxTasksPerThread, fFeature, cFeature, ttf, log2Length
                 );
     }
 
@@ -44,28 +58,40 @@ class CValueWorker extends JATERecursiveTaskWorker<String, List<JATETerm>>{
 
     @Override
     protected List<JATETerm> computeSingleWorker(List<String> candidates) {
-        List<JATETerm> result = new ArrayList<>();
+        List<JATETerm> result = new ArrayList<>(candidates.size());
         for (String tString: candidates) {
-            int ttf = fFeature.getTTF(tString);
-            JATETerm term = new JATETerm(tString);
+            int candidateId = index == null ? -1 : index.lookupCandidateId(tString);
+            double score = candidateId == -1 ? scoreByString(tString) : scoreById(candidateId);
+            result.add(new JATETerm(tString, score));
+        }
+        return result;
+    }
 
-            double score;
-            double log2a = Math.log((double) tString.split(" ").length + 0.1) / Math.log(2.0); //Anurag mods for log (a), log(a + 0.1)
-            double freqa = (double) ttf;
+    private double scoreById(int candidateId) {
+        double log2a = log2Length[index.getCandidateLength(candidateId)];
+        double freqa = ttf[candidateId];
 
-            Set<String> parentTerms = cFeature.getTermParents(tString);
-            double pTa = (double) parentTerms.size();
-            double sumFreqb = 0.0;
+        //nested frequency: parent TTFs summed over the parent ids
+        int[] parentTerms = cFeature.getTermParentIds(candidateId);
+        double sumFreqb = 0.0;
+        for (int parentTerm : parentTerms)
+            sumFreqb += ttf[parentTerm];
 
-            for (String parentTerm : parentTerms) {
-                sumFreqb += (double) fFeature.getTTF(parentTerm);
-            }
+        return parentTerms.length == 0 ? log2a * freqa : log2a * (freqa - (sumFreqb / parentTerms.length));
+    }
+
+    private double scoreByString(String tString) {
+        double log2a = CValue.log2Length(tString.split(" ").length); //Anurag mods for log (a), log(a + 0.1)
+        double freqa = (double) fFeature.getTTF(tString);
 
-            score = pTa == 0 ? log2a * freqa : log2a * (freqa - (sumFreqb / pTa));
-            term.setScore(score);
+        Set<String> parentTerms = cFeature.getTermParents(tString);
+        double pTa = (double) parentTerms.size();
+        double sumFreqb = 0.0;
 
-            result.add(term);
+        for (String parentTerm : parentTerms) {
+            sumFreqb += (double) fFeature.getTTF(parentTerm);
         }
-        return result;
+
+        return pTa == 0 ? log2a * freqa : log2a * (freqa - (sumFreqb / pTa));
     }
 }
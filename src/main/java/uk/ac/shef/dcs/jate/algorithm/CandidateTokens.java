@@ -0,0 +1,51 @@
+package uk.ac.shef.dcs.jate.algorithm;
+
+import uk.ac.shef.dcs.jate.feature.TermComponentIndexFBWorker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Candidate terms tokenised once into token id arrays. Token ids are dense, so per-word statistics can be resolved
+ * into primitive arrays indexed by token id (see {@link ReferenceBased#lookupTTF}).
+ */
+final class CandidateTokens {
+    final String[] candidates;
+    //candidate index -> token ids in their original order
+    final int[][] tokenIds;
+    //token id -> word
+    final String[] words;
+
+    private CandidateTokens(String[] candidates, int[][] tokenIds, String[] words) {
+        this.candidates = candidates;
+        this.tokenIds = tokenIds;
+        this.words = words;
+    }
+
+    static CandidateTokens tokenise(Collection<String> candidates, ForkJoinPool forkJoinPool, int maxPerWorker) {
+        String[] candidateArray = candidates.toArray(new String[candidates.size()]);
+        List<Integer> candidateIds = new ArrayList<>(candidateArray.length);
+        for (int i = 0; i < candidateArray.length; i++)
+            candidateIds.add(i);
+
+        Map<String, Integer> word2Id = new ConcurrentHashMap<>();
+        AtomicInteger wordCounter = new AtomicInteger();
+        int[][] tokenIds = new int[candidateArray.length][];
+        forkJoinPool.invoke(new TermComponentIndexFBWorker(candidateIds, maxPerWorker, candidateArray,
+                word2Id, wordCounter, new int[candidateArray.length], tokenIds));
+
+        String[] words = new String[wordCounter.get()];
+        for (Map.Entry<String, Integer> en : word2Id.entrySet())
+            words[en.getValue()] = en.getKey();
+        return new CandidateTokens(candidateArray, tokenIds, words);
+    }
+
+    int size() {
+        return candidates.length;
+    }
+}
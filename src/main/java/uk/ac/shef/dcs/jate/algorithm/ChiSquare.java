@@ -44,7 +44,8 @@ public class ChiSquare extends Algorithm {
         LOG.info(msg.toString());
         ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
 
-        ChiSquareWorker worker = new ChiSquareWorker(new ArrayList<>(candidates), maxPerWorker,
+        //in row order, so each worker reads its rows of the co-occurrence matrix one after another
+        ChiSquareWorker worker = new ChiSquareWorker(fFeatureCoocurr.sortInRowOrder(candidates), maxPerWorker,
                 termFeatureCtxBased, fFeatureCoocurr, refTermExpProb
                 );
         List<JATETerm> result = forkJoinPool.invoke(worker);
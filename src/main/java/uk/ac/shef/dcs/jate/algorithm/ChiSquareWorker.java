@@ -43,26 +43,15 @@ class ChiSquareWorker extends JATERecursiveTaskWorker<String, List<JATETerm>> {
     @Override
     protected List<JATETerm> computeSingleWorker(List<String> candidates) {
         List<JATETerm> result = new ArrayList<>();
-        Map<String, Integer> ctxTTFLookup = new HashMap<>();//w lookup: the sum of the total number of terms in sentences where w appears
-       
+
         for (String tString : candidates) {
-            //System.out.println(candidates.hashCode());
-
-            Integer n_w = ctxTTFLookup.get(tString);//"the total number of terms in contexts (original paper: sentences)
-            // where w appears".
-            if (n_w == null) {
-                n_w = 0;
-                Set<ContextWindow> ctx_w = termFeatureCtxBased.getContexts(tString);
-                if (ctx_w == null) {
-                    continue;//this is possible if during co-occurrence computing this term is skipped
-                    //because it did not satisfy minimum thresholds
-                }
-                Map<ContextWindow, Integer> ctx2ttf=termFeatureCtxBased.getMapCtx2TTF();
-                for (ContextWindow ctxid : ctx_w)
-                    n_w += ctx2ttf.get(ctxid);
-
-                ctxTTFLookup.put(tString, n_w);
+            int termId = termFeatureCtxBased.lookupTermId(tString);
+            if (termId == -1) {
+                continue;//this is possible if during co-occurrence computing this term is skipped
+                //because it did not satisfy minimum thresholds
             }
+            //"the total number of terms in contexts (original paper: sentences) where w appears"
+            int n_w = termFeatureCtxBased.getTermCtxTTF(termId);
 
             double maxChiSquare = fChiSquareFTExpProb.getMaxExpProb();
 
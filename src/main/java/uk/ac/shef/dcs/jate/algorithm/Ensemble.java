@@ -0,0 +1,154 @@
+package uk.ac.shef.dcs.jate.algorithm;
+
+import org.apache.log4j.Logger;
+import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.feature.AbstractFeature;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Combines the rankings of several algorithms over the same candidates. Features registered with the ensemble are
+ * shared by all member algorithms, so each feature is built once however many members need it. Members run in
+ * parallel.
+ * <p>
+ * Scores are combined by either
+ * <ul>
+ * <li>{@link Combination#RANK_FUSION}: reciprocal rank fusion, the sum of weight / (k + rank) over members, with
+ * k = {@value #RANK_FUSION_K}; or</li>
+ * <li>{@link Combination#Z_SCORE}: the sum of weight * z-score over members, where scores are standardised per
+ * member.</li>
+ * </ul>
+ * A candidate not scored by a member (or given a non-finite score) gets nothing from that member. An ensemble of a
+ * single member returns the scores of that member unchanged.
+ */
+public class Ensemble extends Algorithm {
+    private static final Logger LOG = Logger.getLogger(Ensemble.class.getName());
+    public static final int RANK_FUSION_K = 60;
+
+    public enum Combination {
+        RANK_FUSION, Z_SCORE
+    }
+
+    private final Combination combination;
+    private final List<Algorithm> members = new ArrayList<>();
+    private final List<Double> weights = new ArrayList<>();
+
+    public Ensemble(Combination combination) {
+        this.combination = combination;
+    }
+
+    public void addMember(Algorithm algorithm, double weight) {
+        members.add(algorithm);
+        weights.add(weight);
+    }
+
+    public List<Algorithm> getMembers() {
+        return members;
+    }
+
+    @Override
+    public List<JATETerm> execute(Collection<String> candidates) throws JATEException {
+        if (members.isEmpty())
+            throw new JATEException("Ensemble has no member algorithms.");
+        for (Algorithm member : members) {
+            for (Map.Entry<String, AbstractFeature> en : features.entrySet())
+                member.registerFeature(en.getKey(), en.getValue());
+        }
+
+        if (members.size() == 1)
+            return members.get(0).execute(candidates);
+
+        StringBuilder msg = new StringBuilder("Beginning computing Ensemble (");
+        msg.append(combination).append(") of ").append(members.size()).append(" algorithms, total terms=")
+                .append(candidates.size());
+        LOG.info(msg.toString());
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(members.size());
+        List<ForkJoinTask<List<JATETerm>>> tasks = new ArrayList<>();
+        for (Algorithm member : members)
+            tasks.add(forkJoinPool.submit(() -> member.execute(candidates)));
+
+        Map<String, double[]> combined = new HashMap<>(candidates.size() * 4 / 3 + 1);
+        for (String c : candidates)
+            combined.put(c, new double[1]);
+        try {
+            for (int m = 0; m < members.size(); m++) {
+                List<JATETerm> ranked = tasks.get(m).get();
+                if (combination == Combination.RANK_FUSION)
+                    addRankFusion(ranked, weights.get(m), combined);
+                else
+                    addZScores(ranked, weights.get(m), combined);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JATEException("Interrupted while running ensemble members.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof JATEException)
+                throw (JATEException) e.getCause();
+            StringBuilder sb = new StringBuilder("Ensemble member failed: ");
+            sb.append(e.getCause());
+            throw new JATEException(sb.toString());
+        } finally {
+            forkJoinPool.shutdown();
+        }
+
+        List<JATETerm> result = new ArrayList<>(combined.size());
+        for (Map.Entry<String, double[]> en : combined.entrySet())
+            result.add(new JATETerm(en.getKey(), en.getValue()[0]));
+        Collections.sort(result);
+        LOG.info("Complete");
+        return result;
+    }
+
+    /**
+     * @param ranked terms sorted by score descending. Terms of equal score share the best rank among them; terms of
+     *               non-finite score (sorted first if NaN) are not ranked
+     */
+    static void addRankFusion(List<JATETerm> ranked, double weight, Map<String, double[]> combined) {
+        int rank = 0, position = 0;
+        double previous = Double.NaN;
+        for (JATETerm term : ranked) {
+            if (!Double.isFinite(term.getScore()))
+                continue;
+            position++;
+            if (term.getScore() != previous) {
+                rank = position;
+                previous = term.getScore();
+            }
+            double[] score = combined.get(term.getString());
+            if (score != null)
+                score[0] += weight / (RANK_FUSION_K + rank);
+        }
+    }
+
+    static void addZScores(List<JATETerm> ranked, double weight, Map<String, double[]> combined) {
+        double sum = 0, sumSquares = 0;
+        int n = 0;
+        for (JATETerm term : ranked) {
+            double s = term.getScore();
+            if (!Double.isFinite(s))
+                continue;
+            sum += s;
+            sumSquares += s * s;
+            n++;
+        }
+        if (n == 0)
+            return;
+        double mean = sum / n;
+        double std = Math.sqrt(Math.max(0, sumSquares / n - mean * mean));
+        if (std == 0)
+            return;
+        for (JATETerm term : ranked) {
+            double s = term.getScore();
+            if (!Double.isFinite(s))
+                continue;
+            double[] score = combined.get(term.getString());
+            if (score != null)
+                score[0] += weight * (s - mean) / std;
+        }
+    }
+}
@@ -3,9 +3,11 @@ package uk.ac.shef.dcs.jate.algorithm;
 import uk.ac.shef.dcs.jate.JATEException;
 import uk.ac.shef.dcs.jate.feature.AbstractFeature;
 import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
+import uk.ac.shef.dcs.jate.feature.ReferenceCorpus;
 import uk.ac.shef.dcs.jate.model.JATETerm;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.log4j.Logger;
 
 
@@ -50,45 +52,43 @@ public class GlossEx extends ReferenceBased {
         FrequencyTermBased fFeatureWords = (FrequencyTermBased) feature2;
 
         AbstractFeature feature3 = features.get(FrequencyTermBased.class.getName() + SUFFIX_REF);
-        validateFeature(feature3, FrequencyTermBased.class);
-        FrequencyTermBased fFeatureRef = (FrequencyTermBased) feature3;
+        ReferenceCorpus fFeatureRef = validateReference(feature3);
+        double totalWordsInCorpus = fFeatureWords.getCorpusTotal();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxPerWorker = maxPerWorker(candidates.size(), cores);
+        LOG.info("Calculating GlossEx for "+candidates.size()+" candidate terms, cores="+cores);
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
+        CandidateTokens candidateTokens = CandidateTokens.tokenise(candidates, forkJoinPool, maxPerWorker);
+
         nullWordProbInReference = setNullWordProbInReference(fFeatureRef);
         double refScalar = matchOrdersOfMagnitude(fFeatureWords, fFeatureRef);
+        double[] pc = lookupReferenceProb(fFeatureRef, candidateTokens.words, nullWordProbInReference, refScalar);
+        double[] freq = lookupTTF(fFeatureWords, candidateTokens.words);
 
-        List<JATETerm> result = new ArrayList<>();
-        double totalWordsInCorpus = fFeatureWords.getCorpusTotal();
-        LOG.info("Calculating GlossEx for "+candidates.size()+" candidate terms.");
-        for (String tString : candidates) {
+        //domain specificity of each word, once
+        double[] specificity = new double[freq.length];
+        for (int t = 0; t < freq.length; t++)
+            specificity[t] = /*Math.log(*/freq[t] / totalWordsInCorpus / pc[t]/*)*/;
+
+        List<JATETerm> result = score(candidateTokens, (tString, tokenIds) -> {
             int ttf = fFeatureTerms.getTTF(tString);
-            double score;
-            String[] elements = tString.split(" ");
-            double T = (double) elements.length;
+            double T = (double) tokenIds.length;
             double SUMwi = 0.0;
             double SUMfwi = 0.0;
-            //some terms are artificially incremented by 1 to avoid division by 0 and also to
-            for (int i = 0; i < T; i++) {
-                String wi = elements[i];
-                double pc_wi = fFeatureRef.getTTFNorm(wi);
-                if (pc_wi == 0)
-                    pc_wi = nullWordProbInReference; //
-                if(matchOOM)
-                    pc_wi*=refScalar;
-                SUMwi += /*Math.log(*/(double) fFeatureWords.getTTF(wi) / totalWordsInCorpus / pc_wi/*)*/;
-                SUMfwi += (double) fFeatureWords.getTTF(wi);
+            for (int t : tokenIds) {
+                SUMwi += specificity[t];
+                SUMfwi += freq[t];
             }
 
             double TD = SUMwi / T;
             double TC = (T * Math.log10(ttf + 1) * ttf) / (SUMfwi + 1);
 
-            if (T == 1) score = 0.9 * TD + 0.1 * TC;
-            else score = alpha * TD + beta * TC;
-
-            JATETerm term = new JATETerm(tString, score);
-
-            result.add(term);
-        }
+            if (T == 1) return 0.9 * TD + 0.1 * TC;
+            else return alpha * TD + beta * TC;
+        }, forkJoinPool, maxPerWorker);
 
-        Collections.sort(result);
         LOG.info("Complete");
         return result;
     }
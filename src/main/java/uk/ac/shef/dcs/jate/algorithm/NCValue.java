@@ -0,0 +1,95 @@
+package uk.ac.shef.dcs.jate.algorithm;
+
+import org.apache.log4j.Logger;
+import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.feature.AbstractFeature;
+import uk.ac.shef.dcs.jate.feature.FrequencyCtxBased;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * An implementation of the NC-Value extension of CValue. See Frantzi et. al 2000, <i>
+ * Automatic recognition of multi-word terms: the C-value/NC-value method</i>
+ * <p>
+ * NC-Value(a) = 0.8 * CValue(a) + 0.2 * sum of f_a(b) * weight(b) over the context words b of a, where f_a(b) is the
+ * frequency of b in the contexts of a, and weight(b) is the fraction of candidate terms that b appears in the contexts
+ * of. Contexts are the windows built by {@link uk.ac.shef.dcs.jate.feature.FrequencyCtxWindowBasedFBMaster}: register
+ * the term feature under {@link #SUFFIX_TERM}, and the word feature counted in the same windows under
+ * {@link #SUFFIX_WORD}. Words of the term itself are not counted as its context words.
+ * </p>
+ */
+public class NCValue extends CValue {
+    private static final Logger LOG = Logger.getLogger(NCValue.class.getName());
+    public static final String SUFFIX_TERM = "_TERM";
+    public static final String SUFFIX_WORD = "_WORD";
+
+    private final double cValueWeight;
+    private final double contextWeight;
+
+    public NCValue() {
+        this(0.8, 0.2);
+    }
+
+    public NCValue(double cValueWeight, double contextWeight) {
+        this.cValueWeight = cValueWeight;
+        this.contextWeight = contextWeight;
+    }
+
+    @Override
+    public List<JATETerm> execute(Collection<String> candidates) throws JATEException {
+        AbstractFeature feature = features.get(FrequencyCtxBased.class.getName() + SUFFIX_TERM);
+        validateFeature(feature, FrequencyCtxBased.class);
+        FrequencyCtxBased termCtx = (FrequencyCtxBased) feature;
+
+        AbstractFeature feature2 = features.get(FrequencyCtxBased.class.getName() + SUFFIX_WORD);
+        validateFeature(feature2, FrequencyCtxBased.class);
+        FrequencyCtxBased wordCtx = (FrequencyCtxBased) feature2;
+
+        List<JATETerm> cValues = super.execute(candidates);
+
+        //candidates by index, with their CValue
+        String[] terms = new String[cValues.size()];
+        double[] cValueScores = new double[terms.length];
+        List<Integer> termIndexes = new ArrayList<>(terms.length);
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = cValues.get(i).getString();
+            cValueScores[i] = cValues.get(i).getScore();
+            termIndexes.add(i);
+        }
+
+        Map<String, Integer> word2Id = new HashMap<>();
+        for (String word : wordCtx.getTerm2Ctx().keySet())
+            word2Id.put(word, word2Id.size());
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxPerWorker = terms.length / cores;
+        if (maxPerWorker == 0)
+            maxPerWorker = 50;
+        StringBuilder msg = new StringBuilder("Beginning computing NC-Value context factors, cores=");
+        msg.append(cores).append(", total terms=").append(terms.length).append(", context words=")
+                .append(word2Id.size());
+        LOG.info(msg.toString());
+        ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
+
+        //pass 1: context words of each term and, for each word, the number of terms it is a context word of
+        int[][] ctxWordIds = new int[terms.length][];
+        int[][] ctxWordFreqs = new int[terms.length][];
+        AtomicIntegerArray termsPerWord = new AtomicIntegerArray(word2Id.size());
+        forkJoinPool.invoke(new NCValueContextWorker(termIndexes, maxPerWorker, terms, termCtx, wordCtx, word2Id,
+                ctxWordIds, ctxWordFreqs, termsPerWord));
+
+        double[] wordWeights = new double[word2Id.size()];
+        for (int w = 0; w < wordWeights.length; w++)
+            wordWeights[w] = terms.length == 0 ? 0 : (double) termsPerWord.get(w) / terms.length;
+
+        //pass 2: weigh context words and combine with CValue
+        List<JATETerm> result = forkJoinPool.invoke(new NCValueWorker(termIndexes, maxPerWorker, terms,
+                cValueScores, ctxWordIds, ctxWordFreqs, wordWeights, cValueWeight, contextWeight));
+        Collections.sort(result);
+        LOG.info("Complete");
+        return result;
+    }
+}
@@ -0,0 +1,100 @@
+package uk.ac.shef.dcs.jate.algorithm;
+
+import uk.ac.shef.dcs.jate.JATERecursiveTaskWorker;
+import uk.ac.shef.dcs.jate.feature.ContextWindow;
+import uk.ac.shef.dcs.jate.feature.FrequencyCtxBased;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Collects the context words of each term for {@link NCValue}, as parallel arrays of word ids and frequencies. Each
+ * worker writes only to the slots of the term indexes it is given; word counts are shared and updated atomically.
+ */
+class NCValueContextWorker extends JATERecursiveTaskWorker<Integer, Integer> {
+
+    private static final long serialVersionUID = 2791365046125437801L;
+    protected String[] terms;
+    protected FrequencyCtxBased termCtx;
+    protected FrequencyCtxBased wordCtx;
+    protected Map<String, Integer> word2Id;
+    protected int[][] ctxWordIds;
+    protected int[][] ctxWordFreqs;
+    protected AtomicIntegerArray termsPerWord;
+
+    NCValueContextWorker(List<Integer> termIndexes, int maxTasksPerWorker, String[] terms,
+                         FrequencyCtxBased termCtx, FrequencyCtxBased wordCtx, Map<String, Integer> word2Id,
+                         int[][] ctxWordIds, int[][] ctxWordFreqs, AtomicIntegerArray termsPerWord) {
+        super(termIndexes, maxTasksPerWorker);
+        this.terms = terms;
+        this.termCtx = termCtx;
+        this.wordCtx = wordCtx;
+        this.word2Id = word2Id;
+        this.ctxWordIds = ctxWordIds;
+        this.ctxWordFreqs = ctxWordFreqs;
+        this.termsPerWord = termsPerWord;
+    }
+
+    @Override
+    protected JATERecursiveTaskWorker<Integer, Integer> createInstance(List<Integer> termIndexes) {
+        return new NCValueContextWorker(termIndexes, maxTasksPerThread, terms, termCtx, wordCtx, word2Id,
+                ctxWordIds, ctxWordFreqs, termsPerWord);
+    }
+
+    @Override
+    protected Integer mergeResult(List<JATERecursiveTaskWorker<Integer, Integer>> jateRecursiveTaskWorkers) {
+        int total = 0;
+        for (JATERecursiveTaskWorker<Integer, Integer> worker : jateRecursiveTaskWorkers)
+            total += worker.join();
+        return total;
+    }
+
+    @Override
+    protected Integer computeSingleWorker(List<Integer> termIndexes) {
+        //word id -> frequency in the contexts of the current term; touched ids are reset after each term
+        int[] freqs = new int[word2Id.size()];
+        int[] touched = new int[16];
+        int count = 0;
+        for (int t : termIndexes) {
+            String term = terms[t];
+            List<String> ownWords = Arrays.asList(term.split(" "));
+            int size = 0;
+            Set<ContextWindow> contexts = termCtx.getContexts(term);
+            if (contexts != null) {
+                for (ContextWindow ctx : contexts) {
+                    Map<String, Integer> wordFreqs = wordCtx.getMapCtx2TFIC().get(ctx);
+                    if (wordFreqs == null)
+                        continue;
+                    for (Map.Entry<String, Integer> en : wordFreqs.entrySet()) {
+                        if (ownWords.contains(en.getKey()))
+                            continue;
+                        Integer w = word2Id.get(en.getKey());
+                        if (w == null)
+                            continue;
+                        if (freqs[w] == 0) {
+                            if (size == touched.length)
+                                touched = Arrays.copyOf(touched, size * 2);
+                            touched[size++] = w;
+                        }
+                        freqs[w] += en.getValue();
+                    }
+                }
+            }
+
+            int[] ids = Arrays.copyOf(touched, size);
+            int[] idFreqs = new int[size];
+            for (int i = 0; i < size; i++) {
+                idFreqs[i] = freqs[ids[i]];
+                freqs[ids[i]] = 0;
+                termsPerWord.incrementAndGet(ids[i]);
+            }
+            ctxWordIds[t] = ids;
+            ctxWordFreqs[t] = idFreqs;
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,64 @@
+package uk.ac.shef.dcs.jate.algorithm;
+
+import uk.ac.shef.dcs.jate.JATERecursiveTaskWorker;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Combines CValue with the weighted context words of each term, see {@link NCValue}.
+ */
+class NCValueWorker extends JATERecursiveTaskWorker<Integer, List<JATETerm>> {
+
+    private static final long serialVersionUID = -8305297316522412984L;
+    protected String[] terms;
+    protected double[] cValueScores;
+    protected int[][] ctxWordIds;
+    protected int[][] ctxWordFreqs;
+    protected double[] wordWeights;
+    protected double cValueWeight;
+    protected double contextWeight;
+
+    NCValueWorker(List<Integer> termIndexes, int maxTasksPerWorker, String[] terms, double[] cValueScores,
+                  int[][] ctxWordIds, int[][] ctxWordFreqs, double[] wordWeights,
+                  double cValueWeight, double contextWeight) {
+        super(termIndexes, maxTasksPerWorker);
+        this.terms = terms;
+        this.cValueScores = cValueScores;
+        this.ctxWordIds = ctxWordIds;
+        this.ctxWordFreqs = ctxWordFreqs;
+        this.wordWeights = wordWeights;
+        this.cValueWeight = cValueWeight;
+        this.contextWeight = contextWeight;
+    }
+
+    @Override
+    protected JATERecursiveTaskWorker<Integer, List<JATETerm>> createInstance(List<Integer> termIndexes) {
+        return new NCValueWorker(termIndexes, maxTasksPerThread, terms, cValueScores, ctxWordIds, ctxWordFreqs,
+                wordWeights, cValueWeight, contextWeight);
+    }
+
+    @Override
+    protected List<JATETerm> mergeResult(List<JATERecursiveTaskWorker<Integer, List<JATETerm>>> jateRecursiveTaskWorkers) {
+        List<JATETerm> result = new ArrayList<>();
+        for (JATERecursiveTaskWorker<Integer, List<JATETerm>> worker : jateRecursiveTaskWorkers) {
+            result.addAll(worker.join());
+        }
+        return result;
+    }
+
+    @Override
+    protected List<JATETerm> computeSingleWorker(List<Integer> termIndexes) {
+        List<JATETerm> result = new ArrayList<>(termIndexes.size());
+        for (int t : termIndexes) {
+            int[] ids = ctxWordIds[t];
+            int[] freqs = ctxWordFreqs[t];
+            double ctxFactor = 0;
+            for (int i = 0; i < ids.length; i++)
+                ctxFactor += freqs[i] * wordWeights[ids[i]];
+            result.add(new JATETerm(terms[t], cValueWeight * cValueScores[t] + contextWeight * ctxFactor));
+        }
+        return result;
+    }
+}
@@ -40,6 +40,20 @@ public class RAKE extends Algorithm {
         int maxPerWorker=candidates.size()/cores;
         if (maxPerWorker == 0)
             maxPerWorker = 50;
+        ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
+
+        //pre-pass: degree and score of every word, computed once
+        int totalWords = fFeatureTermCompIndex.numTokens();
+        List<Integer> tokenIds = new ArrayList<>(totalWords);
+        for (int t = 0; t < totalWords; t++)
+            tokenIds.add(t);
+        int maxWordsPerWorker = totalWords / cores;
+        if (maxWordsPerWorker == 0)
+            maxWordsPerWorker = 50;
+        LOG.info("Computing RAKE word scores, total words=" + totalWords);
+        double[] wordScores = new double[totalWords];
+        forkJoinPool.invoke(new RAKEWordScoreWorker(tokenIds, maxWordsPerWorker, fFeatureWords, fFeatureTerms,
+                fFeatureTermCompIndex, wordScores));
 
         StringBuilder msg = new StringBuilder("Beginning computing RAKE values, cores=");
         msg.append(cores).append(" total terms=" + candidates.size()).append(",")
@@ -47,10 +61,8 @@ public class RAKE extends Algorithm {
 
 
         LOG.info(msg.toString());
-        ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
-        RAKEWorker worker = new RAKEWorker(new ArrayList<>(candidates), Integer.MAX_VALUE, fFeatureWords, fFeatureTerms,
-                fFeatureTermCompIndex
-        );
+        RAKEWorker worker = new RAKEWorker(new ArrayList<>(candidates), maxPerWorker, fFeatureTermCompIndex,
+                wordScores);
         List<JATETerm> result = forkJoinPool.invoke(worker);
         Collections.sort(result);
 
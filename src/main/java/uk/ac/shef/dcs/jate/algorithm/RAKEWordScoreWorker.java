@@ -0,0 +1,79 @@
+package uk.ac.shef.dcs.jate.algorithm;
+
+import uk.ac.shef.dcs.jate.JATERecursiveTaskWorker;
+import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
+import uk.ac.shef.dcs.jate.feature.TermComponentIndex;
+
+import java.util.List;
+
+/**
+ * Pre-pass of RAKE: computes the score (degree/frequency) of every word once, indexed by the token
+ * id of {@link TermComponentIndex}. Each worker writes only to the slots of the token ids it is given.
+ */
+class RAKEWordScoreWorker extends JATERecursiveTaskWorker<Integer, Integer> {
+
+    private static final long serialVersionUID = -3184870532913467721L;
+    protected FrequencyTermBased fFeatureWords;
+    protected FrequencyTermBased fFeatureTerms;
+    protected TermComponentIndex fTermCompIndex;
+    protected double[] wordScores;
+
+    RAKEWordScoreWorker(List<Integer> tokenIds, int maxTasksPerWorker,
+                        FrequencyTermBased fFeatureWords, FrequencyTermBased fFeatureTerms,
+                        TermComponentIndex fTermCompIndex,
+                        double[] wordScores) {
+        super(tokenIds, maxTasksPerWorker);
+        this.fFeatureWords = fFeatureWords;
+        this.fFeatureTerms = fFeatureTerms;
+        this.fTermCompIndex = fTermCompIndex;
+        this.wordScores = wordScores;
+    }
+
+    @Override
+    protected JATERecursiveTaskWorker<Integer, Integer> createInstance(List<Integer> tokenIds) {
+        return new RAKEWordScoreWorker(tokenIds, maxTasksPerThread, fFeatureWords, fFeatureTerms, fTermCompIndex,
+                wordScores);
+    }
+
+    @Override
+    protected Integer mergeResult(List<JATERecursiveTaskWorker<Integer, Integer>> jateRecursiveTaskWorkers) {
+        int total = 0;
+        for (JATERecursiveTaskWorker<Integer, Integer> worker : jateRecursiveTaskWorkers)
+            total += worker.join();
+        return total;
+    }
+
+    @Override
+    protected Integer computeSingleWorker(List<Integer> tokenIds) {
+        for (int tokenId : tokenIds) {
+            //first, frequency
+            int freq = fFeatureWords.getTTF(fTermCompIndex.getToken(tokenId));
+            if (freq == 0)    //composing word can be stop words that have been filtered, they add nothing to a score
+                continue;
+
+            //second, degree. Degree adds up frequency
+            int degree = freq;
+
+            //for the remaining part of degree, it depends on terms (parent term) that contain this word
+            int[] parentTerms = fTermCompIndex.getContainingCandidates(tokenId);
+            //we are only interested in multi-word expressions for computing degree
+            int multiWordParents = fTermCompIndex.countLongerThan(tokenId, 1);
+            for (int p = 0; p < multiWordParents; p++) {
+                int pTermId = parentTerms[p];
+                int pTF = fFeatureTerms.getTTF(fTermCompIndex.getCandidate(pTermId)); //how many times this parent term appear in corpus
+
+                int[] pTermElements = fTermCompIndex.getCandidateTokenIds(pTermId); //components of this parent term
+                int occurrences = 0;
+                for (int ep : pTermElements) {
+                    if (ep == tokenId)
+                        occurrences++;
+                }
+                //each occurrence of the word adds pTF for every other element, discounting the word itself
+                degree += occurrences * (pTermElements.length - occurrences) * pTF;
+            }
+
+            wordScores[tokenId] = (double) degree / freq;
+        }
+        return tokenIds.size();
+    }
+}
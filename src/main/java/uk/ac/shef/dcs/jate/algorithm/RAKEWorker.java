@@ -1,9 +1,7 @@
 package uk.ac.shef.dcs.jate.algorithm;
 
 import org.apache.log4j.Logger;
-import org.apache.solr.common.util.Pair;
 import uk.ac.shef.dcs.jate.JATERecursiveTaskWorker;
-import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
 import uk.ac.shef.dcs.jate.feature.TermComponentIndex;
 import uk.ac.shef.dcs.jate.model.JATETerm;
 
@@ -11,29 +9,30 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Created by - on 25/02/2016.
+ * Scores candidates by summing the precomputed scores of their words.
+ *
+ * @see RAKEWordScoreWorker
  */
 public class RAKEWorker extends JATERecursiveTaskWorker<String, List<JATETerm>> {
 
     private static final Logger LOG = Logger.getLogger(RAKEWorker.class.getName());
     private static final long serialVersionUID = 6429950650561513335L;
-    protected FrequencyTermBased fFeatureWords;
-    protected FrequencyTermBased fFeatureTerms;
     protected TermComponentIndex fTermCompIndex;
+    protected double[] wordScores;
 
+    /**
+     * @param wordScores RAKE score of each word, indexed by token id of the TermComponentIndex
+     */
     public RAKEWorker(List<String> candidates, int maxTasksPerWorker,
-                      FrequencyTermBased fFeature, FrequencyTermBased fFeatureTerms,
-                      TermComponentIndex fTermCompIndex) {
+                      TermComponentIndex fTermCompIndex, double[] wordScores) {
         super(candidates, maxTasksPerWorker);
-        this.fFeatureWords=fFeature;
-        this.fFeatureTerms=fFeatureTerms;
         this.fTermCompIndex=fTermCompIndex;
+        this.wordScores=wordScores;
     }
 
     @Override
     protected JATERecursiveTaskWorker<String, List<JATETerm>> createInstance(List<String> candidates) {
-        return new RAKEWorker(candidates, maxTasksPerThread, fFeatureWords, fFeatureTerms,fTermCompIndex
-        );
+        return new RAKEWorker(candidates, maxTasksPerThread, fTermCompIndex, wordScores);
     }
 
     @Override
@@ -52,45 +51,18 @@ public class RAKEWorker extends JATERecursiveTaskWorker<String, List<JATETerm>>
 
         int count=0;
         for (String tString : candidates) {
-/*            if(tString.equals("receptors in human mononuclear leukocyte"))
-                System.out.println();*/
-            String[] elements = tString.split(" ");
             double score = 0;
             //a term's RAKE score is the sum of its elements
-            for (String e : elements) {
-                //now compute RAKE score of individual words
-/*                if(e.equals("t"))
-                    System.out.printf("here");*/
-
-                //first, frequency
-                int freq = fFeatureWords.getTTF(e);
-                if(freq==0)    //composing word can be stop words that have been filtered
-                    continue;
-
-                //second, degree. Degree adds up frequency
-                int degree = freq;
-
-                //for the remaining part of degree, it depends on terms (parent term) that contain this element
-                List<Pair<String, Integer>> parentTerms=fTermCompIndex.getSorted(e);
-                for(Pair<String, Integer> pTerm: parentTerms){
-                    String pTermStr = pTerm.getKey();
-                    if(pTerm.getValue()==1) //we are only interested in multi-word expressions for computing degree
-                        continue;
-
-                    int pTF = fFeatureTerms.getTTF(pTermStr); //how many times this parent term appear in corpus
-
-                    String[] pTermElements = pTermStr.split(" "); //components of this parent term
-                    for(String ep: pTermElements){
-                        if (ep.equals(e)) //discount the word element itself
-                            continue;
-                        //does stop words matter?
-                        degree+=pTF;
-                    }
-
+            int candidateId = fTermCompIndex.lookupCandidateId(tString);
+            if (candidateId != -1) {
+                for (int e : fTermCompIndex.getCandidateTokenIds(candidateId))
+                    score += wordScores[e];
+            } else {
+                for (String e : tString.split(" ")) {
+                    int tokenId = fTermCompIndex.lookupTokenId(e);
+                    if (tokenId != -1)
+                        score += wordScores[tokenId];
                 }
-
-                double wScore = (double) degree / freq; //score of this element word
-                score += wScore;
             }
 
             JATETerm term = new JATETerm(tString, score);
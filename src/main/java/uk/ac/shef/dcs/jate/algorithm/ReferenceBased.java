@@ -1,10 +1,15 @@
 package uk.ac.shef.dcs.jate.algorithm;
 
+import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.feature.AbstractFeature;
 import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
+import uk.ac.shef.dcs.jate.feature.ReferenceCorpus;
+import uk.ac.shef.dcs.jate.model.JATETerm;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
@@ -23,20 +28,83 @@ public abstract class ReferenceBased extends Algorithm{
         this.matchOOM=matchOOM;
     }
 
-    static double matchOrdersOfMagnitude(FrequencyTermBased fFeatureWords, FrequencyTermBased fFeatureRef) {
-        double totalScore=0, totalWords=0;
-        for(String t: fFeatureRef.getMapTerm2TTF().keySet()){
-            totalWords++;
-            totalScore+=fFeatureRef.getTTFNorm(t);
-        }
-        double meanRef=totalScore/totalWords;//mean normalized word freq
+    /**
+     * Scores one candidate from its token ids. Implementations only read tables resolved before scoring starts,
+     * so they are called concurrently by {@link ReferenceBasedWorker}s.
+     */
+    interface CandidateScorer {
+        double score(String candidate, int[] tokenIds);
+    }
+
+    static int maxPerWorker(int total, int cores) {
+        int maxPerWorker = total / cores;
+        return maxPerWorker == 0 ? 50 : maxPerWorker;
+    }
+
+    /**
+     * @return double[] total frequency of each word in the feature, indexed by token id
+     */
+    static double[] lookupTTF(FrequencyTermBased feature, String[] words) {
+        double[] ttf = new double[words.length];
+        for (int t = 0; t < words.length; t++)
+            ttf[t] = feature.getTTF(words[t]);
+        return ttf;
+    }
+
+    /**
+     * @return double[] total frequency of each word in the reference corpus, indexed by token id
+     */
+    static double[] lookupTTF(ReferenceCorpus reference, String[] words) {
+        double[] ttf = new double[words.length];
+        for (int t = 0; t < words.length; t++)
+            ttf[t] = reference.getTTF(words[t]);
+        return ttf;
+    }
 
-        totalScore=0; totalWords=0;
-        for(String t: fFeatureWords.getMapTerm2TTF().keySet()){
-            totalWords++;
-            totalScore+=fFeatureWords.getTTFNorm(t);
+    /**
+     * A reference feature is either a {@link ReferenceCorpus}, e.g., memory-mapped from a binary file, or the
+     * {@link FrequencyTermBased} word frequencies of one.
+     */
+    protected ReferenceCorpus validateReference(AbstractFeature feature) throws JATEException {
+        if (feature instanceof ReferenceCorpus)
+            return (ReferenceCorpus) feature;
+        validateFeature(feature, FrequencyTermBased.class);
+        return ReferenceCorpus.of((FrequencyTermBased) feature);
+    }
+
+    /**
+     * @return double[] normalised frequency of each word in the reference corpus, indexed by token id. Words not
+     * found in the reference get nullWordProb; all values are scaled by refScalar if orders of magnitude are matched.
+     */
+    double[] lookupReferenceProb(ReferenceCorpus fFeatureRef, String[] words,
+                                 double nullWordProb, double refScalar) {
+        double norm = (double) fFeatureRef.getCorpusTotal() + 1;
+        double[] prob = new double[words.length];
+        for (int t = 0; t < words.length; t++) {
+            double pc_wi = fFeatureRef.getTTF(words[t]) / norm;
+            if (pc_wi == 0)
+                pc_wi = nullWordProb;
+            if (matchOOM)
+                pc_wi *= refScalar;
+            prob[t] = pc_wi;
         }
-        double mean = totalScore/totalWords;
+        return prob;
+    }
+
+    static List<JATETerm> score(CandidateTokens candidateTokens, CandidateScorer scorer,
+                                ForkJoinPool forkJoinPool, int maxPerWorker) {
+        List<Integer> candidateIndexes = new ArrayList<>(candidateTokens.size());
+        for (int c = 0; c < candidateTokens.size(); c++)
+            candidateIndexes.add(c);
+        List<JATETerm> result = forkJoinPool.invoke(
+                new ReferenceBasedWorker(candidateIndexes, maxPerWorker, candidateTokens, scorer));
+        Collections.sort(result);
+        return result;
+    }
+
+    static double matchOrdersOfMagnitude(FrequencyTermBased fFeatureWords, ReferenceCorpus fFeatureRef) {
+        double meanRef=fFeatureRef.getMeanTTFNorm();//mean normalized word freq
+        double mean = ReferenceCorpus.meanTTFNorm(fFeatureWords);
 
         if(Double.isFinite(meanRef)){
             int oomRef=(int)Math.log10(meanRef);
@@ -49,15 +117,8 @@ public abstract class ReferenceBased extends Algorithm{
             return 1.0;
     }
 
-    static double setNullWordProbInReference(FrequencyTermBased ref) {
-        List<Integer> freq = new ArrayList<>(ref.getMapTerm2TTF().values());
-        Collections.sort(freq);
-        if(freq.size()>0) {
-            int min = freq.get(0);
-            return (double)min/ref.getCorpusTotal();
-        }
-        else
-            return 0.1;
+    static double setNullWordProbInReference(ReferenceCorpus ref) {
+        return ref.getNullWordProb();
     }
 
 }
@@ -0,0 +1,48 @@
+package uk.ac.shef.dcs.jate.algorithm;
+
+import uk.ac.shef.dcs.jate.JATERecursiveTaskWorker;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scores tokenised candidates of a reference based algorithm, given as indexes into {@link CandidateTokens}.
+ */
+class ReferenceBasedWorker extends JATERecursiveTaskWorker<Integer, List<JATETerm>> {
+
+    private static final long serialVersionUID = 4128637795203306710L;
+    protected CandidateTokens candidateTokens;
+    protected ReferenceBased.CandidateScorer scorer;
+
+    ReferenceBasedWorker(List<Integer> candidateIndexes, int maxTasksPerWorker,
+                         CandidateTokens candidateTokens, ReferenceBased.CandidateScorer scorer) {
+        super(candidateIndexes, maxTasksPerWorker);
+        this.candidateTokens = candidateTokens;
+        this.scorer = scorer;
+    }
+
+    @Override
+    protected JATERecursiveTaskWorker<Integer, List<JATETerm>> createInstance(List<Integer> candidateIndexes) {
+        return new ReferenceBasedWorker(candidateIndexes, maxTasksPerThread, candidateTokens, scorer);
+    }
+
+    @Override
+    protected List<JATETerm> mergeResult(List<JATERecursiveTaskWorker<Integer, List<JATETerm>>> jateRecursiveTaskWorkers) {
+        List<JATETerm> result = new ArrayList<>();
+        for (JATERecursiveTaskWorker<Integer, List<JATETerm>> worker : jateRecursiveTaskWorkers) {
+            result.addAll(worker.join());
+        }
+        return result;
+    }
+
+    @Override
+    protected List<JATETerm> computeSingleWorker(List<Integer> candidateIndexes) {
+        List<JATETerm> result = new ArrayList<>(candidateIndexes.size());
+        for (int c : candidateIndexes) {
+            String tString = candidateTokens.candidates[c];
+            result.add(new JATETerm(tString, scorer.score(tString, candidateTokens.tokenIds[c])));
+        }
+        return result;
+    }
+}
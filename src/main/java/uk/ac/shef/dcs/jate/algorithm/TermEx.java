@@ -2,12 +2,12 @@ package uk.ac.shef.dcs.jate.algorithm;
 
 import uk.ac.shef.dcs.jate.JATEException;
 import uk.ac.shef.dcs.jate.feature.AbstractFeature;
-import uk.ac.shef.dcs.jate.feature.ContextWindow;
-import uk.ac.shef.dcs.jate.feature.FrequencyCtxBased;
 import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
+import uk.ac.shef.dcs.jate.feature.ReferenceCorpus;
 import uk.ac.shef.dcs.jate.model.JATETerm;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.log4j.Logger;
 
 /**
@@ -28,6 +28,11 @@ public class TermEx extends ReferenceBased {
 
     public static final String SUFFIX_REF = "_REF";
     public static final String SUFFIX_WORD = "_WORD";
+    /**
+     * @deprecated document frequencies are read from the term feature; a document context feature is no longer
+     * required and is ignored if registered
+     */
+    @Deprecated
     public static final String SUFFIX_DOC = "_DOC";
 
     public TermEx() {
@@ -51,79 +56,81 @@ public class TermEx extends ReferenceBased {
         validateFeature(feature2, FrequencyTermBased.class);
         FrequencyTermBased fFeatureWords = (FrequencyTermBased) feature2;
 
-        AbstractFeature feature4 = features.get(FrequencyCtxBased.class.getName() + SUFFIX_DOC);
-        validateFeature(feature4, FrequencyCtxBased.class);
-        FrequencyCtxBased fFeatureDocs = (FrequencyCtxBased) feature4;
-
-        List<FrequencyTermBased> referenceFeatures = new ArrayList<>();
-        Map<FrequencyTermBased, Double> mapNullWordProbInReference = new HashMap<>();
-        Map<FrequencyTermBased, Double> mapRefScalars = new HashMap<>();
+        List<ReferenceCorpus> referenceFeatures = new ArrayList<>();
         for (Map.Entry<String, AbstractFeature> en : features.entrySet()) {
-            if (en.getKey().startsWith(FrequencyTermBased.class.getName() + SUFFIX_REF)) {
-                validateFeature(en.getValue(), FrequencyTermBased.class);
-                FrequencyTermBased fFeatureRef = (FrequencyTermBased) en.getValue();
-                referenceFeatures.add(fFeatureRef);
-                mapNullWordProbInReference.put(fFeatureRef, setNullWordProbInReference(fFeatureRef));
-                mapRefScalars.put(fFeatureRef, matchOrdersOfMagnitude(fFeatureWords, fFeatureRef));
-            }
+            if (en.getKey().startsWith(FrequencyTermBased.class.getName() + SUFFIX_REF))
+                referenceFeatures.add(validateReference(en.getValue()));
         }
 
-
-        List<JATETerm> result = new ArrayList<>();
         double totalWordsInCorpus = fFeatureWords.getCorpusTotal();
-        StringBuilder msg = new StringBuilder("Beginning computing TermEx values,");
-        msg.append(", total terms=" + candidates.size());
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxPerWorker = maxPerWorker(candidates.size(), cores);
+        StringBuilder msg = new StringBuilder("Beginning computing TermEx values, cores=");
+        msg.append(cores).append(", total terms=" + candidates.size());
         LOG.info(msg.toString());
-        for (String tString : candidates) {
-            String[] elements = tString.split(" ");
-            double T = (double) elements.length;
-            double SUMfwi = 0.0;
 
-            //the original paper looks up the term directly (tString). But in many case, technical terms
-            //are unlikely to be found in reference corpus. So we break term into component words and look up words
-            //then combine the scores
+        ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
+        CandidateTokens candidateTokens = CandidateTokens.tokenise(candidates, forkJoinPool, maxPerWorker);
+        double[] freq = lookupTTF(fFeatureWords, candidateTokens.words);
+        int[] docTotals = fFeatureTerms.getDocTotals();
+
+        //for each word, select the reference corpus where it is most frequent, once. The original paper looks up the
+        //term directly (tString). But in many case, technical terms are unlikely to be found in reference corpus.
+        //So we break term into component words and look up words then combine the scores
+        double[] refFreq = new double[freq.length];
+        //total words of the selected reference corpus, 0 if the word is found in no reference corpus
+        double[] selectedRefTotal = new double[freq.length];
+        double[][] refTTF = new double[referenceFeatures.size()][];
+        for (int r = 0; r < refTTF.length; r++)
+            refTTF[r] = lookupTTF(referenceFeatures.get(r), candidateTokens.words);
+        double[] nullWordProbs = new double[refTTF.length];
+        double[] refScalars = new double[refTTF.length];
+        double[] refTotals = new double[refTTF.length];
+        for (int r = 0; r < refTTF.length; r++) {
+            ReferenceCorpus fFeatureRef = referenceFeatures.get(r);
+            nullWordProbs[r] = setNullWordProbInReference(fFeatureRef);
+            refScalars[r] = matchOrdersOfMagnitude(fFeatureWords, fFeatureRef);
+            refTotals[r] = fFeatureRef.getCorpusTotal();
+        }
+        for (int t = 0; t < freq.length; t++) {
+            double max_freq_t_dj = 0;
+            int selectedRef = 0;
+            for (int r = 0; r < refTTF.length; r++) {
+                if (refTTF[r][t] > max_freq_t_dj) {
+                    max_freq_t_dj = refTTF[r][t];
+                    selectedRef = r;
+                    selectedRefTotal[t] = refTotals[r];
+                }
+            }
+            if (max_freq_t_dj == 0)
+                max_freq_t_dj = nullWordProbs[selectedRef];
+            if (matchOOM)
+                max_freq_t_dj *= refScalars[selectedRef];
+            refFreq[t] = max_freq_t_dj;
+        }
+
+        List<JATETerm> result = score(candidateTokens, (tString, tokenIds) -> {
+            double T = (double) tokenIds.length;
+            double SUMfwi = 0.0;
             double DP_upper=0.0, DP_lower=0.0, totalWordsInSelectedRefCorpus=0.0;
 
-            for (int i = 0; i < T; i++) {
-                String wi = elements[i];
-                SUMfwi += (double) fFeatureWords.getTTF(wi);
-
-                DP_upper+=(double) fFeatureWords.getTTF(wi);
-                double max_freq_t_dj = 0;
-                FrequencyTermBased selectedRef = referenceFeatures.get(0);
-                for (FrequencyTermBased refFeature : referenceFeatures) {
-                    double freqNorm = refFeature.getTTF(wi);
-                    if (freqNorm > max_freq_t_dj) {
-                        max_freq_t_dj = freqNorm;
-                        selectedRef = refFeature;
-                        totalWordsInSelectedRefCorpus=refFeature.getCorpusTotal();
-                    }
-                }
-                if (max_freq_t_dj == 0)
-                    max_freq_t_dj = mapNullWordProbInReference.get(selectedRef);
-                double theRefScalar = mapRefScalars.get(selectedRef);
-                if(matchOOM)
-                    max_freq_t_dj *= theRefScalar;
-                DP_lower+=max_freq_t_dj;
+            for (int t : tokenIds) {
+                SUMfwi += freq[t];
+                DP_upper += freq[t];
+                DP_lower += refFreq[t];
+                if (selectedRefTotal[t] != 0)
+                    totalWordsInSelectedRefCorpus = selectedRefTotal[t];
             }
 
-            //calc DC
-            Set<Integer> docs = fFeatureTerms.getTermFrequencyInDocument(tString).keySet();
+            //calc DC, from the doc postings of the term and the total term frequency of each document
+            Map<Integer, Integer> postings = fFeatureTerms.getTermFrequencyInDocument(tString);
             double sum = 0;
-            for (int i : docs) {
-                //do not query for features using this context window. but query to get the
-                //real context window object that matches this id
-                ContextWindow c = new ContextWindow();
-                c.setDocId(i);
-                c = fFeatureDocs.getContextWindow(c.toString());
-                if (c == null)
-                    LOG.error(String.format("TermEx error: expected context window does not exist in doc [%s]", i));
-
-                int tfid = fFeatureDocs.getTFIC(c).get(tString);
-                int ttfid = fFeatureDocs.getMapCtx2TTF().get(c);
-                double norm = tfid == 0 ? 0 : (double) tfid / ttfid;
-                if (norm == 0) sum += 0;
-                else {
+            if (postings != null) {
+                for (Map.Entry<Integer, Integer> posting : postings.entrySet()) {
+                    int tfid = posting.getValue();
+                    if (tfid == 0)
+                        continue;
+                    double norm = (double) tfid / docTotals[posting.getKey()];
                     sum += norm * Math.log(norm/* + 0.1*/);
                 }
             }
@@ -132,14 +139,12 @@ public class TermEx extends ReferenceBased {
 
             //double DP = SUMwi; //this term has been changed to ensure they are in the range of 0 and 1
             double DC = 0-sum;
-            double LC = SUMfwi == 0 ? 0 : (T * Math.log(fFeatureTerms.getTTF(tString) + 0.000001) * fFeatureTerms.getTTF(tString)) / SUMfwi;
+            int ttf = fFeatureTerms.getTTF(tString);
+            double LC = SUMfwi == 0 ? 0 : (T * Math.log(ttf + 0.000001) * ttf) / SUMfwi;
 
-            double score = alpha * DP + beta * DC + zeta * LC;
-            JATETerm term = new JATETerm(tString, score);
-            result.add(term);
-        }
+            return alpha * DP + beta * DC + zeta * LC;
+        }, forkJoinPool, maxPerWorker);
 
-        Collections.sort(result);
         LOG.info("Complete");
         return result;
     }
@@ -12,11 +12,11 @@ import java.util.Set;
 
 public class TermInfoCollector {
 
-    protected LeafReader indexReader;
+    protected IndexReader indexReader;
     protected String ngramInfoFieldname;
     protected String idFieldname;
 
-    public TermInfoCollector(LeafReader indexReader, String ngramInfoFieldname,
+    public TermInfoCollector(IndexReader indexReader, String ngramInfoFieldname,
                              String idFieldname) {
         this.indexReader = indexReader;
         this.ngramInfoFieldname=ngramInfoFieldname;
@@ -26,32 +26,48 @@ public class TermInfoCollector {
     public TermInfo collect(String term) throws IOException {
         TermInfo info = new TermInfo();
         BytesRef luceneTerm =  new BytesRef(term.getBytes("UTF-8"));
-        //this gives documents in which the term is found, but no offset information can be retrieved
-        PostingsEnum postings =
-                MultiFields.getTermDocsEnum(indexReader, ngramInfoFieldname,luceneTerm);
-        //now go through each document
-        int docId = postings.nextDoc();
-        while (docId != PostingsEnum.NO_MORE_DOCS) {
-            //get the term vector for that document.
-            TermsEnum it = indexReader.getTermVector(docId, ngramInfoFieldname).iterator();
-            //find the term of interest
-            it.seekExact(luceneTerm);
-            //get its posting info. this will contain offset info
-            PostingsEnum postingsInDoc = it.postings(null, PostingsEnum.OFFSETS);
-            postingsInDoc.nextDoc();
-
-            Document doc = indexReader.document(docId);
-            String id = doc.get(idFieldname);
-            JATEDocument jd = new JATEDocument(id);
-            Set<int[]> offsets = new HashSet<>();
-            int totalFreq = postingsInDoc.freq();
-            for (int i = 0; i < totalFreq; i++) {
-                postingsInDoc.nextPosition();
-                offsets.add(new int[]{postingsInDoc.startOffset(), postingsInDoc.endOffset()});
-            }
-            info.getOffsets().put(jd, offsets);
+        //go through each index segment separately, rather than a merged view of all segments
+        for (LeafReaderContext leaf : indexReader.leaves()) {
+            LeafReader segmentReader = leaf.reader();
+            Terms terms = segmentReader.terms(ngramInfoFieldname);
+            if (terms == null)
+                continue;
+            TermsEnum termsEnum = terms.iterator();
+            if (!termsEnum.seekExact(luceneTerm))
+                continue;
+            //this gives documents in which the term is found. Offsets are only there if the field indexes them
+            //with positions, otherwise they are read from term vectors
+            PostingsEnum postings = termsEnum.postings(null, PostingsEnum.OFFSETS);
+            //now go through each document
+            int docId = postings.nextDoc();
+            while (docId != PostingsEnum.NO_MORE_DOCS) {
+                PostingsEnum postingsInDoc = postings;
+                //get the term vector for that document (segment-local doc id), if stored.
+                Terms vector = segmentReader.getTermVector(docId, ngramInfoFieldname);
+                if (vector != null) {
+                    //find the term of interest
+                    TermsEnum it = vector.iterator();
+                    it.seekExact(luceneTerm);
+                    //get its posting info. this will contain offset info
+                    postingsInDoc = it.postings(null, PostingsEnum.OFFSETS);
+                    postingsInDoc.nextDoc();
+                }
+
+                Document doc = segmentReader.document(docId);
+                String id = doc.get(idFieldname);
+                JATEDocument jd = new JATEDocument(id);
+                Set<int[]> offsets = new HashSet<>();
+                int totalFreq = postingsInDoc.freq();
+                for (int i = 0; i < totalFreq; i++) {
+                    postingsInDoc.nextPosition();
+                    //-1 if neither the postings nor term vectors of the field have offsets
+                    if (postingsInDoc.startOffset() != -1)
+                        offsets.add(new int[]{postingsInDoc.startOffset(), postingsInDoc.endOffset()});
+                }
+                info.getOffsets().put(jd, offsets);
 
-            docId=postings.nextDoc();
+                docId = postings.nextDoc();
+            }
         }
 
         return info;
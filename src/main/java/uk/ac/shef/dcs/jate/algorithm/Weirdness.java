@@ -3,9 +3,11 @@ package uk.ac.shef.dcs.jate.algorithm;
 import uk.ac.shef.dcs.jate.JATEException;
 import uk.ac.shef.dcs.jate.feature.AbstractFeature;
 import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
+import uk.ac.shef.dcs.jate.feature.ReferenceCorpus;
 import uk.ac.shef.dcs.jate.model.JATETerm;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.log4j.Logger;
 
 /**
@@ -33,47 +35,37 @@ public class Weirdness extends ReferenceBased {
         FrequencyTermBased fFeatureWords = (FrequencyTermBased) feature1;
 
         AbstractFeature feature2 = features.get(FrequencyTermBased.class.getName()+ SUFFIX_REF);
-        validateFeature(feature2, FrequencyTermBased.class);
-        FrequencyTermBased fFeatureRef = (FrequencyTermBased) feature2;
-        List<JATETerm> result = new ArrayList<>();
+        ReferenceCorpus fFeatureRef = validateReference(feature2);
         double totalWordsInCorpus = fFeatureWords.getCorpusTotal();
 
-        StringBuilder msg = new StringBuilder("Beginning computing Weirdness values,");
-        msg.append(", total terms=" + candidates.size());
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxPerWorker = maxPerWorker(candidates.size(), cores);
+        StringBuilder msg = new StringBuilder("Beginning computing Weirdness values, cores=");
+        msg.append(cores).append(", total terms=" + candidates.size());
         LOG.info(msg.toString());
 
+        ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
+        CandidateTokens candidateTokens = CandidateTokens.tokenise(candidates, forkJoinPool, maxPerWorker);
+
         nullWordProbInReference = setNullWordProbInReference(fFeatureRef);
         double refScalar = matchOrdersOfMagnitude(fFeatureWords, fFeatureRef);
+        double[] pc = lookupReferenceProb(fFeatureRef, candidateTokens.words, nullWordProbInReference, refScalar);
+        double[] freq = lookupTTF(fFeatureWords, candidateTokens.words);
+
+        //log weirdness of each word, once
+        double[] logWeirdness = new double[freq.length];
+        for (int t = 0; t < freq.length; t++) {
+            if (freq[t] == 0)
+                continue;//composing words can be stopwords and no frequency will be recorded
+            logWeirdness[t] = Math.log(freq[t] / totalWordsInCorpus / pc[t]);
+        }
 
-        for(String tString: candidates) {
-            JATETerm term = new JATETerm(tString);
-
-            String[] elements = tString.split(" ");
-            double T = (double) elements.length;
+        List<JATETerm> result = score(candidateTokens, (tString, tokenIds) -> {
             double SUMwi = 0.0;
-
-            for (int i = 0; i < T; i++) {
-                String wi = elements[i];
-                double pc_wi = fFeatureRef.getTTFNorm(wi);
-                if (pc_wi == 0)
-                    pc_wi = nullWordProbInReference; //
-                if(matchOOM)
-                    pc_wi*=refScalar;
-
-                int freq=fFeatureWords.getTTF(wi);
-                if(freq==0)
-                    continue;//composing words can be stopwords and no frequency will be recorded
-                double v = (double) freq / totalWordsInCorpus / pc_wi;
-                //SUMwi += Math.log((double) gFeatureStore.getWordFreq(wi) / (double) gFeatureStore.getTotalCorpusWordFreq() / gFeatureStore.getRefWordFreqNorm(wi));
-                SUMwi += Math.log(v);
-            }
-
-            double TD = SUMwi / T;
-            term.setScore(TD);
-
-            result.add(term);
-        }
-        Collections.sort(result);
+            for (int t : tokenIds)
+                SUMwi += logWeirdness[t];
+            return SUMwi / tokenIds.length;
+        }, forkJoinPool, maxPerWorker);
         LOG.info("Complete");
         return result;
     }
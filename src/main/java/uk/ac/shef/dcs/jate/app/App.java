@@ -3,7 +3,7 @@ package uk.ac.shef.dcs.jate.app;
 import com.google.gson.Gson;
 
 import org.apache.commons.lang.exception.ExceptionUtils;
-import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.core.SolrCore;
@@ -403,15 +403,15 @@ public abstract class App {
      * called upon every final term. Iterating through the solr index can be slow so this method can
      * take some time.
      *
-     * @param leafReader         index reader
+     * @param indexReader        index reader
      * @param terms              term list
      * @param ngramInfoFieldname indexed n-gram field, see 'jate_text_2_ngrams' field in example schema
      * @param idFieldname        doc unique id field
      * @throws IOException
      */
-    public void collectTermOffsets(List<JATETerm> terms, LeafReader leafReader, String ngramInfoFieldname,
+    public void collectTermOffsets(List<JATETerm> terms, IndexReader indexReader, String ngramInfoFieldname,
                                    String idFieldname) throws IOException {
-        TermInfoCollector infoCollector = new TermInfoCollector(leafReader, ngramInfoFieldname, idFieldname);
+        TermInfoCollector infoCollector = new TermInfoCollector(indexReader, ngramInfoFieldname, idFieldname);
 
         log.info("Gathering term information (e.g., provenance and offsets). This may take a while. Total="
                 + terms.size());
@@ -437,7 +437,7 @@ public abstract class App {
                                       String idField) throws JATEException {
         if (this.collectTermInfo) {
             try {
-                collectTermOffsets(terms, searcher.getLeafReader(), content2NgramField, idField);
+                collectTermOffsets(terms, searcher.getIndexReader(), content2NgramField, idField);
             } catch (IOException e) {
                 throw new JATEException("I/O exception when reading Solr index. " + e.toString());
             }
@@ -495,6 +495,18 @@ public abstract class App {
 
 
     public void write(List<JATETerm> terms) throws IOException {
+        write(terms, outputFile);
+    }
+
+    /**
+     * Export terms as JSON
+     *
+     * @param terms      terms to export
+     * @param outputFile output file path
+     * @throws IOException if the output file is null or cannot be written
+     */
+    public static void write(List<JATETerm> terms, String outputFile) throws IOException {
+        Logger log = LoggerFactory.getLogger(App.class);
         Gson gson = new Gson();
         if (outputFile == null) {
             throw new IOException("Output file is null");
@@ -4,11 +4,13 @@ import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
 
 import uk.ac.shef.dcs.jate.JATEException;
 import uk.ac.shef.dcs.jate.JATEProperties;
 import uk.ac.shef.dcs.jate.algorithm.ATTF;
 import uk.ac.shef.dcs.jate.algorithm.Algorithm;
+import uk.ac.shef.dcs.jate.feature.FeatureCache;
 import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
 import uk.ac.shef.dcs.jate.feature.FrequencyTermBasedFBMaster;
 import uk.ac.shef.dcs.jate.model.JATETerm;
@@ -91,10 +93,11 @@ public class AppATTF extends App {
      * @throws JATEException
      */
     public List<JATETerm> extract(SolrCore core, JATEProperties properties) throws JATEException {
-        SolrIndexSearcher searcher = core.getSearcher().get();
+        RefCounted<SolrIndexSearcher> searcherRef = core.getSearcher();
+        SolrIndexSearcher searcher = searcherRef.get();
         try {
 	        this.freqFeatureBuilder = new FrequencyTermBasedFBMaster(searcher, properties, FrequencyTermBasedFBMaster.FEATURE_TYPE_TERM);
-	        this.freqFeature = (FrequencyTermBased) freqFeatureBuilder.build();
+	        this.freqFeature = (FrequencyTermBased) FeatureCache.build(freqFeatureBuilder);
 	
 	        Algorithm attf = new ATTF();
 	        attf.registerFeature(FrequencyTermBased.class.getName(), freqFeature);
@@ -113,11 +116,7 @@ public class AppATTF extends App {
 	
 	        return terms;
         } finally {
-        	try {
-				searcher.close();
-			} catch (IOException e) {
-				LOG.error(e.toString());
-			}
+        	searcherRef.decref();
         }
     }
 
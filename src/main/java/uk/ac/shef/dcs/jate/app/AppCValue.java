@@ -2,6 +2,7 @@ package uk.ac.shef.dcs.jate.app;
 
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -81,11 +82,12 @@ public class AppCValue extends App {
 	}
 
 	public List<JATETerm> extract(SolrCore core, JATEProperties properties) throws JATEException {
-		SolrIndexSearcher searcher = core.getSearcher().get();
+		RefCounted<SolrIndexSearcher> searcherRef = core.getSearcher();
+		SolrIndexSearcher searcher = searcherRef.get();
 		try {
 
 			this.freqFeatureBuilder = new FrequencyTermBasedFBMaster(searcher, properties, 0);
-			this.freqFeature = (FrequencyTermBased) freqFeatureBuilder.build();
+			this.freqFeature = (FrequencyTermBased) FeatureCache.build(freqFeatureBuilder);
 
 			Set<String> uniqueCandidateTerms = freqFeature.getMapTerm2TTF().keySet();
 			TermComponentIndexFBMaster termCompIndexFeatureBuilder = new TermComponentIndexFBMaster(properties,
@@ -112,11 +114,7 @@ public class AppCValue extends App {
 			LOG.info("Complete CValue term extraction.");
 			return terms;
 		} finally {
-			try {
-				searcher.close();
-			} catch (IOException e) {
-				LOG.error(e.toString());
-			}
+			searcherRef.decref();
 		}
 	}
 
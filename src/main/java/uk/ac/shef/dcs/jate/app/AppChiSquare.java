@@ -2,6 +2,7 @@ package uk.ac.shef.dcs.jate.app;
 
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,6 +12,7 @@ import uk.ac.shef.dcs.jate.algorithm.ChiSquare;
 import uk.ac.shef.dcs.jate.feature.*;
 import uk.ac.shef.dcs.jate.model.JATETerm;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.*;
@@ -19,6 +21,11 @@ public class AppChiSquare extends App {
     private final Logger log = LoggerFactory.getLogger(getClass());
     //top 30% of the terms are considered to be 'frequent'
     private double frequentTermFT = 0.3;
+    //if set, the co-occurrence matrix is spilled to this directory rather than kept in memory
+    private File cooccurrenceSpillDir = null;
+    //if above 0, co-occurrences are approximated by a Count-Min sketch with these error bounds
+    private double cooccurrenceSketchEpsilon = 0;
+    private double cooccurrenceSketchDelta = CountMinCooccurrence.DEFAULT_DELTA;
 
     /**
      * @param args  command-line params accepting solr home path, solr core name
@@ -70,6 +77,23 @@ public class AppChiSquare extends App {
     public AppChiSquare(Map<String, String> initParams) throws JATEException {
         super(initParams);
         initializeFTParam(initParams);
+        String spillDir = initParams.get(AppParams.COOCCURRENCE_SPILL_DIR.getParamKey());
+        if (spillDir != null)
+            cooccurrenceSpillDir = new File(spillDir);
+        initializeSketchParams(initParams);
+    }
+
+    protected static void printHelp() {
+        App.printHelp();
+        StringBuilder sb = new StringBuilder("ChiSquare [OPTIONS]:\n");
+        sb.append("\t\t-ft\t\tA number within (0,1.0]. Top percentage of frequent terms used as reference terms. Default is 0.3.\n")
+                .append("\t\t-co.spill\t\tA directory path. Spill the co-occurrence matrix to this directory, for ")
+                .append("corpora whose matrix does not fit in memory. By default the matrix is kept in memory.\n")
+                .append("\t\t-co.cm.e\t\tA number within (0,1). Approximate co-occurrences with a Count-Min sketch ")
+                .append("whose counts are overestimated by at most this fraction of all co-occurrences. Overrides -co.spill.\n")
+                .append("\t\t-co.cm.d\t\tA number within (0,1). Probability that an approximate count exceeds ")
+                .append("its error bound. Default is 0.01.\n");
+        System.out.println(sb);
     }
 
     /**
@@ -94,6 +118,33 @@ public class AppChiSquare extends App {
 
     }
 
+    private void initializeSketchParams(Map<String, String> initParams) throws JATEException {
+        String sEpsilon = initParams.get(AppParams.COOCCURRENCE_SKETCH_EPSILON.getParamKey());
+        if (sEpsilon != null)
+            cooccurrenceSketchEpsilon = parseSketchBound(sEpsilon, AppParams.COOCCURRENCE_SKETCH_EPSILON.getParamKey());
+        String sDelta = initParams.get(AppParams.COOCCURRENCE_SKETCH_DELTA.getParamKey());
+        if (sDelta != null)
+            cooccurrenceSketchDelta = parseSketchBound(sDelta, AppParams.COOCCURRENCE_SKETCH_DELTA.getParamKey());
+        if (cooccurrenceSketchEpsilon > 0 && cooccurrenceSpillDir != null) {
+            log.warn("Both a co-occurrence sketch and a spill directory are set. Co-occurrences are sketched.");
+            cooccurrenceSpillDir = null;
+        }
+    }
+
+    private static double parseSketchBound(String value, String param) throws JATEException {
+        double bound;
+        try {
+            bound = Double.parseDouble(value);
+        } catch (NumberFormatException nfe) {
+            throw new JATEException("Co-occurrence sketch bound ('" + param + "') is not set correctly! " +
+                    "A decimal value is expected!");
+        }
+        if (bound >= 1.0 || bound <= 0.0)
+            throw new JATEException("Co-occurrence sketch bound ('" + param + "') is not set correctly! " +
+                    "Value must be within (0,1)");
+        return bound;
+    }
+
     @Override
     public List<JATETerm> extract(SolrCore core, String jatePropertyFile)
             throws IOException, JATEException {
@@ -104,14 +155,15 @@ public class AppChiSquare extends App {
     }
 
     public List<JATETerm> extract(SolrCore core, JATEProperties properties) throws JATEException {
-        SolrIndexSearcher searcher = core.getSearcher().get();
+        RefCounted<SolrIndexSearcher> searcherRef = core.getSearcher();
+        SolrIndexSearcher searcher = searcherRef.get();
         try {
         FrequencyTermBasedFBMaster ftbb = new FrequencyTermBasedFBMaster(searcher, properties, 0);
-        FrequencyTermBased ft = (FrequencyTermBased) ftbb.build();
+        FrequencyTermBased ft = (FrequencyTermBased) FeatureCache.build(ftbb);
 
         //sentence is a context
         FrequencyCtxSentenceBasedFBMaster fcsbb = new FrequencyCtxSentenceBasedFBMaster(searcher, properties, 0);
-        FrequencyCtxBased fcs = (FrequencyCtxBased) fcsbb.build();
+        FrequencyCtxBased fcs = (FrequencyCtxBased) FeatureCache.build(fcsbb);
         FrequencyCtxBased ref_fcs = (FrequencyCtxBased)
                 (new FrequencyCtxBasedCopier(searcher, properties, fcs, ft, frequentTermFT).build());
         //window is a context
@@ -120,32 +172,46 @@ public class AppChiSquare extends App {
             FrequencyCtxBased ref_fcsb = (FrequencyCtxBased)
                     (new FrequencyCtxWindowBasedFBMaster(searcher, properties, fcsb.getMapCtx2TTF().keySet(), 5, 0).build());*/
 
-        CooccurrenceFBMaster cob = new CooccurrenceFBMaster(searcher, properties, ft,
-                this.prefilterMinTTF, fcs, ref_fcs, this.prefilterMinTCF);
+        CooccurrenceFBMaster cob;
+        if (cooccurrenceSketchEpsilon > 0)
+            cob = new CooccurrenceFBMaster(searcher, properties, ft,
+                    this.prefilterMinTTF, fcs, ref_fcs, this.prefilterMinTCF,
+                    cooccurrenceSketchEpsilon, cooccurrenceSketchDelta);
+        else
+            cob = new CooccurrenceFBMaster(searcher, properties, ft,
+                    this.prefilterMinTTF, fcs, ref_fcs, this.prefilterMinTCF,
+                    cooccurrenceSpillDir, SpilledCooccurrence.DEFAULT_MAX_PAIRS_PER_RUN);
         Cooccurrence co = (Cooccurrence) cob.build();
 
-        //feature expected probability for frequent terms
-        ChiSquareFrequentTermsFBMaster cf = new ChiSquareFrequentTermsFBMaster(
-                ref_fcs.getMapCtx2TTF(), ref_fcs.getTerm2Ctx(), ft.getCorpusTotal(), properties);
-        ChiSquareFrequentTerms cff = (ChiSquareFrequentTerms) cf.build();
-
-        ChiSquare chi = new ChiSquare();
-        chi.registerFeature(FrequencyCtxBased.class.getName() + ChiSquare.SUFFIX_TERM, fcs);
-        chi.registerFeature(Cooccurrence.class.getName(), co);
-        chi.registerFeature(ChiSquareFrequentTerms.class.getName(), cff);
-
-        List<JATETerm> terms = chi.execute(co.getTerms());
-        terms = cutoff(terms);
+        List<JATETerm> terms;
+        try {
+            //feature expected probability for frequent terms
+            ChiSquareFrequentTermsFBMaster cf = new ChiSquareFrequentTermsFBMaster(
+                    ref_fcs, ft.getCorpusTotal(), properties);
+            ChiSquareFrequentTerms cff = (ChiSquareFrequentTerms) cf.build();
+
+            ChiSquare chi = new ChiSquare();
+            chi.registerFeature(FrequencyCtxBased.class.getName() + ChiSquare.SUFFIX_TERM, fcs);
+            chi.registerFeature(Cooccurrence.class.getName(), co);
+            chi.registerFeature(ChiSquareFrequentTerms.class.getName(), cff);
+
+            terms = chi.execute(co.getTerms());
+            terms = cutoff(terms);
+        } finally {
+            if (co instanceof SpilledCooccurrence) {
+                try {
+                    ((SpilledCooccurrence) co).close();
+                } catch (IOException e) {
+                    log.warn("Cannot delete spilled co-occurrence matrix: " + e.toString());
+                }
+            }
+        }
 
         addAdditionalTermInfo(terms, searcher, properties.getSolrFieldNameJATENGramInfo(),
                 properties.getSolrFieldNameID());
         return terms;
         } finally {
-        	try {
-				searcher.close();
-			} catch (IOException e) {
-				log.error(e.toString());
-			}
+        	searcherRef.decref();
         }
     }
 
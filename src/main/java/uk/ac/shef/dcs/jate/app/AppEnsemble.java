@@ -0,0 +1,268 @@
+package uk.ac.shef.dcs.jate.app;
+
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.JATEProperties;
+import uk.ac.shef.dcs.jate.algorithm.*;
+import uk.ac.shef.dcs.jate.feature.*;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Runs several algorithms over the same candidates and combines their rankings, see {@link Ensemble}. Only the
+ * features required by the selected algorithms are built, each once.
+ * <p>
+ * Supported member algorithms: CValue, RAKE, Weirdness, GlossEx, TermEx, TTF, ATTF, TTF-IDF and RIDF.
+ *
+ * @see AppParams#ENSEMBLE_ALGORITHMS
+ * @see AppParams#ENSEMBLE_COMBINATION
+ */
+public class AppEnsemble extends App {
+	private static final Logger LOG = LoggerFactory.getLogger(AppEnsemble.class);
+
+	public static final String C_VALUE = "CValue", RAKE_ = "RAKE", WEIRDNESS = "Weirdness", GLOSSEX = "GlossEx",
+			TERM_EX = "TermEx", TTF_ = "TTF", ATTF_ = "ATTF", TF_IDF = "TTF-IDF", RIDF_ = "RIDF";
+	private static final Set<String> REFERENCE_BASED = new HashSet<>(Arrays.asList(WEIRDNESS, GLOSSEX, TERM_EX));
+
+	//member algorithm name (as in SUPPORTED) -> weight, in the given order
+	private final Map<String, Double> memberWeights = new LinkedHashMap<>();
+	private final Ensemble.Combination combination;
+
+	/**
+	 * @param args
+	 *            command-line params accepting solr home path, solr core name
+	 *            and more optional run-time parameters
+	 * @see uk.ac.shef.dcs.jate.app.AppParams
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			printHelp();
+			System.exit(1);
+		}
+
+		String solrHomePath = args[args.length - 2];
+		String solrCoreName = args[args.length - 1];
+
+		Map<String, String> params = getParams(args);
+		String jatePropertyFile = getJATEProperties(params);
+		String corpusDir = getCorpusDir(params);
+
+		List<JATETerm> terms;
+		try {
+			App app = new AppEnsemble(params);
+			if (isCorpusProvided(corpusDir)) {
+				app.index(Paths.get(corpusDir), Paths.get(solrHomePath), solrCoreName, jatePropertyFile);
+			}
+
+			terms = app.extract(solrHomePath, solrCoreName, jatePropertyFile);
+
+			if (isExport(params)) {
+				app.write(terms);
+			}
+
+			System.exit(0);
+		} catch (IOException | JATEException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @param initParams
+	 *            pre-filtering, post-filtering parameters, the ensemble members and combination, and the reference
+	 *            frequency file if a reference based member is selected
+	 * @throws JATEException
+	 * @see AppParams#ENSEMBLE_ALGORITHMS
+	 * @see AppParams#ENSEMBLE_COMBINATION
+	 */
+	public AppEnsemble(Map<String, String> initParams) throws JATEException {
+		super(initParams);
+
+		String members = initParams.get(AppParams.ENSEMBLE_ALGORITHMS.getParamKey());
+		if (members == null || members.trim().isEmpty()) {
+			String msg = String.format("Ensemble algorithms %s are not set. A comma separated list is expected.",
+					AppParams.ENSEMBLE_ALGORITHMS.getParamKey());
+			LOG.error(msg);
+			throw new JATEException(msg);
+		}
+		for (String member : members.split(",")) {
+			String[] nameAndWeight = member.trim().split(":");
+			String name = supportedName(nameAndWeight[0].trim());
+			double weight = 1.0;
+			if (nameAndWeight.length > 1) {
+				try {
+					weight = Double.parseDouble(nameAndWeight[1].trim());
+				} catch (NumberFormatException nfe) {
+					String msg = String.format("Weight of ensemble algorithm %s is not a number: %s", name,
+							nameAndWeight[1]);
+					LOG.error(msg);
+					throw new JATEException(msg);
+				}
+			}
+			memberWeights.put(name, weight);
+		}
+
+		String combination = initParams.get(AppParams.ENSEMBLE_COMBINATION.getParamKey());
+		if (combination == null || combination.equalsIgnoreCase("rank"))
+			this.combination = Ensemble.Combination.RANK_FUSION;
+		else if (combination.equalsIgnoreCase("zscore"))
+			this.combination = Ensemble.Combination.Z_SCORE;
+		else {
+			String msg = String.format("Ensemble combination %s is not supported: %s. Expected 'rank' or 'zscore'.",
+					AppParams.ENSEMBLE_COMBINATION.getParamKey(), combination);
+			LOG.error(msg);
+			throw new JATEException(msg);
+		}
+
+		if (!Collections.disjoint(memberWeights.keySet(), REFERENCE_BASED))
+			initalizeRefFreqParam(initParams);
+	}
+
+	private static String supportedName(String name) throws JATEException {
+		for (String supported : new String[]{C_VALUE, RAKE_, WEIRDNESS, GLOSSEX, TERM_EX, TTF_, ATTF_, TF_IDF, RIDF_}) {
+			if (supported.equalsIgnoreCase(name))
+				return supported;
+		}
+		String msg = String.format("Algorithm [%s] is not supported in an ensemble.", name);
+		LOG.error(msg);
+		throw new JATEException(msg);
+	}
+
+	@Override
+	public List<JATETerm> extract(SolrCore core, String jatePropertyFile) throws IOException, JATEException {
+		LOG.info("Start Ensemble term ranking and filtering for whole index ...");
+		JATEProperties properties = getJateProperties(jatePropertyFile);
+
+		return extract(core, properties);
+	}
+
+	public List<JATETerm> extract(SolrCore core, JATEProperties properties) throws JATEException {
+		RefCounted<SolrIndexSearcher> searcherRef = core.getSearcher();
+		SolrIndexSearcher searcher = searcherRef.get();
+		try {
+			//term frequencies are required by all
+			this.freqFeatureBuilder = new FrequencyTermBasedFBMaster(searcher, properties, 0);
+			this.freqFeature = (FrequencyTermBased) FeatureCache.build(freqFeatureBuilder);
+
+			FrequencyTermBased fwb = null;
+			if (requiresWordFeature()) {
+				FrequencyTermBasedFBMaster fwbb = new FrequencyTermBasedFBMaster(searcher, properties, 1);
+				fwb = (FrequencyTermBased) FeatureCache.build(fwbb);
+			}
+
+			List<JATETerm> terms = rank(this.freqFeature, fwb, properties);
+
+			addAdditionalTermInfo(terms, searcher, properties.getSolrFieldNameJATENGramInfo(),
+					properties.getSolrFieldNameID());
+			LOG.info("Complete Ensemble term extraction.");
+			return terms;
+		} finally {
+			searcherRef.decref();
+		}
+	}
+
+	/**
+	 * @return true if a selected algorithm requires word (uni-gram) frequencies
+	 */
+	public boolean requiresWordFeature() {
+		Set<String> selected = memberWeights.keySet();
+		return selected.contains(RAKE_) || !Collections.disjoint(selected, REFERENCE_BASED);
+	}
+
+	/**
+	 * Rank and filter candidates from frequency features that are already built, e.g., merged from the partial
+	 * statistics of several index shards. Features derived from the candidate set (term component index, containment)
+	 * are computed here, as they do not need the index.
+	 *
+	 * @param termFeature term frequencies; the candidates are its terms
+	 * @param wordFeature word frequencies, required if {@link #requiresWordFeature()}
+	 * @param properties  jate properties
+	 * @return List<JATETerm> ranked terms after pre-filtering and cut-off
+	 * @throws JATEException
+	 */
+	public List<JATETerm> rank(FrequencyTermBased termFeature, FrequencyTermBased wordFeature,
+							   JATEProperties properties) throws JATEException {
+		Set<String> selected = memberWeights.keySet();
+		Ensemble ensemble = new Ensemble(combination);
+
+		this.freqFeature = termFeature;
+		ensemble.registerFeature(FrequencyTermBased.class.getName(), termFeature);
+		ensemble.registerFeature(FrequencyTermBased.class.getName() + RAKE.SUFFIX_TERM, termFeature);
+
+		if (requiresWordFeature()) {
+			if (wordFeature == null)
+				throw new JATEException("Word frequencies are required by the selected algorithms.");
+			ensemble.registerFeature(FrequencyTermBased.class.getName() + RAKE.SUFFIX_WORD, wordFeature);
+		}
+
+		if (selected.contains(C_VALUE) || selected.contains(RAKE_)) {
+			Set<String> uniqueCandidateTerms = termFeature.getMapTerm2TTF().keySet();
+			TermComponentIndexFBMaster tcib = new TermComponentIndexFBMaster(properties,
+					new ArrayList<>(uniqueCandidateTerms));
+			TermComponentIndex termComponentIndex = (TermComponentIndex) tcib.build();
+			ensemble.registerFeature(TermComponentIndex.class.getName(), termComponentIndex);
+
+			if (selected.contains(C_VALUE)) {
+				//nesting is computed over the candidate set only, the searcher is not used
+				ContainmentFBMaster cb = new ContainmentFBMaster(null, properties, termComponentIndex,
+						uniqueCandidateTerms);
+				ensemble.registerFeature(Containment.class.getName(), cb.build());
+			}
+		}
+
+		if (!Collections.disjoint(selected, REFERENCE_BASED)) {
+			//loaded once (text or binary) and shared until the file changes
+			ReferenceCorpus frb = ReferenceCorpus.load(this.referenceFrequencyFilePath);
+			ensemble.registerFeature(FrequencyTermBased.class.getName() + Weirdness.SUFFIX_REF, frb);
+		}
+
+		for (Map.Entry<String, Double> member : memberWeights.entrySet())
+			ensemble.addMember(createAlgorithm(member.getKey()), member.getValue());
+
+		List<String> candidates = new ArrayList<>(termFeature.getMapTerm2TTF().keySet());
+
+		filterByTTF(candidates);
+
+		List<JATETerm> terms = ensemble.execute(candidates);
+		return cutoff(terms);
+	}
+
+	private static Algorithm createAlgorithm(String name) {
+		switch (name) {
+			case C_VALUE:
+				return new CValue();
+			case RAKE_:
+				return new RAKE();
+			case WEIRDNESS:
+				return new Weirdness();
+			case GLOSSEX:
+				return new GlossEx();
+			case TERM_EX:
+				return new TermEx();
+			case TTF_:
+				return new TTF();
+			case ATTF_:
+				return new ATTF();
+			case TF_IDF:
+				return new TFIDF();
+			default:
+				return new RIDF();
+		}
+	}
+
+	protected static void printHelp() {
+		App.printHelp();
+		StringBuilder sb = new StringBuilder("Ensemble [OPTIONS]:\n");
+		sb.append("\t\t-ens.a\t\tComma separated algorithms to combine, each optionally weighted as name:weight, ")
+				.append("e.g., CValue,RAKE:0.5,Weirdness. Supported: CValue, RAKE, Weirdness, GlossEx, TermEx, TTF, ")
+				.append("ATTF, TTF-IDF, RIDF.\n")
+				.append("\t\t-ens.c\t\t'rank' (reciprocal rank fusion, default) or 'zscore' (weighted z-scores).\n");
+		System.out.println(sb);
+	}
+}
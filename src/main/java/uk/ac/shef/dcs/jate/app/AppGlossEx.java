@@ -2,6 +2,7 @@ package uk.ac.shef.dcs.jate.app;
 
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,16 +85,17 @@ public class AppGlossEx extends App {
 	}
 
 	public List<JATETerm> extract(SolrCore core, JATEProperties properties) throws JATEException {
-		SolrIndexSearcher searcher = core.getSearcher().get();
+		RefCounted<SolrIndexSearcher> searcherRef = core.getSearcher();
+		SolrIndexSearcher searcher = searcherRef.get();
 		try {
 			this.freqFeatureBuilder = new FrequencyTermBasedFBMaster(searcher, properties, 0);
-			this.freqFeature = (FrequencyTermBased) freqFeatureBuilder.build();
+			this.freqFeature = (FrequencyTermBased) FeatureCache.build(freqFeatureBuilder);
 
 			FrequencyTermBasedFBMaster fwbb = new FrequencyTermBasedFBMaster(searcher, properties, 1);
-			FrequencyTermBased fwb = (FrequencyTermBased) fwbb.build();
+			FrequencyTermBased fwb = (FrequencyTermBased) FeatureCache.build(fwbb);
 
-			TTFReferenceFeatureFileBuilder ftrb = new TTFReferenceFeatureFileBuilder(this.referenceFrequencyFilePath);
-			FrequencyTermBased frb = ftrb.build();
+			//loaded once (text or binary) and shared until the file changes
+			ReferenceCorpus frb = ReferenceCorpus.load(this.referenceFrequencyFilePath);
 
 			GlossEx glossex = new GlossEx();
 			glossex.registerFeature(FrequencyTermBased.class.getName(), this.freqFeature);
@@ -113,12 +115,7 @@ public class AppGlossEx extends App {
 			log.info("complete GlossEx term extraction.");
 			return terms;
 		} finally {
-			try {
-				searcher.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-				log.error("Failed to close current SolrIndexSearcher!" + e.getCause().toString());
-			}
+			searcherRef.decref();
 		}
 	}
 
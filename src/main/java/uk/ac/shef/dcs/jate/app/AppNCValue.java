@@ -0,0 +1,139 @@
+package uk.ac.shef.dcs.jate.app;
+
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.JATEProperties;
+import uk.ac.shef.dcs.jate.algorithm.NCValue;
+import uk.ac.shef.dcs.jate.feature.*;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * NC-Value: CValue weighted by the context words of terms, found in context windows around candidates.
+ *
+ * @see NCValue
+ */
+public class AppNCValue extends App {
+	private static final Logger LOG = LoggerFactory.getLogger(AppNCValue.class);
+
+	//context window size, the number of tokens to the left and right of a candidate
+	protected int contextWindowSize = 5;
+
+	/**
+	 * @param args
+	 *            command-line params accepting solr home path, solr core name
+	 *            and more optional run-time parameters
+	 * @see uk.ac.shef.dcs.jate.app.AppParams
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			printHelp();
+			System.exit(1);
+		}
+
+		String solrHomePath = args[args.length - 2];
+		String solrCoreName = args[args.length - 1];
+
+		Map<String, String> params = getParams(args);
+		String jatePropertyFile = getJATEProperties(params);
+		String corpusDir = getCorpusDir(params);
+
+		List<JATETerm> terms;
+		try {
+			App app = new AppNCValue(params);
+			if (isCorpusProvided(corpusDir)) {
+				app.index(Paths.get(corpusDir), Paths.get(solrHomePath), solrCoreName, jatePropertyFile);
+			}
+
+			terms = app.extract(solrHomePath, solrCoreName, jatePropertyFile);
+
+			if (isExport(params)) {
+				app.write(terms);
+			}
+
+			System.exit(0);
+		} catch (IOException | JATEException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @param initParams
+	 *            initial parameters including pre-filtering and post-filtering
+	 *            parameters
+	 * @throws JATEException
+	 * @see uk.ac.shef.dcs.jate.app.AppParams
+	 */
+	public AppNCValue(Map<String, String> initParams) throws JATEException {
+		super(initParams);
+	}
+
+	@Override
+	public List<JATETerm> extract(SolrCore core, String jatePropertyFile) throws IOException, JATEException {
+		LOG.info("Start NC-Value term ranking and filtering for whole index ...");
+		JATEProperties properties;
+
+		properties = getJateProperties(jatePropertyFile);
+
+		return extract(core, properties);
+	}
+
+	public List<JATETerm> extract(SolrCore core, JATEProperties properties) throws JATEException {
+		RefCounted<SolrIndexSearcher> searcherRef = core.getSearcher();
+		SolrIndexSearcher searcher = searcherRef.get();
+		try {
+
+			this.freqFeatureBuilder = new FrequencyTermBasedFBMaster(searcher, properties, 0);
+			this.freqFeature = (FrequencyTermBased) FeatureCache.build(freqFeatureBuilder);
+
+			Set<String> uniqueCandidateTerms = freqFeature.getMapTerm2TTF().keySet();
+			TermComponentIndexFBMaster termCompIndexFeatureBuilder = new TermComponentIndexFBMaster(properties,
+					new ArrayList<>(uniqueCandidateTerms));
+			TermComponentIndex termComponentIndexFeature = (TermComponentIndex) termCompIndexFeatureBuilder.build();
+
+			ContainmentFBMaster cb = new ContainmentFBMaster(searcher, properties, termComponentIndexFeature,
+					uniqueCandidateTerms);
+			Containment cf = (Containment) cb.build();
+
+			//context windows around terms, and words counted within the same windows
+			FrequencyCtxWindowBasedFBMaster tcb = new FrequencyCtxWindowBasedFBMaster(searcher, properties, null,
+					contextWindowSize, 0);
+			FrequencyCtxBased termCtx = (FrequencyCtxBased) FeatureCache.build(tcb);
+			FrequencyCtxWindowBasedFBMaster wcb = new FrequencyCtxWindowBasedFBMaster(searcher, properties,
+					termCtx.getMapCtx2TTF().keySet(), contextWindowSize, 1);
+			FrequencyCtxBased wordCtx = (FrequencyCtxBased) FeatureCache.build(wcb);
+
+			NCValue ncvalue = new NCValue();
+			ncvalue.registerFeature(FrequencyTermBased.class.getName(), this.freqFeature);
+			ncvalue.registerFeature(Containment.class.getName(), cf);
+			ncvalue.registerFeature(FrequencyCtxBased.class.getName() + NCValue.SUFFIX_TERM, termCtx);
+			ncvalue.registerFeature(FrequencyCtxBased.class.getName() + NCValue.SUFFIX_WORD, wordCtx);
+
+			List<String> candidates = new ArrayList<>(this.freqFeature.getMapTerm2TTF().keySet());
+
+			filterByTTF(candidates);
+
+			List<JATETerm> terms = ncvalue.execute(candidates);
+			terms = cutoff(terms);
+
+			addAdditionalTermInfo(terms, searcher, properties.getSolrFieldNameJATENGramInfo(),
+					properties.getSolrFieldNameID());
+			LOG.info("Complete NC-Value term extraction.");
+			return terms;
+		} finally {
+			searcherRef.decref();
+		}
+	}
+
+}
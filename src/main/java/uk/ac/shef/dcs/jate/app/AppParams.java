@@ -37,12 +37,31 @@ public enum AppParams {
     CHISQUERE_FREQ_TERM_CUTOFF_PERCENTAGE("-ft", "ChiSquare only: frequent term cutoff percentage. " +
             "Value must be within (0,1.0]"),
 
+    // ChiSquare only: directory to spill the co-occurrence matrix to, for corpora whose matrix does not fit in memory
+    // see {@code uk.ac.shef.dcs.jate.feature.SpilledCooccurrence}
+    COOCCURRENCE_SPILL_DIR("-co.spill", "cooccurrence_spill_dir"),
+
+    // ChiSquare only: relative error of approximate co-occurrence counts, within (0,1). If set, co-occurrences are
+    // counted in a Count-Min sketch rather than a matrix
+    // see {@code uk.ac.shef.dcs.jate.feature.CountMinCooccurrence}
+    COOCCURRENCE_SKETCH_EPSILON("-co.cm.e", "cooccurrence_sketch_epsilon"),
+    // ChiSquare only: probability that the error of an approximate co-occurrence count exceeds its bound, within (0,1)
+    COOCCURRENCE_SKETCH_DELTA("-co.cm.d", "cooccurrence_sketch_delta"),
+
     // file path to the reference corpus statistics (unigram
     // distribution) file.
-    // see bnc_unifrqs.normal default file in /resource directory
+    // see bnc_unifrqs.normal default file in /resource directory, which may also be compiled into a binary
+    // file by {@code uk.ac.shef.dcs.jate.feature.TTFReferenceBinaryConverter}
     // see also {@code uk.ac.shef.dcs.jate.app.AppTermEx}
     // see also {@code uk.ac.shef.dcs.jate.app.AppWeirdness})
-    REFERENCE_FREQUENCY_FILE("-r", "reference_frequency_file");
+    REFERENCE_FREQUENCY_FILE("-r", "reference_frequency_file"),
+
+    // Ensemble only: comma separated algorithm names, each optionally weighted as name:weight,
+    // e.g., "CValue,RAKE:0.5,Weirdness"
+    // see {@code uk.ac.shef.dcs.jate.app.AppEnsemble}
+    ENSEMBLE_ALGORITHMS("-ens.a", "ensemble_algorithms"),
+    // Ensemble only: how member scores are combined, 'rank' (reciprocal rank fusion, default) or 'zscore'
+    ENSEMBLE_COMBINATION("-ens.c", "ensemble_combination");
 
     private final String paramKey;
     private final String paramName;
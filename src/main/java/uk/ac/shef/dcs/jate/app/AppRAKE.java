@@ -2,6 +2,7 @@ package uk.ac.shef.dcs.jate.app;
 
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.shef.dcs.jate.JATEException;
@@ -86,13 +87,14 @@ public class AppRAKE extends App {
 	}
 
 	public List<JATETerm> extract(SolrCore core, JATEProperties properties) throws JATEException {
-		SolrIndexSearcher searcher = core.getSearcher().get();
+		RefCounted<SolrIndexSearcher> searcherRef = core.getSearcher();
+		SolrIndexSearcher searcher = searcherRef.get();
 		try {
 			this.freqFeatureBuilder = new FrequencyTermBasedFBMaster(searcher, properties, 0);
-			this.freqFeature = (FrequencyTermBased) freqFeatureBuilder.build();
+			this.freqFeature = (FrequencyTermBased) FeatureCache.build(freqFeatureBuilder);
 
 			FrequencyTermBasedFBMaster fwbb = new FrequencyTermBasedFBMaster(searcher, properties, 1);
-			FrequencyTermBased fwb = (FrequencyTermBased) fwbb.build();
+			FrequencyTermBased fwb = (FrequencyTermBased) FeatureCache.build(fwbb);
 
 			TermComponentIndexFBMaster tcib = new TermComponentIndexFBMaster(properties,
 					new ArrayList<>(this.freqFeature.getMapTerm2TTF().keySet()));
@@ -114,11 +116,7 @@ public class AppRAKE extends App {
 					properties.getSolrFieldNameID());
 			return terms;
 		} finally {
-			try {
-				searcher.close();
-			} catch (IOException e) {
-				log.error(e.toString());
-			}
+			searcherRef.decref();
 		}
 	}
 
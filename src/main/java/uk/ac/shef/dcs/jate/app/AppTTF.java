@@ -2,12 +2,14 @@ package uk.ac.shef.dcs.jate.app;
 
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.shef.dcs.jate.JATEException;
 import uk.ac.shef.dcs.jate.JATEProperties;
 import uk.ac.shef.dcs.jate.algorithm.Algorithm;
 import uk.ac.shef.dcs.jate.algorithm.TTF;
+import uk.ac.shef.dcs.jate.feature.FeatureCache;
 import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
 import uk.ac.shef.dcs.jate.feature.FrequencyTermBasedFBMaster;
 import uk.ac.shef.dcs.jate.model.JATETerm;
@@ -79,10 +81,11 @@ public class AppTTF extends App {
 	}
 
 	public List<JATETerm> extract(SolrCore core, JATEProperties properties) throws JATEException {
-		SolrIndexSearcher searcher = core.getSearcher().get();
+		RefCounted<SolrIndexSearcher> searcherRef = core.getSearcher();
+		SolrIndexSearcher searcher = searcherRef.get();
 		try {
 			this.freqFeatureBuilder = new FrequencyTermBasedFBMaster(searcher, properties, 0);
-			this.freqFeature = (FrequencyTermBased) freqFeatureBuilder.build();
+			this.freqFeature = (FrequencyTermBased) FeatureCache.build(freqFeatureBuilder);
 
 			Algorithm ttf = new TTF();
 			ttf.registerFeature(FrequencyTermBased.class.getName(), this.freqFeature);
@@ -98,11 +101,7 @@ public class AppTTF extends App {
 					properties.getSolrFieldNameID());
 			return terms;
 		} finally {
-			try {
-				searcher.close();
-			} catch (IOException e) {
-				log.error(e.toString());
-			}
+			searcherRef.decref();
 		}
 	}
 }
@@ -2,6 +2,7 @@ package uk.ac.shef.dcs.jate.app;
 
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.shef.dcs.jate.JATEException;
@@ -88,19 +89,17 @@ public class AppTermEx extends App {
 	}
 
 	public List<JATETerm> extract(SolrCore core, JATEProperties properties) throws JATEException {
-		SolrIndexSearcher searcher = core.getSearcher().get();
+		RefCounted<SolrIndexSearcher> searcherRef = core.getSearcher();
+		SolrIndexSearcher searcher = searcherRef.get();
 		try {
 			this.freqFeatureBuilder = new FrequencyTermBasedFBMaster(searcher, properties, 0);
-			this.freqFeature = (FrequencyTermBased) freqFeatureBuilder.build();
+			this.freqFeature = (FrequencyTermBased) FeatureCache.build(freqFeatureBuilder);
 
 			FrequencyTermBasedFBMaster fwbb = new FrequencyTermBasedFBMaster(searcher, properties, 1);
-			FrequencyTermBased fwb = (FrequencyTermBased) fwbb.build();
+			FrequencyTermBased fwb = (FrequencyTermBased) FeatureCache.build(fwbb);
 
-			TTFReferenceFeatureFileBuilder ftrb = new TTFReferenceFeatureFileBuilder(this.referenceFrequencyFilePath);
-			FrequencyTermBased frb = ftrb.build();
-
-			FrequencyCtxDocBasedFBMaster fdbb = new FrequencyCtxDocBasedFBMaster(searcher, properties, 0);
-			FrequencyCtxBased fdb = (FrequencyCtxBased) fdbb.build();
+			//loaded once (text or binary) and shared until the file changes
+			ReferenceCorpus frb = ReferenceCorpus.load(this.referenceFrequencyFilePath);
 
 			TermEx termex = new TermEx();
 			termex.registerFeature(FrequencyTermBased.class.getName(), this.freqFeature);
@@ -108,7 +107,6 @@ public class AppTermEx extends App {
 			// you can register multiple reference feature, as long as the key
 			// has prefix = FrequencyTermBased.class.getName()+TermEx.SUFFIX_REF
 			termex.registerFeature(FrequencyTermBased.class.getName() + TermEx.SUFFIX_REF, frb);
-			termex.registerFeature(FrequencyCtxBased.class.getName() + TermEx.SUFFIX_DOC, fdb);
 
 			List<String> candidates = new ArrayList<>(this.freqFeature.getMapTerm2TTF().keySet());
 
@@ -121,11 +119,7 @@ public class AppTermEx extends App {
 					properties.getSolrFieldNameID());
 			return terms;
 		} finally {
-			try {
-				searcher.close();
-			} catch (IOException e) {
-				log.error(e.toString());
-			}
+			searcherRef.decref();
 		}
 	}
 
@@ -1,5 +1,6 @@
 package uk.ac.shef.dcs.jate.feature;
 
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.util.BytesRef;
@@ -27,20 +28,32 @@ public abstract class AbstractFeatureBuilder {
 
     public abstract AbstractFeature build() throws JATEException;
 
+    /**
+     * @return String identifying the feature built by this builder against its searcher (builder type and parameters,
+     * including the fields read), or null if the feature must not be cached
+     * @see FeatureCache
+     */
+    protected String getCacheKey() throws JATEException {
+        return null;
+    }
 
-    protected Set<String> getUniqueWords() throws JATEException, IOException {
-        Terms ngramInfo = SolrUtil.getTermVector(properties.getSolrFieldNameJATENGramInfo(), solrIndexSearcher);
+    protected String getFieldsCacheKey() throws JATEException {
+        return properties.getSolrFieldNameJATECTerms() + "|" + properties.getSolrFieldNameJATENGramInfo();
+    }
 
-        TermsEnum termsEnum = ngramInfo.iterator();
-        Set<String> allWords = new HashSet<>();
 
-        while (termsEnum.next() != null) {
-            BytesRef t = termsEnum.term();
-            if (t.length == 0)
-                continue;
-            String termStr=t.utf8ToString();
-            if(!termStr.contains(" "))
-                allWords.add(termStr);
+    protected Set<String> getUniqueWords() throws JATEException, IOException {
+        Set<String> allWords = new HashSet<>();
+        for (Terms ngramInfo : getSegmentTerms(properties.getSolrFieldNameJATENGramInfo()).values()) {
+            TermsEnum termsEnum = ngramInfo.iterator();
+            while (termsEnum.next() != null) {
+                BytesRef t = termsEnum.term();
+                if (t.length == 0)
+                    continue;
+                String termStr = t.utf8ToString();
+                if (!termStr.contains(" "))
+                    allWords.add(termStr);
+            }
         }
         if(allWords.size()==0)
             throw new JATEException("Features are required on 'Words', however there are no single-token lexical units in the "+
@@ -60,7 +73,6 @@ public abstract class AbstractFeatureBuilder {
      * @throws IOException
      */
     protected Set<String> getUniqueTerms() throws JATEException, IOException {
-        Terms terms =SolrUtil.getTermVector(properties.getSolrFieldNameJATECTerms(),solrIndexSearcher);
 
         //>>>>>>>>>
         /*TermsEnum source = terms.iterator();
@@ -81,21 +93,63 @@ public abstract class AbstractFeatureBuilder {
                 }*/
         //>>>>>>>>>
 
-        TermsEnum termsEnum = terms.iterator();
         Set<String> allTermCandidates = new HashSet<>();
-
-        while (termsEnum.next() != null) {
-            BytesRef t = termsEnum.term();
-            if (t.length == 0)
-                continue;
-            allTermCandidates.add(t.utf8ToString());
-
-            if(t.utf8ToString().equals("l hierar hy"))
-                System.out.println();
+        for (Terms terms : getSegmentTerms(properties.getSolrFieldNameJATECTerms()).values()) {
+            TermsEnum termsEnum = terms.iterator();
+            while (termsEnum.next() != null) {
+                BytesRef t = termsEnum.term();
+                if (t.length == 0)
+                    continue;
+                allTermCandidates.add(t.utf8ToString());
+            }
         }
         return allTermCandidates;
     }
 
+    /**
+     * Get the indexed terms of a field for each index segment (leaf). Segments where no document has the field are
+     * skipped. Features are built per segment and merged using the segment doc base, so that the merged
+     * (composite) view of the index is not used when building features.
+     *
+     * @param fieldname solr field name
+     * @return Map, each segment and the terms of the field in that segment
+     * @throws JATEException if the field cannot be found in any segment of a non-empty index
+     */
+    protected Map<LeafReaderContext, Terms> getSegmentTerms(String fieldname) throws JATEException {
+        Map<LeafReaderContext, Terms> result = new LinkedHashMap<>();
+        List<LeafReaderContext> leaves = solrIndexSearcher.getTopReaderContext().leaves();
+        for (LeafReaderContext leaf : leaves) {
+            Terms terms = SolrUtil.getTermVector(fieldname, leaf);
+            if (terms != null)
+                result.put(leaf, terms);
+        }
+        if (result.size() == 0 && leaves.size() > 0)
+            throw new JATEException(String.format("Cannot find expected field: %s", fieldname));
+        return result;
+    }
+
+    /**
+     * Sort candidate strings in the order of their UTF-8 bytes, which is the order of the Lucene terms dictionary
+     * (and differs from {@link String#compareTo(String)} for supplementary characters). Workers that receive
+     * contiguous ranges of this list can walk the dictionary forward instead of seeking each candidate from scratch.
+     *
+     * @param candidates candidate surface forms
+     * @return List, candidates sorted in BytesRef order
+     * @see SortedTermsWalker
+     */
+    protected List<String> sortInTermsDictionaryOrder(Collection<String> candidates) {
+        BytesRef[] sorted = new BytesRef[candidates.size()];
+        int i = 0;
+        for (String c : candidates)
+            sorted[i++] = new BytesRef(c);
+        Arrays.sort(sorted);
+
+        List<String> result = new ArrayList<>(sorted.length);
+        for (BytesRef b : sorted)
+            result.add(b.utf8ToString());
+        return result;
+    }
+
 
 
 
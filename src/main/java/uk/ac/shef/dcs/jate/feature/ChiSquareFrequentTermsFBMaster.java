@@ -13,19 +13,21 @@ import java.util.concurrent.ForkJoinPool;
 public class ChiSquareFrequentTermsFBMaster extends AbstractFeatureBuilder {
     private static final Logger LOG = Logger.getLogger(ChiSquareFrequentTermsFBMaster.class.getName());
 
-    private final Map<ContextWindow, Integer> ctx2TTF;
-    private final Map<String, Set<ContextWindow>> term2Ctx;
+    private final FrequencyCtxBased refTermCtx;
     private List<String> allFrequentTerms;
     private final int ttfInCorpus;
 
+    /**
+     * @param refTermCtx  context feature of the frequent (reference) terms
+     * @param ttfInCorpus total frequency of all terms in the corpus
+     * @param properties
+     */
     public ChiSquareFrequentTermsFBMaster(
-            Map<ContextWindow, Integer> ctx2TTF,
-            Map<String, Set<ContextWindow>> term2Ctx,
+            FrequencyCtxBased refTermCtx,
             int ttfInCorpus, JATEProperties properties) {
         super(null, properties);
-        this.allFrequentTerms = new ArrayList<>(term2Ctx.keySet());
-        this.ctx2TTF = ctx2TTF;
-        this.term2Ctx = term2Ctx;
+        this.allFrequentTerms = new ArrayList<>(refTermCtx.getTerm2Ctx().keySet());
+        this.refTermCtx = refTermCtx;
         this.ttfInCorpus = ttfInCorpus;
     }
 
@@ -42,7 +44,7 @@ public class ChiSquareFrequentTermsFBMaster extends AbstractFeatureBuilder {
         LOG.info("Beginning building features (ChiSquare frequent terms). Total terms=" + allFrequentTerms.size() + ", cpu cores=" +
                 cores + ", max per core=" + maxPerThread);
         ChiSquareFrequentTermsFBWorker worker = new
-                ChiSquareFrequentTermsFBWorker(allFrequentTerms, maxPerThread, ctx2TTF, term2Ctx,
+                ChiSquareFrequentTermsFBWorker(allFrequentTerms, maxPerThread, refTermCtx,
                 feature, ttfInCorpus);
         ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
         int total = forkJoinPool.invoke(worker);
@@ -3,36 +3,31 @@ package uk.ac.shef.dcs.jate.feature;
 import uk.ac.shef.dcs.jate.JATERecursiveTaskWorker;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * Created by - on 22/02/2016.
  */
 class ChiSquareFrequentTermsFBWorker extends JATERecursiveTaskWorker<String, Integer> {
 
-    private final Map<ContextWindow, Integer> ctx2TTF;
-    private final Map<String, Set<ContextWindow>> term2Ctx;
+    private final FrequencyCtxBased refTermCtx;
     private ChiSquareFrequentTerms feature;
     private final int ttfInCorpus;
     private static final long serialVersionUID = -1208424489000405973L;
 
     public ChiSquareFrequentTermsFBWorker(List<String> tasks, int maxTasksPerWorker,
-                                          Map<ContextWindow, Integer> ctx2TTF,
-                                          Map<String, Set<ContextWindow>> term2Ctx,
+                                          FrequencyCtxBased refTermCtx,
                                           ChiSquareFrequentTerms feature,
                                           int ttfInCorpus) {
         super(tasks, maxTasksPerWorker);
-        this.ctx2TTF = ctx2TTF;
-        this.term2Ctx = term2Ctx;
+        this.refTermCtx = refTermCtx;
         this.feature = feature;
         this.ttfInCorpus = ttfInCorpus;
     }
 
     @Override
     protected JATERecursiveTaskWorker<String, Integer> createInstance(List<String> splitTasks) {
-        return new ChiSquareFrequentTermsFBWorker(splitTasks, maxTasksPerThread, ctx2TTF,
-                term2Ctx, feature, ttfInCorpus
+        return new ChiSquareFrequentTermsFBWorker(splitTasks, maxTasksPerThread, refTermCtx,
+                feature, ttfInCorpus
         );
     }
 
@@ -51,14 +46,12 @@ class ChiSquareFrequentTermsFBWorker extends JATERecursiveTaskWorker<String, Int
 
         int count=0;
         for (String refTerm : tasks) {
-            Set<ContextWindow> ctx_g = term2Ctx.get(refTerm);
-            if (ctx_g == null) {
+            int refTermId = refTermCtx.lookupTermId(refTerm);
+            if (refTermId == -1) {
                 continue;//this is possible if during co-occurrence computing this term is skipped
                 //because it did not satisfy minimum thresholds
             }
-            int g_w = 0;
-            for (ContextWindow ctx : ctx_g)
-                g_w += ctx2TTF.get(ctx);
+            int g_w = refTermCtx.getTermCtxTTF(refTermId);
 
             double p_g = (double) g_w / ttfInCorpus;
             feature.add(refTerm, p_g);
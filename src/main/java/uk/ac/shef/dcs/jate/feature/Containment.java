@@ -1,5 +1,6 @@
 package uk.ac.shef.dcs.jate.feature;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -9,8 +10,24 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  */
 public class Containment extends AbstractFeature {
+    private static final int[] EMPTY = new int[0];
+
     private Map<String, Set<String>> term2Parents = new ConcurrentHashMap<>();
 
+    //when built from a TermComponentIndex: candidate id -> ids of its parent candidates
+    private final TermComponentIndex termComponentIndex;
+    private final int[][] parentIds;
+
+    public Containment() {
+        this.termComponentIndex = null;
+        this.parentIds = null;
+    }
+
+    Containment(TermComponentIndex termComponentIndex) {
+        this.termComponentIndex = termComponentIndex;
+        this.parentIds = new int[termComponentIndex.numCandidates()][];
+    }
+
     public void add(String term, String parentTerm){
         Set<String> parentTerms = term2Parents.get(term);
         if(parentTerms==null)
@@ -19,10 +36,37 @@ public class Containment extends AbstractFeature {
         term2Parents.put(term, parentTerms);
     }
 
+    /**
+     * @return Set of parent terms, empty (and immutable) if the term has no parents
+     */
     public Set<String> getTermParents(String term){
         Set<String> parents = term2Parents.get(term);
         if(parents==null)
-            parents=new HashSet<>();
+            return Collections.emptySet();
         return parents;
     }
+
+    /**
+     * @return TermComponentIndex whose candidate ids are used by {@link #getTermParentIds(int)}, or null if the
+     * feature was not built from one
+     */
+    public TermComponentIndex getTermComponentIndex() {
+        return termComponentIndex;
+    }
+
+    /**
+     * @param candidateId candidate id in {@link #getTermComponentIndex()}
+     * @return int[] distinct candidate ids of the parent terms, empty if the term has no parents
+     */
+    public int[] getTermParentIds(int candidateId) {
+        int[] parents = parentIds[candidateId];
+        return parents == null ? EMPTY : parents;
+    }
+
+    /**
+     * Each candidate id is set by exactly one worker, so no locking is needed.
+     */
+    void setTermParentIds(int candidateId, int[] parents) {
+        parentIds[candidateId] = parents;
+    }
 }
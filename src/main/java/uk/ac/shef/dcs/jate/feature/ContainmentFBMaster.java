@@ -27,7 +27,7 @@ public class ContainmentFBMaster extends AbstractFeatureBuilder {
 
     @Override
     public AbstractFeature build() throws JATEException {
-        Containment feature = new Containment();
+        Containment feature = new Containment(termComponentIndex);
 
         //start workers
         int cores = properties.getMaxCPUCores();
@@ -1,10 +1,10 @@
 package uk.ac.shef.dcs.jate.feature;
 
 import org.apache.log4j.Logger;
-import org.apache.solr.common.util.Pair;
 import uk.ac.shef.dcs.jate.JATERecursiveTaskWorker;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.List;
 import java.util.regex.Pattern;
 
 /**
@@ -48,31 +48,32 @@ class ContainmentFBWorker extends JATERecursiveTaskWorker<String, int[]> {
         int count = 0;
         LOG.info("Total terms to process=" + taskTerms.size());
         for (String termString : taskTerms) {
-            String[] tokens = termString.split(" ");
-
-            Set<String> compareCandidates = new HashSet<>();
-            for (String tok : tokens) {
-                List<Pair<String, Integer>> candidates = featureTermCompIndex.getSorted(tok);
-                Iterator<Pair<String, Integer>> it = candidates.iterator();
-                while (it.hasNext()) {
-                    Pair<String, Integer> c = it.next();
-                    if (c.getValue() <= tokens.length)
-                        break;
-                    compareCandidates.add(c.getKey());
-                }
-
-            }
+            int candidateId = featureTermCompIndex.lookupCandidateId(termString);
+            int[] tokenIds = tokenIdsOf(termString, candidateId);
+            ParentIds parents = new ParentIds();
 
             StringBuilder pStr = new StringBuilder("(?<!\\w)");
             pStr.append(Pattern.quote(termString)).append("(?!\\w)");
             Pattern pattern = Pattern.compile(pStr.toString());
 
-
-            for (String pterm : compareCandidates) {
-                if (pattern.matcher(pterm).find()) {  //ref term contains term
-                    feature.add(termString, pterm);
+            if (tokenIds.length <= 2) {
+                //first and last tokens may be matched as part of a longer token of the parent,
+                //so consider the candidates containing any of them
+                for (int tokenId : tokenIds)
+                    matchParents(termString, pattern, tokenId, tokenIds.length, parents);
+            } else {
+                //any parent term must contain the middle tokens of this term as whole tokens,
+                //so the shortest postings list among them is sufficient
+                int rarest = tokenIds[1];
+                for (int i = 2; i < tokenIds.length - 1; i++) {
+                    if (featureTermCompIndex.countLongerThan(tokenIds[i], tokenIds.length) <
+                            featureTermCompIndex.countLongerThan(rarest, tokenIds.length))
+                        rarest = tokenIds[i];
                 }
+                matchParents(termString, pattern, rarest, tokenIds.length, parents);
             }
+            if (candidateId != -1)
+                feature.setTermParentIds(candidateId, parents.toDistinctArray());
 
             count++;
             if (count % 2000 == 0)
@@ -80,4 +81,58 @@ class ContainmentFBWorker extends JATERecursiveTaskWorker<String, int[]> {
         }
         return new int[]{count, taskTerms.size()};
     }
+
+    private void matchParents(String termString, Pattern pattern, int tokenId, int termLength,
+                              ParentIds parents) {
+        //postings are sorted by length descending, so only the leading ones are longer than this term
+        int[] compareCandidates = featureTermCompIndex.getContainingCandidates(tokenId);
+        int compareSize = featureTermCompIndex.countLongerThan(tokenId, termLength);
+        for (int i = 0; i < compareSize; i++) {
+            String pterm = featureTermCompIndex.getCandidate(compareCandidates[i]);
+            if (pattern.matcher(pterm).find()) {  //ref term contains term
+                feature.add(termString, pterm);
+                parents.add(compareCandidates[i]);
+            }
+        }
+    }
+
+    /**
+     * @return token ids of the term. Tokens that are not indexed get -1, which has no containing candidates
+     */
+    private int[] tokenIdsOf(String termString, int candidateId) {
+        if (candidateId != -1)
+            return featureTermCompIndex.getCandidateTokenIds(candidateId);
+
+        String[] tokens = termString.split(" ");
+        int[] tokenIds = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            tokenIds[i] = featureTermCompIndex.lookupTokenId(tokens[i]);
+        }
+        return tokenIds;
+    }
+
+    /**
+     * Growable list of matched parent ids; a parent is matched more than once when found via several tokens
+     */
+    private static final class ParentIds {
+        private int[] ids = new int[8];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        int[] toDistinctArray() {
+            int[] sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1])
+                    sorted[distinct++] = sorted[i];
+            }
+            return distinct == sorted.length ? sorted : Arrays.copyOf(sorted, distinct);
+        }
+    }
 }
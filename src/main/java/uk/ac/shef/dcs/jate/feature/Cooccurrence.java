@@ -28,6 +28,12 @@ public class Cooccurrence extends AbstractFeature {
         cooccurrence =new FlexCompRowMatrix(terms, refTerms);
     }
 
+    /**
+     * For subclasses that do not keep the co-occurrence matrix in memory
+     */
+    protected Cooccurrence(){
+    }
+
     void deduce(int rowIndex, int colIndex, int value){
         double newValue = cooccurrence.get(rowIndex, colIndex);
         if(newValue==0) {
@@ -100,6 +106,19 @@ public class Cooccurrence extends AbstractFeature {
         }*/
     }
 
+    /**
+     * Order terms by the rows of their co-occurrences, so that a reader of the matrix goes through it row by row (for
+     * {@link SpilledCooccurrence}, sequentially on disk). Terms without co-occurrences are at the end.
+     *
+     * @param terms term strings
+     * @return List, the terms ordered by row
+     */
+    public List<String> sortInRowOrder(Collection<String> terms){
+        List<String> result = new ArrayList<>(terms);
+        result.sort((t1, t2) -> Integer.compareUnsigned(lookupTerm(t1), lookupTerm(t2)));
+        return result;
+    }
+
     public String lookupTerm(int index){
         return mapIdx2Term.get(index);
     }
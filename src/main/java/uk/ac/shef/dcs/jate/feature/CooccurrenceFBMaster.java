@@ -4,8 +4,13 @@ import org.apache.solr.search.SolrIndexSearcher;
 import uk.ac.shef.dcs.jate.JATEException;
 import uk.ac.shef.dcs.jate.JATEProperties;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.log4j.Logger;
 
 /**
@@ -34,6 +39,13 @@ import org.apache.log4j.Logger;
  * co-occurrences of terms appearing in overlap are double-counted. This is corrected by deducting the frequency of the pair
  * in the overlap from their total co-occurrence frequency calculated using the above method.
  *
+ * </p><b>NOTE 3</b>:Given a spill directory, the co-occurrence matrix is not kept in heap but spilled to sorted run
+ * files, which are merged into a compressed matrix file on disk (see {@link SpilledCooccurrence}). Use this when the
+ * matrix of a large corpus does not fit in memory.
+ *
+ * </p><b>NOTE 4</b>:Given a sketch epsilon, co-occurrences are approximated by a Count-Min sketch of fixed size instead
+ * (see {@link CountMinCooccurrence}), trading accuracy for memory.
+ *
  *
  * @see FrequencyCtxBased
  * @see FrequencyCtxDocBasedFBMaster
@@ -47,6 +59,10 @@ public class CooccurrenceFBMaster extends AbstractFeatureBuilder {
     protected FrequencyTermBased frequencyTermBased; //frequency info of target terms
     protected int minTTF;
     protected int minTCF;
+    protected File spillDir;
+    protected int maxPairsPerRun;
+    protected double sketchEpsilon;
+    protected double sketchDelta;
 
 
     public CooccurrenceFBMaster(SolrIndexSearcher solrIndexSearcher, JATEProperties properties,
@@ -63,6 +79,44 @@ public class CooccurrenceFBMaster extends AbstractFeatureBuilder {
         this.minTCF = minTCF;//only applies to target terms, not reference terms
     }
 
+    /**
+     * Build co-occurrences on disk, see {@link SpilledCooccurrence}
+     *
+     * @param spillDir       directory for the spilled runs and the merged matrix, or null to build the matrix in memory
+     * @param maxPairsPerRun pairs each thread buffers in memory before spilling them to a run
+     */
+    public CooccurrenceFBMaster(SolrIndexSearcher solrIndexSearcher, JATEProperties properties,
+                                FrequencyTermBased termFeature,
+                                Integer minTTF,
+                                FrequencyCtxBased contextFeature,
+                                FrequencyCtxBased ref_frequencyCtxBased,
+                                Integer minTCF,
+                                File spillDir,
+                                int maxPairsPerRun) {
+        this(solrIndexSearcher, properties, termFeature, minTTF, contextFeature, ref_frequencyCtxBased, minTCF);
+        this.spillDir = spillDir;
+        this.maxPairsPerRun = maxPairsPerRun;
+    }
+
+    /**
+     * Approximate co-occurrences with a Count-Min sketch, see {@link CountMinCooccurrence}
+     *
+     * @param sketchEpsilon relative error of counts, or 0 to build the exact matrix in memory
+     * @param sketchDelta   probability that the error of a count exceeds the bound
+     */
+    public CooccurrenceFBMaster(SolrIndexSearcher solrIndexSearcher, JATEProperties properties,
+                                FrequencyTermBased termFeature,
+                                Integer minTTF,
+                                FrequencyCtxBased contextFeature,
+                                FrequencyCtxBased ref_frequencyCtxBased,
+                                Integer minTCF,
+                                double sketchEpsilon,
+                                double sketchDelta) {
+        this(solrIndexSearcher, properties, termFeature, minTTF, contextFeature, ref_frequencyCtxBased, minTCF);
+        this.sketchEpsilon = sketchEpsilon;
+        this.sketchDelta = sketchDelta;
+    }
+
     @Override
     public AbstractFeature build() throws JATEException {
         //Context windows where target candidate terms appear. It is possible that many reference terms
@@ -99,8 +153,27 @@ public class CooccurrenceFBMaster extends AbstractFeatureBuilder {
 
         //It is possible that many reference terms
         //do not appear in these context windows, because reference terms are not identical set to target terms
-        Cooccurrence feature = new Cooccurrence(termsPassingPrefilter.size(),
-                ref_frequencyCtxBased.getMapTerm2Ctx().size());
+        Cooccurrence feature;
+        if (sketchEpsilon > 0) {
+            try {
+                feature = new CountMinCooccurrence(sketchEpsilon, sketchDelta, true,
+                        frequencyCtxBased, ref_frequencyCtxBased);
+            } catch (IllegalArgumentException iae) {
+                throw new JATEException(iae.getMessage());
+            }
+        } else if (spillDir == null) {
+            feature = new Cooccurrence(termsPassingPrefilter.size(),
+                    ref_frequencyCtxBased.getMapTerm2Ctx().size());
+        } else {
+            try {
+                feature = new SpilledCooccurrence(spillDir, maxPairsPerRun);
+            } catch (IOException ioe) {
+                sb = new StringBuilder("Cannot create co-occurrence spill directory ");
+                sb.append(spillDir).append("\n").append(ExceptionUtils.getFullStackTrace(ioe));
+                throw new JATEException(sb.toString());
+            }
+            LOG.info("Spilling co-occurrences to " + spillDir + ", max pairs per run=" + maxPairsPerRun);
+        }
         LOG.info("Beginning building features. Total terms=" + termsPassingPrefilter.size() + ", total contexts=" + contextWindows.size());
 
         CooccurrenceFBWorker worker = new
@@ -109,7 +182,15 @@ public class CooccurrenceFBMaster extends AbstractFeatureBuilder {
                 minTCF, Integer.MAX_VALUE);
 
         ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
-        int total = forkJoinPool.invoke(worker);
+        int total;
+        try {
+            total = forkJoinPool.invoke(worker);
+        } catch (UncheckedIOException ioe) {
+            discard(feature);
+            sb = new StringBuilder("Failed to spill co-occurrences to ");
+            sb.append(spillDir).append("\n").append(ExceptionUtils.getFullStackTrace(ioe));
+            throw new JATEException(sb.toString());
+        }
 
         /*List<String> col=new ArrayList<>(frequencyCtxBased.getCtxOverlapZones().keySet());
         col.removeAll(ref_frequencyCtxBased.getCtxOverlapZones().keySet());
@@ -173,11 +254,38 @@ public class CooccurrenceFBMaster extends AbstractFeatureBuilder {
         }
 
 
+        if (feature instanceof SpilledCooccurrence) {
+            try {
+                ((SpilledCooccurrence) feature).merge();
+            } catch (IOException | UncheckedIOException ioe) {
+                discard(feature);
+                sb = new StringBuilder("Failed to merge co-occurrences spilled to ");
+                sb.append(spillDir).append("\n").append(ExceptionUtils.getFullStackTrace(ioe));
+                throw new JATEException(sb.toString());
+            }
+        }
+
         sb = new StringBuilder("Complete building features, total contexts processed=" + total);
         sb.append("; total indexed candidate terms=").append(feature.termCounter).append(";")
                 .append(" total indexed reference terms=").append(feature.ctxTermCounter);
+        if (feature instanceof CountMinCooccurrence) {
+            CountMinCooccurrence sketch = (CountMinCooccurrence) feature;
+            sb.append("; sketched co-occurrences=").append(sketch.getTotal()).append(", max error per pair=")
+                    .append((long) Math.ceil(sketchEpsilon * sketch.getTotal()));
+        }
         LOG.info(sb.toString());
 
         return feature;
     }
+
+    //delete the files of a spilled feature whose build failed
+    private static void discard(Cooccurrence feature) {
+        if (feature instanceof SpilledCooccurrence) {
+            try {
+                ((SpilledCooccurrence) feature).close();
+            } catch (IOException ioe) {
+                LOG.warn("Cannot delete spilled co-occurrences: " + ioe.toString());
+            }
+        }
+    }
 }
@@ -0,0 +1,176 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.apache.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * An approximate {@link Cooccurrence}, whose counts are kept in a Count-Min sketch rather than a matrix, for
+ * exploratory runs on corpora whose co-occurrence matrix is too large. The memory used is fixed by the error bounds,
+ * and does not grow with the number of co-occurring pairs.
+ * <p>
+ * The sketch has depth = ceil(ln(1/delta)) rows of width = ceil(e/epsilon) counters. As long as counts are only
+ * incremented, a count is never underestimated, and with probability 1-delta it is overestimated by at most
+ * epsilon * N, N being the sum of all counts. With conservative update (the default), an increment only raises the
+ * counters that are at the current estimate, which gives smaller overestimates.
+ * <p>
+ * Corrections of double counting ({@link #deduce(int, int, int)}) break that guarantee: they lower all counters of
+ * the pair, so counts of other pairs sharing them may then be underestimated, by up to the sum of the corrections.
+ * <p>
+ * The sketch does not record which pairs co-occur. A row ({@link #getCoocurrence(String)}) is therefore obtained by
+ * querying only the reference terms found in the contexts of the term, as held by the context features the
+ * co-occurrences are counted from, so a row costs as much as the build did for the term.
+ * <p>
+ * Counts are updated under a lock while the feature is built, but read without one: rows must only be read once the
+ * build is complete, e.g., after {@link java.util.concurrent.ForkJoinPool#invoke} of the building workers returned.
+ *
+ * @see CooccurrenceFBMaster
+ */
+public class CountMinCooccurrence extends Cooccurrence {
+    private static final Logger LOG = Logger.getLogger(CountMinCooccurrence.class.getName());
+
+    public static final double DEFAULT_DELTA = 0.01;
+
+    private final int depth;
+    private final int width;
+    private final boolean conservativeUpdate;
+    private final long[] seeds;
+    private final FrequencyCtxBased frequencyCtxBased;
+    private final FrequencyCtxBased ref_frequencyCtxBased;
+    //written under the lock of this, read without it once built
+    private final int[] counters;
+    private long total;
+
+    /**
+     * @param epsilon            relative error of a count, as a fraction of the sum of all counts, in (0,1)
+     * @param delta              probability that the error of a count exceeds the bound, in (0,1)
+     * @param conservativeUpdate whether increments only raise the counters at the current estimate of a pair
+     * @param frequencyCtxBased     contexts of target terms, which co-occurrences are counted from
+     * @param ref_frequencyCtxBased contexts of reference terms, which co-occurrences are counted from
+     */
+    public CountMinCooccurrence(double epsilon, double delta, boolean conservativeUpdate,
+                                FrequencyCtxBased frequencyCtxBased, FrequencyCtxBased ref_frequencyCtxBased) {
+        super();
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1)
+            throw new IllegalArgumentException("Count-Min sketch epsilon and delta must be within (0,1), got epsilon="
+                    + epsilon + ", delta=" + delta);
+        long w = (long) Math.ceil(Math.E / epsilon);
+        int d = (int) Math.ceil(Math.log(1 / delta));
+        if (w * d > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Count-Min sketch of epsilon=" + epsilon + ", delta=" + delta
+                    + " is too large: " + d + " x " + w + " counters");
+        this.width = (int) w;
+        this.depth = d;
+        this.conservativeUpdate = conservativeUpdate;
+        this.frequencyCtxBased = frequencyCtxBased;
+        this.ref_frequencyCtxBased = ref_frequencyCtxBased;
+        this.counters = new int[depth * width];
+        //fixed seeds, so that results are reproducible
+        Random random = new Random(depth * 31L + width);
+        this.seeds = new long[depth];
+        for (int i = 0; i < depth; i++)
+            seeds[i] = random.nextLong();
+
+        StringBuilder sb = new StringBuilder("Count-Min sketch of ");
+        sb.append(depth).append(" x ").append(width).append(" counters (").append(counters.length * 4L / 1024)
+                .append(" KB), conservative update=").append(conservativeUpdate);
+        LOG.info(sb.toString());
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    private int slot(int row, long key) {
+        long h = (key ^ seeds[row]) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        return row * width + (int) ((h >>> 1) % width);
+    }
+
+    private static long key(int termIdx, int refTermIdx) {
+        return ((long) termIdx << 32) | refTermIdx;
+    }
+
+    @Override
+    protected synchronized void increment(int termIdx, int refTermIdx, int freq) {
+        long key = key(termIdx, refTermIdx);
+        total += freq;
+        if (!conservativeUpdate) {
+            for (int i = 0; i < depth; i++) {
+                int s = slot(i, key);
+                counters[s] = saturatedAdd(counters[s], freq);
+            }
+            return;
+        }
+        int estimate = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++)
+            estimate = Math.min(estimate, counters[slot(i, key)]);
+        int target = saturatedAdd(estimate, freq);
+        for (int i = 0; i < depth; i++) {
+            int s = slot(i, key);
+            if (counters[s] < target)
+                counters[s] = target;
+        }
+    }
+
+    @Override
+    synchronized void deduce(int rowIndex, int colIndex, int value) {
+        long key = key(rowIndex, colIndex);
+        for (int i = 0; i < depth; i++) {
+            int s = slot(i, key);
+            counters[s] = Math.max(0, counters[s] - value);
+        }
+    }
+
+    private static int saturatedAdd(int a, int b) {
+        long sum = (long) a + b;
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+
+    /**
+     * @return estimated co-occurrence of a pair of term and reference term indexes
+     */
+    int estimate(int termIdx, int refTermIdx) {
+        long key = key(termIdx, refTermIdx);
+        int estimate = Integer.MAX_VALUE;
+        for (int i = 0; i < depth && estimate > 0; i++)
+            estimate = Math.min(estimate, counters[slot(i, key)]);
+        return estimate;
+    }
+
+    /**
+     * @return the sum of all counts added, N in the error bound epsilon * N
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    @Override
+    Map<Integer, Integer> getCooccurrence(int index) {
+        Map<Integer, Integer> result = new HashMap<>();
+        String term = lookupTerm(index);
+        Set<ContextWindow> contexts = term == null ? null : frequencyCtxBased.getContexts(term);
+        if (contexts == null)
+            return result;
+        Set<Integer> queried = new HashSet<>();
+        for (ContextWindow ctx : contexts) {
+            for (String refTerm : ref_frequencyCtxBased.getTFIC(ctx).keySet()) {
+                if (refTerm.equals(term))
+                    continue;
+                int refIdx = lookupRefTerm(refTerm);
+                if (refIdx == -1 || !queried.add(refIdx))
+                    continue;
+                int estimate = estimate(index, refIdx);
+                if (estimate > 0)
+                    result.put(refIdx, estimate);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,162 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.index.IndexReader;
+import uk.ac.shef.dcs.jate.JATEException;
+
+import java.util.*;
+
+/**
+ * Features built against the same index reader, shared across algorithms and requests.
+ * <p>
+ * A feature is cached under the core cache key of the reader of its builder's searcher and the builder's
+ * {@link AbstractFeatureBuilder#getCacheKey()} (builder type and parameters). Entries of a reader are evicted when the
+ * reader is closed, i.e., once its searcher has been replaced and released, so a feature is never served for an
+ * index other than the one it was built from. Builders without a cache key (e.g., those depending on other feature
+ * instances) are always built.
+ * <p>
+ * The cache is bounded by an estimate of the number of entries held by the cached features (terms and words with
+ * their frequency in each document, contexts with the frequency of each term in them), evicting least recently used
+ * features first. Cached features are shared and must be treated as read-only.
+ */
+public class FeatureCache {
+    private static final Logger LOG = Logger.getLogger(FeatureCache.class.getName());
+
+    public static final long DEFAULT_MAX_WEIGHT = 20_000_000L;
+
+    private static final FeatureCache INSTANCE = new FeatureCache(DEFAULT_MAX_WEIGHT);
+
+    private long maxWeight;
+    private long weight = 0;
+    //guarded by this; in access order
+    private final LinkedHashMap<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    //reader core cache keys for which a closed listener is registered
+    private final Set<Object> readers = new HashSet<>();
+
+    private static class Entry {
+        final AbstractFeature feature;
+        final long weight;
+
+        Entry(AbstractFeature feature, long weight) {
+            this.feature = feature;
+            this.weight = weight;
+        }
+    }
+
+    FeatureCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public static FeatureCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Build a feature, or return the one built by an equivalent builder against the same index reader.
+     *
+     * @param builder feature builder
+     * @return AbstractFeature the built or cached feature
+     * @throws JATEException
+     */
+    public static AbstractFeature build(AbstractFeatureBuilder builder) throws JATEException {
+        return INSTANCE.getOrBuild(builder);
+    }
+
+    public AbstractFeature getOrBuild(AbstractFeatureBuilder builder) throws JATEException {
+        if (builder.solrIndexSearcher == null)
+            return builder.build();
+        return getOrBuild(builder, builder.solrIndexSearcher.getIndexReader());
+    }
+
+    /**
+     * @param reader the reader of the builder's searcher
+     */
+    AbstractFeature getOrBuild(AbstractFeatureBuilder builder, IndexReader reader) throws JATEException {
+        String builderKey = builder.getCacheKey();
+        if (builderKey == null || maxWeight <= 0)
+            return builder.build();
+
+        Object readerKey = reader.getCoreCacheKey();
+        List<Object> key = Arrays.asList(readerKey, builderKey);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                LOG.info("Reusing cached feature " + builderKey);
+                return entry.feature;
+            }
+        }
+
+        AbstractFeature feature = builder.build();
+        long featureWeight = estimateWeight(feature);
+        synchronized (this) {
+            Entry existing = entries.get(key);
+            if (existing != null)
+                return existing.feature;
+            if (featureWeight > maxWeight)
+                return feature;
+            if (readers.add(readerKey))
+                reader.addReaderClosedListener(r -> evict(readerKey));
+            entries.put(key, new Entry(feature, featureWeight));
+            weight += featureWeight;
+            evictToMaxWeight();
+        }
+        return feature;
+    }
+
+    /**
+     * @param maxWeight maximum estimated number of entries held by cached features; 0 disables caching
+     */
+    public synchronized void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        evictToMaxWeight();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private void evictToMaxWeight() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            weight -= it.next().weight;
+            it.remove();
+        }
+    }
+
+    private synchronized void evict(Object readerKey) {
+        readers.remove(readerKey);
+        Iterator<Map.Entry<List<Object>, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<List<Object>, Entry> en = it.next();
+            if (en.getKey().get(0) == readerKey) {
+                weight -= en.getValue().weight;
+                it.remove();
+            }
+        }
+    }
+
+    static long estimateWeight(AbstractFeature feature) {
+        long weight = 0;
+        if (feature instanceof FrequencyTermBased) {
+            FrequencyTermBased ft = (FrequencyTermBased) feature;
+            //a term, and its frequency in each document it occurs in
+            for (String term : ft.getMapTerm2TTF().keySet()) {
+                Map<Integer, Integer> docs = ft.getTermFrequencyInDocument(term);
+                weight += 1 + (docs == null ? 0 : docs.size());
+            }
+        } else if (feature instanceof FrequencyCtxBased) {
+            FrequencyCtxBased ctx = (FrequencyCtxBased) feature;
+            //a context and the frequency of each term in it, a term and each context it occurs in
+            for (Map<String, Integer> tfic : ctx.getMapCtx2TFIC().values())
+                weight += 1 + tfic.size();
+            for (Set<ContextWindow> contexts : ctx.getTerm2Ctx().values())
+                weight += 1 + contexts.size();
+        }
+        return Math.max(1, weight);
+    }
+}
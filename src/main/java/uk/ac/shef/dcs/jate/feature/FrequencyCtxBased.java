@@ -20,6 +20,10 @@ public class FrequencyCtxBased extends AbstractFeature {
 
     private Map<String, ContextOverlap> ctxOverlapZones = new HashMap<>();
 
+    //term id lookup and, by term id, the total frequency of all terms in contexts where the term appears (n_w)
+    private Map<String, Integer> term2Id = new HashMap<>();
+    private int[] termCtxTTF = new int[0];
+
     protected FrequencyCtxBased() {
     }
 
@@ -96,6 +100,46 @@ public class FrequencyCtxBased extends AbstractFeature {
         ctx2TTF.put(c, f);
     }
 
+    /**
+     * @param term candidate term or word
+     * @return int the term id for {@link #getTermCtxTTF(int)}, or -1 if the term does not appear in any context
+     */
+    public int lookupTermId(String term) {
+        Integer id = term2Id.get(term);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param termId term id, see {@link #lookupTermId(String)}
+     * @return int the sum of the total frequency of all terms in the contexts where the term appears
+     */
+    public int getTermCtxTTF(int termId) {
+        return termCtxTTF[termId];
+    }
+
+    /**
+     * Sum context TTFs over the contexts of every term, once. Called by the builders after all contexts are
+     * counted; the table is not maintained by later increments.
+     */
+    protected synchronized void indexTermCtxTTF() {
+        Map<String, Integer> ids = new HashMap<>(term2Ctx.size() * 4 / 3 + 1);
+        int[] sums = new int[term2Ctx.size()];
+        int id = 0;
+        for (Map.Entry<String, Set<ContextWindow>> en : term2Ctx.entrySet()) {
+            int sum = 0;
+            for (ContextWindow ctx : en.getValue()) {
+                Integer ttf = ctx2TTF.get(ctx);
+                if (ttf != null)
+                    sum += ttf;
+            }
+            ids.put(en.getKey(), id);
+            sums[id] = sum;
+            id++;
+        }
+        term2Id = ids;
+        termCtxTTF = sums;
+    }
+
     public Map<String, ContextOverlap> getCtxOverlapZones() {
         return ctxOverlapZones;
     }
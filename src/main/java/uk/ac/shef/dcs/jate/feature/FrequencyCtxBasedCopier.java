@@ -67,6 +67,7 @@ public class FrequencyCtxBasedCopier extends AbstractFeatureBuilder {
                 countContext=0;
             }
         }
+        result.indexTermCtxTTF();
         LOG.info("Complete copying features.");
 
         return result;
@@ -5,12 +5,14 @@ import org.apache.lucene.index.*;
 import org.apache.solr.search.SolrIndexSearcher;
 import uk.ac.shef.dcs.jate.JATEException;
 import uk.ac.shef.dcs.jate.JATEProperties;
-import uk.ac.shef.dcs.jate.util.SolrUtil;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import org.apache.log4j.Logger;
 
 /**
@@ -31,12 +33,13 @@ public class FrequencyCtxDocBasedFBMaster extends AbstractFeatureBuilder {
     public AbstractFeature build() throws JATEException {
         FrequencyCtxBased feature = new FrequencyCtxBased();
         try {
-            Terms info = SolrUtil.getTermVector(properties.getSolrFieldNameJATENGramInfo(), solrIndexSearcher);
             Set<String> allLuceneTerms;
             if (termOrWord == 0)
                 allLuceneTerms = getUniqueTerms();
             else
                 allLuceneTerms = getUniqueWords();
+            List<String> sortedCandidates = sortInTermsDictionaryOrder(allLuceneTerms);
+            Map<LeafReaderContext, Terms> segments = getSegmentTerms(properties.getSolrFieldNameJATENGramInfo());
 
             //start workers
 
@@ -47,13 +50,34 @@ public class FrequencyCtxDocBasedFBMaster extends AbstractFeatureBuilder {
                 maxPerThread=50;
 
             LOG.info("Beginning building features. Total terms=" + allLuceneTerms.size() + ", cpu cores=" +
-                    cores + ", max per core=" + maxPerThread);
-            FrequencyCtxDocBasedFBWorker worker = new
-                    FrequencyCtxDocBasedFBWorker(feature, properties, new ArrayList<>(allLuceneTerms),
-                    solrIndexSearcher, maxPerThread,
-                    info);
+                    cores + ", segments=" + segments.size() + ", max per core=" + maxPerThread);
+            //segments are independent units of work. Each segment worker receives the full sorted candidate list
+            //and further splits it into contiguous ranges; document ids are shifted by the segment doc base
             ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
-            int total = forkJoinPool.invoke(worker);
+            List<ForkJoinTask<Integer>> segmentTasks = new ArrayList<>();
+            for (Map.Entry<LeafReaderContext, Terms> segment : segments.entrySet()) {
+                FrequencyCtxDocBasedFBWorker worker = new
+                        FrequencyCtxDocBasedFBWorker(feature, properties, sortedCandidates,
+                        solrIndexSearcher, maxPerThread,
+                        segment.getValue(), segment.getKey().docBase);
+                segmentTasks.add(forkJoinPool.submit(worker));
+            }
+            for (ForkJoinTask<Integer> task : segmentTasks)
+                task.join();
+            forkJoinPool.shutdown();
+            feature.indexTermCtxTTF();
+
+            int total = 0;
+            for (String termStr : sortedCandidates) {
+                if (feature.getContexts(termStr) != null)
+                    total++;
+                else {
+                    StringBuilder msg = new StringBuilder(termStr);
+                    msg.append(" is a candidate term, but not indexed in the n-gram information field. It's score may be mis-computed.");
+                    msg.append(" Reasons can be: different analysis chains for the two fields; cross-sentence-boundary MWEs");
+                    LOG.warn(msg.toString());
+                }
+            }
             StringBuilder sb = new StringBuilder("Complete building features. Total processed terms = " + total);
             sb.append("/").append(allLuceneTerms.size());
             LOG.info(sb.toString());
@@ -22,23 +22,29 @@ public class FrequencyCtxDocBasedFBWorker extends JATERecursiveTaskWorker<String
     private SolrIndexSearcher solrIndexSearcher;
     private Terms ngramInfo;
     private FrequencyCtxBased feature;
+    private int docBase;
 
+    /**
+     * @param ngramInfo terms of the n-gram information field in a single index segment
+     * @param docBase doc base of that segment, added to segment-local doc ids
+     */
     FrequencyCtxDocBasedFBWorker(FrequencyCtxBased feature,
                                  JATEProperties properties, List<String> luceneTerms, SolrIndexSearcher solrIndexSearcher,
                                  int maxTasksPerWorker,
-                                 Terms ngramInfo) {
+                                 Terms ngramInfo, int docBase) {
         super(luceneTerms, maxTasksPerWorker);
         this.feature=feature;
         this.properties = properties;
         this.solrIndexSearcher = solrIndexSearcher;
         this.ngramInfo =ngramInfo;
+        this.docBase = docBase;
     }
 
     @Override
     protected JATERecursiveTaskWorker<String, Integer> createInstance(List<String> termSplits) {
         return new FrequencyCtxDocBasedFBWorker(feature,
                 properties, termSplits, solrIndexSearcher, maxTasksPerThread,
-                ngramInfo);
+                ngramInfo, docBase);
     }
 
     @Override
@@ -56,25 +62,24 @@ public class FrequencyCtxDocBasedFBWorker extends JATERecursiveTaskWorker<String
         TermsEnum ngramInfoIterator;
         try {
             ngramInfoIterator = ngramInfo.iterator();
+            //terms are sorted in BytesRef order, so the dictionary is walked forward rather than randomly sought
+            SortedTermsWalker walker = new SortedTermsWalker(ngramInfoIterator);
             for (String termStr : terms) {
                 try {
-                    if (ngramInfoIterator.seekExact(new BytesRef(termStr.getBytes("UTF-8")))) {
+                    if (walker.seekForward(new BytesRef(termStr))) {
                         PostingsEnum docEnum = ngramInfoIterator.postings(null);
                         int doc = 0;
                         while ((doc = docEnum.nextDoc()) != PostingsEnum.NO_MORE_DOCS) {
                             int tfid = docEnum.freq();  //tf in document
                             ContextWindow ctx = new ContextWindow();
-                            ctx.setDocId(doc);
+                            ctx.setDocId(docBase + doc);
                             feature.increment(ctx, tfid);
                             feature.increment(ctx, termStr, tfid);
                         }
                         total++;
-                    }else {
-                        StringBuilder msg = new StringBuilder(termStr);
-                        msg.append(" is a candidate term, but not indexed in the n-gram information field. It's score may be mis-computed.");
-                        msg.append(" Reasons can be: different analysis chains for the two fields; cross-sentence-boundary MWEs");
-                        LOG.warn(msg.toString());
                     }
+                    //a candidate missing from one segment is expected; candidates missing from all segments are
+                    //reported by the master
                 } catch (IOException ioe) {
                     StringBuilder sb = new StringBuilder("Unable to build feature for candidate:");
                     sb.append(termStr).append("\n");
@@ -23,6 +23,11 @@ public class FrequencyCtxSentenceBasedFBMaster extends AbstractFeatureBuilder {
         this.termOrWord=termOrWord;
     }
 
+    @Override
+    protected String getCacheKey() throws JATEException {
+        return getClass().getName() + "|" + termOrWord + "|" + getFieldsCacheKey();
+    }
+
     @Override
     public AbstractFeature build() throws JATEException {
         FrequencyCtxBased feature = new FrequencyCtxBased();
@@ -39,6 +44,10 @@ public class FrequencyCtxSentenceBasedFBMaster extends AbstractFeatureBuilder {
                 allCandidates=getUniqueWords();
 
 
+            //reads sentence contexts from term vectors if the n-gram info field has them, otherwise from its postings
+            SentenceContextCollector collector = new SentenceContextCollector(solrIndexSearcher.getIndexReader(),
+                    properties.getSolrFieldNameJATENGramInfo(), sortInTermsDictionaryOrder(allCandidates));
+
             //start workers
             int cores = properties.getMaxCPUCores();
             cores = cores == 0 ? 1 : cores;
@@ -47,8 +56,8 @@ public class FrequencyCtxSentenceBasedFBMaster extends AbstractFeatureBuilder {
                 maxPerThread=50;
 
             FrequencyCtxSentenceBasedFBWorker worker = new
-                    FrequencyCtxSentenceBasedFBWorker(feature, properties, allDocs, allCandidates,
-                    solrIndexSearcher, maxPerThread
+                    FrequencyCtxSentenceBasedFBWorker(feature, properties, allDocs, collector,
+                    maxPerThread
                     );
             StringBuilder sb = new StringBuilder("Building features using cpu cores=");
             sb.append(cores).append(", total docs=").append(allDocs.size()).append(", max per worker=")
@@ -56,6 +65,7 @@ public class FrequencyCtxSentenceBasedFBMaster extends AbstractFeatureBuilder {
             LOG.info(sb.toString());
             ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
             int total = forkJoinPool.invoke(worker);
+            feature.indexTermCtxTTF();
             sb = new StringBuilder("Complete building features. Total sentence ctx=");
             sb.append(feature.getMapCtx2TTF().size()).append(", from total processed docs=").append(total);
             LOG.info(sb.toString());
@@ -98,6 +98,16 @@ public class FrequencyCtxWindowBasedFBMaster extends AbstractFeatureBuilder {
         }
     }
 
+    /**
+     * @return null if existing context windows are given, as the feature then depends on them
+     */
+    @Override
+    protected String getCacheKey() throws JATEException {
+        if (contextLookup != null)
+            return null;
+        return getClass().getName() + "|" + termOrWord + "|" + window + "|" + getFieldsCacheKey();
+    }
+
     @Override
     public AbstractFeature build() throws JATEException {
         FrequencyCtxBased feature = new FrequencyCtxBased();
@@ -114,6 +124,10 @@ public class FrequencyCtxWindowBasedFBMaster extends AbstractFeatureBuilder {
                 allCandidates = getUniqueWords();
 
 
+            //reads sentence contexts from term vectors if the n-gram info field has them, otherwise from its postings
+            SentenceContextCollector collector = new SentenceContextCollector(solrIndexSearcher.getIndexReader(),
+                    properties.getSolrFieldNameJATENGramInfo(), sortInTermsDictionaryOrder(allCandidates));
+
             //start workers
             int cores = properties.getMaxCPUCores();
             cores = cores == 0 ? 1 : cores;
@@ -122,8 +136,7 @@ public class FrequencyCtxWindowBasedFBMaster extends AbstractFeatureBuilder {
                 maxPerThread = 50;
 
             FrequencyCtxWindowBasedFBWorker worker = new
-                    FrequencyCtxWindowBasedFBWorker(feature, properties, allDocs, allCandidates,
-                    solrIndexSearcher,
+                    FrequencyCtxWindowBasedFBWorker(feature, properties, allDocs, collector,
                     contextLookup,
                     window, maxPerThread
             );
@@ -133,6 +146,7 @@ public class FrequencyCtxWindowBasedFBMaster extends AbstractFeatureBuilder {
             LOG.info(sb.toString());
             ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
             int total = forkJoinPool.invoke(worker);
+            feature.indexTermCtxTTF();
             sb = new StringBuilder("Complete building features. Total sentence ctx=");
             sb.append(feature.getMapCtx2TTF().size()).append(", from total processed docs=").append(total);
             LOG.info(sb.toString());
@@ -20,6 +20,8 @@ public class FrequencyTermBased extends AbstractFeature {
     //term and its freq in each document, stored as a map
     private Map<String, Map<Integer, Integer>> term2FID = new ConcurrentHashMap<>();
     private int corpusTotal = 0;
+    //lucene doc id -> total freq of all terms in the document, derived from term2FID on first use
+    private int[] docTotals;
     private int totalDocs=0;
 
     protected FrequencyTermBased() {
@@ -69,25 +71,46 @@ public class FrequencyTermBased extends AbstractFeature {
      * @param i  frequency count
      */
     protected void increment(String term, int i) {
-        Integer freq = term2TTF.get(term);
-        if(freq==null)
-            freq=0;
-        freq+=i;
-        term2TTF.put(term, freq);
+        //atomic, as the same term can be counted concurrently from different index segments
+        term2TTF.merge(term, i, Integer::sum);
     }
 
 
 
     protected void incrementTermFrequencyInDocument(String term, int luceneDocId, int freq){
-        Map<Integer, Integer> freqMap = term2FID.get(term);
-        if(freqMap==null)
-            freqMap = new HashMap<>();
-        freqMap.put(luceneDocId, freq);
-        term2FID.put(term, freqMap);
+        term2FID.compute(term, (t, freqMap) -> {
+            if (freqMap == null)
+                freqMap = new HashMap<>();
+            freqMap.put(luceneDocId, freq);
+            return freqMap;
+        });
     }
 
     public Map<Integer, Integer> getTermFrequencyInDocument(String term){
         return term2FID.get(term);
     }
 
+    /**
+     * Get the total number of occurrences of all terms in each document, summed once over the per document
+     * frequencies of all terms.
+     *
+     * @return int[] indexed by lucene doc id. Documents beyond the last one containing a term are not included
+     */
+    public synchronized int[] getDocTotals() {
+        if (docTotals == null) {
+            int maxDoc = 0;
+            for (Map<Integer, Integer> freqMap : term2FID.values()) {
+                for (int doc : freqMap.keySet())
+                    maxDoc = Math.max(maxDoc, doc + 1);
+            }
+            int[] totals = new int[maxDoc];
+            for (Map<Integer, Integer> freqMap : term2FID.values()) {
+                for (Map.Entry<Integer, Integer> en : freqMap.entrySet())
+                    totals[en.getKey()] += en.getValue();
+            }
+            docTotals = totals;
+        }
+        return docTotals;
+    }
+
 }
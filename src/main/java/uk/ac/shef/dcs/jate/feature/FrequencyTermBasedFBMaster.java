@@ -5,12 +5,14 @@ import org.apache.lucene.index.*;
 import org.apache.solr.search.SolrIndexSearcher;
 import uk.ac.shef.dcs.jate.JATEException;
 import uk.ac.shef.dcs.jate.JATEProperties;
-import uk.ac.shef.dcs.jate.util.SolrUtil;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import org.apache.log4j.Logger;
 
 /**
@@ -30,18 +32,24 @@ public class FrequencyTermBasedFBMaster extends AbstractFeatureBuilder {
         this.termOrWord = termOrWord;
     }
 
+    @Override
+    protected String getCacheKey() throws JATEException {
+        return getClass().getName() + "|" + termOrWord + "|" + getFieldsCacheKey();
+    }
+
     @Override
     public AbstractFeature build() throws JATEException {
         FrequencyTermBased feature = new FrequencyTermBased();
         feature.setTotalDocs((Integer) solrIndexSearcher.getStatistics().get("numDocs"));
 
         try {
-            Terms ngramInfo = SolrUtil.getTermVector(properties.getSolrFieldNameJATENGramInfo(), solrIndexSearcher);
             Set<String> all;
             if (termOrWord == FEATURE_TYPE_TERM)
                 all = getUniqueTerms();
             else
                 all = getUniqueWords();
+            List<String> sortedCandidates = sortInTermsDictionaryOrder(all);
+            Map<LeafReaderContext, Terms> segments = getSegmentTerms(properties.getSolrFieldNameJATENGramInfo());
             //start workers
             int cores = properties.getMaxCPUCores();
             cores = (cores == 0) ? DEFAULT_CPU_CORES : cores;
@@ -50,17 +58,38 @@ public class FrequencyTermBasedFBMaster extends AbstractFeatureBuilder {
                 maxPerThread = 50;
 
             StringBuilder sb = new StringBuilder("Building features using cpu cores=");
-            sb.append(cores).append(", total=").append(all.size()).append(", max per worker=")
-                    .append(maxPerThread);
+            sb.append(cores).append(", total=").append(all.size()).append(", segments=").append(segments.size())
+                    .append(", max per worker=").append(maxPerThread);
             LOG.info(sb.toString());
-            FrequencyTermBasedFBWorker worker = new
-                    FrequencyTermBasedFBWorker(properties, new ArrayList<>(all),
-                    solrIndexSearcher, feature, maxPerThread,
-                    ngramInfo);
+            //segments are independent units of work. Each segment worker receives the full sorted candidate list
+            //and further splits it into contiguous ranges; document ids are shifted by the segment doc base
             ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
-            int[] total = forkJoinPool.invoke(worker);
+            List<ForkJoinTask<int[]>> segmentTasks = new ArrayList<>();
+            for (Map.Entry<LeafReaderContext, Terms> segment : segments.entrySet()) {
+                FrequencyTermBasedFBWorker worker = new
+                        FrequencyTermBasedFBWorker(properties, sortedCandidates,
+                        solrIndexSearcher, feature, maxPerThread,
+                        segment.getValue(), segment.getKey().docBase);
+                segmentTasks.add(forkJoinPool.submit(worker));
+            }
+            for (ForkJoinTask<int[]> task : segmentTasks)
+                task.join();
+            forkJoinPool.shutdown();
+
+            int totalSuccess = 0;
+            for (String term : sortedCandidates) {
+                if (feature.getMapTerm2TTF().containsKey(term))
+                    totalSuccess++;
+                else {
+                    String warning = String.format("'%s'  is a candidate term, but not indexed in the n-gram " +
+                            "information field. It's score may be mis-computed. You may have used different text " +
+                            "analysis process (e.g., different tokenizers, different analysis order, limited " +
+                            "n-gram range) for the text-2-candidate-term and text-2-ngram fields.) ", term);
+                    LOG.warn(warning);
+                }
+            }
             sb = new StringBuilder("Complete building features. Total=");
-            sb.append(total[1]).append(" success=").append(total[0]);
+            sb.append(sortedCandidates.size()).append(" success=").append(totalSuccess);
             LOG.info(sb.toString());
 
 
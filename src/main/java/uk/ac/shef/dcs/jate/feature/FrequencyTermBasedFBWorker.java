@@ -19,21 +19,27 @@ class FrequencyTermBasedFBWorker extends JATERecursiveTaskWorker<String, int[]>
     private SolrIndexSearcher solrIndexSearcher;
     private FrequencyTermBased feature;
     private Terms ngramInfo;
+    private int docBase;
 
+    /**
+     * @param ngramInfo terms of the n-gram information field in a single index segment
+     * @param docBase doc base of that segment, added to segment-local doc ids
+     */
     FrequencyTermBasedFBWorker(JATEProperties properties, List<String> luceneTerms, SolrIndexSearcher solrIndexSearcher,
                                FrequencyTermBased feature, int maxTasksPerWorker,
-                               Terms ngramInfo) {
+                               Terms ngramInfo, int docBase) {
         super(luceneTerms, maxTasksPerWorker);
         this.properties = properties;
         this.feature = feature;
         this.solrIndexSearcher = solrIndexSearcher;
         this.ngramInfo = ngramInfo;
+        this.docBase = docBase;
     }
 
     @Override
     protected JATERecursiveTaskWorker<String, int[]> createInstance(List<String> termSplit) {
         return new FrequencyTermBasedFBWorker(properties, termSplit, solrIndexSearcher, feature, maxTasksPerThread,
-                ngramInfo);
+                ngramInfo, docBase);
     }
 
     @Override
@@ -53,26 +59,24 @@ class FrequencyTermBasedFBWorker extends JATERecursiveTaskWorker<String, int[]>
         TermsEnum ngramInfoIterator;
         try {
             ngramInfoIterator = ngramInfo.iterator();
+            //terms are sorted in BytesRef order, so the dictionary is walked forward rather than randomly sought
+            SortedTermsWalker walker = new SortedTermsWalker(ngramInfoIterator);
 
             for (String term : terms) {
                 try {
-                    if (ngramInfoIterator.seekExact(new BytesRef(term.getBytes("UTF-8")))) {
+                    if (walker.seekForward(new BytesRef(term))) {
                         PostingsEnum docEnum = ngramInfoIterator.postings(null);
                         int doc = 0;
                         while ((doc = docEnum.nextDoc()) != PostingsEnum.NO_MORE_DOCS) {
                             //tf in document
                             int tfid = docEnum.freq();
                             feature.increment(term, tfid);
-                            feature.incrementTermFrequencyInDocument(term, doc, tfid);
+                            feature.incrementTermFrequencyInDocument(term, docBase + doc, tfid);
                         }
                         totalSuccess++;
-                    } else {
-                        String warning = String.format("'%s'  is a candidate term, but not indexed in the n-gram " +
-                                "information field. It's score may be mis-computed. You may have used different text " +
-                                "analysis process (e.g., different tokenizers, different analysis order, limited " +
-                                "n-gram range) for the text-2-candidate-term and text-2-ngram fields.) ", term);
-                        LOG.warn(warning);
                     }
+                    //a candidate missing from one segment is expected; candidates missing from all segments are
+                    //reported by the master
 
                 } catch (IOException ioe) {
                     String error = String.format("Unable to build feature for candidate: '%s'. \\n Exception: %s",
@@ -0,0 +1,118 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.OutputStreamDataOutput;
+import uk.ac.shef.dcs.jate.JATEException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Merges {@link FrequencyTermBased} features built on different indexes (e.g., the shards of a distributed
+ * collection) into the feature of the whole corpus.
+ * <p>
+ * Each shard encodes its partial statistics with {@link #encode(FrequencyTermBased, int)}: for every term its total
+ * frequency and its frequency in each document, delta and variable-length encoded. Partials are merged in shard order;
+ * document ids of a shard are shifted by the total maxDoc of the shards merged before it, so that documents of
+ * different shards remain distinct and document frequencies add up.
+ */
+public class FrequencyTermBasedMerger {
+    private static final int VERSION = 1;
+
+    private final FrequencyTermBased merged = new FrequencyTermBased();
+    private int docBase = 0;
+    private int totalDocs = 0;
+
+    /**
+     * @param feature feature built on the index of a shard
+     * @param maxDoc  maxDoc of the searcher the feature was built with
+     * @return byte[] partial statistics of the shard
+     * @throws JATEException
+     */
+    public static byte[] encode(FrequencyTermBased feature, int maxDoc) throws JATEException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            OutputStreamDataOutput out = new OutputStreamDataOutput(bytes);
+            out.writeVInt(VERSION);
+            out.writeVInt(feature.getTotalDocs());
+            out.writeVInt(maxDoc);
+            Map<String, Integer> term2TTF = feature.getMapTerm2TTF();
+            out.writeVInt(term2TTF.size());
+            for (Map.Entry<String, Integer> en : term2TTF.entrySet()) {
+                out.writeString(en.getKey());
+                out.writeVInt(en.getValue());
+                Map<Integer, Integer> docFreqs = feature.getTermFrequencyInDocument(en.getKey());
+                if (docFreqs == null) {
+                    out.writeVInt(0);
+                    continue;
+                }
+                int[] docs = new int[docFreqs.size()];
+                int i = 0;
+                for (int doc : docFreqs.keySet())
+                    docs[i++] = doc;
+                Arrays.sort(docs);
+                out.writeVInt(docs.length);
+                int previous = 0;
+                for (int doc : docs) {
+                    out.writeVInt(doc - previous);
+                    out.writeVInt(docFreqs.get(doc));
+                    previous = doc;
+                }
+            }
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException ioe) {
+            StringBuilder sb = new StringBuilder("Failed to encode term frequencies: ");
+            sb.append(ioe.toString());
+            throw new JATEException(sb.toString());
+        }
+    }
+
+    /**
+     * Add the partial statistics of the next shard.
+     *
+     * @param partial statistics encoded by {@link #encode(FrequencyTermBased, int)}
+     * @throws JATEException if the data is not valid
+     */
+    public void merge(byte[] partial) throws JATEException {
+        ByteArrayDataInput in = new ByteArrayDataInput(partial);
+        int version = in.readVInt();
+        if (version != VERSION) {
+            StringBuilder sb = new StringBuilder("Unsupported version of partial term frequencies: ");
+            sb.append(version);
+            throw new JATEException(sb.toString());
+        }
+        totalDocs += in.readVInt();
+        int maxDoc = in.readVInt();
+        int terms = in.readVInt();
+        try {
+            for (int t = 0; t < terms; t++) {
+                String term = in.readString();
+                merged.increment(term, in.readVInt());
+                int docs = in.readVInt();
+                int doc = 0;
+                for (int d = 0; d < docs; d++) {
+                    doc += in.readVInt();
+                    merged.incrementTermFrequencyInDocument(term, docBase + doc, in.readVInt());
+                }
+            }
+        } catch (IOException ioe) {
+            StringBuilder sb = new StringBuilder("Failed to decode partial term frequencies: ");
+            sb.append(ioe.toString());
+            throw new JATEException(sb.toString());
+        }
+        if (!in.eof())
+            throw new JATEException("Unexpected trailing data in partial term frequencies.");
+        docBase += maxDoc;
+    }
+
+    /**
+     * @return FrequencyTermBased the merged feature. No more partials should be merged once it is used.
+     */
+    public FrequencyTermBased getMerged() {
+        merged.setTotalDocs(totalDocs);
+        return merged;
+    }
+}
@@ -0,0 +1,121 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import uk.ac.shef.dcs.jate.JATEException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a binary reference frequency file written by {@link TTFReferenceBinaryConverter}. The file is
+ * memory mapped, so opening it costs no parsing and its pages are shared through the OS page cache by all JVMs on the
+ * same host. Words are looked up by binary search over their UTF-8 bytes.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int magic, int version, int count, long corpusTotal, double meanTTFNorm, double nullWordProb,
+ * int[count + 1] word offsets into the word bytes, int[count] frequencies, byte[] word bytes (sorted, UTF-8)
+ * </pre>
+ * Only absolute reads are made on the shared buffer, so instances are thread-safe.
+ */
+class MappedTTFReference {
+    static final int MAGIC = 0x4A545446; //"JTTF"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 8 + 8;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final long corpusTotal;
+    private final double meanTTFNorm;
+    private final double nullWordProb;
+    private final int offsetsStart;
+    private final int frequenciesStart;
+    private final int wordsStart;
+
+    private MappedTTFReference(ByteBuffer buffer) throws JATEException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new JATEException("Not a binary reference frequency file of version " + VERSION);
+        this.count = buffer.getInt(8);
+        this.corpusTotal = buffer.getLong(12);
+        this.meanTTFNorm = buffer.getDouble(20);
+        this.nullWordProb = buffer.getDouble(28);
+        this.offsetsStart = HEADER_BYTES;
+        this.frequenciesStart = offsetsStart + (count + 1) * 4;
+        this.wordsStart = frequenciesStart + count * 4;
+    }
+
+    static MappedTTFReference open(Path path) throws JATEException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedTTFReference(buffer);
+        } catch (IOException e) {
+            StringBuilder sb = new StringBuilder("Failed to map reference frequency file ");
+            sb.append(path).append(": ").append(e.getMessage());
+            throw new JATEException(sb.toString());
+        }
+    }
+
+    /**
+     * @return true if the file starts with the magic number of the binary format
+     */
+    static boolean isBinary(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            while (head.hasRemaining() && channel.read(head) != -1) ;
+            return !head.hasRemaining() && head.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    int getTTF(String word) {
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int low = 0, high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareWord(mid, key);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return buffer.getInt(frequenciesStart + mid * 4);
+        }
+        return 0;
+    }
+
+    //unsigned byte order, the order the converter sorts in
+    private int compareWord(int index, byte[] key) {
+        int start = wordsStart + buffer.getInt(offsetsStart + index * 4);
+        int end = wordsStart + buffer.getInt(offsetsStart + (index + 1) * 4);
+        int len = end - start;
+        int n = Math.min(len, key.length);
+        for (int i = 0; i < n; i++) {
+            int diff = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (diff != 0)
+                return diff;
+        }
+        return len - key.length;
+    }
+
+    int size() {
+        return count;
+    }
+
+    long getCorpusTotal() {
+        return corpusTotal;
+    }
+
+    double getMeanTTFNorm() {
+        return meanTTFNorm;
+    }
+
+    double getNullWordProb() {
+        return nullWordProb;
+    }
+}
@@ -0,0 +1,172 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.apache.log4j.Logger;
+import uk.ac.shef.dcs.jate.JATEException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A reference corpus, together with the statistics that reference based algorithms derive from it: the mean
+ * normalised word frequency (used to match orders of magnitude with the target corpus) and the probability given to
+ * words not found in the reference.
+ * <p>
+ * A corpus is loaded from either a frequency text file (see {@link TTFReferenceFeatureFileBuilder}) or its binary,
+ * memory-mapped form (see {@link TTFReferenceBinaryConverter}). Loaded corpora are kept per file and shared by all
+ * extractions in the JVM, e.g., across requests of the Solr plugin. A cached corpus is reloaded only when its file is
+ * modified. The frequencies must not be modified once loaded.
+ */
+public class ReferenceCorpus extends AbstractFeature {
+    private static final Logger LOG = Logger.getLogger(ReferenceCorpus.class.getName());
+
+    private static final Map<String, ReferenceCorpus> LOADED = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final long lastModified;
+    private final long length;
+    //exactly one of the two is set
+    private final FrequencyTermBased frequencies;
+    private final MappedTTFReference mapped;
+    private final long corpusTotal;
+    private final double meanTTFNorm;
+    private final double nullWordProb;
+
+    private ReferenceCorpus(String path, long lastModified, long length, FrequencyTermBased frequencies) {
+        this.path = path;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.frequencies = frequencies;
+        this.mapped = null;
+        this.corpusTotal = frequencies.getCorpusTotal();
+        this.meanTTFNorm = meanTTFNorm(frequencies);
+        this.nullWordProb = minTTFNorm(frequencies);
+    }
+
+    private ReferenceCorpus(String path, long lastModified, long length, MappedTTFReference mapped) {
+        this.path = path;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.frequencies = null;
+        this.mapped = mapped;
+        this.corpusTotal = mapped.getCorpusTotal();
+        this.meanTTFNorm = mapped.getMeanTTFNorm();
+        this.nullWordProb = mapped.getNullWordProb();
+    }
+
+    /**
+     * Get the reference corpus of a frequency file, loading it if it is not loaded yet or the file changed since.
+     *
+     * @param refStatsPath file path to the reference corpus statistics file, text or binary
+     * @return ReferenceCorpus
+     * @throws JATEException if the file cannot be read
+     */
+    public static synchronized ReferenceCorpus load(String refStatsPath) throws JATEException {
+        File file = new File(refStatsPath);
+        String key;
+        try {
+            key = file.getCanonicalPath();
+        } catch (IOException e) {
+            key = file.getAbsolutePath();
+        }
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        ReferenceCorpus cached = LOADED.get(key);
+        if (cached != null && cached.lastModified == lastModified && cached.length == length)
+            return cached;
+
+        ReferenceCorpus corpus;
+        if (MappedTTFReference.isBinary(file.toPath())) {
+            LOG.info("Mapping binary reference corpus from " + key);
+            corpus = new ReferenceCorpus(key, lastModified, length, MappedTTFReference.open(file.toPath()));
+        } else {
+            LOG.info("Loading reference corpus from " + key);
+            FrequencyTermBased frequencies = new TTFReferenceFeatureFileBuilder(refStatsPath).build();
+            corpus = new ReferenceCorpus(key, lastModified, length, frequencies);
+        }
+        LOADED.put(key, corpus);
+        return corpus;
+    }
+
+    /**
+     * Get the reference corpus of a reference feature. Features returned by {@link #getFrequencies()} of a loaded
+     * corpus reuse its precomputed statistics; any other feature is computed afresh.
+     *
+     * @param frequencies reference word frequencies
+     * @return ReferenceCorpus
+     */
+    public static ReferenceCorpus of(FrequencyTermBased frequencies) {
+        for (ReferenceCorpus corpus : LOADED.values()) {
+            if (corpus.frequencies == frequencies)
+                return corpus;
+        }
+        return new ReferenceCorpus(null, 0, 0, frequencies);
+    }
+
+    /**
+     * @param feature word frequencies
+     * @return double the mean of {@link FrequencyTermBased#getTTFNorm(String)} over all words in the feature
+     */
+    public static double meanTTFNorm(FrequencyTermBased feature) {
+        double norm = (double) feature.getCorpusTotal() + 1;
+        double totalScore = 0, totalWords = 0;
+        for (int ttf : feature.getMapTerm2TTF().values()) {
+            totalWords++;
+            totalScore += ttf / norm;
+        }
+        return totalScore / totalWords;
+    }
+
+    static double minTTFNorm(FrequencyTermBased feature) {
+        if (feature.getMapTerm2TTF().isEmpty())
+            return 0.1;
+        int min = Integer.MAX_VALUE;
+        for (int ttf : feature.getMapTerm2TTF().values())
+            min = Math.min(min, ttf);
+        return (double) min / feature.getCorpusTotal();
+    }
+
+    /**
+     * @return String canonical path of the loaded file, or null if the corpus was not loaded from a file
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return FrequencyTermBased the reference word frequencies, or null if the corpus is memory-mapped from a
+     * binary file
+     */
+    public FrequencyTermBased getFrequencies() {
+        return frequencies;
+    }
+
+    /**
+     * @param word word
+     * @return int total frequency of the word in the reference corpus, 0 if not found
+     */
+    public int getTTF(String word) {
+        return mapped != null ? mapped.getTTF(word) : frequencies.getTTF(word);
+    }
+
+    public long getCorpusTotal() {
+        return corpusTotal;
+    }
+
+    /**
+     * @return double mean normalised word frequency in the reference corpus
+     */
+    public double getMeanTTFNorm() {
+        return meanTTFNorm;
+    }
+
+    /**
+     * @return double the probability of a word not found in the reference corpus, which is the probability of the
+     * least frequent word
+     */
+    public double getNullWordProb() {
+        return nullWordProb;
+    }
+}
@@ -0,0 +1,324 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.analysis.jate.SentenceContext;
+import org.apache.lucene.index.*;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Collects the occurrences of candidate terms (or words) in documents, with their sentence contexts, from the n-gram
+ * info field (see {@link SentenceContext}).
+ * <p>
+ * If every segment stores term vectors for the field, the occurrences of a document are read from its term vector.
+ * Otherwise they are read from the payloads of the field's postings (see {@link #batch(List)}), so that the field
+ * only needs to be indexed with positions and payloads (no termVectors, termPositions, termOffsets or termPayloads),
+ * which keeps the index much smaller. Offsets are -1 in that case, unless the field stores offsets with positions.
+ * <p>
+ * Thread-safe. Workers of a feature builder share one collector, each collecting the batches it got from
+ * {@link #batch(List)}.
+ */
+class SentenceContextCollector {
+    private static final Logger LOG = Logger.getLogger(SentenceContextCollector.class.getName());
+
+    //documents whose occurrences are collected at once, bounding the memory used by a worker
+    static final int DOCS_PER_BATCH = 2000;
+
+    private final IndexReader indexReader;
+    private final String fieldname;
+    private final int docsPerBatch;
+    private final Set<String> candidates;
+    private final String[] candidateStrings;
+    private final BytesRef[] sortedCandidates;
+    private final boolean readTermVectors;
+
+    /**
+     * @param indexReader      index reader, e.g., of a solr index searcher
+     * @param fieldname        n-gram info field, whose tokens carry sentence context payloads
+     * @param sortedCandidates candidates to collect, in terms dictionary order
+     * @see AbstractFeatureBuilder#sortInTermsDictionaryOrder(Collection)
+     */
+    SentenceContextCollector(IndexReader indexReader, String fieldname, List<String> sortedCandidates) {
+        this(indexReader, fieldname, sortedCandidates, DOCS_PER_BATCH);
+    }
+
+    SentenceContextCollector(IndexReader indexReader, String fieldname, List<String> sortedCandidates,
+                             int docsPerBatch) {
+        this.indexReader = indexReader;
+        this.fieldname = fieldname;
+        this.docsPerBatch = docsPerBatch;
+        this.candidates = new HashSet<>(sortedCandidates);
+        this.candidateStrings = sortedCandidates.toArray(new String[sortedCandidates.size()]);
+        this.sortedCandidates = new BytesRef[candidateStrings.length];
+        for (int i = 0; i < this.sortedCandidates.length; i++)
+            this.sortedCandidates[i] = new BytesRef(candidateStrings[i]);
+
+        boolean vectors = true, payloads = false;
+        for (LeafReaderContext leaf : indexReader.leaves()) {
+            FieldInfo info = leaf.reader().getFieldInfos().fieldInfo(fieldname);
+            if (info == null)
+                continue;
+            vectors &= info.hasVectors();
+            payloads |= info.hasPayloads();
+        }
+        this.readTermVectors = vectors;
+        if (readTermVectors) {
+            LOG.info("Reading sentence contexts from the term vectors of field " + fieldname);
+        } else {
+            LOG.info("Reading sentence contexts from the postings payloads of field " + fieldname);
+            if (!payloads)
+                LOG.warn("Field " + fieldname + " has neither term vectors nor payloads in its postings. Check that its " +
+                        "analyzer chain produces SentenceContext payloads.");
+        }
+    }
+
+    boolean isReadingTermVectors() {
+        return readTermVectors;
+    }
+
+    /**
+     * Split documents into batches of at most {@link #DOCS_PER_BATCH} documents to {@link #collect(Batch)} their
+     * occurrences, in order. Reading from postings, the documents of a batch are in one segment, in doc id order, and
+     * the batches of a segment share one PostingsEnum per candidate, which each batch advances to its first document:
+     * the candidates are sought once per segment, rather than once per batch, which is quadratic on large indexes.
+     *
+     * @param docIds documents (top-level doc ids) of a worker
+     * @return List, batches of documents, to be collected by the calling worker only
+     */
+    List<Batch> batch(List<Integer> docIds) {
+        List<Batch> batches = new ArrayList<>();
+        if (readTermVectors) {
+            for (int from = 0; from < docIds.size(); from += docsPerBatch) {
+                List<Integer> batch = docIds.subList(from, Math.min(docIds.size(), from + docsPerBatch));
+                batches.add(new Batch(toArray(batch, 0, batch.size()), null, false));
+            }
+            return batches;
+        }
+
+        List<Integer> sorted = new ArrayList<>(docIds);
+        Collections.sort(sorted);
+        List<LeafReaderContext> leaves = indexReader.leaves();
+        int from = 0;
+        while (from < sorted.size()) {
+            LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(sorted.get(from), leaves));
+            int leafEnd = leaf.docBase + leaf.reader().maxDoc();
+            int segmentEnd = from;
+            while (segmentEnd < sorted.size() && sorted.get(segmentEnd) < leafEnd)
+                segmentEnd++;
+            SegmentPostings segment = new SegmentPostings(leaf);
+            for (int batchStart = from; batchStart < segmentEnd; batchStart += docsPerBatch) {
+                int to = Math.min(segmentEnd, batchStart + docsPerBatch);
+                batches.add(new Batch(toArray(sorted, batchStart, to), segment, to == segmentEnd));
+            }
+            from = segmentEnd;
+        }
+        return batches;
+    }
+
+    private static int[] toArray(List<Integer> docIds, int from, int to) {
+        int[] docs = new int[to - from];
+        for (int i = 0; i < docs.length; i++)
+            docs[i] = docIds.get(from + i);
+        return docs;
+    }
+
+    /**
+     * @param batch documents to collect the occurrences from, a batch of {@link #batch(List)}
+     * @return Map, for each document with candidates, the occurrences of candidates in the document, ordered by
+     * sentence id, then first token index, then last token index
+     * @throws IOException
+     */
+    Map<Integer, List<MWEInSentence>> collect(Batch batch) throws IOException {
+        Map<Integer, List<MWEInSentence>> result = new HashMap<>();
+        if (readTermVectors)
+            collectFromTermVectors(batch, result);
+        else
+            collectFromPostings(batch, result);
+        for (List<MWEInSentence> occurrences : result.values())
+            Collections.sort(occurrences);
+        return result;
+    }
+
+    private void collectFromTermVectors(Batch batch, Map<Integer, List<MWEInSentence>> result)
+            throws IOException {
+        PostingsEnum postingsEnum = null;
+        for (int docId : batch.docs) {
+            Terms vector = indexReader.getTermVector(docId, fieldname);
+            if (vector == null)
+                continue;
+            TermsEnum tiRef = vector.iterator();
+            BytesRef luceneTerm;
+            while ((luceneTerm = tiRef.next()) != null) {
+                if (luceneTerm.length == 0)
+                    continue;
+                String tString = luceneTerm.utf8ToString();
+                if (!candidates.contains(tString))
+                    continue;
+
+                postingsEnum = tiRef.postings(postingsEnum, PostingsEnum.ALL);
+                //a term vector has just 1 doc
+                if (postingsEnum.nextDoc() != PostingsEnum.NO_MORE_DOCS)
+                    addOccurrences(tString, postingsEnum, docId, result);
+            }
+        }
+    }
+
+    /**
+     * Read the postings of all candidates in the segment of a batch, for the documents of the batch. The postings of
+     * the segment are opened by its first batch, and released after its last.
+     */
+    private void collectFromPostings(Batch batch, Map<Integer, List<MWEInSentence>> result) throws IOException {
+        SegmentPostings segment = batch.segment;
+        if (segment.postings == null)
+            segment.postings = openPostings(segment.leaf);
+        int[] docs = batch.docs;
+        int docBase = segment.leaf.docBase;
+        int firstDoc = docs[0] - docBase;
+        for (int c = 0; c < segment.postings.length; c++) {
+            PostingsEnum postingsEnum = segment.postings[c];
+            if (postingsEnum == null)
+                continue;
+            //the enum is on the first document of the candidate not before the previous batch's end, or unpositioned
+            int doc = postingsEnum.docID();
+            if (doc < firstDoc)
+                doc = postingsEnum.advance(firstDoc);
+            int i = 0;
+            while (doc != PostingsEnum.NO_MORE_DOCS) {
+                while (i < docs.length && docs[i] - docBase < doc)
+                    i++;
+                if (i == docs.length)
+                    break;
+                int target = docs[i] - docBase;
+                if (target == doc) {
+                    addOccurrences(candidateStrings[c], postingsEnum, docs[i], result);
+                    doc = postingsEnum.nextDoc();
+                } else {
+                    doc = postingsEnum.advance(target);
+                }
+            }
+            if (doc == PostingsEnum.NO_MORE_DOCS)
+                segment.postings[c] = null;
+        }
+        if (batch.lastOfSegment)
+            segment.postings = null;
+    }
+
+    /**
+     * @return the postings of each candidate in the segment, null for candidates not in it
+     */
+    private PostingsEnum[] openPostings(LeafReaderContext leaf) throws IOException {
+        PostingsEnum[] postings = new PostingsEnum[sortedCandidates.length];
+        Terms terms = leaf.reader().terms(fieldname);
+        if (terms == null)
+            return postings;
+        TermsEnum termsEnum = terms.iterator();
+        SortedTermsWalker walker = new SortedTermsWalker(termsEnum);
+        for (int c = 0; c < sortedCandidates.length; c++) {
+            if (sortedCandidates[c].length == 0 || !walker.seekForward(sortedCandidates[c]))
+                continue;
+            postings[c] = termsEnum.postings(null, PostingsEnum.ALL);
+        }
+        return postings;
+    }
+
+    /**
+     * Documents (top-level doc ids) whose occurrences are collected at once
+     */
+    static class Batch extends AbstractList<Integer> {
+        private final int[] docs;
+        //postings of the segment of the documents, shared by its batches; null when reading term vectors
+        private final SegmentPostings segment;
+        private final boolean lastOfSegment;
+
+        private Batch(int[] docs, SegmentPostings segment, boolean lastOfSegment) {
+            this.docs = docs;
+            this.segment = segment;
+            this.lastOfSegment = lastOfSegment;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return docs[index];
+        }
+
+        @Override
+        public int size() {
+            return docs.length;
+        }
+    }
+
+    private static class SegmentPostings {
+        private final LeafReaderContext leaf;
+        //by candidate index, null for candidates not in the segment or whose postings are exhausted
+        private PostingsEnum[] postings;
+
+        private SegmentPostings(LeafReaderContext leaf) {
+            this.leaf = leaf;
+        }
+    }
+
+    private void addOccurrences(String tString, PostingsEnum postingsEnum, int docId,
+                                Map<Integer, List<MWEInSentence>> result) throws IOException {
+        List<MWEInSentence> occurrences = result.get(docId);
+        if (occurrences == null) {
+            occurrences = new ArrayList<>();
+            result.put(docId, occurrences);
+        }
+        int totalOccurrence = postingsEnum.freq();
+        for (int i = 0; i < totalOccurrence; i++) {
+            postingsEnum.nextPosition();
+            int start = postingsEnum.startOffset();
+            int end = postingsEnum.endOffset();
+            BytesRef payload = postingsEnum.getPayload();
+            if (payload == null) {
+                occurrences.add(new MWEInSentence(tString, start, end, 0, 0, 0));
+            } else {
+                SentenceContext sentenceContextInfo = new SentenceContext(payload.utf8ToString());
+                occurrences.add(new MWEInSentence(tString, start, end,
+                        sentenceContextInfo.getFirstTokenIdx(),
+                        sentenceContextInfo.getLastTokenIdx(),
+                        sentenceContextInfo.getSentenceId()));
+            }
+        }
+    }
+
+    /**
+     * An occurrence of a candidate in a document
+     */
+    static class MWEInSentence implements Comparable<MWEInSentence> {
+        public String string;
+        public int sentenceId;
+        public int firstTokenIndex;
+        public int lastTokenIndex;
+        public int start;
+        public int end;
+
+        public MWEInSentence(String string, int start, int end,
+                             int firstTokenIndex, int lastTokenIndex, int sentenceId) {
+            this.string = string;
+            this.sentenceId = sentenceId;
+            this.start = start;
+            this.end = end;
+            this.firstTokenIndex = firstTokenIndex;
+            this.lastTokenIndex = lastTokenIndex;
+        }
+
+        @Override
+        public int compareTo(MWEInSentence o) {
+            int compare = Integer.compare(sentenceId, o.sentenceId);
+            if (compare == 0)
+                compare = Integer.compare(firstTokenIndex, o.firstTokenIndex);
+            if (compare == 0)
+                compare = Integer.compare(lastTokenIndex, o.lastTokenIndex);
+            if (compare == 0)
+                compare = Integer.compare(start, o.start);
+            return compare;
+        }
+
+        public String toString() {
+            return "st=" + sentenceId + ",f=" + firstTokenIndex + ",l=" + lastTokenIndex + ",so=" + start + ",se=" + end;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+
+/**
+ * Positions a {@link TermsEnum} on a sequence of target terms that are given in ascending BytesRef order.
+ * <p>
+ * Rather than calling {@code seekExact} for every target (which starts each lookup from the root of the terms
+ * dictionary), the enum is only ever moved forward: close targets are reached with a few {@code next()} calls, and
+ * larger gaps are crossed with {@code seekCeil}. Reads on the terms dictionary therefore become sequential.
+ * <p>
+ * Not thread-safe. Each worker thread should create its own walker over its own TermsEnum.
+ *
+ * @see AbstractFeatureBuilder#sortInTermsDictionaryOrder(java.util.Collection)
+ */
+class SortedTermsWalker {
+
+    //number of next() calls attempted before falling back to seekCeil
+    private static final int MAX_NEXT_BEFORE_SEEK = 8;
+
+    private final TermsEnum termsEnum;
+    private BytesRef current;
+    private boolean exhausted = false;
+
+    SortedTermsWalker(TermsEnum termsEnum) {
+        this.termsEnum = termsEnum;
+    }
+
+    /**
+     * Move the enum to the target term.
+     *
+     * @param target term to position on. Must not be smaller than the target of the previous call
+     * @return true if the target exists, in which case the enum is positioned on it (e.g., postings can be read)
+     * @throws IOException
+     */
+    boolean seekForward(BytesRef target) throws IOException {
+        if (exhausted)
+            return false;
+
+        if (current != null) {
+            int cmp = current.compareTo(target);
+            int steps = 0;
+            while (cmp < 0 && steps < MAX_NEXT_BEFORE_SEEK) {
+                current = termsEnum.next();
+                if (current == null) {
+                    exhausted = true;
+                    return false;
+                }
+                cmp = current.compareTo(target);
+                steps++;
+            }
+            if (cmp == 0)
+                return true;
+            if (cmp > 0)
+                return false; //already passed the target, so it is not in the dictionary
+        }
+
+        TermsEnum.SeekStatus status = termsEnum.seekCeil(target);
+        if (status == TermsEnum.SeekStatus.END) {
+            exhausted = true;
+            current = null;
+            return false;
+        }
+        current = termsEnum.term();
+        return status == TermsEnum.SeekStatus.FOUND;
+    }
+}
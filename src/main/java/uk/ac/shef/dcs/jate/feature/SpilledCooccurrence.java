@@ -0,0 +1,495 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A {@link Cooccurrence} whose matrix is kept on disk rather than in heap, for corpora whose co-occurrence matrix does
+ * not fit in memory.
+ * <p>
+ * While the feature is built, each thread adds (target term id, reference term id, count) triples to its own buffer,
+ * where counts of the same pair are summed. A full buffer is sorted and spilled to a run file. {@link #merge()} then
+ * merges the sorted runs (k-way) into one matrix file, in which each row is compressed as variable length integers,
+ * with reference term ids delta-encoded. Only the file offset of each row is kept in memory, and a row is read when
+ * it is looked up.
+ * <p>
+ * Corrections of double counting ({@link #deduce(int, int, int)}) are spilled as negative counts. As they follow all
+ * increments, a merged count is the sum of all counts of a pair, but not less than 0.
+ *
+ * @see CooccurrenceFBMaster
+ */
+public class SpilledCooccurrence extends Cooccurrence {
+    private static final Logger LOG = Logger.getLogger(SpilledCooccurrence.class.getName());
+
+    //pairs buffered by a thread before they are spilled to a run
+    public static final int DEFAULT_MAX_PAIRS_PER_RUN = 1 << 18;
+    //runs read at once by a merge pass, bounding open files and read buffers
+    static final int MAX_MERGE_FAN_IN = 64;
+
+    private final Path spillDir;
+    private final int maxPairsPerRun;
+
+    //guarded by this
+    private final List<RunBuffer> buffers = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private final ThreadLocal<RunBuffer> buffer = ThreadLocal.withInitial(this::newBuffer);
+
+    private Path matrixFile;
+    private FileChannel matrix;
+    private long[] rowOffsets;
+
+    /**
+     * @param spillDir       directory of run files, deleted once merged, and of the matrix file, deleted by
+     *                       {@link #close()}
+     * @param maxPairsPerRun pairs each thread buffers in memory before spilling them to a run file
+     * @throws IOException if the directory cannot be created
+     */
+    public SpilledCooccurrence(File spillDir, int maxPairsPerRun) throws IOException {
+        super();
+        this.spillDir = Files.createDirectories(spillDir.toPath());
+        this.maxPairsPerRun = maxPairsPerRun;
+    }
+
+    private synchronized RunBuffer newBuffer() {
+        RunBuffer b = new RunBuffer(maxPairsPerRun);
+        buffers.add(b);
+        return b;
+    }
+
+    @Override
+    protected void increment(int termIdx, int refTermIdx, int freq) {
+        add(termIdx, refTermIdx, freq);
+    }
+
+    @Override
+    void deduce(int rowIndex, int colIndex, int value) {
+        add(rowIndex, colIndex, -value);
+    }
+
+    private void add(int termIdx, int refTermIdx, int freq) {
+        if (matrix != null)
+            throw new IllegalStateException("Co-occurrences have already been merged");
+        RunBuffer b = buffer.get();
+        b.add(((long) termIdx << 32) | refTermIdx, freq);
+        if (b.size() >= maxPairsPerRun) {
+            try {
+                spill(b);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }
+    }
+
+    private void spill(RunBuffer b) throws IOException {
+        Path run = Files.createTempFile(spillDir, "cooccurrence-run", ".bin");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+            b.writeSorted(out);
+        }
+        b.clear();
+        synchronized (this) {
+            runs.add(run);
+        }
+    }
+
+    /**
+     * Spill what is left in the buffers of all threads, and merge the runs into the matrix file. To be called once,
+     * after all threads adding counts have finished. At most {@link #MAX_MERGE_FAN_IN} runs are open at once: more
+     * runs are first merged into fewer, larger runs, in as many passes as needed.
+     *
+     * @throws IOException
+     */
+    public synchronized void merge() throws IOException {
+        if (matrix != null)
+            throw new IllegalStateException("Co-occurrences have already been merged");
+        for (RunBuffer b : buffers) {
+            if (b.size() > 0)
+                spill(b);
+            b.release();
+        }
+        buffers.clear();
+        buffer.remove();
+
+        long start = System.currentTimeMillis();
+        int spilledRuns = runs.size(), passes = 0;
+        while (runs.size() > MAX_MERGE_FAN_IN) {
+            List<Path> merged = new ArrayList<>();
+            try {
+                for (int from = 0; from < runs.size(); from += MAX_MERGE_FAN_IN) {
+                    List<Path> group = runs.subList(from, Math.min(from + MAX_MERGE_FAN_IN, runs.size()));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    Path run = Files.createTempFile(spillDir, "cooccurrence-run", ".bin");
+                    merged.add(run);
+                    try (RunWriter writer = new RunWriter(run)) {
+                        mergeRuns(group, writer);
+                    }
+                    for (Path p : group)
+                        Files.deleteIfExists(p);
+                }
+            } catch (IOException ioe) {
+                //so that close() deletes the runs of the failed pass too
+                runs.addAll(merged);
+                throw ioe;
+            }
+            runs.clear();
+            runs.addAll(merged);
+            passes++;
+        }
+
+        matrixFile = Files.createTempFile(spillDir, "cooccurrence", ".bin");
+        MatrixWriter writer;
+        try (MatrixWriter w = new MatrixWriter(matrixFile, termCounter + 1)) {
+            writer = w;
+            mergeRuns(runs, writer);
+        } finally {
+            for (Path run : runs)
+                Files.deleteIfExists(run);
+            runs.clear();
+        }
+        rowOffsets = writer.rowOffsets;
+
+        matrix = FileChannel.open(matrixFile, StandardOpenOption.READ);
+        StringBuilder sb = new StringBuilder("Merged ");
+        sb.append(spilledRuns).append(" co-occurrence runs in ").append(passes + 1).append(" passes into ")
+                .append(writer.pairs).append(" pairs (").append(matrix.size()).append(" bytes) in ")
+                .append(System.currentTimeMillis() - start).append(" ms");
+        LOG.info(sb.toString());
+    }
+
+    /**
+     * k-way merge of sorted runs, passing each pair to the sink once, with its counts in all runs summed
+     */
+    private static void mergeRuns(List<Path> group, PairSink sink) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, group.size()),
+                (r1, r2) -> Long.compare(r1.key, r2.key));
+        try {
+            for (Path run : group) {
+                RunReader reader = new RunReader(run);
+                if (reader.next())
+                    queue.add(reader);
+                else
+                    reader.close();
+            }
+
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                long key = reader.key;
+                long count = reader.count;
+                if (reader.next())
+                    queue.add(reader);
+                else
+                    reader.close();
+                while (!queue.isEmpty() && queue.peek().key == key) {
+                    RunReader same = queue.poll();
+                    count += same.count;
+                    if (same.next())
+                        queue.add(same);
+                    else
+                        same.close();
+                }
+                sink.accept(key, count);
+            }
+        } finally {
+            for (RunReader reader : queue)
+                reader.close();
+        }
+    }
+
+    private static void writeRow(CountingOutputStream out, int[] refIds, int[] counts, int size) throws IOException {
+        writeVInt(out, size);
+        int prev = 0;
+        for (int i = 0; i < size; i++) {
+            writeVInt(out, refIds[i] - prev);
+            writeVInt(out, counts[i]);
+            prev = refIds[i];
+        }
+    }
+
+    @Override
+    Map<Integer, Integer> getCooccurrence(int index) {
+        if (matrix == null)
+            throw new IllegalStateException("Co-occurrences must be merged before they are read");
+        Map<Integer, Integer> result = new HashMap<>();
+        if (index >= rowOffsets.length - 1)
+            return result;
+        int length = (int) (rowOffsets[index + 1] - rowOffsets[index]);
+        if (length == 0)
+            return result;
+
+        ByteBuffer row = ByteBuffer.allocate(length);
+        try {
+            //positional reads, so threads can read rows concurrently
+            long position = rowOffsets[index];
+            while (row.hasRemaining()) {
+                int read = matrix.read(row, position + row.position());
+                if (read < 0)
+                    throw new EOFException("Co-occurrence matrix ends within row " + index);
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+        row.flip();
+
+        int size = readVInt(row);
+        int refIdx = 0;
+        for (int i = 0; i < size; i++) {
+            refIdx += readVInt(row);
+            result.put(refIdx, readVInt(row));
+        }
+        return result;
+    }
+
+    /**
+     * Close and delete the matrix file, and any run file left by a build that failed
+     */
+    public synchronized void close() throws IOException {
+        if (matrix != null)
+            matrix.close();
+        if (matrixFile != null)
+            Files.deleteIfExists(matrixFile);
+        for (Path run : runs)
+            Files.deleteIfExists(run);
+        runs.clear();
+    }
+
+    private static void writeVLong(OutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static void writeVInt(OutputStream out, int v) throws IOException {
+        writeVLong(out, v & 0xFFFFFFFFL);
+    }
+
+    private static long readVLong(int first, DataInput in) throws IOException {
+        long v = first & 0x7F;
+        for (int shift = 7, b = first; (b & 0x80) != 0; shift += 7) {
+            b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+        }
+        return v;
+    }
+
+    private static int readVInt(ByteBuffer in) {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return v;
+        }
+    }
+
+    /**
+     * Pairs of one thread, keyed by (term id, reference term id), with their summed counts. An open addressing hash
+     * table, so that pairs are not boxed.
+     */
+    static final class RunBuffer {
+        private static final long EMPTY = -1L;
+
+        private long[] keys;
+        private long[] counts;
+        private int size;
+
+        RunBuffer(int maxPairs) {
+            int capacity = Integer.highestOneBit(Math.max(2, maxPairs) - 1) << 2;
+            keys = new long[capacity];
+            counts = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(long key, long count) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key)
+                slot = (slot + 1) & mask;
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                size++;
+            }
+            counts[slot] += count;
+        }
+
+        /**
+         * Write the pairs ordered by key, each as the delta to the previous key and the zig-zag encoded count
+         */
+        void writeSorted(OutputStream out) throws IOException {
+            long[] sorted = new long[size];
+            int n = 0;
+            for (long key : keys) {
+                if (key != EMPTY)
+                    sorted[n++] = key;
+            }
+            Arrays.sort(sorted);
+            long prev = 0;
+            int mask = keys.length - 1;
+            for (long key : sorted) {
+                int slot = (int) mix(key) & mask;
+                while (keys[slot] != key)
+                    slot = (slot + 1) & mask;
+                writePair(out, key - prev, counts[slot]);
+                prev = key;
+            }
+        }
+
+        //the buffer may still be referenced by the thread local of a pool thread
+        void release() {
+            keys = null;
+            counts = null;
+        }
+
+        void clear() {
+            Arrays.fill(keys, EMPTY);
+            Arrays.fill(counts, 0);
+            size = 0;
+        }
+
+        private static long mix(long key) {
+            key *= 0x9E3779B97F4A7C15L;
+            return key ^ (key >>> 32);
+        }
+    }
+
+    private static void writePair(OutputStream out, long keyDelta, long count) throws IOException {
+        writeVLong(out, keyDelta);
+        writeVLong(out, (count << 1) ^ (count >> 63));
+    }
+
+    private interface PairSink {
+        void accept(long key, long count) throws IOException;
+    }
+
+    /**
+     * Reads the pairs of a run file in key order
+     */
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        long key;
+        long count;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+        }
+
+        boolean next() throws IOException {
+            int first = in.read();
+            if (first < 0)
+                return false;
+            key += readVLong(first, in);
+            long zigzag = readVLong(in.readUnsignedByte(), in);
+            count = (zigzag >>> 1) ^ -(zigzag & 1);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes merged pairs to a run file, for the next merge pass
+     */
+    private static final class RunWriter implements PairSink, Closeable {
+        private final OutputStream out;
+        private long prev;
+
+        RunWriter(Path run) throws IOException {
+            out = new BufferedOutputStream(Files.newOutputStream(run));
+        }
+
+        @Override
+        public void accept(long key, long count) throws IOException {
+            writePair(out, key - prev, count);
+            prev = key;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes merged pairs to the matrix file, one row of a target term after another
+     */
+    private static final class MatrixWriter implements PairSink, Closeable {
+        private final CountingOutputStream out;
+        private final int rows;
+        final long[] rowOffsets;
+        long pairs;
+        private int row = -1;
+        private int[] refIds = new int[16];
+        private int[] counts = new int[16];
+        private int rowSize;
+
+        MatrixWriter(Path matrixFile, int rows) throws IOException {
+            this.out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(matrixFile)));
+            this.rows = rows;
+            this.rowOffsets = new long[rows + 1];
+        }
+
+        @Override
+        public void accept(long key, long count) throws IOException {
+            int termIdx = (int) (key >>> 32);
+            if (termIdx != row) {
+                if (row != -1)
+                    writeRow(out, refIds, counts, rowSize);
+                //rows without co-occurrences are empty
+                while (row < termIdx)
+                    rowOffsets[++row] = out.count;
+                rowSize = 0;
+            }
+            if (rowSize == refIds.length) {
+                refIds = Arrays.copyOf(refIds, rowSize * 2);
+                counts = Arrays.copyOf(counts, rowSize * 2);
+            }
+            refIds[rowSize] = (int) key;
+            counts[rowSize] = (int) Math.max(0, Math.min(Integer.MAX_VALUE, count));
+            rowSize++;
+            pairs++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (row != -1)
+                    writeRow(out, refIds, counts, rowSize);
+                while (row < rows)
+                    rowOffsets[++row] = out.count;
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+    }
+}
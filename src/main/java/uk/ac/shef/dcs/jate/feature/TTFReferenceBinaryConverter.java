@@ -0,0 +1,71 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.util.BytesRef;
+import uk.ac.shef.dcs.jate.JATEException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compiles a reference frequency text file (see {@link TTFReferenceFeatureFileBuilder}) into the sorted binary format
+ * read by {@link MappedTTFReference}. {@link ReferenceCorpus#load(String)} accepts either format, so the binary file
+ * can be used wherever the text file is, e.g., as the reference frequency file parameter of the apps.
+ * <p>
+ * Usage: java uk.ac.shef.dcs.jate.feature.TTFReferenceBinaryConverter [text_file] [binary_file]
+ */
+public class TTFReferenceBinaryConverter {
+    private static final Logger LOG = Logger.getLogger(TTFReferenceBinaryConverter.class.getName());
+
+    public static void main(String[] args) throws JATEException {
+        if (args.length < 2) {
+            System.out.println("Usage: java uk.ac.shef.dcs.jate.feature.TTFReferenceBinaryConverter [text_file] [binary_file]");
+            System.exit(1);
+        }
+        convert(args[0], args[1]);
+    }
+
+    /**
+     * @param textPath   reference frequency file in the format of [freq_in_ref_corpus] [term] per line
+     * @param binaryPath file to write
+     * @throws JATEException if either file cannot be read or written
+     */
+    public static void convert(String textPath, String binaryPath) throws JATEException {
+        FrequencyTermBased frequencies = new TTFReferenceFeatureFileBuilder(textPath).build();
+
+        //sort by UTF-8 bytes, the order of binary search in MappedTTFReference
+        BytesRef[] words = new BytesRef[frequencies.getMapTerm2TTF().size()];
+        int i = 0;
+        for (String word : frequencies.getMapTerm2TTF().keySet())
+            words[i++] = new BytesRef(word);
+        Arrays.sort(words);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryPath)))) {
+            out.writeInt(MappedTTFReference.MAGIC);
+            out.writeInt(MappedTTFReference.VERSION);
+            out.writeInt(words.length);
+            out.writeLong(frequencies.getCorpusTotal());
+            out.writeDouble(ReferenceCorpus.meanTTFNorm(frequencies));
+            out.writeDouble(ReferenceCorpus.minTTFNorm(frequencies));
+
+            int offset = 0;
+            out.writeInt(offset);
+            for (BytesRef word : words) {
+                offset += word.length;
+                out.writeInt(offset);
+            }
+            for (BytesRef word : words)
+                out.writeInt(frequencies.getTTF(word.utf8ToString()));
+            for (BytesRef word : words)
+                out.write(word.bytes, word.offset, word.length);
+        } catch (IOException e) {
+            StringBuilder sb = new StringBuilder("Failed to write binary reference frequency file ");
+            sb.append(binaryPath).append(": ").append(e.getMessage());
+            throw new JATEException(sb.toString());
+        }
+        LOG.info("Converted " + words.length + " reference words from " + textPath + " to " + binaryPath);
+    }
+}
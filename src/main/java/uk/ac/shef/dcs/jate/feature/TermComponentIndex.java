@@ -1,33 +1,122 @@
 package uk.ac.shef.dcs.jate.feature;
 
-import org.apache.solr.common.util.Pair;
-
-import java.util.*;
+import java.util.Map;
 
 /**
- * Specific feature to be used by CValue for efficient computation
- * <p/>
- * The index is a map from uni-grams to a list of pairs. Each pair contains a candidate term containing that unigram and the length of the term in terms of
- * number of tokens (uni-grams) in that term
+ * Specific feature to be used by CValue (via Containment) and RAKE for efficient computation
+ * <p>
+ * The index maps uni-grams (tokens) to the candidate terms containing them. Tokens and candidates are identified by
+ * dense int ids. For each token, the ids of the candidates containing it are kept in an int array that is already
+ * sorted by candidate length (number of tokens) in descending order, and candidate lengths are kept in a parallel
+ * array indexed by candidate id. A candidate appears at most once in the postings of a token, even if the token is
+ * repeated in the candidate.
+ * <p>
+ * The index is immutable once built by {@link TermComponentIndexFBMaster}: lookups allocate nothing and can be shared
+ * by any number of threads. Arrays returned by the getters must not be modified.
  */
 public class TermComponentIndex extends AbstractFeature {
-    private Map<String, List<Pair<String, Integer>>> index = new HashMap<>();
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<String, Integer> token2Id;
+    private final String[] tokens;
+    private final Map<String, Integer> candidate2Id;
+    private final String[] candidates;
+    private final int[] candidateLengths;
+    private final int[][] candidateTokenIds;
+    //token id -> candidate ids, sorted by candidate length descending
+    private final int[][] postings;
+
+    TermComponentIndex(Map<String, Integer> token2Id, Map<String, Integer> candidate2Id, String[] candidates,
+                       int[] candidateLengths, int[][] candidateTokenIds, int[][] postings) {
+        this.token2Id = token2Id;
+        this.tokens = new String[token2Id.size()];
+        for (Map.Entry<String, Integer> en : token2Id.entrySet())
+            tokens[en.getValue()] = en.getKey();
+        this.candidate2Id = candidate2Id;
+        this.candidates = candidates;
+        this.candidateLengths = candidateLengths;
+        this.candidateTokenIds = candidateTokenIds;
+        this.postings = postings;
+    }
+
+    public int numTokens() {
+        return postings.length;
+    }
+
+    public int numCandidates() {
+        return candidates.length;
+    }
+
+    /**
+     * @param token uni-gram
+     * @return int the token id, or -1 if the token is not part of any candidate
+     */
+    public int lookupTokenId(String token) {
+        Integer id = token2Id.get(token);
+        return id == null ? -1 : id;
+    }
 
-    public synchronized void add(String unigram, String term, int numTokens) {
-        List<Pair<String, Integer>> contained = index.get(unigram);
-        if (contained == null)
-            contained = new ArrayList<>();
-        contained.add(new Pair<>(term, numTokens));
-        index.put(unigram, contained);
+    public String getToken(int tokenId) {
+        return tokens[tokenId];
     }
 
-    public List<Pair<String, Integer>> getSorted(String unigram) {
-        List<Pair<String, Integer>> sorted = new ArrayList<>();
-        List<Pair<String, Integer>> values=index.get(unigram);
-        if (values!=null)
-            sorted.addAll(values);
+    /**
+     * @param candidate candidate term string
+     * @return int the candidate id, or -1 if the candidate is not indexed
+     */
+    public int lookupCandidateId(String candidate) {
+        Integer id = candidate2Id.get(candidate);
+        return id == null ? -1 : id;
+    }
+
+    public String getCandidate(int candidateId) {
+        return candidates[candidateId];
+    }
+
+    /**
+     * @param candidateId candidate id
+     * @return int number of tokens in the candidate
+     */
+    public int getCandidateLength(int candidateId) {
+        return candidateLengths[candidateId];
+    }
+
+    /**
+     * @param candidateId candidate id
+     * @return int[] token ids of the candidate in their original order (repeated tokens included)
+     */
+    public int[] getCandidateTokenIds(int candidateId) {
+        return candidateTokenIds[candidateId];
+    }
+
+    /**
+     * @param tokenId token id
+     * @return int[] ids of candidates containing the token, sorted by candidate length descending
+     */
+    public int[] getContainingCandidates(int tokenId) {
+        if (tokenId < 0)
+            return EMPTY;
+        return postings[tokenId];
+    }
 
-        Collections.sort(sorted, (o1, o2) -> o2.getValue().compareTo(o1.getValue()));
-        return sorted;
+    /**
+     * Binary search the length cut-off in the postings of a token.
+     *
+     * @param tokenId token id
+     * @param length  number of tokens
+     * @return int the number of leading entries in {@link #getContainingCandidates(int)} whose candidate is
+     * strictly longer than the given length
+     */
+    public int countLongerThan(int tokenId, int length) {
+        int[] sorted = getContainingCandidates(tokenId);
+        int low = 0, high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (candidateLengths[sorted[mid]] > length)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
     }
 }
@@ -4,8 +4,13 @@ import org.apache.log4j.Logger;
 import uk.ac.shef.dcs.jate.JATEException;
 import uk.ac.shef.dcs.jate.JATEProperties;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by - on 25/02/2016.
@@ -20,8 +25,6 @@ public class TermComponentIndexFBMaster extends AbstractFeatureBuilder {
 
     @Override
     public AbstractFeature build() throws JATEException {
-        TermComponentIndex feature = new TermComponentIndex();
-
         int cores = properties.getMaxCPUCores();
         cores = cores == 0 ? 1 : cores;
         int maxPerThread = candidates.size() / cores;
@@ -30,14 +33,70 @@ public class TermComponentIndexFBMaster extends AbstractFeatureBuilder {
 
         LOG.info("Beginning building features (TermComponentIndex). Total terms=" + candidates.size() + ", cpu cores=" +
                 cores + ", max per core=" + maxPerThread);
+        String[] candidateArray = candidates.toArray(new String[candidates.size()]);
+        Map<String, Integer> candidate2Id = new HashMap<>(candidateArray.length * 2);
+        List<Integer> candidateIds = new ArrayList<>(candidateArray.length);
+        for (int i = 0; i < candidateArray.length; i++) {
+            candidate2Id.put(candidateArray[i], i);
+            candidateIds.add(i);
+        }
+
+        //1. tokenise candidates and assign token ids in parallel
+        Map<String, Integer> token2Id = new ConcurrentHashMap<>();
+        int[] candidateLengths = new int[candidateArray.length];
+        int[][] candidateTokenIds = new int[candidateArray.length][];
         TermComponentIndexFBWorker worker = new
-                TermComponentIndexFBWorker(candidates, maxPerThread,
-                feature);
+                TermComponentIndexFBWorker(candidateIds, maxPerThread,
+                candidateArray, token2Id, new AtomicInteger(), candidateLengths, candidateTokenIds);
         ForkJoinPool forkJoinPool = new ForkJoinPool(cores);
         int total = forkJoinPool.invoke(worker);
+
+        //2. lay out postings: each candidate is listed once per distinct token it contains
+        int numTokens = token2Id.size();
+        int[] postingSizes = new int[numTokens];
+        for (int[] tokenIds : candidateTokenIds) {
+            for (int i = 0; i < tokenIds.length; i++) {
+                if (!repeatsEarlierToken(tokenIds, i))
+                    postingSizes[tokenIds[i]]++;
+            }
+        }
+        int[][] postings = new int[numTokens][];
+        for (int t = 0; t < numTokens; t++)
+            postings[t] = new int[postingSizes[t]];
+        int[] fill = new int[numTokens];
+        for (int c = 0; c < candidateTokenIds.length; c++) {
+            int[] tokenIds = candidateTokenIds[c];
+            for (int i = 0; i < tokenIds.length; i++) {
+                if (!repeatsEarlierToken(tokenIds, i))
+                    postings[tokenIds[i]][fill[tokenIds[i]]++] = c;
+            }
+        }
+
+        //3. sort postings by candidate length descending, in parallel
+        List<Integer> tokenIds = new ArrayList<>(numTokens);
+        for (int t = 0; t < numTokens; t++)
+            tokenIds.add(t);
+        int maxTokensPerThread = numTokens / cores;
+        if (maxTokensPerThread == 0)
+            maxTokensPerThread = 50;
+        forkJoinPool.invoke(new TermComponentIndexPostingsSorter(tokenIds, maxTokensPerThread, postings,
+                candidateLengths));
+        forkJoinPool.shutdown();
+
+        TermComponentIndex feature = new TermComponentIndex(new HashMap<>(token2Id), candidate2Id, candidateArray,
+                candidateLengths, candidateTokenIds, postings);
         StringBuilder sb = new StringBuilder("Complete building features. Total processed terms = " + total);
+        sb.append(", unique tokens = ").append(numTokens);
         LOG.info(sb.toString());
 
         return feature;
     }
+
+    private static boolean repeatsEarlierToken(int[] tokenIds, int pos) {
+        for (int i = 0; i < pos; i++) {
+            if (tokenIds[i] == tokenIds[pos])
+                return true;
+        }
+        return false;
+    }
 }
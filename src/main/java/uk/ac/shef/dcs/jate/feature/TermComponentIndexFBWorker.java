@@ -3,29 +3,44 @@ package uk.ac.shef.dcs.jate.feature;
 import uk.ac.shef.dcs.jate.JATERecursiveTaskWorker;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Created by - on 25/02/2016.
+ * Tokenises candidate terms and assigns token ids. Each worker writes only to the array slots of the candidate ids
+ * it is given, so the shared arrays need no locking.
  */
-public class TermComponentIndexFBWorker extends JATERecursiveTaskWorker<String, Integer> {
+public class TermComponentIndexFBWorker extends JATERecursiveTaskWorker<Integer, Integer> {
 	private static final long serialVersionUID = -2181124313058459305L;
-	
-	private TermComponentIndex ctciFeature;
-    public TermComponentIndexFBWorker(List<String> tasks, int maxTasksPerWorker,
-                                      TermComponentIndex ctciFeature) {
-        super(tasks, maxTasksPerWorker);
-        this.ctciFeature=ctciFeature;
+
+    private final String[] candidates;
+    private final Map<String, Integer> token2Id;
+    private final AtomicInteger tokenCounter;
+    private final int[] candidateLengths;
+    private final int[][] candidateTokenIds;
+
+    public TermComponentIndexFBWorker(List<Integer> candidateIds, int maxTasksPerWorker,
+                                      String[] candidates,
+                                      Map<String, Integer> token2Id, AtomicInteger tokenCounter,
+                                      int[] candidateLengths, int[][] candidateTokenIds) {
+        super(candidateIds, maxTasksPerWorker);
+        this.candidates = candidates;
+        this.token2Id = token2Id;
+        this.tokenCounter = tokenCounter;
+        this.candidateLengths = candidateLengths;
+        this.candidateTokenIds = candidateTokenIds;
     }
 
     @Override
-    protected JATERecursiveTaskWorker<String, Integer> createInstance(List<String> splitTasks) {
-        return new TermComponentIndexFBWorker(splitTasks, maxTasksPerThread, ctciFeature);
+    protected JATERecursiveTaskWorker<Integer, Integer> createInstance(List<Integer> splitTasks) {
+        return new TermComponentIndexFBWorker(splitTasks, maxTasksPerThread, candidates, token2Id, tokenCounter,
+                candidateLengths, candidateTokenIds);
     }
 
     @Override
-    protected Integer mergeResult(List<JATERecursiveTaskWorker<String, Integer>> jateRecursiveTaskWorkers) {
+    protected Integer mergeResult(List<JATERecursiveTaskWorker<Integer, Integer>> jateRecursiveTaskWorkers) {
         int totalSuccess = 0;
-        for (JATERecursiveTaskWorker<String, Integer> worker : jateRecursiveTaskWorkers) {
+        for (JATERecursiveTaskWorker<Integer, Integer> worker : jateRecursiveTaskWorkers) {
             int rs = worker.join();
             totalSuccess += rs;
         }
@@ -33,14 +48,16 @@ public class TermComponentIndexFBWorker extends JATERecursiveTaskWorker<String,
     }
 
     @Override
-    protected Integer computeSingleWorker(List<String> tasks) {
+    protected Integer computeSingleWorker(List<Integer> tasks) {
         int count=0;
-        for(String tString : tasks){
-            String[] tokens = tString.split(" ");
+        for(int candidateId : tasks){
+            String[] tokens = candidates[candidateId].split(" ");
+            int[] tokenIds = new int[tokens.length];
+            for (int i = 0; i < tokens.length; i++)
+                tokenIds[i] = token2Id.computeIfAbsent(tokens[i], t -> tokenCounter.getAndIncrement());
 
-            for(String tok: tokens){
-                ctciFeature.add(tok, tString, tokens.length);
-            }
+            candidateLengths[candidateId] = tokens.length;
+            candidateTokenIds[candidateId] = tokenIds;
             count++;
         }
         return count;
@@ -0,0 +1,54 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import uk.ac.shef.dcs.jate.JATERecursiveTaskWorker;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorts the postings (candidate ids) of each token by candidate length descending, ties broken by candidate id,
+ * so that {@link TermComponentIndex} lookups do not need to sort on read.
+ */
+class TermComponentIndexPostingsSorter extends JATERecursiveTaskWorker<Integer, Integer> {
+    private static final long serialVersionUID = 3307285927404917215L;
+
+    private final int[][] postings;
+    private final int[] candidateLengths;
+
+    TermComponentIndexPostingsSorter(List<Integer> tokenIds, int maxTasksPerWorker,
+                                     int[][] postings, int[] candidateLengths) {
+        super(tokenIds, maxTasksPerWorker);
+        this.postings = postings;
+        this.candidateLengths = candidateLengths;
+    }
+
+    @Override
+    protected JATERecursiveTaskWorker<Integer, Integer> createInstance(List<Integer> splitTasks) {
+        return new TermComponentIndexPostingsSorter(splitTasks, maxTasksPerThread, postings, candidateLengths);
+    }
+
+    @Override
+    protected Integer mergeResult(List<JATERecursiveTaskWorker<Integer, Integer>> jateRecursiveTaskWorkers) {
+        int total = 0;
+        for (JATERecursiveTaskWorker<Integer, Integer> worker : jateRecursiveTaskWorkers)
+            total += worker.join();
+        return total;
+    }
+
+    @Override
+    protected Integer computeSingleWorker(List<Integer> tokenIds) {
+        for (int tokenId : tokenIds) {
+            int[] p = postings[tokenId];
+            if (p.length < 2)
+                continue;
+            //pack (length descending, id ascending) into one primitive sort key
+            long[] keys = new long[p.length];
+            for (int i = 0; i < p.length; i++)
+                keys[i] = ((long) (Integer.MAX_VALUE - candidateLengths[p[i]]) << 32) | p[i];
+            Arrays.sort(keys);
+            for (int i = 0; i < p.length; i++)
+                p[i] = (int) keys[i];
+        }
+        return tokenIds.size();
+    }
+}
@@ -2,6 +2,8 @@ package uk.ac.shef.dcs.jate.nlp;
 
 /**
  * Created by - on 13/10/2015.
+ * <p>
+ * Implementations must be thread-safe, as a chunker is shared by concurrent token streams.
  */
 public interface Chunker {
     String[] chunk(String[] tokens, String[] posTags);
@@ -1,16 +1,38 @@
 package uk.ac.shef.dcs.jate.nlp;
 
+import org.apache.lucene.util.CloseableThreadLocal;
 import uk.ac.shef.dcs.jate.nlp.opennlp.ChunkerOpenNLP;
 import uk.ac.shef.dcs.jate.nlp.opennlp.POSTaggerOpenNLP;
 import uk.ac.shef.dcs.jate.nlp.opennlp.SentenceSplitterOpenNLP;
 
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.util.function.Supplier;
 
 /**
  * Created by zqz on 24/09/2015.
+ * <p>
+ * The sentence splitters, PoS taggers and chunkers created are thread-safe, and are shared by all token filters of a
+ * factory: they share one immutable model, but tag with a model instance of their own (e.g., OpenNLP's POSTaggerME),
+ * which is not thread-safe, in each thread, see {@link #perThread(Supplier)}. They are {@link java.io.Closeable}:
+ * closing one drops the instances of all threads, which {@link ModelRegistry} does once it is no longer held.
  */
 public class InstanceCreator {
+
+    /**
+     * @param factory creates an instance, e.g., an OpenNLP POSTaggerME from a shared POSModel
+     * @return instances created by factory, one per thread using them. Unlike those of a ThreadLocal, they are
+     * dropped once it is closed rather than when the threads (e.g., of a Solr pool, which outlive cores) end
+     */
+    public static <T> CloseableThreadLocal<T> perThread(Supplier<T> factory) {
+        return new CloseableThreadLocal<T>() {
+            @Override
+            protected T initialValue() {
+                return factory.get();
+            }
+        };
+    }
+
     public static SentenceSplitter createSentenceSplitter(String className, InputStream model)
             throws ClassNotFoundException, NoSuchMethodException,
             IllegalAccessException, InvocationTargetException, InstantiationException {
@@ -0,0 +1,144 @@
+package uk.ac.shef.dcs.jate.nlp;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe cache of lemmas keyed by (characters, lemmatiser tag).
+ * <p>
+ * Lookups take a char buffer range, so that a token can be looked up without creating a String for it; a hit
+ * allocates nothing. The cache is a direct-mapped table of immutable entries: each key has a single slot, chosen by
+ * its hash, and a miss replaces whatever occupies the slot. Word frequencies are Zipfian, so frequent words win their
+ * slots most of the time. Concurrent readers and writers need no locking, as slots are replaced atomically.
+ */
+public class LemmaCache {
+    public static final int DEFAULT_SIZE = 1 << 16;
+
+    private static final class Entry {
+        final char[] chars;
+        final int tag;
+        final int hash;
+        final String lemma;
+
+        Entry(char[] chars, int tag, int hash, String lemma) {
+            this.chars = chars;
+            this.tag = tag;
+            this.hash = hash;
+            this.lemma = lemma;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param size maximum number of entries, rounded up to a power of 2
+     */
+    public LemmaCache(int size) {
+        int capacity = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    static int hash(char[] buffer, int offset, int length, int tag) {
+        int h = tag;
+        for (int i = offset; i < offset + length; i++)
+            h = 31 * h + buffer[i];
+        return spread(h);
+    }
+
+    static int hash(String value, int tag) {
+        int h = tag;
+        for (int i = 0; i < value.length(); i++)
+            h = 31 * h + value.charAt(i);
+        return spread(h);
+    }
+
+    //spread the higher bits as only the lower ones select the slot
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the cached lemma, or null if not cached
+     */
+    public String get(char[] buffer, int offset, int length, int tag) {
+        int hash = hash(buffer, offset, length, tag);
+        Entry e = slots.get(hash & mask);
+        if (e != null && e.hash == hash && e.tag == tag && e.chars.length == length) {
+            char[] chars = e.chars;
+            int i = 0;
+            while (i < length && chars[i] == buffer[offset + i])
+                i++;
+            if (i == length) {
+                hits.increment();
+                return e.lemma;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Same as {@link #get(char[], int, int, int)}, reading the characters of value in place
+     */
+    public String get(String value, int tag) {
+        int hash = hash(value, tag);
+        int length = value.length();
+        Entry e = slots.get(hash & mask);
+        if (e != null && e.hash == hash && e.tag == tag && e.chars.length == length) {
+            char[] chars = e.chars;
+            int i = 0;
+            while (i < length && chars[i] == value.charAt(i))
+                i++;
+            if (i == length) {
+                hits.increment();
+                return e.lemma;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(char[] buffer, int offset, int length, int tag, String lemma) {
+        char[] chars = new char[length];
+        System.arraycopy(buffer, offset, chars, 0, length);
+        int hash = hash(chars, 0, length, tag);
+        slots.set(hash & mask, new Entry(chars, tag, hash, lemma));
+    }
+
+    public void put(String value, int tag, String lemma) {
+        char[] chars = value.toCharArray();
+        put(chars, 0, chars.length, tag, lemma);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return double fraction of lookups that were hits, 0 if there has been no lookup
+     */
+    public double getHitRate() {
+        long h = hits.sum(), total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("LemmaCache[capacity=");
+        sb.append(capacity()).append(", hits=").append(getHits()).append(", misses=").append(getMisses())
+                .append(", hitRate=").append(String.format("%.3f", getHitRate())).append("]");
+        return sb.toString();
+    }
+}
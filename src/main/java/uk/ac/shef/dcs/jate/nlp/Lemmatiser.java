@@ -8,11 +8,21 @@ import java.util.Map;
 public class Lemmatiser {
 
     private final EngLemmatiser lemmatiser;
+    private final LemmaCache cache;
     private Map<String, Integer> tagLookUp;
 
     public Lemmatiser(EngLemmatiser lemmatiser) {
+        this(lemmatiser, LemmaCache.DEFAULT_SIZE);
+    }
+
+    /**
+     * @param lemmatiser dragon tool lemmatiser
+     * @param cacheSize  maximum number of cached lemmas, 0 to disable the cache
+     */
+    public Lemmatiser(EngLemmatiser lemmatiser, int cacheSize) {
 
         this.lemmatiser=lemmatiser;
+        this.cache = cacheSize > 0 ? new LemmaCache(cacheSize) : null;
         tagLookUp = new HashMap<>();
         tagLookUp.put("NN", 1);
         tagLookUp.put("NNS", 1);
@@ -37,8 +47,46 @@ public class Lemmatiser {
      * @return String  normalised phrase
      */
     public String normalize(String value, String pos) {
+        int tag = getTag(pos);
+        if (cache == null)
+            return lemmatise(value, tag);
+        String lemma = cache.get(value, tag);
+        if (lemma == null) {
+            lemma = lemmatise(value, tag);
+            cache.put(value, tag, lemma);
+        }
+        return lemma;
+    }
+
+    /**
+     * Same as {@link #normalize(String, String)} for a range of a char buffer (e.g., a token), which creates no
+     * String if the lemma is cached.
+     */
+    public String normalize(char[] buffer, int offset, int length, String pos) {
+        int tag = getTag(pos);
+        if (cache == null)
+            return lemmatise(new String(buffer, offset, length), tag);
+        String lemma = cache.get(buffer, offset, length, tag);
+        if (lemma == null) {
+            lemma = lemmatise(new String(buffer, offset, length), tag);
+            cache.put(buffer, offset, length, tag, lemma);
+        }
+        return lemma;
+    }
+
+    /**
+     * @return the lemma cache, which provides hit rate statistics, or null if caching is disabled
+     */
+    public LemmaCache getCache() {
+        return cache;
+    }
+
+    private int getTag(String pos) {
         Integer tag = tagLookUp.get(pos);
-        tag=tag==null?1:tag;
+        return tag == null ? 1 : tag;
+    }
+
+    private String lemmatise(String value, int tag) {
         int space = value.lastIndexOf(" ");
         if(space==-1||value.endsWith("'s")) //if string is a single word, or it is in "XYZ's" form where the ' char has been removed
             return lemmatiser.lemmatize(value,tag).trim();
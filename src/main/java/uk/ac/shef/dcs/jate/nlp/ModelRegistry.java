@@ -0,0 +1,218 @@
+package uk.ac.shef.dcs.jate.nlp;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.zip.CRC32;
+
+/**
+ * JVM-wide registry of loaded models (e.g., OpenNLP models, the Dragon lemmatiser dictionary), so that the token
+ * filter factories of all fields and cores share one instance of a model rather than loading it each.
+ * <p>
+ * A model is registered under its type, its resource path and the checksum of its content, so a changed model file
+ * is loaded again. Models are reference counted by owner: a reference is released by {@link #release(Object)} (e.g.,
+ * by {@link uk.ac.shef.dcs.jate.solr.ModelReleaseComponent} for the analysis factories of a core once the core is
+ * closed), or, failing that, once its owner has been garbage collected. A
+ * model is dropped when its last reference is released, and closed if it is {@link Closeable} (e.g., a PoS tagger
+ * keeping an instance per thread, see {@link InstanceCreator#perThread}). When a core reloads, its new factories
+ * acquire the models still held by the old ones, so they are not loaded again.
+ * <p>
+ * Registered models are shared by concurrent threads and must be thread-safe.
+ */
+public class ModelRegistry {
+    private static final Logger LOG = Logger.getLogger(ModelRegistry.class.getName());
+
+    private static final ModelRegistry INSTANCE = new ModelRegistry();
+
+    public interface ModelLoader<S, T> {
+        T load(S source) throws Exception;
+    }
+
+    private static final class Entry {
+        final String key;
+        volatile Object model;
+        int refCount;
+
+        Entry(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final class OwnerReference extends WeakReference<Object> {
+        final Entry entry;
+        boolean released;
+
+        OwnerReference(Object owner, Entry entry, ReferenceQueue<Object> queue) {
+            super(owner, queue);
+            this.entry = entry;
+        }
+    }
+
+    //guarded by this
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<OwnerReference> references = new ArrayList<>();
+    private final ReferenceQueue<Object> collectedOwners = new ReferenceQueue<>();
+
+    public static ModelRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the model of a resource, loading it unless a model of the same type and content is registered.
+     *
+     * @param owner    object holding the model, e.g., a token filter factory
+     * @param type     type of the model, which must identify how it is loaded, e.g., the class name of the loader
+     * @param resource resource path of the model
+     * @param model    content of the model, which is read and closed
+     * @param loader   loads the model from its content
+     * @return T the shared model
+     * @throws IOException if the model cannot be read or loaded
+     */
+    public <T> T acquire(Object owner, String type, String resource, InputStream model,
+                         ModelLoader<InputStream, T> loader) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = IOUtils.toByteArray(model);
+        } finally {
+            model.close();
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes);
+        String key = type + "|" + resource + "|" + Long.toHexString(checksum.getValue()) + "|" + bytes.length;
+        return acquire(owner, key, () -> loader.load(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Same as {@link #acquire(Object, String, String, InputStream, ModelLoader)} for a model loaded from the files of a
+     * directory (e.g., the Dragon lemmatiser dictionary), whose checksum is that of all files in the directory.
+     */
+    public <T> T acquire(Object owner, String type, File directory,
+                         ModelLoader<File, T> loader) throws IOException {
+        String key = type + "|" + directory.getCanonicalPath() + "|" + checksum(directory);
+        return acquire(owner, key, () -> loader.load(directory));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T acquire(Object owner, String key, Callable<T> loader) throws IOException {
+        Entry entry;
+        OwnerReference reference;
+        synchronized (this) {
+            expungeCollectedOwners();
+            entry = entries.computeIfAbsent(key, Entry::new);
+            entry.refCount++;
+            reference = new OwnerReference(owner, entry, collectedOwners);
+            references.add(reference);
+        }
+
+        try {
+            //models are loaded outside the registry lock, so different models load concurrently
+            synchronized (entry) {
+                if (entry.model == null) {
+                    long start = System.currentTimeMillis();
+                    entry.model = loader.call();
+                    LOG.info(String.format("Loaded model [%s] in %d ms", key, System.currentTimeMillis() - start));
+                } else {
+                    LOG.info(String.format("Reusing loaded model [%s]", key));
+                }
+                return (T) entry.model;
+            }
+        } catch (Exception e) {
+            synchronized (this) {
+                releaseReference(reference);
+            }
+            if (e instanceof IOException)
+                throw (IOException) e;
+            StringBuilder sb = new StringBuilder("Failed to load model [");
+            sb.append(key).append("] due to: ").append(e.toString());
+            throw new IOException(sb.toString(), e);
+        }
+    }
+
+    /**
+     * Release all models acquired by owner.
+     */
+    public void release(Object owner) {
+        releaseAll(Collections.singleton(owner));
+    }
+
+    /**
+     * Release all models acquired by any of owners, e.g., the analysis factories of a closed core.
+     */
+    public synchronized void releaseAll(Collection<?> owners) {
+        Set<Object> released = Collections.newSetFromMap(new IdentityHashMap<>());
+        released.addAll(owners);
+        expungeCollectedOwners();
+        for (OwnerReference reference : new ArrayList<>(references)) {
+            if (released.contains(reference.get()))
+                releaseReference(reference);
+        }
+    }
+
+    /**
+     * @return number of registered models, after releasing those of garbage collected owners
+     */
+    public synchronized int size() {
+        expungeCollectedOwners();
+        return entries.size();
+    }
+
+    private void expungeCollectedOwners() {
+        OwnerReference reference;
+        while ((reference = (OwnerReference) collectedOwners.poll()) != null)
+            releaseReference(reference);
+    }
+
+    private void releaseReference(OwnerReference reference) {
+        if (reference.released)
+            return;
+        reference.released = true;
+        references.remove(reference);
+        Entry entry = reference.entry;
+        if (--entry.refCount == 0) {
+            entries.remove(entry.key);
+            if (entry.model instanceof Closeable) {
+                try {
+                    ((Closeable) entry.model).close();
+                } catch (IOException e) {
+                    LOG.warn(String.format("Failed to close model [%s] due to: %s", entry.key, e.toString()));
+                }
+            }
+            LOG.info(String.format("Released model [%s]", entry.key));
+        }
+    }
+
+    private static String checksum(File directory) throws IOException {
+        List<File> files = new ArrayList<>();
+        collectFiles(directory, files);
+        Collections.sort(files);
+        CRC32 checksum = new CRC32();
+        for (File f : files) {
+            checksum.update(directory.toPath().relativize(f.toPath()).toString().getBytes(StandardCharsets.UTF_8));
+            checksum.update(Files.readAllBytes(f.toPath()));
+        }
+        return Long.toHexString(checksum.getValue());
+    }
+
+    private static void collectFiles(File file, List<File> files) throws IOException {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null)
+                throw new IOException("Cannot list model directory " + file);
+            for (File child : children)
+                collectFiles(child, files);
+        } else {
+            files.add(file);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package uk.ac.shef.dcs.jate.nlp;
 
 /**
  * Created by zqz on 28/09/2015.
+ * <p>
+ * Implementations must be thread-safe, as a tagger is shared by concurrent token streams.
  */
 public interface POSTagger {
     String[] tag(String[] tokens);
@@ -4,6 +4,8 @@ import java.util.List;
 
 /**
  * Created by zqz on 24/09/2015.
+ * <p>
+ * Implementations must be thread-safe, as a splitter may be shared by concurrent threads.
  */
 public interface SentenceSplitter {
     List<int[]> split(String text);
@@ -3,23 +3,30 @@ package uk.ac.shef.dcs.jate.nlp.opennlp;
 
 import opennlp.tools.chunker.ChunkerME;
 import opennlp.tools.chunker.ChunkerModel;
+import org.apache.lucene.util.CloseableThreadLocal;
 import uk.ac.shef.dcs.jate.nlp.Chunker;
+import uk.ac.shef.dcs.jate.nlp.InstanceCreator;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 
 /**
- *
+ * Thread-safe: each thread chunks with its own ChunkerME of the shared model.
  */
-public class ChunkerOpenNLP implements Chunker {
-    private opennlp.tools.chunker.Chunker chunker;
+public class ChunkerOpenNLP implements Chunker, Closeable {
+    private final CloseableThreadLocal<ChunkerME> chunker;
 
     public ChunkerOpenNLP(InputStream model) throws IOException {
-        chunker=new ChunkerME(new ChunkerModel(model));
+        this(new ChunkerModel(model));
+    }
+
+    public ChunkerOpenNLP(ChunkerModel model) {
+        chunker = InstanceCreator.perThread(() -> new ChunkerME(model));
     }
 
     public String[] chunk(String[] tokens, String[] posTags){
-        String[] chunkerTags=chunker.chunk(tokens, posTags);
+        String[] chunkerTags=chunker.get().chunk(tokens, posTags);
         return chunkerTags;
     }
 
@@ -33,4 +40,11 @@ public class ChunkerOpenNLP implements Chunker {
         return "I-NP";
     }
 
+    /**
+     * Drops the instances of all threads; the chunker must not be used once closed.
+     */
+    @Override
+    public void close() {
+        chunker.close();
+    }
 }
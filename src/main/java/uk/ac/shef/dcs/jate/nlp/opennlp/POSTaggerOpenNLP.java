@@ -2,23 +2,40 @@ package uk.ac.shef.dcs.jate.nlp.opennlp;
 
 import opennlp.tools.postag.POSModel;
 import opennlp.tools.postag.POSTaggerME;
+import org.apache.lucene.util.CloseableThreadLocal;
+import uk.ac.shef.dcs.jate.nlp.InstanceCreator;
 import uk.ac.shef.dcs.jate.nlp.POSTagger;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 
 /**
  * Created by zqz on 28/09/2015.
+ * <p>
+ * Thread-safe: each thread tags with its own POSTaggerME of the shared model.
  */
-public class POSTaggerOpenNLP implements POSTagger {
-    private opennlp.tools.postag.POSTagger tagger;
+public class POSTaggerOpenNLP implements POSTagger, Closeable {
+    private final CloseableThreadLocal<POSTaggerME> tagger;
 
     public POSTaggerOpenNLP(InputStream model) throws IOException {
-        tagger = new POSTaggerME(new POSModel(model));
+        this(new POSModel(model));
+    }
+
+    public POSTaggerOpenNLP(POSModel model) {
+        tagger = InstanceCreator.perThread(() -> new POSTaggerME(model));
     }
 
     @Override
     public String[] tag(String[] tokens) {
-        return tagger.tag(tokens);
+        return tagger.get().tag(tokens);
+    }
+
+    /**
+     * Drops the instances of all threads; the tagger must not be used once closed.
+     */
+    @Override
+    public void close() {
+        tagger.close();
     }
 }
@@ -4,8 +4,11 @@ import opennlp.tools.sentdetect.SentenceDetector;
 import opennlp.tools.sentdetect.SentenceDetectorME;
 import opennlp.tools.sentdetect.SentenceModel;
 import opennlp.tools.util.Span;
+import org.apache.lucene.util.CloseableThreadLocal;
+import uk.ac.shef.dcs.jate.nlp.InstanceCreator;
 import uk.ac.shef.dcs.jate.nlp.SentenceSplitter;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -14,36 +17,54 @@ import java.util.ArrayList;
 import java.util.List;
 import org.apache.log4j.Logger;
 
-public class SentenceSplitterOpenNLP implements SentenceSplitter {
+/**
+ * Thread-safe: each thread splits with its own SentenceDetectorME of the shared model.
+ */
+public class SentenceSplitterOpenNLP implements SentenceSplitter, Closeable {
     private static Logger LOG = Logger.getLogger(SentenceSplitterOpenNLP.class.getName());
-    protected SentenceDetector sentenceDetector;
+    protected CloseableThreadLocal<SentenceDetector> sentenceDetector;
 
     public SentenceSplitterOpenNLP(InputStream model) throws IOException {
-        LOG.info("Initializing OpenNLP sentence splitter...");
-        sentenceDetector = new SentenceDetectorME(new SentenceModel(model));
+        this(new SentenceModel(model));
     }
 
     public SentenceSplitterOpenNLP(String modelFile) throws IOException {
         LOG.info("Initializing OpenNLP sentence splitter...");
         FileInputStream modelFileStream = new FileInputStream(modelFile);
         try {
-        	sentenceDetector = new SentenceDetectorME(new SentenceModel(modelFileStream));
+        	init(new SentenceModel(modelFileStream));
         } finally {
         	modelFileStream.close();
         }
     }
 
     public SentenceSplitterOpenNLP(File modelFile) throws IOException {
+        this(new SentenceModel(modelFile));
+    }
+
+    public SentenceSplitterOpenNLP(SentenceModel model) {
         LOG.info("Initializing OpenNLP sentence splitter...");
-        sentenceDetector = new SentenceDetectorME(new SentenceModel(modelFile));
+        init(model);
+    }
+
+    private void init(SentenceModel model) {
+        sentenceDetector = InstanceCreator.perThread(() -> new SentenceDetectorME(model));
     }
 
     public List<int[]> split(String text) {
-        Span[] offsets = sentenceDetector.sentPosDetect(text);
+        Span[] offsets = sentenceDetector.get().sentPosDetect(text);
         List<int[]> rs = new ArrayList<>();
         for (Span s : offsets) {
             rs.add(new int[]{s.getStart(), s.getEnd()});
         }
         return rs;
     }
+
+    /**
+     * Drops the instances of all threads; the splitter must not be used once closed.
+     */
+    @Override
+    public void close() {
+        sentenceDetector.close();
+    }
 }
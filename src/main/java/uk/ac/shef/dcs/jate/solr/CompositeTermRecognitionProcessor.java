@@ -13,7 +13,10 @@ import org.apache.solr.core.SolrCore;
 
 import org.apache.solr.schema.CopyField;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
 import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.app.App;
+import uk.ac.shef.dcs.jate.app.AppParams;
 import uk.ac.shef.dcs.jate.model.JATETerm;
 import uk.ac.shef.dcs.jate.solr.TermRecognitionRequestHandler.Algorithm;
 import uk.ac.shef.dcs.jate.util.SolrUtil;
@@ -27,13 +30,19 @@ public class CompositeTermRecognitionProcessor implements TermRecognitionProcess
     private Collection<TermRecognitionProcessor> processors = new ArrayList<TermRecognitionProcessor>();
     public static final Float DEFAULT_BOOST_VALUE = 1.0F;
 
+    private final TermRecognitionResultCache resultCache = TermRecognitionResultCache.getInstance();
+    //output file of a result served from the cache to the current thread, exported by the following export()
+    private final ThreadLocal<String> cachedResultOutputFile = new ThreadLocal<>();
+
     @Override
     public Boolean candidateExtraction(SolrCore core, String jatePropertyFile)
             throws IOException, JATEException {
-        SolrIndexSearcher indexSearcher = core.getSearcher().get();
-        IndexWriter writerIn = null;
+        RefCounted<SolrIndexSearcher> searcherRef = core.getSearcher();
+        SolrIndexSearcher indexSearcher = searcherRef.get();
+        RefCounted<IndexWriter> writerRef = null;
         try {
-        	writerIn = core.getSolrCoreState().getIndexWriter(core).get();
+        	writerRef = core.getSolrCoreState().getIndexWriter(core);
+        	IndexWriter writerIn = writerRef.get();
 	        Map<String,List<CopyField>> copyFields = core.getLatestSchema().getCopyFieldsMap();
 	
 	        for (int i=0; i<indexSearcher.maxDoc(); i++) {
@@ -47,9 +56,9 @@ public class CompositeTermRecognitionProcessor implements TermRecognitionProcess
 	
 	        return true;
         } finally {
-        	indexSearcher.close();
-        	if (writerIn != null) {
-        		writerIn.close();
+        	searcherRef.decref();
+        	if (writerRef != null) {
+        		writerRef.decref();
         	}
         	
         }
@@ -57,12 +66,28 @@ public class CompositeTermRecognitionProcessor implements TermRecognitionProcess
 
 
 
+    /**
+     * Rank and filter by the processor of the algorithm, unless the same request has been answered on the current
+     * index version already.
+     *
+     * @see TermRecognitionResultCache
+     */
     @Override
     public List<JATETerm> rankingAndFiltering(SolrCore core, String jatePropertyFile, Map<String, String> params,
                                               Algorithm algorithm) throws IOException, JATEException {
+        String cacheKey = TermRecognitionResultCache.createKey(core, jatePropertyFile, params, algorithm);
+        List<JATETerm> cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            //the processor of the algorithm may not have been initialised to export them
+            cachedResultOutputFile.set(params.get(AppParams.OUTPUT_FILE.getParamKey()));
+            return cached;
+        }
+        cachedResultOutputFile.remove();
+
         for (TermRecognitionProcessor termRecognitionProcessor : processors) {
             List<JATETerm> terms = termRecognitionProcessor.rankingAndFiltering(core, jatePropertyFile, params, algorithm);
             if (terms != null) {
+                resultCache.put(cacheKey, terms);
                 return terms;
             }
         }
@@ -76,6 +101,12 @@ public class CompositeTermRecognitionProcessor implements TermRecognitionProcess
 
     @Override
     public Boolean export(List<JATETerm> termsResults) throws IOException {
+        String outputFile = cachedResultOutputFile.get();
+        if (outputFile != null) {
+            cachedResultOutputFile.remove();
+            App.write(termsResults, outputFile);
+            return true;
+        }
         for (TermRecognitionProcessor termRecognitionProcessor : processors) {
             Boolean isSuccess = termRecognitionProcessor.export(termsResults);
             if (isSuccess != null) {
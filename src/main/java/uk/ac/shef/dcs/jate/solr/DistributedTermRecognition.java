@@ -0,0 +1,213 @@
+package uk.ac.shef.dcs.jate.solr;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.cloud.CloudDescriptor;
+import org.apache.solr.cloud.ZkController;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.cloud.ZkCoreNodeProps;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.SolrCore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.JATEProperties;
+import uk.ac.shef.dcs.jate.app.AppEnsemble;
+import uk.ac.shef.dcs.jate.app.AppParams;
+import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
+import uk.ac.shef.dcs.jate.feature.FrequencyTermBasedMerger;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+import uk.ac.shef.dcs.jate.solr.TermRecognitionRequestHandler.Algorithm;
+
+/**
+ * Coordinates term recognition over all shards of a collection, so that terms are ranked from the statistics of the
+ * whole corpus rather than those of one shard.
+ * <ol>
+ * <li>every shard computes its partial term (and, if required, word) frequencies in parallel, see
+ * {@link TermRecognitionRequestHandler#SHARD_STATS};</li>
+ * <li>the coordinator merges them ({@link FrequencyTermBasedMerger}), derives the nesting features from the merged
+ * candidate set and runs the algorithm;</li>
+ * <li>if terms are to be indexed, the final list is pushed back to every shard, which indexes it into its own
+ * documents, see {@link TermRecognitionRequestHandler#SHARD_TERMS}.</li>
+ * </ol>
+ * Shards are the leaders of the active slices of the collection of the core in SolrCloud mode, or the core URLs
+ * given by the {@code shards} parameter (e.g., "localhost:8983/solr/shard1,localhost:7574/solr/shard2").
+ * <p>
+ * Algorithms relying only on frequency statistics are supported: CValue, RAKE, Weirdness, GlossEx, TermEx, TTF,
+ * ATTF, TTF-IDF, RIDF and their Ensemble. The context based ChiSquare is not, as its co-occurrence statistics
+ * (sentence contexts and their overlap zones) are not shipped and merged. Candidate extraction is not forwarded to the
+ * shards either: candidates must be extracted on every shard before a distributed request.
+ */
+public class DistributedTermRecognition {
+    private static final Logger log = LoggerFactory.getLogger(DistributedTermRecognition.class);
+
+    public static final String DEFAULT_HANDLER_PATH = "/termRecogniser";
+
+    private final List<String> shardUrls;
+    private final String handlerPath;
+
+    public DistributedTermRecognition(List<String> shardUrls, String handlerPath) {
+        this.shardUrls = shardUrls;
+        this.handlerPath = handlerPath;
+    }
+
+    /**
+     * @param core   core receiving the request
+     * @param shards comma separated shard core URLs, or null to discover the shard leaders of the collection
+     * @return List of shard core URLs
+     */
+    public static List<String> getShardUrls(SolrCore core, String shards) {
+        List<String> urls = new ArrayList<>();
+        if (StringUtils.isNotEmpty(shards)) {
+            for (String shard : shards.split(",")) {
+                String url = shard.trim();
+                if (url.isEmpty())
+                    continue;
+                urls.add(url.contains("://") ? url : "http://" + url);
+            }
+            return urls;
+        }
+
+        CloudDescriptor cloud = core.getCoreDescriptor().getCloudDescriptor();
+        ZkController zkController = core.getCoreDescriptor().getCoreContainer().getZkController();
+        if (cloud == null || zkController == null) {
+            throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
+                    "Distributed term recognition requires SolrCloud mode or the 'shards' parameter.");
+        }
+        for (Slice slice : zkController.getClusterState().getActiveSlices(cloud.getCollectionName())) {
+            Replica leader = slice.getLeader();
+            if (leader == null) {
+                throw new SolrException(SolrException.ErrorCode.SERVICE_UNAVAILABLE,
+                        String.format("Shard [%s] has no leader.", slice.getName()));
+            }
+            urls.add(new ZkCoreNodeProps(leader).getCoreUrl());
+        }
+        return urls;
+    }
+
+    /**
+     * Rank terms from the merged statistics of all shards.
+     *
+     * @param algorithm        algorithm requested
+     * @param jatePropertyFile jate property file, which must be valid on the shards as well
+     * @param properties       jate properties
+     * @param trRunTimeParams  run-time parameters of the algorithm
+     * @return List<JATETerm> ranked and filtered terms
+     * @throws JATEException
+     */
+    public List<JATETerm> rank(Algorithm algorithm, String jatePropertyFile, JATEProperties properties,
+                               Map<String, String> trRunTimeParams) throws JATEException {
+        Map<String, String> params = new HashMap<>(trRunTimeParams);
+        if (algorithm != Algorithm.ENSEMBLE) {
+            if (algorithm == Algorithm.CHI_SQUARE) {
+                throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, String.format(
+                        "Algorithm [%s] is not supported in distributed mode: its co-occurrence statistics are not " +
+                                "merged across shards. Run it on a single core, or use one of the frequency based " +
+                                "algorithms.", algorithm.getAlgorithmName()));
+            }
+            //an ensemble of one algorithm is that algorithm
+            params.put(AppParams.ENSEMBLE_ALGORITHMS.getParamKey(), algorithm.getAlgorithmName());
+        }
+        AppEnsemble app = new AppEnsemble(params);
+        boolean words = app.requiresWordFeature();
+
+        ModifiableSolrParams shardParams = new ModifiableSolrParams();
+        shardParams.set(TermRecognitionRequestHandler.SHARD_STATS, true);
+        shardParams.set(TermRecognitionRequestHandler.SHARD_WORDS, words);
+        shardParams.set(TermRecognitionRequestHandler.JATE_PROPERTY_FILE, jatePropertyFile);
+        List<NamedList<Object>> responses = requestAll(shardParams);
+
+        FrequencyTermBasedMerger termMerger = new FrequencyTermBasedMerger();
+        FrequencyTermBasedMerger wordMerger = words ? new FrequencyTermBasedMerger() : null;
+        for (int i = 0; i < responses.size(); i++) {
+            NamedList<Object> rsp = responses.get(i);
+            termMerger.merge(getPartial(rsp, TermRecognitionRequestHandler.SHARD_STATS_TERMS, i));
+            if (words)
+                wordMerger.merge(getPartial(rsp, TermRecognitionRequestHandler.SHARD_STATS_WORDS, i));
+        }
+        FrequencyTermBased termFeature = termMerger.getMerged();
+        log.info(String.format("merged term statistics of [%s] shards, total candidates [%s], total docs [%s]",
+                shardUrls.size(), termFeature.getMapTerm2TTF().size(), termFeature.getTotalDocs()));
+
+        return app.rank(termFeature, words ? wordMerger.getMerged() : null, properties);
+    }
+
+    /**
+     * Push the final terms to every shard to be indexed into its documents.
+     */
+    public void indexTerms(List<JATETerm> terms, String jatePropertyFile, boolean isBoosted) throws JATEException {
+        ModifiableSolrParams shardParams = new ModifiableSolrParams();
+        shardParams.set(TermRecognitionRequestHandler.SHARD_TERMS, new Gson().toJson(terms));
+        shardParams.set(TermRecognitionRequestHandler.BOOSTING, isBoosted);
+        shardParams.set(TermRecognitionRequestHandler.JATE_PROPERTY_FILE, jatePropertyFile);
+        requestAll(shardParams);
+    }
+
+    private byte[] getPartial(NamedList<Object> rsp, String name, int shard) throws JATEException {
+        Object partial = rsp.get(name);
+        if (!(partial instanceof byte[])) {
+            throw new JATEException(String.format("Shard [%s] returned no partial statistics [%s].",
+                    shardUrls.get(shard), name));
+        }
+        return (byte[]) partial;
+    }
+
+    /**
+     * Send the same request to all shards in parallel.
+     *
+     * @return List of responses, in shard order
+     */
+    private List<NamedList<Object>> requestAll(ModifiableSolrParams params) throws JATEException {
+        if (shardUrls.isEmpty())
+            throw new JATEException("No shards to send term recognition requests to.");
+        ExecutorService executor = Executors.newFixedThreadPool(shardUrls.size());
+        try {
+            List<Future<NamedList<Object>>> futures = new ArrayList<>();
+            for (String url : shardUrls)
+                futures.add(executor.submit(() -> request(url, params)));
+            List<NamedList<Object>> responses = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    responses.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    throw new JATEException(String.format("Term recognition request to shard [%s] failed: %s",
+                            shardUrls.get(i), e.getCause()));
+                }
+            }
+            return responses;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JATEException("Interrupted while waiting for shard responses.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private NamedList<Object> request(String url, ModifiableSolrParams params) throws IOException,
+            SolrServerException {
+        QueryRequest request = new QueryRequest(params, SolrRequest.METHOD.POST);
+        request.setPath(handlerPath);
+        try (HttpSolrClient client = new HttpSolrClient(StringUtils.removeEnd(url, "/"))) {
+            return client.request(request);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package uk.ac.shef.dcs.jate.solr;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.core.SolrCore;
+
+import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.app.AppEnsemble;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+import uk.ac.shef.dcs.jate.solr.TermRecognitionRequestHandler.Algorithm;
+
+/**
+ * Solr Automatic Term Recognition (ATR) Processor for the ensemble of algorithms
+ * <p>
+ * Unlike the single algorithm processors, the app is re-created for every request because member algorithms and
+ * their weights are request parameters.
+ *
+ * see {@code uk.ac.shef.dcs.jate.algorithm.Ensemble}}
+ */
+public class EnsembleProcessor implements TermRecognitionProcessor {
+
+	private AppEnsemble ensembleSolr = null;
+
+	@Override
+	public Boolean candidateExtraction(SolrCore core, String jatePropertyFile)
+			throws IOException, JATEException {
+		return null;
+	}
+
+	/**
+	 * initialise run-time parameters for current algorithm
+	 * @param params  run-time parameters (e.g., ensemble members, cutoff scoring threshold) for current algorithm
+	 *      @see uk.ac.shef.dcs.jate.app.AppParams
+	 * @throws JATEException
+	 */
+	public void initialise(Map<String, String> params) throws JATEException {
+		this.ensembleSolr = new AppEnsemble(params);
+	}
+
+	@Override
+	public List<JATETerm> rankingAndFiltering(SolrCore core, String jatePropertyFile, Map<String, String> params,
+											  Algorithm algorithm) throws IOException, JATEException {
+		if (Algorithm.ENSEMBLE.equals(algorithm)) {
+			initialise(params);
+			return this.ensembleSolr.extract(core, jatePropertyFile);
+		}
+		return null;
+	}
+
+	@Override
+	public Boolean export(List<JATETerm> termsResults) throws IOException {
+		if (ensembleSolr != null) {
+			ensembleSolr.write(termsResults);
+			return true;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,148 @@
+package uk.ac.shef.dcs.jate.solr;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.analysis.jate.EnglishLemmatisationFilterFactory;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.core.CloseHook;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrResourceLoader;
+import org.apache.solr.handler.component.ResponseBuilder;
+import org.apache.solr.handler.component.SearchComponent;
+import org.apache.solr.util.plugin.SolrCoreAware;
+import uk.ac.shef.dcs.jate.nlp.LemmaCache;
+import uk.ac.shef.dcs.jate.nlp.Lemmatiser;
+import uk.ac.shef.dcs.jate.nlp.ModelRegistry;
+
+import java.util.*;
+
+/**
+ * Releases the models acquired from {@link ModelRegistry} by the analysis factories of a core once the core is
+ * closed, rather than once the factories are garbage collected.
+ * <p>
+ * Solr does not allow analysis factories to be {@link SolrCoreAware}, so a factory registers itself with
+ * {@link #register(ResourceLoader, Object)} when it is informed of its resource loader. The first factory of a loader
+ * creates this component through the loader, which informs it of the core along with the other plugins of the core.
+ * The component then adds a close hook releasing the models of all factories registered with the loader, including
+ * those of schemas loaded since the core started (e.g., a changed managed schema). It is a {@link SearchComponent}
+ * only because that is a plugin type Solr allows to be SolrCoreAware, and is not meant to be added to a handler.
+ * <p>
+ * Models are still released by garbage collection only for a schema shared by several cores (shareSchema), and for
+ * factories whose loader had already informed its core when the first of them registered (e.g., the first JATE field
+ * type added to a managed schema of a running core).
+ * <p>
+ * The component is listed with the other plugins of its core (e.g., in the admin UI and over JMX), with the hit
+ * statistics of the lemma caches of the core's {@link EnglishLemmatisationFilterFactory}s, which are logged as well
+ * once the core is closed.
+ */
+public class ModelReleaseComponent extends SearchComponent implements SolrCoreAware {
+    private static final Logger LOG = Logger.getLogger(ModelReleaseComponent.class.getName());
+
+    //factories by the resource loader they were informed of, both weakly referenced. Guarded by itself
+    private static final Map<SolrResourceLoader, Set<Object>> factories = new WeakHashMap<>();
+
+    private SolrResourceLoader loader;
+
+    /**
+     * Release the models acquired by factory once the core of loader is closed. Outside Solr (e.g., a Lucene analyzer
+     * built in a test) there is no core, and the models are released once factory is garbage collected.
+     *
+     * @param loader  resource loader the factory is informed of
+     * @param factory analysis factory acquiring models from {@link ModelRegistry}
+     */
+    public static void register(ResourceLoader loader, Object factory) {
+        if (!(loader instanceof SolrResourceLoader))
+            return;
+        SolrResourceLoader solrLoader = (SolrResourceLoader) loader;
+        synchronized (factories) {
+            Set<Object> loaderFactories = factories.get(solrLoader);
+            if (loaderFactories == null) {
+                loaderFactories = Collections.newSetFromMap(new WeakHashMap<>());
+                factories.put(solrLoader, loaderFactories);
+                //informed of the core with the other plugins of the loader, unless the core is already informed
+                solrLoader.newInstance(ModelReleaseComponent.class.getName(), SearchComponent.class);
+            }
+            loaderFactories.add(factory);
+        }
+    }
+
+    @Override
+    public void inform(SolrCore core) {
+        loader = core.getResourceLoader();
+        core.getInfoRegistry().put(getClass().getName(), this);
+        core.addCloseHook(new CloseHook() {
+            @Override
+            public void preClose(SolrCore core) {
+            }
+
+            @Override
+            public void postClose(SolrCore core) {
+                List<Object> closed;
+                synchronized (factories) {
+                    Set<Object> loaderFactories = factories.remove(core.getResourceLoader());
+                    if (loaderFactories == null)
+                        return;
+                    closed = new ArrayList<>(loaderFactories);
+                }
+                LOG.info(String.format("Statistics of the analysis factories of core [%s]: %s", core.getName(),
+                        getStatistics(closed)));
+                //the factories of a shared schema are still used by the other cores
+                if (core.getCoreDescriptor().getCoreContainer().getConfig().hasSchemaCache())
+                    return;
+                ModelRegistry.getInstance().releaseAll(closed);
+                LOG.info(String.format("Released the models of %d analysis factories of core [%s]", closed.size(),
+                        core.getName()));
+            }
+        });
+    }
+
+    @Override
+    public void prepare(ResponseBuilder rb) {
+    }
+
+    @Override
+    public void process(ResponseBuilder rb) {
+    }
+
+    /**
+     * @return NamedList the number of analysis factories of the core, and the hits and misses of their lemma caches
+     */
+    @Override
+    public NamedList<Object> getStatistics() {
+        List<Object> loaderFactories;
+        synchronized (factories) {
+            Set<Object> registered = factories.get(loader);
+            loaderFactories = registered == null ? Collections.emptyList() : new ArrayList<>(registered);
+        }
+        return getStatistics(loaderFactories);
+    }
+
+    private static NamedList<Object> getStatistics(Collection<Object> loaderFactories) {
+        int caches = 0;
+        long hits = 0, misses = 0;
+        for (Object factory : loaderFactories) {
+            if (!(factory instanceof EnglishLemmatisationFilterFactory))
+                continue;
+            Lemmatiser lemmatiser = ((EnglishLemmatisationFilterFactory) factory).getLemmatiser();
+            LemmaCache cache = lemmatiser == null ? null : lemmatiser.getCache();
+            if (cache == null)
+                continue;
+            caches++;
+            hits += cache.getHits();
+            misses += cache.getMisses();
+        }
+        NamedList<Object> stats = new SimpleOrderedMap<>();
+        stats.add("analysisFactories", loaderFactories.size());
+        stats.add("lemmaCaches", caches);
+        stats.add("lemmaCacheHits", hits);
+        stats.add("lemmaCacheMisses", misses);
+        stats.add("lemmaCacheHitRate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        return stats;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Releases the models of the JATE analysis factories of a closed core";
+    }
+}
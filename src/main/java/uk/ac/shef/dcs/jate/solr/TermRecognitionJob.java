@@ -0,0 +1,181 @@
+package uk.ac.shef.dcs.jate.solr;
+
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.JATEProperties;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+import uk.ac.shef.dcs.jate.solr.TermRecognitionRequestHandler.Algorithm;
+
+/**
+ * One run of the term recognition pipeline (candidate extraction, ranking and filtering, export and indexing) with
+ * the settings of the request that started it.
+ * <p>
+ * Synchronous requests run a job in the request thread. Asynchronous jobs are run by
+ * {@link TermRecognitionJobManager}, which tracks their status and keeps their result until it is retrieved or
+ * evicted. Status fields are volatile so that they can be polled by other request threads while the job runs.
+ */
+public class TermRecognitionJob {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    public enum Phase {
+        CANDIDATE_EXTRACTION, RANKING_AND_FILTERING, EXPORT, INDEXING
+    }
+
+    private final String id;
+    private final String coreName;
+    private final String key;
+
+    final Algorithm algorithm;
+    final String jatePropertyFile;
+    final JATEProperties properties;
+    final Map<String, String> trRunTimeParams;
+    final boolean isExtraction;
+    final boolean isIndexTerms;
+    final boolean isBoosted;
+    final String outFilePath;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Phase phase = null;
+    private volatile long submitted = System.currentTimeMillis();
+    private volatile long started = 0;
+    private volatile long finished = 0;
+    private volatile String error = null;
+    private volatile List<JATETerm> terms = null;
+
+    TermRecognitionJob(String id, String coreName, String key, Algorithm algorithm, String jatePropertyFile,
+                       JATEProperties properties, Map<String, String> trRunTimeParams, boolean isExtraction,
+                       boolean isIndexTerms, boolean isBoosted, String outFilePath) {
+        this.id = id;
+        this.coreName = coreName;
+        this.key = key;
+        this.algorithm = algorithm;
+        this.jatePropertyFile = jatePropertyFile;
+        this.properties = properties;
+        this.trRunTimeParams = trRunTimeParams;
+        this.isExtraction = isExtraction;
+        this.isIndexTerms = isIndexTerms;
+        this.isBoosted = isBoosted;
+        this.outFilePath = outFilePath;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getCoreName() {
+        return coreName;
+    }
+
+    /**
+     * @return the core name and the run-time settings of the job; concurrent jobs with the same key are coalesced
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the pipeline step being run, or the last one run if the job has finished; null if not started
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public long getStarted() {
+        return started;
+    }
+
+    public long getFinished() {
+        return finished;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return the final filtered terms, or null if the job has not completed successfully
+     */
+    public List<JATETerm> getTerms() {
+        return terms;
+    }
+
+    public boolean isActive() {
+        return status == Status.QUEUED || status == Status.RUNNING;
+    }
+
+    public boolean isCancelRequested() {
+        return status == Status.CANCELLED;
+    }
+
+    /**
+     * @return true if the job has been started in the current thread, false if it was cancelled while queued
+     */
+    synchronized boolean start() {
+        if (status != Status.QUEUED)
+            return false;
+        status = Status.RUNNING;
+        started = System.currentTimeMillis();
+        return true;
+    }
+
+    void enterPhase(Phase phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * Called by a running job before each pipeline step, so that it stops once cancelled.
+     *
+     * @throws JATEException if cancellation has been requested
+     */
+    void checkNotCancelled() throws JATEException {
+        if (isCancelRequested())
+            throw new JATEException(String.format("Term recognition job [%s] is cancelled.", id));
+    }
+
+    synchronized void done(List<JATETerm> terms) {
+        if (status == Status.RUNNING) {
+            this.terms = terms;
+            status = Status.DONE;
+        }
+        finish();
+    }
+
+    synchronized void failed(String error) {
+        if (isActive()) {
+            this.error = error;
+            status = Status.FAILED;
+        }
+        finish();
+    }
+
+    private void finish() {
+        finished = System.currentTimeMillis();
+    }
+
+    /**
+     * Requests cancellation. A queued job never starts. A running job is not interrupted, as an interrupt during
+     * Lucene I/O closes the index channels it hits; it stops before its next pipeline step (see
+     * {@link #checkNotCancelled()}), and in particular does not start indexing terms once cancelled.
+     *
+     * @return true if the job was still active
+     */
+    synchronized boolean cancel() {
+        if (!isActive())
+            return false;
+        status = Status.CANCELLED;
+        return true;
+    }
+}
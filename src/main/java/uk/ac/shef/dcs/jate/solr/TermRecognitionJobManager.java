@@ -0,0 +1,208 @@
+package uk.ac.shef.dcs.jate.solr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.solr.common.SolrException;
+import org.apache.solr.core.SolrCore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.shef.dcs.jate.model.JATETerm;
+
+/**
+ * Runs asynchronous term recognition jobs of a {@link TermRecognitionRequestHandler} on a bounded executor.
+ * <p>
+ * At most {@code threads} jobs run at a time and at most {@code queueSize} wait; further submissions are rejected
+ * with {@code 503 Service Unavailable}. A job submitted while an identical job (same core and run-time settings, see
+ * {@link TermRecognitionJob#getKey()}) is queued or running is coalesced into the existing one. The last
+ * {@code retainedJobs} finished jobs are kept for {@code expiryMillis} so that their status and result can be
+ * retrieved.
+ */
+public class TermRecognitionJobManager {
+    private static final Logger log = LoggerFactory.getLogger(TermRecognitionJobManager.class);
+
+    public static final int DEFAULT_THREADS = 1;
+    public static final int DEFAULT_QUEUE_SIZE = 16;
+    public static final int DEFAULT_RETAINED_JOBS = 32;
+    public static final long DEFAULT_JOB_EXPIRY_SECONDS = 3600;
+
+    /**
+     * The pipeline run by a job on its core
+     */
+    interface JobBody {
+        List<JATETerm> run(TermRecognitionJob job, SolrCore core) throws Exception;
+    }
+
+    private final JobBody body;
+    private final ThreadPoolExecutor executor;
+    private final int retainedJobs;
+    private final long expiryMillis;
+
+    //guarded by this; in submission order
+    private final Map<String, TermRecognitionJob> jobs = new LinkedHashMap<>();
+    private final Map<String, TermRecognitionJob> activeJobsByKey = new HashMap<>();
+
+    public TermRecognitionJobManager(TermRecognitionRequestHandler handler, int threads, int queueSize,
+                                     int retainedJobs, long expiryMillis) {
+        this(handler::runAsyncJob, threads, queueSize, retainedJobs, expiryMillis);
+    }
+
+    TermRecognitionJobManager(JobBody body, int threads, int queueSize, int retainedJobs, long expiryMillis) {
+        this.body = body;
+        this.retainedJobs = retainedJobs;
+        this.expiryMillis = expiryMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "jate-tr-job-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory);
+    }
+
+    public static String newJobId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Queue a job unless an identical one is active.
+     *
+     * @param job  new job
+     * @param core the core the job runs on; it is kept open until the job finishes. Null only for a job body that
+     *             does not use it
+     * @return the given job, or the active job it has been coalesced into
+     */
+    public synchronized TermRecognitionJob submit(TermRecognitionJob job, SolrCore core) {
+        TermRecognitionJob active = activeJobsByKey.get(job.getKey());
+        if (active != null && active.isActive()) {
+            log.info(String.format("term recognition job [%s] coalesced into active job [%s]", job.getId(),
+                    active.getId()));
+            return active;
+        }
+
+        if (core != null)
+            core.open();
+        try {
+            executor.execute(() -> run(job, core));
+        } catch (RejectedExecutionException e) {
+            if (core != null)
+                core.close();
+            throw new SolrException(SolrException.ErrorCode.SERVICE_UNAVAILABLE,
+                    String.format("Too many term recognition jobs queued (%s). Please retry later.",
+                            executor.getQueue().size()));
+        }
+        jobs.put(job.getId(), job);
+        activeJobsByKey.put(job.getKey(), job);
+        log.info(String.format("term recognition job [%s] queued for core [%s]", job.getId(), job.getCoreName()));
+        return job;
+    }
+
+    private void run(TermRecognitionJob job, SolrCore core) {
+        try {
+            if (!job.start()) {
+                job.done(null);
+                return;
+            }
+            log.info(String.format("term recognition job [%s] started", job.getId()));
+            List<JATETerm> terms = body.run(job, core);
+            job.done(terms);
+            log.info(String.format("term recognition job [%s] finished with status [%s]", job.getId(),
+                    job.getStatus()));
+        } catch (Throwable e) {
+            if (job.isCancelRequested()) {
+                job.done(null);
+                log.info(String.format("term recognition job [%s] cancelled", job.getId()));
+            } else {
+                job.failed(e.toString());
+                log.error(String.format("term recognition job [%s] failed", job.getId()), e);
+            }
+        } finally {
+            retire(job);
+            if (core != null)
+                core.close();
+        }
+    }
+
+    private synchronized void retire(TermRecognitionJob job) {
+        activeJobsByKey.remove(job.getKey(), job);
+        evictFinishedJobs();
+    }
+
+    //evicts the oldest finished jobs beyond retainedJobs, and those finished for longer than expiryMillis
+    private void evictFinishedJobs() {
+        long expired = System.currentTimeMillis() - expiryMillis;
+        int finished = 0;
+        for (TermRecognitionJob j : jobs.values()) {
+            if (isFinished(j))
+                finished++;
+        }
+        Iterator<TermRecognitionJob> it = jobs.values().iterator();
+        while (it.hasNext()) {
+            TermRecognitionJob j = it.next();
+            if (!isFinished(j))
+                continue;
+            if (finished > retainedJobs || j.getFinished() < expired) {
+                it.remove();
+                finished--;
+            }
+        }
+    }
+
+    //a job cancelled while queued is finished once its run has released its core
+    private static boolean isFinished(TermRecognitionJob job) {
+        return !job.isActive() && job.getFinished() > 0;
+    }
+
+    /**
+     * @return the job, or null if the id is unknown or the job has been evicted
+     */
+    public synchronized TermRecognitionJob getJob(String jobId) {
+        evictFinishedJobs();
+        return jobs.get(jobId);
+    }
+
+    /**
+     * @return the job, or null if the id is unknown or the job has been evicted
+     */
+    public TermRecognitionJob cancel(String jobId) {
+        TermRecognitionJob job = getJob(jobId);
+        if (job != null && job.cancel())
+            log.info(String.format("term recognition job [%s] cancel requested", jobId));
+        return job;
+    }
+
+    /**
+     * Cancel all active jobs and stop the executor, e.g., when the core is closed.
+     */
+    public void shutdown() {
+        List<TermRecognitionJob> active = new ArrayList<>();
+        synchronized (this) {
+            for (TermRecognitionJob job : jobs.values()) {
+                if (job.isActive())
+                    active.add(job);
+            }
+        }
+        for (TermRecognitionJob job : active)
+            job.cancel();
+        //queued jobs are cancelled by now; running them only releases their core. Running jobs are not interrupted
+        //(see TermRecognitionJob#cancel) but stop at their next step
+        List<Runnable> queued = new ArrayList<>();
+        executor.getQueue().drainTo(queued);
+        executor.shutdown();
+        for (Runnable r : queued)
+            r.run();
+    }
+}
@@ -24,6 +24,7 @@ public class TermRecognitionProcessorFactory {
         processors.add(new TTFProcessor());
         processors.add(new WeirdnessProcessor());
         processors.add(new RIDFProcessor());
+        processors.add(new EnsembleProcessor());
 
         return termRecognitionProcessor;
     }
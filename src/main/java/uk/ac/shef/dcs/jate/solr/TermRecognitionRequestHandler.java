@@ -2,9 +2,12 @@ package uk.ac.shef.dcs.jate.solr;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
@@ -13,25 +16,38 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.MapSolrParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.Pair;
+import org.apache.solr.core.CloseHook;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.handler.RequestHandlerBase;
+import org.apache.solr.request.LocalSolrQueryRequest;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.schema.CopyField;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.update.CommitUpdateCommand;
+import org.apache.solr.util.RefCounted;
+import org.apache.solr.util.plugin.SolrCoreAware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
 import uk.ac.shef.dcs.jate.JATEException;
 import uk.ac.shef.dcs.jate.JATEProperties;
 import uk.ac.shef.dcs.jate.app.App;
 import uk.ac.shef.dcs.jate.app.AppParams;
+import uk.ac.shef.dcs.jate.feature.FeatureCache;
+import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
+import uk.ac.shef.dcs.jate.feature.FrequencyTermBasedFBMaster;
+import uk.ac.shef.dcs.jate.feature.FrequencyTermBasedMerger;
 import uk.ac.shef.dcs.jate.model.JATETerm;
 import uk.ac.shef.dcs.jate.util.SolrUtil;
 
@@ -69,8 +85,15 @@ import uk.ac.shef.dcs.jate.util.SolrUtil;
  * </lst>
  * </requestHandler>
  * }
+ * </pre>
+ * <p>
+ * 3. long running recognition can be run in the background with 'async=true', which returns a job id at once.
+ * The job is then polled with 'jobAction=status|result|cancel&amp;jobId=...'.
+ * <p>
+ * 4. on a sharded collection, 'distributed=true' ranks terms from the merged statistics of all shards, see
+ * {@link DistributedTermRecognition}.
  */
-public class TermRecognitionRequestHandler extends RequestHandlerBase {
+public class TermRecognitionRequestHandler extends RequestHandlerBase implements SolrCoreAware {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     /**
@@ -78,7 +101,8 @@ public class TermRecognitionRequestHandler extends RequestHandlerBase {
      */
     public static enum Algorithm {
         C_VALUE("CValue"), ATTF("ATTF"), CHI_SQUARE("ChiSquare"), GLOSSEX("GlossEx"), RAKE(
-                "RAKE"), RIDF("RIDF"), TERM_EX("TermEx"), TF_IDF("TTF-IDF"), TTF("TTF"), WEIRDNESS("Weirdness");
+                "RAKE"), RIDF("RIDF"), TERM_EX("TermEx"), TF_IDF("TTF-IDF"), TTF("TTF"), WEIRDNESS("Weirdness"),
+        ENSEMBLE("Ensemble");
 
         private final String algorithmName;
 
@@ -196,10 +220,130 @@ public class TermRecognitionRequestHandler extends RequestHandlerBase {
      */
     public static final String REFERENCE_FREQUENCY_FILE = AppParams.REFERENCE_FREQUENCY_FILE.getParamKey();
 
+    /**
+     * Algorithms combined by the "Ensemble" algorithm, comma separated and optionally weighted, e.g.,
+     * "CValue,RAKE:0.5,Weirdness"
+     *
+     * @see uk.ac.shef.dcs.jate.app.AppEnsemble
+     */
+    public static final String ENSEMBLE_ALGORITHMS = AppParams.ENSEMBLE_ALGORITHMS.getParamKey();
+
+    /**
+     * How the "Ensemble" algorithm combines member rankings, 'rank' (default) or 'zscore'
+     *
+     * @see uk.ac.shef.dcs.jate.app.AppEnsemble
+     */
+    public static final String ENSEMBLE_COMBINATION = AppParams.ENSEMBLE_COMBINATION.getParamKey();
+
+    /**
+     * Directory to spill the co-occurrence matrix of "ChiSquare" to, rather than keeping it in memory
+     *
+     * @see uk.ac.shef.dcs.jate.feature.SpilledCooccurrence
+     */
+    public static final String COOCCURRENCE_SPILL_DIR = AppParams.COOCCURRENCE_SPILL_DIR.getParamKey();
+
+    /**
+     * ChiSquare only: relative error of approximate co-occurrence counts, within (0,1). If set, co-occurrences are
+     * counted in a Count-Min sketch of fixed size rather than a matrix.
+     *
+     * @see uk.ac.shef.dcs.jate.feature.CountMinCooccurrence
+     */
+    public static final String COOCCURRENCE_SKETCH_EPSILON = AppParams.COOCCURRENCE_SKETCH_EPSILON.getParamKey();
+
+    /**
+     * ChiSquare only: probability that the error of an approximate co-occurrence count exceeds its bound, within
+     * (0,1). Default is 0.01.
+     */
+    public static final String COOCCURRENCE_SKETCH_DELTA = AppParams.COOCCURRENCE_SKETCH_DELTA.getParamKey();
+
+    /**
+     * Boolean flag to run term recognition as a background job. The response returns the job id at once, to be
+     * polled with {@link #JOB_ACTION}. A job identical to a queued or running one on the same core is coalesced into
+     * it, and the id of the existing job is returned.
+     */
+    public static final String ASYNC = "async";
+
+    /**
+     * Id of an asynchronous job, as returned when it was submitted
+     */
+    public static final String JOB_ID = "jobId";
+
+    /**
+     * Action on the asynchronous job {@link #JOB_ID}: 'status' (status, current pipeline phase and elapsed time),
+     * 'result' (final terms and scores of a completed job, the top 'rows' if given) or 'cancel'
+     */
+    public static final String JOB_ACTION = "jobAction";
+    public static final String JOB_ACTION_STATUS = "status";
+    public static final String JOB_ACTION_RESULT = "result";
+    public static final String JOB_ACTION_CANCEL = "cancel";
+
+    /**
+     * Optional handler init args bounding asynchronous jobs: number of jobs run at a time (default 1), number of
+     * jobs allowed to wait (default 16), number of finished jobs kept for status and result requests (default 32),
+     * and the number of seconds a finished job is kept (default 3600)
+     */
+    public static final String ASYNC_THREADS = "asyncThreads";
+    public static final String ASYNC_QUEUE_SIZE = "asyncQueueSize";
+    public static final String ASYNC_RETAINED_JOBS = "asyncRetainedJobs";
+    public static final String ASYNC_JOB_EXPIRY = "asyncJobExpiry";
+
+    /**
+     * Optional handler init arg: maximum number of ranked term lists cached across requests (default 64, 0 disables)
+     *
+     * @see TermRecognitionResultCache
+     */
+    public static final String RESULT_CACHE_SIZE = "resultCacheSize";
+
+    /**
+     * Optional handler init arg: maximum estimated number of entries (terms, words, contexts) held by features
+     * cached across algorithms and requests against the same index reader (default 20M, 0 disables)
+     *
+     * @see uk.ac.shef.dcs.jate.feature.FeatureCache
+     */
+    public static final String FEATURE_CACHE_SIZE = "featureCacheSize";
+
+    /**
+     * Boolean flag to rank terms from the statistics of all shards of the collection rather than of the local core
+     * only. Shards are the leaders of the collection in SolrCloud mode, or given by {@link #SHARDS}.
+     * <p>
+     * Candidates must already be extracted on every shard: a distributed request with {@link #CANDIDATE_EXTRACTION}
+     * is rejected. ChiSquare is not supported, as its co-occurrence statistics are not merged across shards.
+     *
+     * @see DistributedTermRecognition
+     */
+    public static final String DISTRIBUTED = "distributed";
+
+    /**
+     * Optional comma separated core URLs of the shards of a distributed request, e.g.,
+     * "localhost:8983/solr/shard1,localhost:7574/solr/shard2"
+     */
+    public static final String SHARDS = "shards";
+
+    /**
+     * Optional path of this handler on the shards of a distributed request (default "/termRecogniser")
+     */
+    public static final String SHARDS_QT = "shards.qt";
+
+    /**
+     * Internal shard request of a distributed request: return the partial term frequencies of the local core
+     * (and of words too if {@link #SHARD_WORDS} is true) instead of ranking terms
+     */
+    public static final String SHARD_STATS = "shardStats";
+    public static final String SHARD_WORDS = "shardWords";
+    public static final String SHARD_STATS_TERMS = "terms";
+    public static final String SHARD_STATS_WORDS = "words";
+
+    /**
+     * Internal shard request of a distributed request: index the given final terms (JSON) into the local core
+     */
+    public static final String SHARD_TERMS = "shardTerms";
+
     public static final Float DEFAULT_BOOST_VALUE = 1.0F;
 
     private final TermRecognitionProcessor generalTRProcessor;
 
+    private TermRecognitionJobManager jobManager;
+
     public TermRecognitionRequestHandler() {
         generalTRProcessor = TermRecognitionProcessorFactory.createTermRecognitionProcessor();
     }
@@ -209,6 +353,21 @@ public class TermRecognitionRequestHandler extends RequestHandlerBase {
         log.info("Term recognition request handler...");
         setTopInitArgsAsInvariants(req);
 
+        final String jobAction = req.getParams().get(JOB_ACTION);
+        if (jobAction != null) {
+            handleJobAction(jobAction, req, rsp);
+            return;
+        }
+
+        if (req.getParams().getBool(SHARD_STATS, false)) {
+            handleShardStats(req, rsp);
+            return;
+        }
+        if (req.getParams().get(SHARD_TERMS) != null) {
+            handleShardTerms(req);
+            return;
+        }
+
         final String jatePropertyFile = req.getParams().get(JATE_PROPERTY_FILE);
         final String algorithmName = req.getParams().get(TERM_RANKING_ALGORITHM);
         final Boolean isExtraction = req.getParams().getBool(CANDIDATE_EXTRACTION);
@@ -219,38 +378,248 @@ public class TermRecognitionRequestHandler extends RequestHandlerBase {
         final Algorithm algorithm = getAlgorithm(algorithmName);
 
         JATEProperties properties = App.getJateProperties(jatePropertyFile);
+        Map<String, String> trRunTimeParams = initialiseTRRunTimeParams(req);
+
+        final SolrCore core = req.getCore();
+        if (req.getParams().getBool(DISTRIBUTED, false)) {
+            if (Boolean.TRUE.equals(isExtraction)) {
+                throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, String.format(
+                        "'%s' is not supported with '%s': extract candidates on every shard first, then rank them " +
+                                "in a distributed request.", CANDIDATE_EXTRACTION, DISTRIBUTED));
+            }
+            DistributedTermRecognition distributed = new DistributedTermRecognition(
+                    DistributedTermRecognition.getShardUrls(core, req.getParams().get(SHARDS)),
+                    req.getParams().get(SHARDS_QT, DistributedTermRecognition.DEFAULT_HANDLER_PATH));
+            List<JATETerm> termList = distributed.rank(algorithm, jatePropertyFile, properties, trRunTimeParams);
+            log.info(String.format("complete distributed term recognition! Finalized Term size [%s]",
+                    termList.size()));
+            if (isExport(outFilePath)) {
+                App.write(termList, outFilePath);
+            }
+            if (isIndexTerms) {
+                log.info("start to index filtered candidate terms on all shards ...");
+                distributed.indexTerms(termList, jatePropertyFile, isBoosted);
+            }
+            rsp.add("numTerms", termList.size());
+            addTerms(rsp, termList, req.getParams().getInt(CommonParams.ROWS, 0));
+            return;
+        }
 
-        final SolrIndexSearcher searcher = req.getSearcher();
+        String jobKey = getJobKey(core.getName(), algorithm, jatePropertyFile, trRunTimeParams, isExtraction,
+                isIndexTerms, isBoosted, outFilePath);
+        TermRecognitionJob job = new TermRecognitionJob(TermRecognitionJobManager.newJobId(), core.getName(),
+                jobKey, algorithm, jatePropertyFile, properties, trRunTimeParams, isExtraction, isIndexTerms,
+                isBoosted, outFilePath);
+
+        if (req.getParams().getBool(ASYNC, false)) {
+            TermRecognitionJob submitted = jobManager.submit(job, core);
+            rsp.add(JOB_ID, submitted.getId());
+            rsp.add("status", submitted.getStatus().toString());
+            rsp.add("coalesced", submitted != job);
+            return;
+        }
+
+        //the searcher of the request is released when the request is closed
+        job.start();
+        List<JATETerm> termList = runJob(job, req.getSearcher(), generalTRProcessor, req);
+        job.done(termList);
+    }
+
+    /**
+     * Run the term recognition pipeline of an asynchronous job with its own searcher, processors and update request,
+     * as the request that submitted it may have completed.
+     *
+     * @see TermRecognitionJobManager
+     */
+    List<JATETerm> runAsyncJob(TermRecognitionJob job, SolrCore core) throws Exception {
+        RefCounted<SolrIndexSearcher> searcherRef = core.getSearcher();
+        SolrQueryRequest jobReq = new LocalSolrQueryRequest(core, new ModifiableSolrParams());
         try {
-	        if (isExtraction) {
-	            log.info("start candidate extraction (i.e., re-index of whole corpus) ...");
-	            generalTRProcessor.candidateExtraction(searcher.getCore(), jatePropertyFile);
-	            log.info("complete candidate terms indexing.");
-	        }
-	
-	        Map<String, String> trRunTimeParams = initialiseTRRunTimeParams(req);
-	        List<JATETerm> termList = generalTRProcessor.rankingAndFiltering(searcher.getCore(), jatePropertyFile, trRunTimeParams,
-	                algorithm);
-	
-	        log.info(String.format("complete term recognition extraction! Finalized Term size [%s]", termList.size()));
-	
-	        if (isExport(outFilePath)) {
-	            generalTRProcessor.export(termList);
-	        }
-	
-	        if (isIndexTerms) {
-	            log.info("start to index filtered candidate terms ...");
-	            indexTerms(termList, properties, searcher, isBoosted, isExtraction);
-	            //trigger 'optimise' to build new index
-	            searcher.getCore().getUpdateHandler().commit(new CommitUpdateCommand(req, true));
-	            log.info("complete the indexing of candidate terms.");
-	
-	        }
+            return runJob(job, searcherRef.get(), TermRecognitionProcessorFactory.createTermRecognitionProcessor(),
+                    jobReq);
         } finally {
-        	searcher.close();
+            jobReq.close();
+            searcherRef.decref();
+        }
+    }
+
+    private List<JATETerm> runJob(TermRecognitionJob job, SolrIndexSearcher searcher,
+                                  TermRecognitionProcessor trProcessor, SolrQueryRequest req) throws Exception {
+        if (job.isExtraction) {
+            job.checkNotCancelled();
+            job.enterPhase(TermRecognitionJob.Phase.CANDIDATE_EXTRACTION);
+            log.info("start candidate extraction (i.e., re-index of whole corpus) ...");
+            trProcessor.candidateExtraction(searcher.getCore(), job.jatePropertyFile);
+            log.info("complete candidate terms indexing.");
+        }
+
+        job.checkNotCancelled();
+        job.enterPhase(TermRecognitionJob.Phase.RANKING_AND_FILTERING);
+        List<JATETerm> termList = trProcessor.rankingAndFiltering(searcher.getCore(), job.jatePropertyFile,
+                job.trRunTimeParams, job.algorithm);
+
+        log.info(String.format("complete term recognition extraction! Finalized Term size [%s]", termList.size()));
+
+        if (isExport(job.outFilePath)) {
+            job.checkNotCancelled();
+            job.enterPhase(TermRecognitionJob.Phase.EXPORT);
+            trProcessor.export(termList);
+        }
+
+        if (job.isIndexTerms) {
+            job.checkNotCancelled();
+            job.enterPhase(TermRecognitionJob.Phase.INDEXING);
+            log.info("start to index filtered candidate terms ...");
+            //hold the core while its index writer is in use, as an async job may outlive its request
+            SolrCore core = searcher.getCore();
+            core.open();
+            try {
+                indexTerms(termList, job.properties, searcher, job.isBoosted, job.isExtraction);
+            } finally {
+                core.close();
+            }
+            //trigger 'optimise' to build new index
+            searcher.getCore().getUpdateHandler().commit(new CommitUpdateCommand(req, true));
+            log.info("complete the indexing of candidate terms.");
+
+        }
+        return termList;
+    }
+
+    private String getJobKey(String coreName, Algorithm algorithm, String jatePropertyFile,
+                             Map<String, String> trRunTimeParams, boolean isExtraction, boolean isIndexTerms,
+                             boolean isBoosted, String outFilePath) {
+        StringBuilder key = new StringBuilder(coreName);
+        key.append("|").append(algorithm.getAlgorithmName()).append("|").append(jatePropertyFile)
+                .append("|").append(new TreeMap<>(trRunTimeParams)).append("|").append(isExtraction)
+                .append("|").append(isIndexTerms).append("|").append(isBoosted).append("|").append(outFilePath);
+        return key.toString();
+    }
+
+    private void handleJobAction(String jobAction, SolrQueryRequest req, SolrQueryResponse rsp) {
+        String jobId = req.getParams().get(JOB_ID);
+        if (StringUtils.isEmpty(jobId)) {
+            throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
+                    String.format("'%s' is required for job action [%s].", JOB_ID, jobAction));
+        }
+
+        TermRecognitionJob job;
+        if (JOB_ACTION_CANCEL.equalsIgnoreCase(jobAction)) {
+            job = jobManager.cancel(jobId);
+        } else if (JOB_ACTION_STATUS.equalsIgnoreCase(jobAction) || JOB_ACTION_RESULT.equalsIgnoreCase(jobAction)) {
+            job = jobManager.getJob(jobId);
+        } else {
+            throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
+                    String.format("Job action [%s] is not supported. Expected '%s', '%s' or '%s'.", jobAction,
+                            JOB_ACTION_STATUS, JOB_ACTION_RESULT, JOB_ACTION_CANCEL));
+        }
+        if (job == null) {
+            throw new SolrException(SolrException.ErrorCode.NOT_FOUND,
+                    String.format("Term recognition job [%s] is unknown or has been evicted.", jobId));
+        }
+
+        rsp.add(JOB_ID, job.getId());
+        rsp.add("core", job.getCoreName());
+        rsp.add("algorithm", job.algorithm.getAlgorithmName());
+        rsp.add("status", job.getStatus().toString());
+        if (job.getPhase() != null)
+            rsp.add("phase", job.getPhase().toString());
+        rsp.add("submitted", new Date(job.getSubmitted()));
+        if (job.getStarted() > 0) {
+            long end = job.getFinished() > 0 ? job.getFinished() : System.currentTimeMillis();
+            rsp.add("elapsedMs", end - job.getStarted());
+        }
+        if (job.getError() != null)
+            rsp.add("error", job.getError());
+        List<JATETerm> terms = job.getTerms();
+        if (terms != null)
+            rsp.add("numTerms", terms.size());
+
+        if (JOB_ACTION_RESULT.equalsIgnoreCase(jobAction)) {
+            if (terms == null) {
+                throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
+                        String.format("Term recognition job [%s] has no result, its status is [%s].", jobId,
+                                job.getStatus()));
+            }
+            addTerms(rsp, terms, req.getParams().getInt(CommonParams.ROWS, terms.size()));
         }
     }
 
+    private void addTerms(SolrQueryResponse rsp, List<JATETerm> terms, int rows) {
+        if (rows <= 0)
+            return;
+        NamedList<Double> ranked = new NamedList<>();
+        for (JATETerm term : terms.subList(0, Math.min(rows, terms.size())))
+            ranked.add(term.getString(), term.getScore());
+        rsp.add("terms", ranked);
+    }
+
+    /**
+     * Partial term (and word) frequencies of the local core for a distributed request
+     *
+     * @see DistributedTermRecognition
+     */
+    private void handleShardStats(SolrQueryRequest req, SolrQueryResponse rsp) throws JATEException {
+        JATEProperties properties = App.getJateProperties(req.getParams().get(JATE_PROPERTY_FILE));
+        SolrIndexSearcher searcher = req.getSearcher();
+        FrequencyTermBased terms = (FrequencyTermBased) FeatureCache.build(
+                new FrequencyTermBasedFBMaster(searcher, properties, 0));
+        rsp.add("maxDoc", searcher.maxDoc());
+        rsp.add(SHARD_STATS_TERMS, FrequencyTermBasedMerger.encode(terms, searcher.maxDoc()));
+        if (req.getParams().getBool(SHARD_WORDS, false)) {
+            FrequencyTermBased words = (FrequencyTermBased) FeatureCache.build(
+                    new FrequencyTermBasedFBMaster(searcher, properties, 1));
+            rsp.add(SHARD_STATS_WORDS, FrequencyTermBasedMerger.encode(words, searcher.maxDoc()));
+        }
+    }
+
+    /**
+     * Index the final terms of a distributed request into the documents of the local core
+     *
+     * @see DistributedTermRecognition
+     */
+    private void handleShardTerms(SolrQueryRequest req) throws JATEException, IOException {
+        JATEProperties properties = App.getJateProperties(req.getParams().get(JATE_PROPERTY_FILE));
+        List<JATETerm> terms = new Gson().fromJson(req.getParams().get(SHARD_TERMS),
+                new TypeToken<List<JATETerm>>() {
+                }.getType());
+        SolrCore core = req.getCore();
+        core.open();
+        try {
+            indexTerms(terms, properties, req.getSearcher(), req.getParams().getBool(BOOSTING, false), false);
+            core.getUpdateHandler().commit(new CommitUpdateCommand(req, true));
+        } finally {
+            core.close();
+        }
+    }
+
+    @Override
+    public void inform(SolrCore core) {
+        SolrParams args = SolrParams.toSolrParams(initArgs);
+        jobManager = new TermRecognitionJobManager(this,
+                args.getInt(ASYNC_THREADS, TermRecognitionJobManager.DEFAULT_THREADS),
+                args.getInt(ASYNC_QUEUE_SIZE, TermRecognitionJobManager.DEFAULT_QUEUE_SIZE),
+                args.getInt(ASYNC_RETAINED_JOBS, TermRecognitionJobManager.DEFAULT_RETAINED_JOBS),
+                TimeUnit.SECONDS.toMillis(args.getLong(ASYNC_JOB_EXPIRY,
+                        TermRecognitionJobManager.DEFAULT_JOB_EXPIRY_SECONDS)));
+        Integer resultCacheSize = args.getInt(RESULT_CACHE_SIZE);
+        if (resultCacheSize != null)
+            TermRecognitionResultCache.getInstance().setMaxEntries(resultCacheSize);
+        Long featureCacheSize = args.getLong(FEATURE_CACHE_SIZE);
+        if (featureCacheSize != null)
+            FeatureCache.getInstance().setMaxWeight(featureCacheSize);
+        core.addCloseHook(new CloseHook() {
+            @Override
+            public void preClose(SolrCore core) {
+                jobManager.shutdown();
+            }
+
+            @Override
+            public void postClose(SolrCore core) {
+            }
+        });
+    }
+
     private boolean isExport(String outFilePath) {
         return outFilePath != null && StringUtils.isNotEmpty(outFilePath);
     }
@@ -304,6 +673,31 @@ public class TermRecognitionRequestHandler extends RequestHandlerBase {
             trRunTimeParams.put(AppParams.REFERENCE_FREQUENCY_FILE.getParamKey(), unigramFreqFile);
         }
 
+        String ensembleAlgorithms = req.getParams().get(ENSEMBLE_ALGORITHMS);
+        if (ensembleAlgorithms != null) {
+            trRunTimeParams.put(AppParams.ENSEMBLE_ALGORITHMS.getParamKey(), ensembleAlgorithms);
+        }
+
+        String ensembleCombination = req.getParams().get(ENSEMBLE_COMBINATION);
+        if (ensembleCombination != null) {
+            trRunTimeParams.put(AppParams.ENSEMBLE_COMBINATION.getParamKey(), ensembleCombination);
+        }
+
+        String cooccurrenceSpillDir = req.getParams().get(COOCCURRENCE_SPILL_DIR);
+        if (cooccurrenceSpillDir != null) {
+            trRunTimeParams.put(AppParams.COOCCURRENCE_SPILL_DIR.getParamKey(), cooccurrenceSpillDir);
+        }
+
+        String cooccurrenceSketchEpsilon = req.getParams().get(COOCCURRENCE_SKETCH_EPSILON);
+        if (cooccurrenceSketchEpsilon != null) {
+            trRunTimeParams.put(AppParams.COOCCURRENCE_SKETCH_EPSILON.getParamKey(), cooccurrenceSketchEpsilon);
+        }
+
+        String cooccurrenceSketchDelta = req.getParams().get(COOCCURRENCE_SKETCH_DELTA);
+        if (cooccurrenceSketchDelta != null) {
+            trRunTimeParams.put(AppParams.COOCCURRENCE_SKETCH_DELTA.getParamKey(), cooccurrenceSketchDelta);
+        }
+
         String outputFile = req.getParams().get(AppParams.OUTPUT_FILE.getParamKey());
         if (outputFile != null) {
             trRunTimeParams.put(AppParams.OUTPUT_FILE.getParamKey(), outputFile);
@@ -324,7 +718,8 @@ public class TermRecognitionRequestHandler extends RequestHandlerBase {
     }
 
     /**
-     * Index weighted & filtered final terms back into Solr
+     * Index weighted & filtered final terms back into Solr. The core of the searcher is not closed: callers that
+     * need it to stay open while terms are indexed hold their own reference to it.
      *
      * @param filteredTerms   filtered JATE terms
      * @param jateProperties  jate properties for integration config between jate2.0 and solr instance
@@ -347,9 +742,10 @@ public class TermRecognitionRequestHandler extends RequestHandlerBase {
         SolrCore core = indexSearcher.getCore();
        
         IndexSchema indexSchema = core.getLatestSchema();
-        IndexWriter writerIn = null;
+        RefCounted<IndexWriter> writerRef = null;
         try {
-            writerIn = core.getSolrCoreState().getIndexWriter(core).get();
+            writerRef = core.getSolrCoreState().getIndexWriter(core);
+            IndexWriter writerIn = writerRef.get();
 
             Map<String, List<CopyField>> copyFields = indexSchema.getCopyFieldsMap();
 
@@ -394,15 +790,8 @@ public class TermRecognitionRequestHandler extends RequestHandlerBase {
             throw new JATEException(String.format("Failed to index filtered domain terms due to I/O exception when " +
                     "loading solr index writer: %s", ioe.toString()));
         } finally {
-        	if (writerIn != null) {
-        		try {
-					writerIn.close();
-				} catch (IOException e) {
-					log.error(e.toString());
-				}
-        	}
-        	if (core != null) {
-        		core.close();
+        	if (writerRef != null) {
+        		writerRef.decref();
         	}
         }
         log.info(String.format("finalised terms have been indexed into [%s] field for all documents",
@@ -524,6 +913,10 @@ public class TermRecognitionRequestHandler extends RequestHandlerBase {
             log.debug(String.format("[%s] algorithm is set to rank term candidates. ",
                     Algorithm.WEIRDNESS.getAlgorithmName()));
             return Algorithm.WEIRDNESS;
+        } else if (algName.equalsIgnoreCase(Algorithm.ENSEMBLE.getAlgorithmName())) {
+            log.debug(String.format("[%s] algorithm is set to rank term candidates. ",
+                    Algorithm.ENSEMBLE.getAlgorithmName()));
+            return Algorithm.ENSEMBLE;
         } else {
             throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
                     String.format("Current algorithm [%s] is not supported. Please check API documentation for all " +
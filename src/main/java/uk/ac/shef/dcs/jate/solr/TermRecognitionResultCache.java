@@ -0,0 +1,116 @@
+package uk.ac.shef.dcs.jate.solr;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.shef.dcs.jate.app.AppParams;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+import uk.ac.shef.dcs.jate.solr.TermRecognitionRequestHandler.Algorithm;
+
+/**
+ * Size bounded, least recently used cache of ranked and filtered terms, shared by all term recognition processors.
+ * <p>
+ * Results are keyed by core, index version, algorithm, JATE property file and the normalised (sorted) run-time
+ * parameters, so a commit to the index naturally invalidates them. The last modified times of the property file and
+ * of the reference frequency file (if any) are part of the key, as the results depend on their content.
+ * <p>
+ * Cached lists are copied in and out; the terms themselves are shared and must be treated as read-only.
+ */
+public class TermRecognitionResultCache {
+    private static final Logger log = LoggerFactory.getLogger(TermRecognitionResultCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    private static final TermRecognitionResultCache INSTANCE = new TermRecognitionResultCache(DEFAULT_MAX_ENTRIES);
+
+    private int maxEntries;
+    private long hits = 0, misses = 0;
+    private final LinkedHashMap<String, List<JATETerm>> entries = new LinkedHashMap<String, List<JATETerm>>(16,
+            0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<JATETerm>> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    TermRecognitionResultCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public static TermRecognitionResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param maxEntries maximum number of cached results; 0 disables caching
+     */
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        while (entries.size() > maxEntries)
+            entries.remove(entries.keySet().iterator().next());
+    }
+
+    /**
+     * @return cache key of a ranking request against the current searcher of the core
+     */
+    public static String createKey(SolrCore core, String jatePropertyFile, Map<String, String> params,
+                                   Algorithm algorithm) {
+        long indexVersion;
+        RefCounted<SolrIndexSearcher> searcher = core.getSearcher();
+        try {
+            indexVersion = searcher.get().getIndexReader().getVersion();
+        } finally {
+            searcher.decref();
+        }
+
+        StringBuilder key = new StringBuilder(core.getName());
+        key.append("|").append(indexVersion).append("|").append(algorithm.getAlgorithmName())
+                .append("|").append(jatePropertyFile).append("@").append(lastModified(jatePropertyFile))
+                .append("|").append(new TreeMap<>(params));
+        String refFile = params.get(AppParams.REFERENCE_FREQUENCY_FILE.getParamKey());
+        if (refFile != null)
+            key.append("@").append(lastModified(refFile));
+        return key.toString();
+    }
+
+    private static long lastModified(String file) {
+        return file == null ? 0 : new File(file).lastModified();
+    }
+
+    /**
+     * @return a copy of the cached terms, or null if not cached
+     */
+    public synchronized List<JATETerm> get(String key) {
+        List<JATETerm> terms = entries.get(key);
+        if (terms == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        log.debug(String.format("term recognition result cache hit (hits=%s, misses=%s)", hits, misses));
+        return new ArrayList<>(terms);
+    }
+
+    public synchronized void put(String key, List<JATETerm> terms) {
+        if (maxEntries > 0)
+            entries.put(key, new ArrayList<>(terms));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -42,6 +42,27 @@ public class SolrUtil {
         }
     }
 
+    /**
+     * Get indexed terms of a field from a single index segment. Unlike
+     * {@link #getTermVector(String, SolrIndexSearcher)}, this does not go through the merged (composite) view of
+     * the index, so feature builders can process segments independently and in parallel.
+     *
+     * @param fieldname field where terms will be retrieved
+     * @param leaf  index segment
+     * @return Terms  terms of the field, or null if no document in this segment has the field
+     * @throws JATEException
+     */
+    public static Terms getTermVector(String fieldname, LeafReaderContext leaf) throws JATEException {
+        try {
+            return leaf.reader().terms(fieldname);
+        } catch (IOException ioe) {
+            StringBuilder sb = new StringBuilder(String.format("Cannot read field: %s from segment %s. Error stacktrack: \n",
+                    fieldname, leaf.ord));
+            sb.append(org.apache.commons.lang.exception.ExceptionUtils.getFullStackTrace(ioe));
+            throw new JATEException(sb.toString());
+        }
+    }
+
     public static void copyFields(Map<String, List<CopyField>> copyFields, float boost, Document doc) {
         for (String sourceField : copyFields.keySet()) {
             List<CopyField> copyFieldList = copyFields.get(sourceField);
@@ -79,7 +100,8 @@ public class SolrUtil {
 
     public static Terms getTermVector(int docId, String fieldname, SolrIndexSearcher solrIndexSearcher) throws JATEException {
         try {
-            Terms vector = solrIndexSearcher.getLeafReader().getTermVector(docId, fieldname);
+            //the top-level reader resolves the segment of the doc directly, without the slow composite wrapper
+            Terms vector = solrIndexSearcher.getIndexReader().getTermVector(docId, fieldname);
 
             return vector;
         } catch (IOException ioe) {
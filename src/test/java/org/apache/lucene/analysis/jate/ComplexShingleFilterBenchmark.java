@@ -0,0 +1,74 @@
+package org.apache.lucene.analysis.jate;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of {@link ComplexShingleFilter} with that of its implementation before its hot path was
+ * made allocation free ({@link LegacyComplexShingleFilter}), configured as in the GENIA testbed schema. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.apache.lucene.analysis.jate.ComplexShingleFilterBenchmark}; add {@code -prof gc} to the JMH
+ * options in {@link #main(String[])} to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComplexShingleFilterBenchmark {
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList("the", "of", "a", "to", "in"));
+
+    @Param({"2", "5"})
+    public int maxTokens;
+
+    private String[] sentences;
+
+    @Setup
+    public void setUp() {
+        sentences = SentenceTokenStream.randomSentences(new Random(42), 500, 30);
+    }
+
+    @Benchmark
+    public int current() throws IOException {
+        return consume(new ComplexShingleFilter(new SentenceTokenStream(sentences),
+                2, maxTokens, 2, 50, true, false, " ", "_",
+                true, true, true, true, true, true, false, STOP_WORDS, true));
+    }
+
+    @Benchmark
+    public int legacy() throws IOException {
+        return consume(new LegacyComplexShingleFilter(new SentenceTokenStream(sentences),
+                2, maxTokens, 2, 50, true, false, " ", "_",
+                true, true, true, true, true, true, false, STOP_WORDS, true));
+    }
+
+    private static int consume(TokenStream ts) throws IOException {
+        CharTermAttribute termAtt = ts.getAttribute(CharTermAttribute.class);
+        int chars = 0;
+        ts.reset();
+        while (ts.incrementToken())
+            chars += termAtt.length();
+        ts.end();
+        ts.close();
+        return chars;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ComplexShingleFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,133 @@
+package org.apache.lucene.analysis.jate;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.*;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+public class ComplexShingleFilterTest {
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList("the", "of", "a"));
+    //tokens recorded for fixed and random sentences and settings, see the header of the file for its format
+    private static final Path RECORDED_TOKENS = Paths.get(System.getProperty("user.dir"), "src", "test", "resource",
+            "analysis", "complex-shingle-filter.txt");
+
+    private static List<String> analyse(TokenStream ts) throws IOException {
+        CharTermAttribute termAtt = ts.getAttribute(CharTermAttribute.class);
+        OffsetAttribute offsetAtt = ts.getAttribute(OffsetAttribute.class);
+        PositionIncrementAttribute posIncrAtt = ts.getAttribute(PositionIncrementAttribute.class);
+        PositionLengthAttribute posLenAtt = ts.getAttribute(PositionLengthAttribute.class);
+        TypeAttribute typeAtt = ts.getAttribute(TypeAttribute.class);
+        PayloadAttribute payloadAtt = ts.getAttribute(PayloadAttribute.class);
+
+        List<String> tokens = new ArrayList<>();
+        ts.reset();
+        while (ts.incrementToken()) {
+            BytesRef payload = payloadAtt.getPayload();
+            tokens.add(termAtt.toString() + "|" + offsetAtt.startOffset() + "-" + offsetAtt.endOffset()
+                    + "|" + posIncrAtt.getPositionIncrement() + "|" + posLenAtt.getPositionLength()
+                    + "|" + typeAtt.type() + "|" + (payload == null ? null : payload.utf8ToString()));
+        }
+        ts.end();
+        tokens.add("end|" + offsetAtt.endOffset());
+        ts.close();
+        return tokens;
+    }
+
+    @Test
+    public void shinglesWithinSentences() throws IOException {
+        TokenStream ts = new ComplexShingleFilter(new SentenceTokenStream("the T cell receptor", "IL-2 gene"),
+                2, 3, 1, 50, true, false, " ", "_",
+                true, true, false, false, false, false, false, STOP_WORDS, true);
+        List<String> terms = new ArrayList<>();
+        CharTermAttribute termAtt = ts.getAttribute(CharTermAttribute.class);
+        ts.reset();
+        while (ts.incrementToken()) {
+            if (termAtt.length() > 0)
+                terms.add(termAtt.toString());
+        }
+        ts.end();
+        ts.close();
+        Assert.assertEquals(Arrays.asList("T", "T cell", "T cell receptor", "cell", "cell receptor", "receptor",
+                "IL-2", "IL-2 gene", "gene"), terms);
+    }
+
+    private static final class RecordedCase {
+        final String[] params;
+        final List<String> sentences = new ArrayList<>();
+        final List<String> tokens = new ArrayList<>();
+
+        RecordedCase(String params) {
+            this.params = params.split(" ");
+        }
+
+        TokenStream create(boolean legacy) {
+            int minTokens = Integer.parseInt(params[0]), maxTokens = Integer.parseInt(params[1]),
+                    minCharLength = Integer.parseInt(params[2]);
+            boolean outputUnigrams = Boolean.parseBoolean(params[3]),
+                    outputUnigramsIfNoShingles = Boolean.parseBoolean(params[4]),
+                    removeStopWords = Boolean.parseBoolean(params[5]),
+                    removeSymbolicTokens = Boolean.parseBoolean(params[6]),
+                    stripAny = Boolean.parseBoolean(params[7]),
+                    stripLeading = Boolean.parseBoolean(params[8]),
+                    stripTrailing = Boolean.parseBoolean(params[9]);
+            TokenStream input = new SentenceTokenStream(sentences.toArray(new String[0]));
+            if (legacy) {
+                return new LegacyComplexShingleFilter(input,
+                        minTokens, maxTokens, minCharLength, 50, outputUnigrams, outputUnigramsIfNoShingles, " ", "_",
+                        removeStopWords, removeStopWords, removeSymbolicTokens, removeSymbolicTokens,
+                        stripLeading, stripTrailing, stripAny, STOP_WORDS, true);
+            }
+            return new ComplexShingleFilter(input,
+                    minTokens, maxTokens, minCharLength, 50, outputUnigrams, outputUnigramsIfNoShingles, " ", "_",
+                    removeStopWords, removeStopWords, removeSymbolicTokens, removeSymbolicTokens,
+                    stripLeading, stripTrailing, stripAny, STOP_WORDS, true);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(params) + " " + sentences;
+        }
+    }
+
+    private static List<RecordedCase> readRecordedCases() throws IOException {
+        List<RecordedCase> cases = new ArrayList<>();
+        RecordedCase recorded = null;
+        for (String line : Files.readAllLines(RECORDED_TOKENS, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            if (line.startsWith("> ")) {
+                recorded = new RecordedCase(line.substring(2));
+                cases.add(recorded);
+            } else if (line.startsWith("< ") && recorded.tokens.isEmpty()) {
+                recorded.sentences.add(line.substring(2));
+            } else {
+                recorded.tokens.add(line);
+            }
+        }
+        return cases;
+    }
+
+    @Test
+    public void sameTokensAsRecorded() throws IOException {
+        List<RecordedCase> cases = readRecordedCases();
+        Assert.assertFalse(cases.isEmpty());
+        for (RecordedCase recorded : cases)
+            Assert.assertEquals(recorded.toString(), recorded.tokens, analyse(recorded.create(false)));
+    }
+
+    //the baseline of ComplexShingleFilterBenchmark must do the same work
+    @Test
+    public void legacySameTokensAsRecorded() throws IOException {
+        for (RecordedCase recorded : readRecordedCases())
+            Assert.assertEquals(recorded.toString(), recorded.tokens, analyse(recorded.create(true)));
+    }
+}
@@ -0,0 +1,72 @@
+package org.apache.lucene.analysis.jate;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.shef.dcs.jate.nlp.Chunker;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Sequences given to a stub chunker by {@link OpenNLPNounPhraseFilter}, with and without chunkPerSentence.
+ */
+public class OpenNLPNounPhraseFilterTest {
+    private static final String[] SENTENCES = {"human protein of cell receptor", "gene", "T cell , alpha-beta protein"};
+
+    //chunks every token on its own, recording the sequences it is given
+    private static class RecordingChunker implements Chunker {
+        private final List<String> sequences = new ArrayList<>();
+
+        @Override
+        public String[] chunk(String[] tokens, String[] posTags) {
+            sequences.add(String.join(" ", tokens));
+            String[] tags = new String[tokens.length];
+            Arrays.fill(tags, getStartTag());
+            return tags;
+        }
+
+        @Override
+        public String getStartTag() {
+            return "B-NP";
+        }
+
+        @Override
+        public String getEndTag() {
+            return "O";
+        }
+
+        @Override
+        public String getContinueTag() {
+            return "I-NP";
+        }
+    }
+
+    private static List<String> candidates(RecordingChunker chunker, boolean chunkPerSentence) throws IOException {
+        TokenStream ts = new OpenNLPNounPhraseFilter(new SentenceTokenStream(SENTENCES), chunker, chunkPerSentence,
+                1, 1, 1, 50, false, false, false, false, false, false, false, Collections.<String>emptySet(), false);
+        CharTermAttribute termAtt = ts.getAttribute(CharTermAttribute.class);
+        List<String> candidates = new ArrayList<>();
+        ts.reset();
+        while (ts.incrementToken()) {
+            if (termAtt.length() > 0)
+                candidates.add(termAtt.toString());
+        }
+        ts.end();
+        ts.close();
+        Collections.sort(candidates);
+        return candidates;
+    }
+
+    @Test
+    public void chunksEachSentenceOrWholeDocument() throws IOException {
+        RecordingChunker perSentence = new RecordingChunker();
+        List<String> expected = candidates(perSentence, true);
+        Assert.assertEquals(Arrays.asList(SENTENCES), perSentence.sequences);
+
+        RecordingChunker wholeDocument = new RecordingChunker();
+        Assert.assertEquals(expected, candidates(wholeDocument, false));
+        Assert.assertEquals(Collections.singletonList(String.join(" ", SENTENCES)), wholeDocument.sequences);
+    }
+}
@@ -0,0 +1,69 @@
+package org.apache.lucene.analysis.jate;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Candidates of {@link OpenNLPRegexChunker}, which chunks one sentence at a time.
+ */
+public class OpenNLPRegexChunkerTest {
+
+    private static List<String> candidates(TokenStream ts) throws IOException {
+        CharTermAttribute termAtt = ts.getAttribute(CharTermAttribute.class);
+        TypeAttribute typeAtt = ts.getAttribute(TypeAttribute.class);
+        PayloadAttribute payloadAtt = ts.getAttribute(PayloadAttribute.class);
+        List<String> candidates = new ArrayList<>();
+        ts.reset();
+        while (ts.incrementToken()) {
+            if (termAtt.length() > 0)
+                candidates.add(termAtt + "|" + typeAtt.type() + "|" + payloadAtt.getPayload().utf8ToString());
+        }
+        ts.end();
+        ts.close();
+        return candidates;
+    }
+
+    @Test
+    public void chunksEachSentence() throws IOException {
+        //SentenceTokenStream tags the tokens of a sentence NN DT IN JJ NNS NN ...
+        Map<String, Pattern[]> patterns = new HashMap<>();
+        patterns.put("np", new Pattern[]{Pattern.compile("\\bNN\\b \\bDT\\b"), Pattern.compile("\\bJJ\\b \\bNNS\\b"),
+                Pattern.compile("(\\bNN\\b) ")});
+        POSPatternAutomaton automaton = POSPatternAutomaton.compile(patterns);
+
+        String[] sentences = {"human protein of cell receptor", "gene", "T cell , alpha-beta protein human",
+                "IL-2 gene , alpha-beta protein"};
+        List<String> expected = new ArrayList<>(Arrays.asList(
+                "human protein|np|f=0,l=1,p=,s=0",
+                "human|np|f=0,l=0,p=NN,s=0",
+                "cell receptor|np|f=3,l=4,p=,s=0",
+                //the last token of a sentence followed by another sentence
+                "gene|np|f=0,l=0,p=NN,s=1",
+                "T cell|np|f=0,l=1,p=,s=2",
+                "T|np|f=0,l=0,p=NN,s=2",
+                "alpha-beta protein|np|f=3,l=4,p=,s=2",
+                "human|np|f=5,l=5,p=NN,s=2",
+                "IL-2 gene|np|f=0,l=1,p=,s=3",
+                "IL-2|np|f=0,l=0,p=NN,s=3",
+                //a chunk ending the document
+                "alpha-beta protein|np|f=3,l=4,p=,s=3"));
+        Collections.sort(expected);
+
+        TokenStream ts = new OpenNLPRegexChunker(new SentenceTokenStream(sentences), automaton,
+                5, 1, 50, 1, false, false, false, false, false, false, false, Collections.<String>emptySet(), false);
+        for (int doc = 0; doc < 2; doc++) {
+            //the filter is reused by the next document
+            List<String> actual = candidates(ts);
+            Collections.sort(actual);
+            Assert.assertEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.apache.lucene.analysis.jate;
+
+import opennlp.tools.namefind.RegexNameFinder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the time to match the PoS patterns of the testbeds in a document with {@link POSPatternAutomaton}, sentence
+ * by sentence, with that of OpenNLP's RegexNameFinder over the whole document, as {@link OpenNLPRegexChunker} did.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.apache.lucene.analysis.jate.POSPatternAutomatonBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class POSPatternAutomatonBenchmark {
+
+    private static final int SENTENCE_LENGTH = 25;
+
+    @Param({"GENIA/conf/genia.patterns", "ACLRDTEC/conf/aclrdtec.patterns"})
+    public String patternFile;
+
+    @Param({"1000", "20000"})
+    public int documentLength;
+
+    private String[] tags;
+    private POSPatternAutomaton automaton;
+    private RegexNameFinder regexChunker;
+
+    @Setup
+    public void setUp() throws IOException {
+        Map<String, Pattern[]> patterns = POSPatternAutomatonTest.loadPatterns(
+                POSPatternAutomatonTest.TESTBED_DIR.resolve(patternFile));
+        automaton = POSPatternAutomaton.compile(patterns);
+        regexChunker = new RegexNameFinder(patterns);
+        tags = POSPatternAutomatonTest.randomTags(new Random(42), documentLength);
+    }
+
+    @Benchmark
+    public int automaton() {
+        int matches = 0;
+        for (int start = 0; start < tags.length; start += SENTENCE_LENGTH)
+            matches += automaton.find(tags, start, Math.min(tags.length, start + SENTENCE_LENGTH)).length;
+        return matches;
+    }
+
+    @Benchmark
+    public int regex() {
+        return regexChunker.find(tags).length;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(POSPatternAutomatonBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,114 @@
+package org.apache.lucene.analysis.jate;
+
+import opennlp.tools.namefind.RegexNameFinder;
+import opennlp.tools.util.Span;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the matches of {@link POSPatternAutomaton} with those of OpenNLP's RegexNameFinder it replaced.
+ */
+public class POSPatternAutomatonTest {
+    static Path TESTBED_DIR = Paths.get(System.getProperty("user.dir"), "testdata", "solr-testbed");
+
+    static final String[] TAGS = {"NN", "NNS", "NNP", "JJ", "JJR", "IN", "POS", "DT", "VBN", "VBG", "VBP", "CC", "TO",
+            ".", ",", "PRP$", "-LRB-"};
+
+    static Map<String, Pattern[]> loadPatterns(Path file) throws IOException {
+        Map<String, List<Pattern>> m = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.trim().length() == 0 || line.startsWith("#"))
+                continue;
+            String[] parts = line.split("\t", 2);
+            m.computeIfAbsent(parts[0], k -> new ArrayList<>()).add(Pattern.compile(parts[1]));
+        }
+        Map<String, Pattern[]> patterns = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Pattern>> en : m.entrySet())
+            patterns.put(en.getKey(), en.getValue().toArray(new Pattern[0]));
+        return patterns;
+    }
+
+    static String[] randomTags(Random random, int length) {
+        String[] tags = new String[length];
+        for (int i = 0; i < length; i++)
+            tags[i] = TAGS[random.nextInt(TAGS.length)];
+        return tags;
+    }
+
+    private static List<String> toStrings(Span[] spans) {
+        List<String> strings = new ArrayList<>();
+        for (Span span : spans) {
+            if (span.getEnd() > span.getStart())
+                strings.add(span.getStart() + "," + span.getEnd() + "," + span.getType());
+        }
+        Collections.sort(strings);
+        return strings;
+    }
+
+    private static void assertSameAsRegex(Map<String, Pattern[]> patterns, long seed) {
+        POSPatternAutomaton automaton = POSPatternAutomaton.compile(patterns);
+        RegexNameFinder regexChunker = new RegexNameFinder(patterns);
+        Random random = new Random(seed);
+        for (int i = 0; i < 20000; i++) {
+            String[] tags = randomTags(random, 1 + random.nextInt(30));
+            Assert.assertEquals(Arrays.toString(tags), toStrings(regexChunker.find(tags)),
+                    toStrings(automaton.find(tags, 0, tags.length)));
+        }
+    }
+
+    @Test
+    public void testbedPatternsSameAsRegex() throws IOException {
+        assertSameAsRegex(loadPatterns(TESTBED_DIR.resolve("GENIA/conf/genia.patterns")), 1);
+        assertSameAsRegex(loadPatterns(TESTBED_DIR.resolve("ACLRDTEC/conf/aclrdtec.patterns")), 2);
+    }
+
+    @Test
+    public void syntaxSameAsRegex() {
+        Map<String, Pattern[]> patterns = new LinkedHashMap<>();
+        patterns.put("x", new Pattern[]{Pattern.compile("(JJ\\w? )*NNS?"),
+                Pattern.compile("\\bN+ (IN|TO) [A-Z]+"),
+                Pattern.compile("\\bN.{1,2}\\b( ,)?"),
+                Pattern.compile("[^ ]+\\$"),
+                Pattern.compile("(?:VB[NG] ){2}NN\\B")});
+        patterns.put("y", new Pattern[]{Pattern.compile("DT( \\S+){1,3}"),
+                Pattern.compile("-\\w+-"),
+                Pattern.compile("(NN|NNS)( (NN|NNS))* ")});
+        assertSameAsRegex(patterns, 3);
+    }
+
+    @Test
+    public void sentences() {
+        Map<String, Pattern[]> patterns = new HashMap<>();
+        patterns.put("np", new Pattern[]{Pattern.compile("(\\bJJ\\b )*\\bNN\\b")});
+        patterns.put("nn", new Pattern[]{Pattern.compile("(\\bNN\\b) ")});
+        POSPatternAutomaton automaton = POSPatternAutomaton.compile(patterns);
+        String[] tags = {"JJ", "NN", "NN", "JJ", "NN"};
+        //the sentence [1, 3) is followed by a tag, so the pattern ending with a space matches its last tag
+        Assert.assertEquals(Arrays.asList("1,2,nn", "1,2,np", "2,3,nn", "2,3,np"),
+                toStrings(automaton.find(tags, 1, 3)));
+        Assert.assertEquals(Arrays.asList("0,2,np", "1,2,nn", "2,3,nn", "2,3,np", "3,5,np"),
+                toStrings(automaton.find(tags, 0, tags.length)));
+        Assert.assertEquals(Collections.emptyList(), toStrings(automaton.find(tags, 3, 3)));
+    }
+
+    @Test
+    public void unsupportedSyntax() {
+        for (String regex : new String[]{"^NN", "NN$", "(JJ )*?NN", "(JJ )*+NN", "(?=JJ)JJ", "(NN) \\1",
+                "\\p{Upper}+"}) {
+            try {
+                POSPatternAutomaton.compile(Collections.singletonMap("x", new Pattern[]{Pattern.compile(regex)}));
+                Assert.fail(regex);
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.apache.lucene.analysis.jate;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the symbol stripping of {@link PunctuationRemover} with the regular expressions it replaced.
+ */
+public class PunctuationRemoverTest {
+
+    private static final Pattern LEADING = Pattern.compile("^[\\p{Punct}]+[\\s]*[\\p{Punct}]*");
+    private static final Pattern TRAILING = Pattern.compile("[\\p{Punct}]*[\\s]*[\\p{Punct}]+$");
+
+    //ASCII symbols and spaces, control chars, line terminators and non-ASCII punctuations and spaces
+    private static final String CHARS = "ab1 .,-()'+_~!\t\n\r\u000B\f\u0001\u0085   –«。é";
+
+    private static String regexStrip(String tok, boolean stripAny, boolean stripLeading, boolean stripTrailing) {
+        if (stripAny)
+            return tok.replaceAll("\\p{Punct}", " ").replaceAll("\\s+", " ").trim();
+        if (stripLeading) {
+            Matcher m = LEADING.matcher(tok);
+            if (m.find())
+                tok = tok.substring(m.end());
+        }
+        if (stripTrailing) {
+            Matcher m = TRAILING.matcher(tok);
+            if (m.find())
+                tok = tok.substring(0, m.start());
+        }
+        return tok.trim();
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(12);
+        for (int i = 0; i < length; i++)
+            sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        return sb.toString();
+    }
+
+    @Test
+    public void examples() {
+        String tok = "(' delete + all ) the symbols.+";
+        Assert.assertEquals("delete all the symbols", PunctuationRemover.stripPunctuations(tok, true, false, false));
+        Assert.assertEquals("delete + all ) the symbols.+", PunctuationRemover.stripPunctuations(tok, false, true, false));
+        Assert.assertEquals("(' delete + all ) the symbols", PunctuationRemover.stripPunctuations(tok, false, false, true));
+        Assert.assertEquals("", PunctuationRemover.stripPunctuations("-- ,", false, true, false));
+        Assert.assertEquals("", PunctuationRemover.stripPunctuations(".,\n", false, false, true));
+    }
+
+    @Test
+    public void sameAsRegex() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            String tok = randomString(random);
+            for (int flags = 0; flags < 8; flags++) {
+                boolean any = (flags & 1) != 0, leading = (flags & 2) != 0, trailing = (flags & 4) != 0;
+                String expected = regexStrip(tok, any, leading, trailing);
+                Assert.assertEquals(tok, expected, PunctuationRemover.stripPunctuations(tok, any, leading, trailing));
+
+                char[] buffer = ("xx" + tok).toCharArray();
+                System.arraycopy(buffer, 2, buffer, 0, tok.length());
+                int length = PunctuationRemover.stripPunctuations(buffer, tok.length(), any, leading, trailing);
+                Assert.assertEquals(tok, expected, new String(buffer, 0, length));
+            }
+            Assert.assertEquals(tok, tok.replaceAll("[\\p{Punct}]", "").isEmpty(),
+                    PunctuationRemover.isAllPunctuation(tok));
+        }
+    }
+
+    @Test
+    public void charClassesSameAsRegex() {
+        for (char c = 0; c < Character.MAX_VALUE; c++) {
+            String s = String.valueOf(c);
+            Assert.assertEquals(s.matches("\\p{Punct}"), PunctuationRemover.isPunctuation(c));
+            Assert.assertEquals(s.matches("\\s"), PunctuationRemover.isWhitespace(c));
+        }
+    }
+
+    @Test
+    public void filterSameAsRegex() throws IOException {
+        Random random = new Random(7);
+        String[] terms = new String[5000];
+        for (int i = 0; i < terms.length; i++)
+            terms[i] = randomString(random);
+        for (int flags = 0; flags < 8; flags++) {
+            boolean any = (flags & 1) != 0, leading = (flags & 2) != 0, trailing = (flags & 4) != 0;
+            TokenStream ts = new PunctuationRemover(new TermStream(terms), any, leading, trailing);
+            CharTermAttribute termAtt = ts.getAttribute(CharTermAttribute.class);
+            List<String> actual = new ArrayList<>();
+            ts.reset();
+            while (ts.incrementToken())
+                actual.add(termAtt.toString());
+            ts.end();
+            ts.close();
+
+            List<String> expected = new ArrayList<>();
+            for (String term : terms) {
+                //as the filter did with regular expressions
+                String tok = term.trim();
+                expected.add(tok.length() == 0 ? term : regexStrip(tok, any, leading, trailing));
+            }
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    private static class TermStream extends TokenStream {
+        private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+        private final String[] terms;
+        private int next;
+
+        TermStream(String[] terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        public boolean incrementToken() {
+            if (next == terms.length)
+                return false;
+            clearAttributes();
+            termAtt.append(terms[next++]);
+            return true;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            next = 0;
+        }
+    }
+}
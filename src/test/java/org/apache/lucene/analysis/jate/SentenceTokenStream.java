@@ -0,0 +1,105 @@
+package org.apache.lucene.analysis.jate;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Emits the whitespace separated tokens of sentences with their sentence context payloads, as the sentence splitting
+ * and PoS tagging filters do. A {@link #GAP} token is not emitted but increments the position of the next token.
+ * As the tokenizers it stands in for, it fails if it is read again after it is exhausted, before it is reset.
+ */
+final class SentenceTokenStream extends TokenStream {
+    static final String GAP = "<gap>";
+
+    private static final String[] WORDS = {"the", "of", "a", "cell", "T", "receptor", "IL-2", "NF-kappa", "B",
+            "(", ")", ",", ".", "-", "'s", "alpha-beta", "(alpha)", "--", ".+", "gene", "expression", "human",
+            "protein", "The", "Of", "x'", "'y", GAP};
+    private static final String[] TAGS = {"NN", "DT", "IN", "JJ", "NNS"};
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+    private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
+    private final PayloadAttribute payloadAtt = addAttribute(PayloadAttribute.class);
+
+    private final String[][] sentences;
+    private int sentence, token, offset;
+    private boolean exhausted;
+
+    SentenceTokenStream(String... sentences) {
+        this.sentences = new String[sentences.length][];
+        for (int i = 0; i < sentences.length; i++)
+            this.sentences[i] = sentences[i].split(" ");
+    }
+
+    /**
+     * @return random sentences of 1 to maxLength tokens
+     */
+    static String[] randomSentences(Random random, int count, int maxLength) {
+        String[] sentences = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(maxLength);
+            for (int t = 0; t < length; t++) {
+                if (t > 0)
+                    sb.append(' ');
+                sb.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            sentences[i] = sb.toString();
+        }
+        return sentences;
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (exhausted)
+            throw new IllegalStateException("incrementToken() called after the stream was exhausted");
+        clearAttributes();
+        int posIncr = 1;
+        while (sentence < sentences.length) {
+            String[] tokens = sentences[sentence];
+            if (token == tokens.length) {
+                sentence++;
+                token = 0;
+                continue;
+            }
+            String tok = tokens[token];
+            int index = token++;
+            if (tok.equals(GAP)) {
+                posIncr++;
+                continue;
+            }
+            termAtt.append(tok);
+            offsetAtt.setOffset(offset, offset + tok.length());
+            offset += tok.length() + 1;
+            posIncrAtt.setPositionIncrement(posIncr);
+            String ctx = "f=" + index + ",l=" + index + ",p=" + TAGS[index % TAGS.length] + ",s=" + sentence;
+            payloadAtt.setPayload(new BytesRef(ctx.getBytes(StandardCharsets.UTF_8)));
+            return true;
+        }
+        exhausted = true;
+        return false;
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        offsetAtt.setOffset(offset, offset);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        sentence = 0;
+        token = 0;
+        offset = 0;
+        exhausted = false;
+    }
+}
@@ -0,0 +1,110 @@
+package uk.ac.shef.dcs.jate.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.feature.AbstractFeature;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+
+import java.util.*;
+
+/**
+ * Rankings of members given by hand, combined against scores computed by hand.
+ */
+public class EnsembleTest {
+    private static final double DELTA = 1e-9;
+    private static final List<String> CANDIDATES = Arrays.asList("x", "y", "z", "w");
+
+    //a member returning fixed scores
+    private static class FixedScores extends Algorithm {
+        private final List<JATETerm> ranked = new ArrayList<>();
+
+        FixedScores(Object[][] scores) {
+            for (Object[] score : scores)
+                ranked.add(new JATETerm((String) score[0], (Double) score[1]));
+            Collections.sort(ranked);
+        }
+
+        @Override
+        public List<JATETerm> execute(Collection<String> candidates) {
+            return ranked;
+        }
+    }
+
+    private static Map<String, Double> scores(List<JATETerm> terms) {
+        Map<String, Double> scores = new HashMap<>();
+        for (JATETerm term : terms)
+            scores.put(term.getString(), term.getScore());
+        return scores;
+    }
+
+    @Test
+    public void rankFusion() throws JATEException {
+        Ensemble ensemble = new Ensemble(Ensemble.Combination.RANK_FUSION);
+        //y and z are tied at rank 2; w has no score
+        ensemble.addMember(new FixedScores(new Object[][]{
+                {"x", 3.0}, {"y", 2.0}, {"z", 2.0}, {"w", Double.NaN}}), 1);
+        //y and w are not scored
+        ensemble.addMember(new FixedScores(new Object[][]{{"z", 10.0}, {"x", 5.0}}), 2);
+
+        List<JATETerm> terms = ensemble.execute(CANDIDATES);
+        Map<String, Double> scores = scores(terms);
+
+        Assert.assertEquals(4, terms.size());
+        Assert.assertEquals(1.0 / (60 + 1) + 2.0 / (60 + 2), scores.get("x"), DELTA);
+        Assert.assertEquals(1.0 / (60 + 2), scores.get("y"), DELTA);
+        Assert.assertEquals(1.0 / (60 + 2) + 2.0 / (60 + 1), scores.get("z"), DELTA);
+        Assert.assertEquals(0, scores.get("w"), DELTA);
+        Assert.assertEquals(Arrays.asList("z", "x", "y", "w"), ranking(terms));
+    }
+
+    @Test
+    public void zScores() throws JATEException {
+        Ensemble ensemble = new Ensemble(Ensemble.Combination.Z_SCORE);
+        //mean 2, standard deviation sqrt(((3-2)^2 + (1-2)^2 + (2-2)^2) / 3) = sqrt(2/3)
+        ensemble.addMember(new FixedScores(new Object[][]{{"x", 3.0}, {"y", 1.0}, {"z", 2.0}}), 1);
+        //the same score for all: standard deviation 0, no contribution
+        ensemble.addMember(new FixedScores(new Object[][]{{"x", 5.0}, {"y", 5.0}}), 1);
+        //x has no score: y and z, mean 2, standard deviation 2
+        ensemble.addMember(new FixedScores(new Object[][]{{"x", Double.NaN}, {"y", 4.0}, {"z", 0.0}}), 0.5);
+
+        List<JATETerm> terms = ensemble.execute(CANDIDATES);
+        Map<String, Double> scores = scores(terms);
+
+        double std = Math.sqrt(2 / 3.0);
+        Assert.assertEquals(1 / std, scores.get("x"), DELTA);
+        Assert.assertEquals(-1 / std + 0.5 * 1, scores.get("y"), DELTA);
+        Assert.assertEquals(0 + 0.5 * -1, scores.get("z"), DELTA);
+        Assert.assertEquals(0, scores.get("w"), DELTA);
+        Assert.assertEquals(Arrays.asList("x", "w", "z", "y"), ranking(terms));
+    }
+
+    @Test
+    public void singleMemberUnchanged() throws JATEException {
+        Ensemble ensemble = new Ensemble(Ensemble.Combination.RANK_FUSION);
+        FixedScores member = new FixedScores(new Object[][]{{"x", 3.0}, {"y", 2.0}});
+        ensemble.addMember(member, 0.5);
+        AbstractFeature feature = new AbstractFeature();
+        ensemble.registerFeature("shared", feature);
+
+        List<JATETerm> terms = ensemble.execute(CANDIDATES);
+
+        Assert.assertEquals(2, terms.size());
+        Assert.assertEquals(3.0, scores(terms).get("x"), DELTA);
+        Assert.assertEquals(2.0, scores(terms).get("y"), DELTA);
+        //features of the ensemble are shared with its members
+        Assert.assertSame(feature, member.features.get("shared"));
+    }
+
+    @Test(expected = JATEException.class)
+    public void noMembers() throws JATEException {
+        new Ensemble(Ensemble.Combination.Z_SCORE).execute(CANDIDATES);
+    }
+
+    private static List<String> ranking(List<JATETerm> terms) {
+        List<String> ranking = new ArrayList<>();
+        for (JATETerm term : terms)
+            ranking.add(term.getString());
+        return ranking;
+    }
+}
@@ -0,0 +1,87 @@
+package uk.ac.shef.dcs.jate.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.feature.Containment;
+import uk.ac.shef.dcs.jate.feature.ContextWindow;
+import uk.ac.shef.dcs.jate.feature.FrequencyCtxBased;
+import uk.ac.shef.dcs.jate.feature.FrequencyTermBased;
+import uk.ac.shef.dcs.jate.feature.TestFeatures;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * NC-Value of three candidates, over features built by hand, against scores computed by hand.
+ */
+public class NCValueTest {
+    private static final double DELTA = 1e-9;
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+    @Test
+    public void contextWordsWeighCValue() throws JATEException {
+        Containment containment = new Containment();
+        containment.add("cell", "t cell");
+
+        NCValue ncValue = new NCValue();
+        ncValue.registerFeature(FrequencyTermBased.class.getName(), TestFeatures.frequencyTermBased(new Object[][]{
+                {"t cell", 5}, {"cell", 8}, {"receptor", 3}}));
+        ncValue.registerFeature(Containment.class.getName(), containment);
+        ContextWindow[] contexts = TestFeatures.contextWindows(3);
+        //candidates in 3 context windows
+        ncValue.registerFeature(FrequencyCtxBased.class.getName() + NCValue.SUFFIX_TERM,
+                TestFeatures.frequencyCtxBased(contexts, new Object[][]{
+                        {0, "t cell", 1},
+                        {1, "cell", 1}, {1, "receptor", 1},
+                        {2, "receptor", 1}}));
+        //words in the same windows
+        ncValue.registerFeature(FrequencyCtxBased.class.getName() + NCValue.SUFFIX_WORD,
+                TestFeatures.frequencyCtxBased(contexts, new Object[][]{
+                        {0, "t", 1}, {0, "cell", 1}, {0, "activates", 1}, {0, "receptor", 1},
+                        {1, "cell", 1}, {1, "binds", 1}, {1, "receptor", 1},
+                        {2, "binds", 2}, {2, "receptor", 1}}));
+
+        List<JATETerm> terms = ncValue.execute(Arrays.asList("t cell", "cell", "receptor"));
+
+        //CValue: t cell log2(2.1) * 5; cell log2(1.1) * (8 - 5), nested in t cell; receptor log2(1.1) * 3.
+        //context words, without the words of the term itself: t cell {activates: 1, receptor: 1};
+        //cell {binds: 1, receptor: 1}; receptor {cell: 1, binds: 1 + 2}.
+        //word weights, the fraction of the 3 terms it is a context word of: activates 1/3, receptor 2/3,
+        //binds 2/3, cell 1/3
+        double tCell = 0.8 * log2(2.1) * 5 + 0.2 * (1 * 1 / 3.0 + 1 * 2 / 3.0);
+        double cell = 0.8 * log2(1.1) * 3 + 0.2 * (1 * 2 / 3.0 + 1 * 2 / 3.0);
+        double receptor = 0.8 * log2(1.1) * 3 + 0.2 * (1 * 1 / 3.0 + 3 * 2 / 3.0);
+
+        Assert.assertEquals(3, terms.size());
+        //cell and receptor have the same CValue, and are ranked by their context words
+        Assert.assertEquals("t cell", terms.get(0).getString());
+        Assert.assertEquals(tCell, terms.get(0).getScore(), DELTA);
+        Assert.assertEquals("receptor", terms.get(1).getString());
+        Assert.assertEquals(receptor, terms.get(1).getScore(), DELTA);
+        Assert.assertEquals("cell", terms.get(2).getString());
+        Assert.assertEquals(cell, terms.get(2).getScore(), DELTA);
+    }
+
+    @Test
+    public void weightsOfCValueAndContext() throws JATEException {
+        NCValue ncValue = new NCValue(1, 0);
+        ncValue.registerFeature(FrequencyTermBased.class.getName(), TestFeatures.frequencyTermBased(new Object[][]{
+                {"t cell", 5}}));
+        ncValue.registerFeature(Containment.class.getName(), new Containment());
+        ContextWindow[] contexts = TestFeatures.contextWindows(1);
+        ncValue.registerFeature(FrequencyCtxBased.class.getName() + NCValue.SUFFIX_TERM,
+                TestFeatures.frequencyCtxBased(contexts, new Object[][]{{0, "t cell", 1}}));
+        ncValue.registerFeature(FrequencyCtxBased.class.getName() + NCValue.SUFFIX_WORD,
+                TestFeatures.frequencyCtxBased(contexts, new Object[][]{{0, "activates", 4}}));
+
+        List<JATETerm> terms = ncValue.execute(Arrays.asList("t cell"));
+
+        //CValue alone
+        Assert.assertEquals(log2(2.1) * 5, terms.get(0).getScore(), DELTA);
+    }
+}
@@ -0,0 +1,132 @@
+package uk.ac.shef.dcs.jate.app;
+
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import uk.ac.shef.dcs.jate.JATEException;
+import uk.ac.shef.dcs.jate.JATEProperties;
+import uk.ac.shef.dcs.jate.eval.ATEResultLoader;
+import uk.ac.shef.dcs.jate.eval.Scorer;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+import uk.ac.shef.dcs.jate.nlp.Lemmatiser;
+
+import java.util.*;
+
+/**
+ * Benchmarks ChiSquare with co-occurrences approximated by a Count-Min sketch
+ * ({@link uk.ac.shef.dcs.jate.feature.CountMinCooccurrence}) against the exact co-occurrence matrix, on GENIA or
+ * ACL RD-TEC. For each sketch error bound, it reports the ranking time, precision at the benchmark ranks, and the
+ * overlap of the top K terms with those ranked using exact co-occurrences.
+ * <p>
+ * As {@link AppATEACLRDTECTest}, it can only be run manually, via
+ * <p>
+ * mvn exec:java -Dexec.mainClass="uk.ac.shef.dcs.jate.app.AppChiSquareSketchBenchmark" -Dexec.classpathScope="test"
+ * -Dexec.args="GENIA"
+ */
+public class AppChiSquareSketchBenchmark extends ACLRDTECTest {
+    private static Logger LOG = Logger.getLogger(AppChiSquareSketchBenchmark.class.getName());
+
+    //relative errors of the sketches benchmarked
+    static final double[] SKETCH_EPSILONS = {1e-4, 1e-5, 1e-6};
+
+    static final int[] RANKS = {50, 100, 300, 500, 800, 1000, 1500, 2000, 3000, 4000, 5000, 6000, 7000, 8000, 9000,
+            10000};
+
+    /**
+     * @param args, 'GENIA' (default) or 'ACLRDTEC', and for ACL RD-TEC, true or false for indexing
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        String corpus = args.length > 0 ? args[0] : AppATEGENIATest.SOLR_CORE_NAME;
+        boolean reindex = args.length > 1 && Boolean.valueOf(args[1]);
+
+        if (corpus.equalsIgnoreCase(AppATEGENIATest.SOLR_CORE_NAME)) {
+            //indexes GENIA
+            AppATEGENIATest genia = new AppATEGENIATest();
+            genia.setup();
+            try {
+                benchmark(genia.server, AppATEGENIATest.SOLR_CORE_NAME, genia.jateProperties, genia.gsTerms,
+                        AppATEGENIATest.lemmatiser, 5);
+            } finally {
+                genia.tearDown();
+            }
+        } else {
+            AppChiSquareSketchBenchmark acl = new AppChiSquareSketchBenchmark();
+            acl.initialise(solrHome.toString(), solrCoreName);
+            try {
+                if (validate_indexing() == 0 || reindex)
+                    acl.indexAndExtract(corpusDir);
+                benchmark(server, solrCoreName, acl.jateProp, gsTerms, lemmatiser, 10);
+            } finally {
+                server.getCoreContainer().getCore(solrCoreName).close();
+                server.getCoreContainer().shutdown();
+                server.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    static void benchmark(EmbeddedSolrServer server, String solrCoreName, JATEProperties jateProp,
+                          List<String> gsTerms, Lemmatiser lemmatiser, int maxTokens) throws JATEException {
+        List<String> exact = rank(server, solrCoreName, jateProp, null, "exact co-occurrences");
+        report("exact co-occurrences", exact, exact, gsTerms, lemmatiser, maxTokens);
+        for (double epsilon : SKETCH_EPSILONS) {
+            String name = "Count-Min sketch, epsilon=" + epsilon;
+            List<String> approximate = rank(server, solrCoreName, jateProp, epsilon, name);
+            report(name, approximate, exact, gsTerms, lemmatiser, maxTokens);
+        }
+    }
+
+    static List<String> rank(EmbeddedSolrServer server, String solrCoreName, JATEProperties jateProp,
+                             Double sketchEpsilon, String name) throws JATEException {
+        Map<String, String> initParam = new HashMap<>();
+        initParam.put(AppParams.PREFILTER_MIN_TERM_TOTAL_FREQUENCY.getParamKey(), "2");
+        initParam.put(AppParams.CUTOFF_TOP_K_PERCENT.getParamKey(), "0.99999");
+        initParam.put(AppParams.PREFILTER_MIN_TERM_CONTEXT_FREQUENCY.getParamKey(), "2");
+        initParam.put(AppParams.CHISQUERE_FREQ_TERM_CUTOFF_PERCENTAGE.getParamKey(), "0.1");
+        if (sketchEpsilon != null)
+            initParam.put(AppParams.COOCCURRENCE_SKETCH_EPSILON.getParamKey(), String.valueOf(sketchEpsilon));
+
+        AppChiSquare appChiSquare = new AppChiSquare(initParam);
+        long startTime = System.currentTimeMillis();
+        List<JATETerm> terms = appChiSquare.extract(server.getCoreContainer().getCore(solrCoreName), jateProp);
+        long endTime = System.currentTimeMillis();
+        LOG.info(String.format("AppChiSquare with %s ranking took [%s] milliseconds", name, (endTime - startTime)));
+        return ATEResultLoader.load(terms);
+    }
+
+    static void report(String name, List<String> rankedTerms, List<String> exactRankedTerms, List<String> gsTerms,
+                       Lemmatiser lemmatiser, int maxTokens) {
+        double[] scores = Scorer.computePrecisionAtRank(lemmatiser, gsTerms, rankedTerms, true, false, true,
+                2, 100, 1, maxTokens, RANKS);
+        double recall = Scorer.recall(gsTerms, rankedTerms);
+
+        LOG.info(String.format("=============ChiSquare with %s Benchmarking Results==================", name));
+        for (int i = 0; i < RANKS.length; i++) {
+            LOG.info(String.format("  top %d Precision:%s, overlap with exact ranking:%.4f", RANKS[i], scores[i],
+                    topKOverlap(rankedTerms, exactRankedTerms, RANKS[i])));
+        }
+        LOG.info("  overall recall:" + recall);
+    }
+
+    /**
+     * @return fraction of the top k terms of a ranking that are also in the top k terms of the reference ranking
+     */
+    static double topKOverlap(List<String> rankedTerms, List<String> referenceRankedTerms, int k) {
+        Set<String> reference = new HashSet<>(referenceRankedTerms.subList(0, Math.min(k, referenceRankedTerms.size())));
+        int top = Math.min(k, rankedTerms.size());
+        if (top == 0)
+            return 0;
+        int overlap = 0;
+        for (String term : rankedTerms.subList(0, top)) {
+            if (reference.contains(term))
+                overlap++;
+        }
+        return (double) overlap / top;
+    }
+
+    @Override
+    List<JATETerm> rankAndFilter(EmbeddedSolrServer server, String solrCoreName, JATEProperties jateProp)
+            throws JATEException {
+        return new ArrayList<>();
+    }
+}
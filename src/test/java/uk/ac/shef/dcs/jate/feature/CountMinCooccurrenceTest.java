@@ -0,0 +1,127 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Co-occurrences approximated by a Count-Min sketch, counted from the same contexts as the in-memory matrix.
+ */
+public class CountMinCooccurrenceTest {
+    private static final double EPSILON = 0.001, DELTA = 0.01;
+    private static final int TERMS = 300, REF_TERMS = 40;
+
+    private final FrequencyCtxBased termCtx = new FrequencyCtxBased();
+    private final FrequencyCtxBased refTermCtx = new FrequencyCtxBased();
+    private final List<ContextWindow> contexts = new ArrayList<>();
+
+    public CountMinCooccurrenceTest() {
+        Random random = new Random(11);
+        for (int c = 0; c < 2000; c++) {
+            ContextWindow ctx = new ContextWindow();
+            ctx.setDocId(c);
+            ctx.setSentenceId(0);
+            contexts.add(ctx);
+            for (int i = 0; i < 3; i++) {
+                //t0 only appears in a context without reference terms
+                termCtx.increment(ctx, "t" + (1 + random.nextInt(TERMS - 1)), 1 + random.nextInt(3));
+                refTermCtx.increment(ctx, "r" + random.nextInt(REF_TERMS), 1 + random.nextInt(3));
+            }
+        }
+        ContextWindow alone = new ContextWindow();
+        alone.setDocId(-2);
+        alone.setSentenceId(0);
+        contexts.add(alone);
+        termCtx.increment(alone, "t0", 1);
+    }
+
+    //as CooccurrenceFBWorker does
+    private void count(Cooccurrence feature) {
+        for (ContextWindow ctx : contexts) {
+            Map<String, Integer> refTerm2TFIC = refTermCtx.getTFIC(ctx);
+            for (Map.Entry<String, Integer> term : termCtx.getTFIC(ctx).entrySet()) {
+                int termIdx = feature.lookupAndIndexTerm(term.getKey());
+                for (Map.Entry<String, Integer> refTerm : refTerm2TFIC.entrySet()) {
+                    int refIdx = feature.lookupAndIndexRefTerm(refTerm.getKey());
+                    feature.increment(termIdx, refIdx, Math.min(term.getValue(), refTerm.getValue()));
+                }
+            }
+        }
+    }
+
+    private void assertWithinBound(boolean conservativeUpdate) {
+        Cooccurrence exact = new Cooccurrence(TERMS, REF_TERMS);
+        CountMinCooccurrence sketch = new CountMinCooccurrence(EPSILON, DELTA, conservativeUpdate, termCtx, refTermCtx);
+        count(exact);
+        count(sketch);
+
+        long maxError = (long) Math.ceil(EPSILON * sketch.getTotal());
+        int pairs = 0, beyondBound = 0;
+        for (String term : exact.getTerms()) {
+            Map<Integer, Integer> exactRow = exact.getCoocurrence(term);
+            Map<Integer, Integer> sketchRow = sketch.getCoocurrence(term);
+            //only pairs found in the contexts of the term are queried
+            Assert.assertEquals(term, exactRow.keySet(), sketchRow.keySet());
+            for (Map.Entry<Integer, Integer> en : exactRow.entrySet()) {
+                int estimate = sketchRow.get(en.getKey());
+                //never underestimated, as counts were only incremented
+                Assert.assertTrue(term, estimate >= en.getValue());
+                if (estimate - en.getValue() > maxError)
+                    beyondBound++;
+                pairs++;
+            }
+        }
+        Assert.assertTrue(beyondBound + " of " + pairs + " pairs beyond the error bound",
+                beyondBound <= DELTA * pairs);
+
+        Assert.assertTrue(sketch.getCoocurrence("t0").isEmpty());
+        Assert.assertTrue(sketch.getCoocurrence("unknown").isEmpty());
+    }
+
+    @Test
+    public void countMinWithinBound() {
+        assertWithinBound(false);
+    }
+
+    @Test
+    public void conservativeUpdateWithinBound() {
+        assertWithinBound(true);
+    }
+
+    @Test
+    public void deduceUnderConservativeUpdate() {
+        Cooccurrence exact = new Cooccurrence(TERMS, REF_TERMS);
+        CountMinCooccurrence sketch = new CountMinCooccurrence(EPSILON, DELTA, true, termCtx, refTermCtx);
+        count(exact);
+        count(sketch);
+
+        Random random = new Random(3);
+        int deducted = 0;
+        for (int i = 0; i < 200; i++) {
+            String term = "t" + (1 + random.nextInt(TERMS - 1));
+            Map<Integer, Integer> row = exact.getCoocurrence(term);
+            if (row.isEmpty())
+                continue;
+            int termIdx = exact.lookupTerm(term);
+            int refIdx = new ArrayList<>(row.keySet()).get(random.nextInt(row.size()));
+            int value = 1 + random.nextInt(row.get(refIdx) + 1);
+
+            int before = sketch.estimate(termIdx, refIdx);
+            exact.deduce(termIdx, refIdx, value);
+            sketch.deduce(termIdx, refIdx, value);
+            //the deduced pair loses exactly the value deduced, down to 0
+            Assert.assertEquals(Math.max(0, before - value), sketch.estimate(termIdx, refIdx));
+            deducted += value;
+        }
+
+        //pairs sharing counters with deduced pairs may be underestimated, by no more than what was deduced
+        for (String term : exact.getTerms()) {
+            Map<Integer, Integer> sketchRow = sketch.getCoocurrence(term);
+            for (Map.Entry<Integer, Integer> en : exact.getCoocurrence(term).entrySet()) {
+                Integer estimate = sketchRow.get(en.getKey());
+                Assert.assertTrue(term, (estimate == null ? 0 : estimate) >= en.getValue() - deducted);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.shef.dcs.jate.JATEException;
+
+import java.io.IOException;
+
+/**
+ * Features of stub builders cached against the readers of an in-memory index, as the processors of different
+ * algorithms build them against the searcher of a core.
+ */
+public class FeatureCacheTest {
+
+    private class CountingBuilder extends AbstractFeatureBuilder {
+        private final String key;
+        private final AbstractFeature feature;
+
+        CountingBuilder(String key, AbstractFeature feature) {
+            super(null, null);
+            this.key = key;
+            this.feature = feature;
+        }
+
+        @Override
+        public AbstractFeature build() {
+            builds++;
+            return feature;
+        }
+
+        @Override
+        protected String getCacheKey() {
+            return key;
+        }
+    }
+
+    private int builds = 0;
+    private RAMDirectory directory;
+    private IndexWriter writer;
+    private DirectoryReader reader;
+
+    @Before
+    public void setup() throws IOException {
+        directory = new RAMDirectory();
+        writer = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()));
+        addDocument("t cell receptor");
+        reader = DirectoryReader.open(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        reader.close();
+        writer.close();
+        directory.close();
+    }
+
+    private void addDocument(String text) throws IOException {
+        Document doc = new Document();
+        doc.add(new TextField("text", text, Field.Store.NO));
+        writer.addDocument(doc);
+        writer.commit();
+    }
+
+    //terms of the given weight, one per term
+    private static FrequencyTermBased feature(int weight) {
+        Object[][] ttfs = new Object[weight][];
+        for (int i = 0; i < weight; i++)
+            ttfs[i] = new Object[]{"term" + i, 1};
+        return TestFeatures.frequencyTermBased(ttfs);
+    }
+
+    @Test
+    public void reusedByBuildersOfSameKeyOnSameReader() throws JATEException {
+        FeatureCache cache = new FeatureCache(100);
+        AbstractFeature built = cache.getOrBuild(new CountingBuilder("ttf", feature(2)), reader);
+        //another processor, e.g., of another algorithm, with its own builder
+        AbstractFeature reused = cache.getOrBuild(new CountingBuilder("ttf", feature(2)), reader);
+
+        Assert.assertSame(built, reused);
+        Assert.assertEquals(1, builds);
+
+        cache.getOrBuild(new CountingBuilder("ctx", feature(2)), reader);
+        Assert.assertEquals(2, builds);
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void missAfterReaderReplaced() throws JATEException, IOException {
+        FeatureCache cache = new FeatureCache(100);
+        AbstractFeature built = cache.getOrBuild(new CountingBuilder("ttf", feature(2)), reader);
+
+        addDocument("nf kappa b");
+        DirectoryReader replaced = DirectoryReader.openIfChanged(reader);
+        Assert.assertNotNull(replaced);
+        try {
+            AbstractFeature rebuilt = cache.getOrBuild(new CountingBuilder("ttf", feature(2)), replaced);
+            Assert.assertNotSame(built, rebuilt);
+            Assert.assertEquals(2, builds);
+            Assert.assertEquals(2, cache.size());
+        } finally {
+            replaced.close();
+        }
+        //the features of the replaced reader are evicted once it is closed
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void evictedWhenReaderClosed() throws JATEException, IOException {
+        FeatureCache cache = new FeatureCache(100);
+        DirectoryReader other = DirectoryReader.open(directory);
+        cache.getOrBuild(new CountingBuilder("ttf", feature(2)), reader);
+        cache.getOrBuild(new CountingBuilder("ttf", feature(2)), other);
+        Assert.assertEquals(2, cache.size());
+
+        other.close();
+        Assert.assertEquals(1, cache.size());
+        cache.getOrBuild(new CountingBuilder("ttf", feature(2)), reader);
+        Assert.assertEquals(2, builds);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBeyondMaxWeight() throws JATEException {
+        FeatureCache cache = new FeatureCache(5);
+        cache.getOrBuild(new CountingBuilder("a", feature(2)), reader);
+        cache.getOrBuild(new CountingBuilder("b", feature(2)), reader);
+        //a is used again, so b is the least recently used
+        cache.getOrBuild(new CountingBuilder("a", feature(2)), reader);
+        cache.getOrBuild(new CountingBuilder("c", feature(2)), reader);
+        Assert.assertEquals(3, builds);
+        Assert.assertEquals(2, cache.size());
+
+        cache.getOrBuild(new CountingBuilder("a", feature(2)), reader);
+        Assert.assertEquals(3, builds);
+        cache.getOrBuild(new CountingBuilder("b", feature(2)), reader);
+        Assert.assertEquals(4, builds);
+
+        //a feature heavier than the bound is not cached
+        cache.getOrBuild(new CountingBuilder("d", feature(6)), reader);
+        cache.getOrBuild(new CountingBuilder("d", feature(6)), reader);
+        Assert.assertEquals(6, builds);
+
+        cache.setMaxWeight(0);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void weightCountsEntriesPerDocumentAndContext() {
+        //a in 2 documents, b in 1
+        FrequencyTermBased ft = TestFeatures.frequencyTermBased(3, new Object[][]{
+                {"a", 0, 1}, {"a", 1, 2}, {"b", 2, 1}});
+        Assert.assertEquals((1 + 2) + (1 + 1), FeatureCache.estimateWeight(ft));
+
+        //a in 2 contexts, b in 1
+        FrequencyCtxBased ctx = TestFeatures.frequencyCtxBased(TestFeatures.contextWindows(2), new Object[][]{
+                {0, "a", 1}, {0, "b", 1}, {1, "a", 2}});
+        Assert.assertEquals((1 + 2) + (1 + 1) + (1 + 2) + (1 + 1), FeatureCache.estimateWeight(ctx));
+    }
+}
@@ -0,0 +1,44 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.shef.dcs.jate.JATEException;
+
+import java.util.Map;
+
+
+public class FrequencyTermBasedMergerTest {
+
+    @Test
+    public void mergedShardsMatchWholeIndex() throws JATEException {
+        FrequencyTermBased shard1 = TestFeatures.frequencyTermBased(3, new Object[][]{
+                {"cell line", 0, 2}, {"cell line", 2, 1}, {"t cell", 1, 4}});
+        //maxDoc 4: a deleted document at the end of the first shard
+        FrequencyTermBased shard2 = TestFeatures.frequencyTermBased(2, new Object[][]{
+                {"cell line", 0, 3}, {"nf kappa b", 1, 1}});
+
+        FrequencyTermBasedMerger merger = new FrequencyTermBasedMerger();
+        merger.merge(FrequencyTermBasedMerger.encode(shard1, 4));
+        merger.merge(FrequencyTermBasedMerger.encode(shard2, 2));
+        FrequencyTermBased merged = merger.getMerged();
+
+        Assert.assertEquals(5, merged.getTotalDocs());
+        Assert.assertEquals(3, merged.getMapTerm2TTF().size());
+        Assert.assertEquals(6, merged.getTTF("cell line"));
+        Assert.assertEquals(4, merged.getTTF("t cell"));
+        Assert.assertEquals(1, merged.getTTF("nf kappa b"));
+        Assert.assertEquals(11, merged.getCorpusTotal());
+
+        Map<Integer, Integer> cellLine = merged.getTermFrequencyInDocument("cell line");
+        Assert.assertEquals(3, cellLine.size());
+        Assert.assertEquals(2, (int) cellLine.get(0));
+        Assert.assertEquals(1, (int) cellLine.get(2));
+        Assert.assertEquals(3, (int) cellLine.get(4));
+        Assert.assertEquals(1, (int) merged.getTermFrequencyInDocument("nf kappa b").get(5));
+    }
+
+    @Test(expected = JATEException.class)
+    public void rejectsInvalidData() throws JATEException {
+        new FrequencyTermBasedMerger().merge(new byte[]{9});
+    }
+}
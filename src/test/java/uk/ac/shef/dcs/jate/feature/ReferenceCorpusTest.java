@@ -0,0 +1,41 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.shef.dcs.jate.JATEException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+
+public class ReferenceCorpusTest {
+
+    @Test
+    public void binaryMatchesText() throws JATEException, IOException {
+        File text = File.createTempFile("ref_unifrqs", ".normal");
+        File binary = File.createTempFile("ref_unifrqs", ".bin");
+        text.deleteOnExit();
+        binary.deleteOnExit();
+        Files.write(text.toPath(), Arrays.asList(
+                "120 the", "35 of", "7 zebra", "1 rare", "4 café", "9 a", "3 ab", "2 über"), StandardCharsets.UTF_8);
+
+        TTFReferenceBinaryConverter.convert(text.getPath(), binary.getPath());
+        ReferenceCorpus fromText = ReferenceCorpus.load(text.getPath());
+        ReferenceCorpus fromBinary = ReferenceCorpus.load(binary.getPath());
+
+        Assert.assertNotNull(fromText.getFrequencies());
+        Assert.assertNull(fromBinary.getFrequencies());
+        for (String word : new String[]{"the", "of", "zebra", "rare", "café", "a", "ab", "über", "missing", ""})
+            Assert.assertEquals(word, fromText.getTTF(word), fromBinary.getTTF(word));
+        Assert.assertEquals(0, fromBinary.getTTF("rare")); //frequency < 2 is ignored
+        Assert.assertEquals(fromText.getCorpusTotal(), fromBinary.getCorpusTotal());
+        Assert.assertEquals(fromText.getMeanTTFNorm(), fromBinary.getMeanTTFNorm(), 0);
+        Assert.assertEquals(fromText.getNullWordProb(), fromBinary.getNullWordProb(), 0);
+
+        //shared until the file changes
+        Assert.assertSame(fromBinary, ReferenceCorpus.load(binary.getPath()));
+    }
+}
@@ -0,0 +1,177 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.shef.dcs.jate.feature.SentenceContextCollector.Batch;
+import uk.ac.shef.dcs.jate.feature.SentenceContextCollector.MWEInSentence;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Occurrences collected from the postings of an in-memory index of several segments, in batches smaller than its
+ * segments, compared with those collected from the term vectors of the same documents.
+ */
+public class SentenceContextCollectorTest {
+    private static final String FIELD = "jate_ngraminfo";
+    private static final int DOCS = 30, DOCS_PER_SEGMENT = 10, DOCS_PER_BATCH = 3;
+    private static final List<String> CANDIDATES = Arrays.asList("", "cell", "gene", "kappa", "missing", "receptor");
+    //a document with all candidates of the index, see text(int)
+    private static final int ALL_CANDIDATES_DOC = 24;
+
+    //sets the payload of each token to its sentence context, all tokens in one sentence
+    private static final class SentenceContextFilter extends TokenFilter {
+        private final PayloadAttribute payloadAtt = addAttribute(PayloadAttribute.class);
+        private int tokenIdx;
+
+        SentenceContextFilter(TokenStream input) {
+            super(input);
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            if (!input.incrementToken())
+                return false;
+            payloadAtt.setPayload(new BytesRef("f=" + tokenIdx + ",l=" + tokenIdx + ",s=0"));
+            tokenIdx++;
+            return true;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            tokenIdx = 0;
+        }
+    }
+
+    private RAMDirectory postingsDirectory, vectorsDirectory;
+    private DirectoryReader postings, vectors;
+
+    @Before
+    public void setup() throws IOException {
+        FieldType withVectors = new FieldType(TextField.TYPE_NOT_STORED);
+        withVectors.setStoreTermVectors(true);
+        withVectors.setStoreTermVectorPositions(true);
+        withVectors.setStoreTermVectorPayloads(true);
+        withVectors.freeze();
+
+        postingsDirectory = new RAMDirectory();
+        vectorsDirectory = new RAMDirectory();
+        index(postingsDirectory, TextField.TYPE_NOT_STORED);
+        index(vectorsDirectory, withVectors);
+        postings = DirectoryReader.open(postingsDirectory);
+        vectors = DirectoryReader.open(vectorsDirectory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        postings.close();
+        vectors.close();
+        postingsDirectory.close();
+        vectorsDirectory.close();
+    }
+
+    private static void index(RAMDirectory directory, FieldType type) throws IOException {
+        Analyzer analyzer = new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer source = new WhitespaceTokenizer();
+                return new TokenStreamComponents(source, new SentenceContextFilter(source));
+            }
+        };
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setMergePolicy(NoMergePolicy.INSTANCE);
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            for (int i = 0; i < DOCS; i++) {
+                Document doc = new Document();
+                doc.add(new Field(FIELD, text(i), type));
+                writer.addDocument(doc);
+                if ((i + 1) % DOCS_PER_SEGMENT == 0)
+                    writer.commit();
+            }
+        }
+    }
+
+    //candidates in some documents only, so that postings skip documents within and across batches
+    private static String text(int doc) {
+        StringBuilder text = new StringBuilder("the cell");
+        if (doc % 2 == 0)
+            text.append(" gene cell");
+        if (doc % 7 == 3)
+            text.append(" kappa");
+        if (doc >= 24)
+            text.append(" receptor");
+        return text.toString();
+    }
+
+    private static Map<Integer, List<String>> collect(SentenceContextCollector collector, List<Integer> docIds)
+            throws IOException {
+        Map<Integer, List<String>> occurrences = new HashMap<>();
+        for (Batch batch : collector.batch(docIds)) {
+            for (Map.Entry<Integer, List<MWEInSentence>> doc : collector.collect(batch).entrySet()) {
+                List<String> strings = new ArrayList<>();
+                for (MWEInSentence occurrence : doc.getValue())
+                    strings.add(occurrence.string + ":" + occurrence);
+                Assert.assertNull(occurrences.put(doc.getKey(), strings));
+            }
+        }
+        return occurrences;
+    }
+
+    @Test
+    public void batchesOfSegment() {
+        Assert.assertEquals(3, postings.leaves().size());
+        SentenceContextCollector collector = new SentenceContextCollector(postings, FIELD, CANDIDATES, DOCS_PER_BATCH);
+        Assert.assertFalse(collector.isReadingTermVectors());
+
+        //documents of a worker, not in order
+        List<Integer> docIds = Arrays.asList(12, 3, 0, 1, 2, 8, 10, 11, 13, 14, 15, 29);
+        List<List<Integer>> batches = new ArrayList<>();
+        for (Batch batch : collector.batch(docIds))
+            batches.add(new ArrayList<>(batch));
+        Assert.assertEquals(Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(3, 8),
+                Arrays.asList(10, 11, 12), Arrays.asList(13, 14, 15), Collections.singletonList(29)), batches);
+    }
+
+    @Test
+    public void postingsInBatchesSameAsTermVectors() throws IOException {
+        SentenceContextCollector fromPostings = new SentenceContextCollector(postings, FIELD, CANDIDATES,
+                DOCS_PER_BATCH);
+        SentenceContextCollector fromVectors = new SentenceContextCollector(vectors, FIELD, CANDIDATES);
+        Assert.assertTrue(fromVectors.isReadingTermVectors());
+
+        List<Integer> all = new ArrayList<>();
+        List<Integer> some = new ArrayList<>();
+        for (int i = DOCS - 1; i >= 0; i--) {
+            all.add(i);
+            if (i % 4 != 1)
+                some.add(i);
+        }
+        for (List<Integer> docIds : Arrays.asList(all, some)) {
+            Map<Integer, List<String>> expected = collect(fromVectors, docIds);
+            Assert.assertEquals(docIds.size(), expected.size());
+            Assert.assertEquals(Arrays.asList("cell:st=0,f=1,l=1,so=-1,se=-1", "gene:st=0,f=2,l=2,so=-1,se=-1",
+                    "cell:st=0,f=3,l=3,so=-1,se=-1", "kappa:st=0,f=4,l=4,so=-1,se=-1",
+                    "receptor:st=0,f=5,l=5,so=-1,se=-1"), expected.get(ALL_CANDIDATES_DOC));
+            Assert.assertEquals(expected, collect(fromPostings, docIds));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package uk.ac.shef.dcs.jate.feature;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Co-occurrences spilled to disk and merged are those of the in-memory matrix.
+ */
+public class SpilledCooccurrenceTest {
+    private static final int THREADS = 4;
+
+    @Rule
+    public TemporaryFolder spillDir = new TemporaryFolder();
+
+    @Test
+    public void mergedRunsMatchInMemoryMatrix() throws Exception {
+        Random random = new Random(7);
+        int terms = 300, refTerms = 40;
+        Cooccurrence inMemory = new Cooccurrence(terms, refTerms);
+        //a small buffer, so that each thread spills many runs
+        SpilledCooccurrence spilled = new SpilledCooccurrence(spillDir.getRoot(), 50);
+        for (int t = 0; t < terms; t++) {
+            inMemory.lookupAndIndexTerm("t" + t);
+            spilled.lookupAndIndexTerm("t" + t);
+        }
+
+        List<int[]> increments = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            //leave some rows without co-occurrences
+            int t = random.nextInt(terms);
+            if (t % 7 != 0)
+                increments.add(new int[]{t, random.nextInt(refTerms), 1 + random.nextInt(5)});
+        }
+        for (int[] inc : increments)
+            inMemory.increment(inc[0], inc[1], inc[2]);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int first = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = first; i < increments.size(); i += THREADS) {
+                        int[] inc = increments.get(i);
+                        spilled.increment(inc[0], inc[1], inc[2]);
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //corrections of double counting, some of which go below 0
+        for (int i = 0; i < 500; i++) {
+            int t = random.nextInt(terms), r = random.nextInt(refTerms), f = 1 + random.nextInt(20);
+            inMemory.deduce(t, r, f);
+            spilled.deduce(t, r, f);
+        }
+        spilled.merge();
+
+        try {
+            for (int t = 0; t < terms; t++)
+                Assert.assertEquals("t" + t, inMemory.getCoocurrence("t" + t), spilled.getCoocurrence("t" + t));
+            Assert.assertTrue(spilled.getCoocurrence("unknown").isEmpty());
+            Assert.assertEquals(Arrays.asList("t2", "t10", "unknown"),
+                    spilled.sortInRowOrder(Arrays.asList("unknown", "t10", "t2")));
+        } finally {
+            spilled.close();
+        }
+        //more runs than MAX_MERGE_FAN_IN were merged in several passes, leaving no file behind
+        Assert.assertEquals(0, spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void mergesOneRun() throws Exception {
+        Cooccurrence inMemory = new Cooccurrence(3, 3);
+        SpilledCooccurrence spilled = new SpilledCooccurrence(spillDir.getRoot(),
+                SpilledCooccurrence.DEFAULT_MAX_PAIRS_PER_RUN);
+        for (Cooccurrence feature : Arrays.asList(inMemory, spilled)) {
+            for (int t = 0; t < 3; t++)
+                feature.lookupAndIndexTerm("t" + t);
+            feature.increment(0, 2, 3);
+            feature.increment(2, 0, 1);
+            feature.increment(0, 2, 4);
+            feature.increment(0, 1, 1);
+            feature.deduce(0, 1, 2);
+        }
+        spilled.merge();
+        try {
+            for (int t = 0; t < 3; t++)
+                Assert.assertEquals("t" + t, inMemory.getCoocurrence("t" + t), spilled.getCoocurrence("t" + t));
+            //t1 has no co-occurrences
+            Assert.assertTrue(spilled.getCoocurrence("t1").isEmpty());
+        } finally {
+            spilled.close();
+        }
+    }
+
+    @Test
+    public void mergesNoRun() throws Exception {
+        SpilledCooccurrence spilled = new SpilledCooccurrence(spillDir.getRoot(),
+                SpilledCooccurrence.DEFAULT_MAX_PAIRS_PER_RUN);
+        spilled.lookupAndIndexTerm("t0");
+        spilled.merge();
+        try {
+            Assert.assertTrue(spilled.getCoocurrence("t0").isEmpty());
+            Assert.assertTrue(spilled.getCoocurrence("unknown").isEmpty());
+        } finally {
+            spilled.close();
+        }
+    }
+}
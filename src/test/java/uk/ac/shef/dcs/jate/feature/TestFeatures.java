@@ -0,0 +1,58 @@
+package uk.ac.shef.dcs.jate.feature;
+
+/**
+ * Builds features by hand for tests of algorithms in other packages, which cannot use the protected constructors and
+ * increments of the features.
+ */
+public class TestFeatures {
+
+    /**
+     * @param ttfs rows of {term, total frequency}
+     */
+    public static FrequencyTermBased frequencyTermBased(Object[][] ttfs) {
+        FrequencyTermBased feature = new FrequencyTermBased();
+        for (Object[] ttf : ttfs)
+            feature.increment((String) ttf[0], (Integer) ttf[1]);
+        return feature;
+    }
+
+    /**
+     * @param totalDocs number of documents of the index
+     * @param postings  rows of {term, lucene doc id, frequency in the document}, each adding to the total frequency
+     */
+    public static FrequencyTermBased frequencyTermBased(int totalDocs, Object[][] postings) {
+        FrequencyTermBased feature = new FrequencyTermBased();
+        feature.setTotalDocs(totalDocs);
+        for (Object[] posting : postings) {
+            String term = (String) posting[0];
+            int doc = (Integer) posting[1], freq = (Integer) posting[2];
+            feature.increment(term, freq);
+            feature.incrementTermFrequencyInDocument(term, doc, freq);
+        }
+        return feature;
+    }
+
+    /**
+     * @return context windows of count documents, one per document
+     */
+    public static ContextWindow[] contextWindows(int count) {
+        ContextWindow[] contexts = new ContextWindow[count];
+        for (int i = 0; i < count; i++) {
+            contexts[i] = new ContextWindow();
+            contexts[i].setDocId(i);
+        }
+        return contexts;
+    }
+
+    /**
+     * @param contexts    windows shared by the features built from them, as the windows of a word feature are those
+     *                    of the term feature it is built with
+     * @param occurrences rows of {index of the context window, term, frequency in the context}
+     */
+    public static FrequencyCtxBased frequencyCtxBased(ContextWindow[] contexts, Object[][] occurrences) {
+        FrequencyCtxBased feature = new FrequencyCtxBased();
+        for (Object[] occurrence : occurrences)
+            feature.increment(contexts[(Integer) occurrence[0]], (String) occurrence[1], (Integer) occurrence[2]);
+        return feature;
+    }
+}
@@ -0,0 +1,121 @@
+package uk.ac.shef.dcs.jate.nlp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lookups of (characters, tag) keys given as ranges of larger buffers, as tokens are.
+ */
+public class LemmaCacheTest {
+    private static final int NOUN = 1, VERB = 2;
+
+    private static final char[] BUFFER = "xxcellsxxbindingxx".toCharArray();
+    private static final int CELLS = 2, BINDING = 9;
+
+    @Test
+    public void hitOnSameCharactersAndTag() {
+        LemmaCache cache = new LemmaCache(64);
+        Assert.assertNull(cache.get(BUFFER, CELLS, 5, NOUN));
+        cache.put(BUFFER, CELLS, 5, NOUN, "cell");
+
+        Assert.assertEquals("cell", cache.get(BUFFER, CELLS, 5, NOUN));
+        //the same characters at another offset, or as a String
+        Assert.assertEquals("cell", cache.get("a cells".toCharArray(), 2, 5, NOUN));
+        Assert.assertEquals("cell", cache.get("cells", NOUN));
+        Assert.assertEquals(3, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(0.75, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void missOnOtherTagOrLength() {
+        LemmaCache cache = new LemmaCache(64);
+        cache.put("binding", VERB, "bind");
+
+        Assert.assertEquals("bind", cache.get(BUFFER, BINDING, 7, VERB));
+        Assert.assertNull(cache.get(BUFFER, BINDING, 7, NOUN));
+        //a prefix of the cached characters
+        Assert.assertNull(cache.get(BUFFER, BINDING, 4, VERB));
+        Assert.assertNull(cache.get("bindings", VERB));
+
+        cache.put(BUFFER, BINDING, 7, NOUN, "binding");
+        Assert.assertEquals("binding", cache.get("binding", NOUN));
+    }
+
+    @Test
+    public void capacityRoundedUpToPowerOfTwo() {
+        Assert.assertEquals(1, new LemmaCache(1).capacity());
+        Assert.assertEquals(2, new LemmaCache(2).capacity());
+        Assert.assertEquals(8, new LemmaCache(5).capacity());
+        Assert.assertEquals(8, new LemmaCache(8).capacity());
+    }
+
+    @Test
+    public void missReplacesEntryOfSameSlot() {
+        //a single slot, shared by all keys
+        LemmaCache cache = new LemmaCache(1);
+        cache.put("cells", NOUN, "cell");
+        cache.put("binding", VERB, "bind");
+
+        Assert.assertNull(cache.get("cells", NOUN));
+        Assert.assertEquals("bind", cache.get("binding", VERB));
+
+        //keys of different slots of a larger cache are kept
+        LemmaCache larger = new LemmaCache(1 << 10);
+        int cells = LemmaCache.hash("cells".toCharArray(), 0, 5, NOUN) & (larger.capacity() - 1);
+        int binding = LemmaCache.hash("binding".toCharArray(), 0, 7, VERB) & (larger.capacity() - 1);
+        Assert.assertNotEquals(cells, binding);
+        larger.put("cells", NOUN, "cell");
+        larger.put("binding", VERB, "bind");
+        Assert.assertEquals("cell", larger.get("cells", NOUN));
+        Assert.assertEquals("bind", larger.get("binding", VERB));
+    }
+
+    @Test
+    public void stringAndBufferKeysHashAlike() {
+        Assert.assertEquals(LemmaCache.hash(BUFFER, BINDING, 7, VERB), LemmaCache.hash("binding", VERB));
+        Assert.assertEquals(LemmaCache.hash(new char[0], 0, 0, NOUN), LemmaCache.hash("", NOUN));
+    }
+
+    @Test
+    public void concurrentReadersAndWritersSeeOnlyLemmasOfTheirKey() throws Exception {
+        //far more keys than slots, so that threads keep replacing each other's entries
+        LemmaCache cache = new LemmaCache(16);
+        int threads = 8, lookups = 20000, keys = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger wrong = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < lookups; i++) {
+                        int key = (i * 31 + seed) % keys;
+                        char[] word = ("word" + key).toCharArray();
+                        String lemma = cache.get(word, 0, word.length, key % 2 == 0 ? NOUN : VERB);
+                        if (lemma == null)
+                            cache.put(word, 0, word.length, key % 2 == 0 ? NOUN : VERB, "lemma" + key);
+                        else if (!lemma.equals("lemma" + key))
+                            wrong.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(0, wrong.get());
+        Assert.assertEquals((long) threads * lookups, cache.getHits() + cache.getMisses());
+        Assert.assertTrue(cache.getHits() > 0);
+    }
+}
@@ -0,0 +1,128 @@
+package uk.ac.shef.dcs.jate.nlp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Models acquired from a fresh registry, rather than the JVM-wide one shared by all factories.
+ */
+public class ModelRegistryTest {
+    private static final String TYPE = "test-model";
+    private static final String RESOURCE = "models/test.bin";
+
+    private static class Model implements Closeable {
+        final String content;
+        boolean closed;
+
+        Model(String content) {
+            this.content = content;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private int loads = 0;
+
+    private Model load(InputStream model) throws IOException {
+        loads++;
+        byte[] bytes = new byte[model.available()];
+        model.read(bytes);
+        return new Model(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static InputStream content(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void reusesModelOfSameContent() throws IOException {
+        ModelRegistry registry = new ModelRegistry();
+        Object owner1 = new Object(), owner2 = new Object();
+
+        Model model1 = registry.acquire(owner1, TYPE, RESOURCE, content("v1"), this::load);
+        Model model2 = registry.acquire(owner2, TYPE, RESOURCE, content("v1"), this::load);
+
+        Assert.assertSame(model1, model2);
+        Assert.assertEquals(1, loads);
+        Assert.assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void loadsChangedContentAgain() throws IOException {
+        ModelRegistry registry = new ModelRegistry();
+        Object owner1 = new Object(), owner2 = new Object();
+
+        Model model1 = registry.acquire(owner1, TYPE, RESOURCE, content("v1"), this::load);
+        Model model2 = registry.acquire(owner2, TYPE, RESOURCE, content("v2"), this::load);
+
+        Assert.assertNotSame(model1, model2);
+        Assert.assertEquals("v2", model2.content);
+        Assert.assertEquals(2, loads);
+        Assert.assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void releasesModelWithItsLastReference() throws IOException {
+        ModelRegistry registry = new ModelRegistry();
+        Object owner1 = new Object(), owner2 = new Object();
+        Model model = registry.acquire(owner1, TYPE, RESOURCE, content("v1"), this::load);
+        registry.acquire(owner2, TYPE, RESOURCE, content("v1"), this::load);
+
+        registry.release(owner1);
+        Assert.assertFalse(model.closed);
+        Assert.assertEquals(1, registry.size());
+
+        registry.release(owner2);
+        Assert.assertTrue(model.closed);
+        Assert.assertEquals(0, registry.size());
+        //releasing again is a no-op
+        registry.release(owner2);
+        Assert.assertEquals(0, registry.size());
+
+        //a released model is loaded again
+        Model reloaded = registry.acquire(owner1, TYPE, RESOURCE, content("v1"), this::load);
+        Assert.assertNotSame(model, reloaded);
+        Assert.assertEquals(2, loads);
+    }
+
+    @Test
+    public void releasesAllModelsOfOwners() throws IOException {
+        ModelRegistry registry = new ModelRegistry();
+        Object owner1 = new Object(), owner2 = new Object(), other = new Object();
+        Model model1 = registry.acquire(owner1, TYPE, RESOURCE, content("v1"), this::load);
+        Model model2 = registry.acquire(owner2, TYPE, RESOURCE, content("v2"), this::load);
+        Model shared = registry.acquire(owner2, TYPE, "models/shared.bin", content("v3"), this::load);
+        registry.acquire(other, TYPE, "models/shared.bin", content("v3"), this::load);
+
+        registry.releaseAll(Arrays.asList(owner1, owner2));
+
+        Assert.assertTrue(model1.closed);
+        Assert.assertTrue(model2.closed);
+        Assert.assertFalse(shared.closed);
+        Assert.assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void releasesReferenceOfFailedLoad() {
+        ModelRegistry registry = new ModelRegistry();
+        try {
+            registry.acquire(new Object(), TYPE, RESOURCE, content("v1"), model -> {
+                throw new IllegalStateException("corrupt model");
+            });
+            Assert.fail("a model failing to load must not be acquired");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("corrupt model"));
+        }
+        Assert.assertEquals(0, registry.size());
+    }
+}
@@ -0,0 +1,91 @@
+package uk.ac.shef.dcs.jate.nlp.opennlp;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import uk.ac.shef.dcs.jate.nlp.Chunker;
+import uk.ac.shef.dcs.jate.nlp.InstanceCreator;
+import uk.ac.shef.dcs.jate.nlp.POSTagger;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A PoS tagger and a chunker shared by concurrent threads tag as they do in a single thread.
+ */
+public class OpenNLPConcurrencyTest {
+    static String workingDir = System.getProperty("user.dir");
+    static Path MODEL_DIR = Paths.get(workingDir, "testdata", "solr-testbed", "GENIA", "conf");
+
+    private static final String[] SENTENCES = {
+            "IL-2 gene expression and NF-kappa B activation through CD28 requires reactive oxygen production by 5-lipoxygenase .",
+            "Activation of the CD28 surface receptor provides a major costimulatory signal for T cell activation .",
+            "The peri-kappa B site mediates human immunodeficiency virus type 2 enhancer activation in monocytes .",
+            "In primary T lymphocytes we show that CD28 ligation leads to the rapid intracellular formation of reactive oxygen intermediates .",
+            "Tumor necrosis factor alpha induces the nuclear translocation of the transcription factor .",
+            "These findings should be useful for therapeutic strategies and the development of immunosuppressants targeting the CD28 costimulatory pathway ."};
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 300;
+
+    private static POSTagger tagger;
+    private static Chunker chunker;
+    private static String[][] tokens;
+    private static String[][] expectedPos;
+    private static String[][] expectedChunks;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try (InputStream model = new FileInputStream(MODEL_DIR.resolve("en-pos-perceptron.bin").toFile())) {
+            tagger = InstanceCreator.createPOSTagger(POSTaggerOpenNLP.class.getName(), model);
+        }
+        try (InputStream model = new FileInputStream(MODEL_DIR.resolve("en-chunker.bin").toFile())) {
+            chunker = InstanceCreator.createChunker(ChunkerOpenNLP.class.getName(), model);
+        }
+        tokens = new String[SENTENCES.length][];
+        expectedPos = new String[SENTENCES.length][];
+        expectedChunks = new String[SENTENCES.length][];
+        for (int i = 0; i < SENTENCES.length; i++) {
+            tokens[i] = SENTENCES[i].split(" ");
+            expectedPos[i] = tagger.tag(tokens[i]);
+            expectedChunks[i] = chunker.chunk(tokens[i], expectedPos[i]);
+        }
+    }
+
+    @Test
+    public void concurrentTaggingAndChunking() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger mismatches = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    int s = (i + thread) % SENTENCES.length;
+                    String[] pos = tagger.tag(tokens[s]);
+                    if (!Arrays.equals(expectedPos[s], pos))
+                        mismatches.incrementAndGet();
+                    if (!Arrays.equals(expectedChunks[s], chunker.chunk(tokens[s], pos)))
+                        mismatches.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures)
+                future.get(5, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(0, mismatches.get());
+    }
+}
@@ -0,0 +1,226 @@
+package uk.ac.shef.dcs.jate.solr;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.embedded.JettyConfig;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.cloud.AbstractDistribZkTestBase;
+import org.apache.solr.cloud.MiniSolrCloudCluster;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.util.NamedList;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Term recognition over a two-shard collection of a MiniSolrCloudCluster on localhost, compared with that over a
+ * single-shard collection of the same documents. Candidates are the word n-grams of the configuration in
+ * testdata/solr-cloud, as the OpenNLP models and lemmatiser of the test bed cores cannot be read from ZooKeeper.
+ */
+public class DistributedTermRecognitionTest {
+    static Path cloudHome = Paths.get(System.getProperty("user.dir"), "testdata", "solr-cloud");
+
+    private static final String CONFIG = "jate";
+    private static final String HANDLER = DistributedTermRecognition.DEFAULT_HANDLER_PATH;
+    private static final String DOMAIN_TERMS = "jate_domain_terms";
+    private static final int ROWS = 10000;
+    private static final double DELTA = 1e-9;
+    private static final long TIMEOUT = 60000;
+
+    private static final String[] DOCS = {
+            "Activation of the T cell receptor induces NF kappa B in human T cells.",
+            "NF kappa B binds to the kappa B site of the interleukin 2 gene promoter.",
+            "The interleukin 2 gene is transcribed in activated T cells.",
+            "Glucocorticoid receptor expression was measured in human monocytes.",
+            "The glucocorticoid receptor represses NF kappa B activity in T cells.",
+            "Human monocytes express the interleukin 2 receptor after activation.",
+            "Tyrosine phosphorylation of the T cell receptor follows its activation.",
+            "The kappa B site is required for the activation of the interleukin 2 gene.",
+            "Transcription factors bind to the gene promoter of the glucocorticoid receptor.",
+            "Cyclosporin A inhibits the activation of NF kappa B in human T cells.",
+            "Tyrosine phosphorylation is induced by cyclosporin A in human monocytes.",
+            "Transcription factors of the NF kappa B family regulate the interleukin 2 gene."
+    };
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static MiniSolrCloudCluster cluster;
+
+    @BeforeClass
+    public static void startCluster() throws Exception {
+        cluster = new MiniSolrCloudCluster(2, folder.newFolder("cluster"), cloudHome.resolve("solr.xml").toFile(),
+                JettyConfig.builder().setContext("/solr").build());
+        cluster.uploadConfigDir(cloudHome.resolve("conf").toFile(), CONFIG);
+    }
+
+    @AfterClass
+    public static void shutdownCluster() throws Exception {
+        if (cluster != null)
+            cluster.shutdown();
+    }
+
+    //a collection of all documents over the given number of shards, one replica each
+    private static void createCollection(String collection, int shards) throws Exception {
+        cluster.createCollection(collection, shards, 1, CONFIG, null);
+        CloudSolrClient client = cluster.getSolrClient();
+        client.connect();
+        AbstractDistribZkTestBase.waitForRecoveriesToFinish(collection, client.getZkStateReader(), false, true,
+                (int) (TIMEOUT / 1000));
+
+        List<SolrInputDocument> docs = new ArrayList<>();
+        for (int i = 0; i < DOCS.length; i++) {
+            SolrInputDocument doc = new SolrInputDocument();
+            doc.addField("id", "doc" + i);
+            doc.addField("text", DOCS[i]);
+            docs.add(doc);
+        }
+        client.add(collection, docs);
+        client.commit(collection);
+
+        for (int shard = 1; shard <= shards; shard++) {
+            SolrQuery query = new SolrQuery("*:*");
+            query.set(ShardParams.SHARDS, "shard" + shard);
+            Assert.assertTrue("every shard must have documents",
+                    client.query(collection, query).getResults().getNumFound() > 0);
+        }
+    }
+
+    private static NamedList<Object> request(String collection, ModifiableSolrParams params) throws Exception {
+        QueryRequest request = new QueryRequest(params);
+        request.setPath(HANDLER);
+        return cluster.getSolrClient().request(request, collection);
+    }
+
+    private static List<JATETerm> distributed(String collection, String algorithm, boolean indexTerm)
+            throws Exception {
+        ModifiableSolrParams params = new ModifiableSolrParams();
+        params.set(TermRecognitionRequestHandler.TERM_RANKING_ALGORITHM, algorithm);
+        params.set(TermRecognitionRequestHandler.DISTRIBUTED, true);
+        params.set(TermRecognitionRequestHandler.INDEX_TERM, indexTerm);
+        params.set(CommonParams.ROWS, ROWS);
+        return terms(request(collection, params));
+    }
+
+    //the ranking of the only core of the collection, as an asynchronous job as only its result lists terms
+    private static List<JATETerm> singleCore(String collection, String algorithm, boolean indexTerm)
+            throws Exception {
+        ModifiableSolrParams params = new ModifiableSolrParams();
+        params.set(TermRecognitionRequestHandler.TERM_RANKING_ALGORITHM, algorithm);
+        params.set(TermRecognitionRequestHandler.INDEX_TERM, indexTerm);
+        params.set(TermRecognitionRequestHandler.ASYNC, true);
+        String jobId = (String) request(collection, params).get(TermRecognitionRequestHandler.JOB_ID);
+
+        ModifiableSolrParams status = new ModifiableSolrParams();
+        status.set(TermRecognitionRequestHandler.JOB_ID, jobId);
+        status.set(TermRecognitionRequestHandler.JOB_ACTION, TermRecognitionRequestHandler.JOB_ACTION_STATUS);
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!TermRecognitionJob.Status.DONE.toString().equals(request(collection, status).get("status"))) {
+            Assert.assertTrue("job not done in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+
+        ModifiableSolrParams result = new ModifiableSolrParams();
+        result.set(TermRecognitionRequestHandler.JOB_ID, jobId);
+        result.set(TermRecognitionRequestHandler.JOB_ACTION, TermRecognitionRequestHandler.JOB_ACTION_RESULT);
+        result.set(CommonParams.ROWS, ROWS);
+        return terms(request(collection, result));
+    }
+
+    //terms by descending score, ties in alphabetical order, as shards may break ties differently
+    @SuppressWarnings("unchecked")
+    private static List<JATETerm> terms(NamedList<Object> rsp) {
+        NamedList<Double> ranked = (NamedList<Double>) rsp.get("terms");
+        Assert.assertNotNull("no terms in response", ranked);
+        List<JATETerm> terms = new ArrayList<>();
+        for (Map.Entry<String, Double> term : ranked)
+            terms.add(new JATETerm(term.getKey(), term.getValue()));
+        terms.sort(Comparator.comparing(JATETerm::getScore).reversed().thenComparing(JATETerm::getString));
+        return terms;
+    }
+
+    private static void assertSameRanking(String algorithm, List<JATETerm> expected, List<JATETerm> actual) {
+        Assert.assertFalse(algorithm, expected.isEmpty());
+        Assert.assertEquals(algorithm, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(algorithm, expected.get(i).getString(), actual.get(i).getString());
+            Assert.assertEquals(algorithm, expected.get(i).getScore(), actual.get(i).getScore(), DELTA);
+        }
+    }
+
+    //domain terms by document id
+    private static Map<String, Set<Object>> domainTerms(String collection) throws Exception {
+        SolrQuery query = new SolrQuery("*:*");
+        query.setFields("id", DOMAIN_TERMS);
+        query.setRows(DOCS.length);
+        Map<String, Set<Object>> terms = new HashMap<>();
+        for (SolrDocument doc : cluster.getSolrClient().query(collection, query).getResults()) {
+            Collection<Object> values = doc.getFieldValues(DOMAIN_TERMS);
+            terms.put((String) doc.getFieldValue("id"), values == null ? Collections.emptySet() : new HashSet<>(values));
+        }
+        return terms;
+    }
+
+    @Test
+    public void rankingOfShardsEqualsSingleCore() throws Exception {
+        createCollection("ranking_sharded", 2);
+        createCollection("ranking_single", 1);
+        //CValue derives nesting from the merged candidates, RAKE needs word statistics, TTF-IDF and RIDF the total docs
+        for (String algorithm : Arrays.asList("CValue", "RAKE", "TTF-IDF", "RIDF")) {
+            assertSameRanking(algorithm, singleCore("ranking_single", algorithm, false),
+                    distributed("ranking_sharded", algorithm, false));
+        }
+    }
+
+    @Test
+    public void termsIndexedOnEveryShard() throws Exception {
+        createCollection("indexing_sharded", 2);
+        createCollection("indexing_single", 1);
+        List<JATETerm> expected = singleCore("indexing_single", "CValue", true);
+        List<JATETerm> actual = distributed("indexing_sharded", "CValue", true);
+        assertSameRanking("CValue", expected, actual);
+
+        Map<String, Set<Object>> sharded = domainTerms("indexing_sharded");
+        Assert.assertEquals(DOCS.length, sharded.size());
+        Assert.assertEquals(domainTerms("indexing_single"), sharded);
+        for (Set<Object> terms : sharded.values())
+            Assert.assertFalse(terms.isEmpty());
+    }
+
+    @Test
+    public void rejectsExtractionAndChiSquare() throws Exception {
+        createCollection("rejected", 2);
+        ModifiableSolrParams extraction = new ModifiableSolrParams();
+        extraction.set(TermRecognitionRequestHandler.TERM_RANKING_ALGORITHM, "CValue");
+        extraction.set(TermRecognitionRequestHandler.DISTRIBUTED, true);
+        extraction.set(TermRecognitionRequestHandler.CANDIDATE_EXTRACTION, true);
+        assertBadRequest("rejected", extraction);
+
+        ModifiableSolrParams chiSquare = new ModifiableSolrParams();
+        chiSquare.set(TermRecognitionRequestHandler.TERM_RANKING_ALGORITHM, "ChiSquare");
+        chiSquare.set(TermRecognitionRequestHandler.DISTRIBUTED, true);
+        assertBadRequest("rejected", chiSquare);
+    }
+
+    private static void assertBadRequest(String collection, ModifiableSolrParams params) throws Exception {
+        try {
+            request(collection, params);
+            Assert.fail("the request must be rejected");
+        } catch (SolrException e) {
+            Assert.assertEquals(SolrException.ErrorCode.BAD_REQUEST.code, e.code());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package uk.ac.shef.dcs.jate.solr;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.CoreContainer;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrInfoMBean;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.shef.dcs.jate.nlp.ModelRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The models of the analysis factories of the GENIA test core, copied so that its index is not left in the test bed.
+ */
+public class ModelReleaseComponentTest {
+    static Path solrHome = Paths.get(System.getProperty("user.dir"), "testdata", "solr-testbed");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CoreContainer load() throws IOException {
+        File home = folder.getRoot();
+        FileUtils.copyFile(solrHome.resolve("solr.xml").toFile(), new File(home, "solr.xml"));
+        File core = new File(home, "GENIA");
+        FileUtils.copyDirectory(solrHome.resolve("GENIA").toFile(), core);
+        //the schema names the maxent PoS model, of which the test bed has the perceptron version
+        FileUtils.copyFile(new File(core, "conf/en-pos-perceptron.bin"), new File(core, "conf/en-pos-maxent.bin"));
+        CoreContainer container = new CoreContainer(home.getAbsolutePath());
+        container.load();
+        return container;
+    }
+
+    @Test
+    public void releasesModelsOfClosedCore() throws IOException {
+        int before = ModelRegistry.getInstance().size();
+        CoreContainer container = load();
+        try {
+            Assert.assertTrue(ModelRegistry.getInstance().size() > before);
+        } finally {
+            container.shutdown();
+        }
+        Assert.assertEquals(before, ModelRegistry.getInstance().size());
+    }
+
+    @Test
+    public void reloadedCoreKeepsModels() throws IOException {
+        int before = ModelRegistry.getInstance().size();
+        CoreContainer container = load();
+        try {
+            int loaded = ModelRegistry.getInstance().size();
+            container.reload("GENIA");
+            //the factories of the new core hold the models released by those of the old one
+            Assert.assertEquals(loaded, ModelRegistry.getInstance().size());
+        } finally {
+            container.shutdown();
+        }
+        Assert.assertEquals(before, ModelRegistry.getInstance().size());
+    }
+
+    private static NamedList<?> statistics(CoreContainer container) {
+        SolrCore core = container.getCore("GENIA");
+        try {
+            SolrInfoMBean component = core.getInfoRegistry().get(ModelReleaseComponent.class.getName());
+            Assert.assertNotNull(component);
+            return component.getStatistics();
+        } finally {
+            core.close();
+        }
+    }
+
+    @Test
+    public void reportsLemmaCacheStatistics() throws IOException, SolrServerException {
+        CoreContainer container = load();
+        try {
+            NamedList<?> stats = statistics(container);
+            Assert.assertTrue((Integer) stats.get("analysisFactories") > 0);
+            Assert.assertTrue((Integer) stats.get("lemmaCaches") > 0);
+            Assert.assertEquals(0L, stats.get("lemmaCacheHits"));
+            Assert.assertEquals(0L, stats.get("lemmaCacheMisses"));
+
+            EmbeddedSolrServer server = new EmbeddedSolrServer(container, "GENIA");
+            for (int i = 0; i < 2; i++) {
+                SolrInputDocument doc = new SolrInputDocument();
+                doc.addField("id", "doc" + i);
+                //the n-gram field is analysed with the lemmatiser
+                doc.addField("jate_ngraminfo", "Activated T cells express interleukin 2 receptors.");
+                server.add(doc);
+            }
+            //the second document looks up the words of the first one again
+            stats = statistics(container);
+            Assert.assertTrue((Long) stats.get("lemmaCacheMisses") > 0);
+            Assert.assertTrue((Long) stats.get("lemmaCacheHits") > 0);
+            Assert.assertTrue((Double) stats.get("lemmaCacheHitRate") > 0);
+        } finally {
+            container.shutdown();
+        }
+    }
+}
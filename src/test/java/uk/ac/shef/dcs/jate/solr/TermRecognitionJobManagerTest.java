@@ -0,0 +1,188 @@
+package uk.ac.shef.dcs.jate.solr;
+
+import org.apache.solr.common.SolrException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.shef.dcs.jate.model.JATETerm;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jobs running a stub pipeline rather than term recognition on a core.
+ */
+public class TermRecognitionJobManagerTest {
+    private static final long TIMEOUT = 10000;
+    private static final List<JATETerm> TERMS = Arrays.asList(new JATETerm("t cell", 2.0), new JATETerm("cell", 1.0));
+
+    //a body that signals it has started, then waits until released
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger runs = new AtomicInteger();
+    private final TermRecognitionJobManager.JobBody blocking = (job, core) -> {
+        runs.incrementAndGet();
+        job.enterPhase(TermRecognitionJob.Phase.RANKING_AND_FILTERING);
+        started.countDown();
+        release.await();
+        job.checkNotCancelled();
+        return TERMS;
+    };
+
+    private TermRecognitionJobManager manager;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (manager != null)
+            manager.shutdown();
+    }
+
+    private static TermRecognitionJob job(String key) {
+        return new TermRecognitionJob(TermRecognitionJobManager.newJobId(), "core", key, null, null, null,
+                Collections.emptyMap(), false, false, false, null);
+    }
+
+    private static void awaitFinished(TermRecognitionJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (job.getFinished() == 0) {
+            Assert.assertTrue("job not finished in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private void awaitEvicted(TermRecognitionJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (manager.getJob(job.getId()) != null) {
+            Assert.assertTrue("job not evicted in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void resultOfCompletedJob() throws InterruptedException {
+        manager = new TermRecognitionJobManager(blocking, 1, 1, 8, TimeUnit.HOURS.toMillis(1));
+        TermRecognitionJob job = manager.submit(job("a"), null);
+        Assert.assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        Assert.assertEquals(TermRecognitionJob.Status.RUNNING, manager.getJob(job.getId()).getStatus());
+        Assert.assertEquals(TermRecognitionJob.Phase.RANKING_AND_FILTERING, job.getPhase());
+        Assert.assertTrue(job.getStarted() > 0);
+        Assert.assertNull(job.getTerms());
+
+        release.countDown();
+        awaitFinished(job);
+        Assert.assertSame(job, manager.getJob(job.getId()));
+        Assert.assertEquals(TermRecognitionJob.Status.DONE, job.getStatus());
+        Assert.assertEquals(TERMS, job.getTerms());
+        Assert.assertTrue(job.getFinished() >= job.getStarted());
+    }
+
+    @Test
+    public void coalescesIdenticalActiveJobs() throws InterruptedException {
+        manager = new TermRecognitionJobManager(blocking, 1, 4, 8, TimeUnit.HOURS.toMillis(1));
+        TermRecognitionJob first = manager.submit(job("a"), null);
+        Assert.assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        Assert.assertSame(first, manager.submit(job("a"), null));
+        TermRecognitionJob other = job("b");
+        Assert.assertSame(other, manager.submit(other, null));
+
+        release.countDown();
+        awaitFinished(first);
+        awaitFinished(other);
+        Assert.assertEquals(2, runs.get());
+        //a finished job is not coalesced into
+        TermRecognitionJob again = job("a");
+        Assert.assertSame(again, manager.submit(again, null));
+    }
+
+    @Test
+    public void cancelledRunningJobStopsAtItsNextStep() throws InterruptedException {
+        manager = new TermRecognitionJobManager(blocking, 1, 1, 8, TimeUnit.HOURS.toMillis(1));
+        TermRecognitionJob job = manager.submit(job("a"), null);
+        Assert.assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        Assert.assertSame(job, manager.cancel(job.getId()));
+        Assert.assertTrue(job.isCancelRequested());
+        release.countDown();
+        awaitFinished(job);
+
+        Assert.assertEquals(TermRecognitionJob.Status.CANCELLED, job.getStatus());
+        Assert.assertNull(job.getTerms());
+        Assert.assertNull(job.getError());
+    }
+
+    @Test
+    public void cancelledQueuedJobNeverStarts() throws InterruptedException {
+        manager = new TermRecognitionJobManager(blocking, 1, 1, 8, TimeUnit.HOURS.toMillis(1));
+        TermRecognitionJob running = manager.submit(job("a"), null);
+        Assert.assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        TermRecognitionJob queued = manager.submit(job("b"), null);
+
+        manager.cancel(queued.getId());
+        release.countDown();
+        awaitFinished(running);
+        awaitFinished(queued);
+
+        Assert.assertEquals(1, runs.get());
+        Assert.assertEquals(0, queued.getStarted());
+        Assert.assertEquals(TermRecognitionJob.Status.CANCELLED, queued.getStatus());
+    }
+
+    @Test
+    public void rejectsJobsBeyondQueue() throws InterruptedException {
+        manager = new TermRecognitionJobManager(blocking, 1, 1, 8, TimeUnit.HOURS.toMillis(1));
+        manager.submit(job("a"), null);
+        Assert.assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        manager.submit(job("b"), null);
+
+        TermRecognitionJob rejected = job("c");
+        try {
+            manager.submit(rejected, null);
+            Assert.fail("a job beyond the queue must be rejected");
+        } catch (SolrException e) {
+            Assert.assertEquals(SolrException.ErrorCode.SERVICE_UNAVAILABLE.code, e.code());
+        }
+        Assert.assertNull(manager.getJob(rejected.getId()));
+    }
+
+    @Test
+    public void failedJob() throws InterruptedException {
+        manager = new TermRecognitionJobManager((job, core) -> {
+            throw new IllegalStateException("no candidates");
+        }, 1, 1, 8, TimeUnit.HOURS.toMillis(1));
+        TermRecognitionJob job = manager.submit(job("a"), null);
+        awaitFinished(job);
+
+        Assert.assertEquals(TermRecognitionJob.Status.FAILED, job.getStatus());
+        Assert.assertTrue(job.getError(), job.getError().contains("no candidates"));
+        Assert.assertNull(job.getTerms());
+    }
+
+    @Test
+    public void evictsOldestFinishedJobsBeyondCount() throws InterruptedException {
+        manager = new TermRecognitionJobManager((job, core) -> TERMS, 1, 1, 1, TimeUnit.HOURS.toMillis(1));
+        TermRecognitionJob first = manager.submit(job("a"), null);
+        awaitFinished(first);
+        Assert.assertSame(first, manager.getJob(first.getId()));
+
+        TermRecognitionJob second = manager.submit(job("b"), null);
+        awaitFinished(second);
+        awaitEvicted(first);
+        Assert.assertSame(second, manager.getJob(second.getId()));
+    }
+
+    @Test
+    public void expiresFinishedJobs() throws InterruptedException {
+        manager = new TermRecognitionJobManager((job, core) -> TERMS, 1, 1, 8, 50);
+        TermRecognitionJob job = manager.submit(job("a"), null);
+        awaitFinished(job);
+        awaitEvicted(job);
+        Assert.assertTrue(System.currentTimeMillis() - job.getFinished() >= 50);
+    }
+}